@@ -0,0 +1,89 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Publicación de un índice en memoria que se construye recorriendo la base de datos y se
+ * mantiene después con los cambios confirmados.
+ *
+ * Mientras se construye, cada cambio se aplica a la versión publicada (si la hay) y se guarda
+ * para aplicarlo también a la nueva al terminar, ya que el recorrido puede no haberlo visto.
+ * Por eso los cambios deben ser idempotentes. Si la construcción falla se descartan los
+ * guardados y sigue publicada la versión anterior.
+ *
+ * @param <D> datos del índice
+ * @param <C> cambio pendiente de aplicar
+ */
+final class ConstruccionIndice<D, C> {
+
+    private final BiConsumer<C, D> aplicarEn;
+
+    private volatile D actual;
+    private boolean construyendo;
+    private final List<C> pendientes = new ArrayList<>();
+
+    /**
+     * @param aplicarEn aplica un cambio a unos datos; se llama siempre con el monitor de este objeto
+     */
+    ConstruccionIndice(BiConsumer<C, D> aplicarEn) {
+        this.aplicarEn = aplicarEn;
+    }
+
+    /**
+     * Versión publicada del índice
+     * @return los datos, o null si aún no se ha construido
+     */
+    D actual() {
+        return actual;
+    }
+
+    /**
+     * Aplica un cambio confirmado a la versión publicada y, si hay una construcción en curso,
+     * lo guarda para la nueva
+     * @param cambio el cambio
+     */
+    synchronized void aplicar(C cambio) {
+        if (construyendo) {
+            pendientes.add(cambio);
+        }
+        if (actual != null) {
+            aplicarEn.accept(cambio, actual);
+        }
+    }
+
+    /**
+     * Construye una versión nueva, le aplica los cambios llegados entretanto y la publica
+     * @param cargar construye los datos recorriendo la base de datos
+     * @return los datos publicados, o null si ya había otra construcción en curso
+     */
+    D construir(Supplier<D> cargar) {
+        synchronized (this) {
+            if (construyendo) {
+                return null;
+            }
+            construyendo = true;
+        }
+        D nuevo = null;
+        try {
+            nuevo = cargar.get();
+        } finally {
+            synchronized (this) {
+                try {
+                    if (nuevo != null) {
+                        for (C cambio : pendientes) {
+                            aplicarEn.accept(cambio, nuevo);
+                        }
+                        actual = nuevo;
+                    }
+                } finally {
+                    pendientes.clear();
+                    construyendo = false;
+                }
+            }
+        }
+        return nuevo;
+    }
+}
@@ -0,0 +1,47 @@
+package com.proyect.api_biblioteca.busqueda;
+
+/**
+ * Filtro de Bloom por bloques: los bits de cada clave caen todos en la misma palabra
+ * de 64 bits, así que comprobar una clave lee una única posición del array.
+ * Con 8 bits por clave la tasa de falsos positivos ronda el 3 %.
+ *
+ * No es seguro para hilos: lo protege el mapa que lo contiene.
+ */
+final class FiltroBloom {
+
+    static final int BITS_POR_CLAVE = 8;
+
+    private static final int FUNCIONES = 5;
+
+    private final long[] palabras;
+
+    FiltroBloom(int claves) {
+        this.palabras = new long[Math.max(1, (int) (((long) claves * BITS_POR_CLAVE + 63) / 64))];
+    }
+
+    void agregar(long hash) {
+        palabras[palabra(hash)] |= mascara(hash);
+    }
+
+    boolean puedeContener(long hash) {
+        long mascara = mascara(hash);
+        return (palabras[palabra(hash)] & mascara) == mascara;
+    }
+
+    long bytes() {
+        return (long) palabras.length * Long.BYTES;
+    }
+
+    private int palabra(long hash) {
+        return (int) (((hash & 0xFFFFFFFFL) * palabras.length) >>> 32);
+    }
+
+    private static long mascara(long hash) {
+        // Los bits de la parte alta del hash, de seis en seis, eligen los bits dentro de la palabra
+        long mascara = 0;
+        for (int i = 0; i < FUNCIONES; i++) {
+            mascara |= 1L << ((hash >>> (32 + 6 * i)) & 63);
+        }
+        return mascara;
+    }
+}
@@ -0,0 +1,395 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.dto.FacetaDTO;
+import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.service.TransaccionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de los libros por estado y por año de publicación, con un MapaBits
+ * de IDs para cada valor. Contar libros de un estado es leer una cardinalidad, y los filtros
+ * combinados (estado, rango de años, resultados de una búsqueda) se resuelven intersectando
+ * mapas de bits en lugar de con SQL.
+ *
+ * Guarda además el estado, el año y el autor (como código de un diccionario) de cada libro
+ * en arrays primitivos indexados por ID, con los que se calculan las facetas de una búsqueda
+ * en una sola pasada sobre los IDs encontrados.
+ *
+ * Se construye al arrancar, se mantiene tras cada commit desde LibroService y PrestamoService
+ * y se reconstruye periódicamente para corregir cambios hechos por otras vías.
+ */
+@Component
+public class IndiceEstadoLibros {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceEstadoLibros.class);
+
+    private final LibroRepository libroRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Contadores por código de autor reutilizados entre consultas del mismo hilo
+    private static final ThreadLocal<int[]> CONTADORES_AUTOR = ThreadLocal.withInitial(() -> new int[0]);
+
+    // Las consultas recorren los mapas mientras se les aplican cambios: lectura compartida, cambios en exclusiva
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final ConstruccionIndice<Datos, Cambio> datos = new ConstruccionIndice<>(this::aplicarEn);
+
+    public IndiceEstadoLibros(LibroRepository libroRepository, PlatformTransactionManager transactionManager) {
+        this.libroRepository = libroRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Sin readOnly: con réplicas, la construcción lee de la principal (sin retraso de replicación)
+    }
+
+    /**
+     * Indica si el índice está construido y puede responder consultas
+     * @return true si está listo
+     */
+    public boolean isListo() {
+        return datos.actual() != null;
+    }
+
+    /**
+     * Cuenta los libros de un estado
+     * @param estado el estado
+     * @return número de libros, o -1 si el índice no está listo
+     */
+    public long contar(EstadoLibro estado) {
+        return leer(actuales -> (long) actuales.porEstado.get(estado).cardinalidad(), -1L);
+    }
+
+    /**
+     * IDs de los libros de un estado
+     * @param estado el estado
+     * @return IDs ordenados, o null si el índice no está listo
+     */
+    public int[] buscar(EstadoLibro estado) {
+        return leer(actuales -> actuales.porEstado.get(estado).valores(), null);
+    }
+
+    /**
+     * Intersección de los filtros indicados; los que son null no filtran
+     * @param estado estado de los libros
+     * @param anioDesde año de publicación mínimo (incluido)
+     * @param anioHasta año de publicación máximo (incluido)
+     * @param candidatos IDs ordenados a los que limitar el resultado (por ejemplo, los de una búsqueda de texto)
+     * @return mapa con los IDs que cumplen todos los filtros, o null si el índice no está listo
+     */
+    public MapaBits filtrar(EstadoLibro estado, Integer anioDesde, Integer anioHasta, int[] candidatos) {
+        return leer(actuales -> {
+            MapaBits resultado = estado == null ? null : actuales.porEstado.get(estado);
+            if (anioDesde != null || anioHasta != null) {
+                NavigableMap<Integer, MapaBits> anios = actuales.porAnio.subMap(
+                        anioDesde == null ? Integer.MIN_VALUE : anioDesde, true,
+                        anioHasta == null ? Integer.MAX_VALUE : anioHasta, true);
+                MapaBits porAnio = MapaBits.union(anios.values());
+                resultado = resultado == null ? porAnio : MapaBits.interseccion(resultado, porAnio);
+            }
+            if (resultado == null) {
+                resultado = MapaBits.union(actuales.porEstado.values());
+            }
+            if (candidatos != null) {
+                return MapaBits.de(resultado.filtrar(candidatos));
+            }
+            // Los mapas del índice no se pueden devolver tal cual: cambian con cada commit
+            return resultado == actuales.porEstado.get(estado) ? resultado.copiar() : resultado;
+        }, null);
+    }
+
+    /**
+     * Cuenta por estado, década de publicación y autor los libros indicados, recorriéndolos
+     * una sola vez para todas las facetas
+     * @param ids IDs de los libros
+     * @param maximoAutores número máximo de autores a devolver (los de más libros)
+     * @return facetas "estado", "decada" y "autor", o null si el índice no está listo
+     */
+    public Map<String, List<FacetaDTO>> facetas(int[] ids, int maximoAutores) {
+        return leer(actuales -> actuales.facetas(ids, maximoAutores), null);
+    }
+
+    /**
+     * Registra el estado, el año y el autor actuales de un libro; se aplica tras el commit
+     * @param libro el libro guardado
+     */
+    public void registrar(Libro libro) {
+        Cambio cambio = new Cambio(List.of(libro.getId()), libro.getEstado(), libro.getAnioPublicacion(), libro.getAutor());
+        TransaccionUtil.despuesDelCommit(() -> datos.aplicar(cambio));
+    }
+
+    /**
+     * Registra el cambio de estado de varios libros (sin cambio de año); se aplica tras el commit
+     * @param libroIds IDs de los libros
+     * @param estado estado nuevo
+     */
+    public void registrarEstado(Collection<Long> libroIds, EstadoLibro estado) {
+        if (libroIds.isEmpty()) {
+            return;
+        }
+        Cambio cambio = new Cambio(List.copyOf(libroIds), estado, null, null);
+        TransaccionUtil.despuesDelCommit(() -> datos.aplicar(cambio));
+    }
+
+    /**
+     * Registra el borrado de un libro; se aplica tras el commit
+     * @param libroId ID del libro
+     */
+    public void registrarBorrado(Long libroId) {
+        Cambio cambio = new Cambio(List.of(libroId), null, null, null);
+        TransaccionUtil.despuesDelCommit(() -> datos.aplicar(cambio));
+    }
+
+    /**
+     * Construye el índice completo recorriendo los libros con un cursor.
+     * Los cambios confirmados durante la construcción se aplican al terminar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${biblioteca.libros.indice-estados.reconstruccion.cron:0 45 3 * * *}")
+    public void construir() {
+        datos.construir(this::cargar);
+    }
+
+    private Datos cargar() {
+        long inicio = System.nanoTime();
+        Datos nuevos = new Datos();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> filas = libroRepository.streamEstadosAniosYAutores()) {
+                filas.forEach(fila -> nuevos.poner(Math.toIntExact((Long) fila[0]),
+                        (EstadoLibro) fila[1], (Integer) fila[2], (String) fila[3]));
+            }
+        });
+        log.info("Índice de estados de libros construido: {} libros en {} ms",
+                nuevos.porEstado.values().stream().mapToLong(MapaBits::cardinalidad).sum(),
+                (System.nanoTime() - inicio) / 1_000_000);
+        return nuevos;
+    }
+
+    private void aplicarEn(Cambio cambio, Datos destino) {
+        cerrojo.writeLock().lock();
+        try {
+            cambio.aplicarEn(destino);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private <T> T leer(Function<Datos, T> consulta, T siNoListo) {
+        cerrojo.readLock().lock();
+        try {
+            Datos actuales = datos.actual();
+            return actuales == null ? siNoListo : consulta.apply(actuales);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mapas de bits por estado y por año, más columnas con el estado, el año y el autor de
+     * cada libro (para sacarlo del mapa correcto cuando cambia y para las facetas)
+     */
+    private static final class Datos {
+
+        private static final byte SIN_ESTADO = -1;
+        private static final int SIN_AUTOR = -1;
+
+        private final Map<EstadoLibro, MapaBits> porEstado = new EnumMap<>(EstadoLibro.class);
+        private final TreeMap<Integer, MapaBits> porAnio = new TreeMap<>();
+        private byte[] estados = new byte[1024];
+        private int[] anios = new int[1024];
+        private int[] autores = new int[1024];
+
+        // Diccionario de autores: los códigos no se reutilizan aunque el autor deje de tener libros
+        private final Map<String, Integer> codigosAutor = new HashMap<>();
+        private final List<String> nombresAutor = new ArrayList<>();
+
+        Datos() {
+            for (EstadoLibro estado : EstadoLibro.values()) {
+                porEstado.put(estado, new MapaBits());
+            }
+            Arrays.fill(estados, SIN_ESTADO);
+            Arrays.fill(autores, SIN_AUTOR);
+        }
+
+        void poner(int id, EstadoLibro estado, Integer anio, String autor) {
+            asegurar(id);
+            if (estados[id] != SIN_ESTADO) {
+                porEstado.get(EstadoLibro.values()[estados[id]]).quitar(id);
+            }
+            estados[id] = (byte) estado.ordinal();
+            porEstado.get(estado).agregar(id);
+            if (anio != null && anio != anios[id]) {
+                quitarAnio(id);
+                anios[id] = anio;
+                porAnio.computeIfAbsent(anio, a -> new MapaBits()).agregar(id);
+            }
+            if (autor != null) {
+                autores[id] = codigosAutor.computeIfAbsent(autor, a -> {
+                    nombresAutor.add(a);
+                    return nombresAutor.size() - 1;
+                });
+            }
+        }
+
+        void quitar(int id) {
+            if (id >= estados.length || estados[id] == SIN_ESTADO) {
+                return;
+            }
+            porEstado.get(EstadoLibro.values()[estados[id]]).quitar(id);
+            estados[id] = SIN_ESTADO;
+            quitarAnio(id);
+            anios[id] = 0;
+            autores[id] = SIN_AUTOR;
+        }
+
+        boolean existe(int id) {
+            return id < estados.length && estados[id] != SIN_ESTADO;
+        }
+
+        private void quitarAnio(int id) {
+            MapaBits anterior = porAnio.get(anios[id]);
+            if (anterior != null && anterior.quitar(id) && anterior.cardinalidad() == 0) {
+                porAnio.remove(anios[id]);
+            }
+        }
+
+        private void asegurar(int id) {
+            if (id >= estados.length) {
+                int tamanio = Math.max(id + 1, estados.length * 2);
+                int anterior = estados.length;
+                estados = Arrays.copyOf(estados, tamanio);
+                anios = Arrays.copyOf(anios, tamanio);
+                autores = Arrays.copyOf(autores, tamanio);
+                Arrays.fill(estados, anterior, tamanio, SIN_ESTADO);
+                Arrays.fill(autores, anterior, tamanio, SIN_AUTOR);
+            }
+        }
+
+        Map<String, List<FacetaDTO>> facetas(int[] ids, int maximoAutores) {
+            int[] porEstadoContados = new int[EstadoLibro.values().length];
+            int primeraDecada = porAnio.isEmpty() ? 0 : porAnio.firstKey() / 10;
+            int[] porDecada = new int[porAnio.isEmpty() ? 0 : porAnio.lastKey() / 10 - primeraDecada + 1];
+            int[] porAutor = CONTADORES_AUTOR.get();
+            if (porAutor.length < nombresAutor.size()) {
+                porAutor = new int[Math.max(nombresAutor.size(), porAutor.length * 2)];
+                CONTADORES_AUTOR.set(porAutor);
+            }
+            int[] autoresVistos = new int[Math.min(ids.length, nombresAutor.size())];
+            int numeroAutores = 0;
+
+            try {
+                for (int id : ids) {
+                    if (id >= estados.length || estados[id] == SIN_ESTADO) {
+                        continue;
+                    }
+                    porEstadoContados[estados[id]]++;
+                    if (anios[id] != 0) {
+                        porDecada[anios[id] / 10 - primeraDecada]++;
+                    }
+                    int autor = autores[id];
+                    if (autor != SIN_AUTOR && porAutor[autor]++ == 0) {
+                        autoresVistos[numeroAutores++] = autor;
+                    }
+                }
+
+                Map<String, List<FacetaDTO>> facetas = new LinkedHashMap<>();
+                List<FacetaDTO> estadosContados = new ArrayList<>();
+                for (EstadoLibro estado : EstadoLibro.values()) {
+                    if (porEstadoContados[estado.ordinal()] > 0) {
+                        estadosContados.add(new FacetaDTO(estado.name(), porEstadoContados[estado.ordinal()]));
+                    }
+                }
+                facetas.put("estado", estadosContados);
+
+                List<FacetaDTO> decadas = new ArrayList<>();
+                for (int i = 0; i < porDecada.length; i++) {
+                    if (porDecada[i] > 0) {
+                        decadas.add(new FacetaDTO(String.valueOf((primeraDecada + i) * 10), porDecada[i]));
+                    }
+                }
+                facetas.put("decada", decadas);
+
+                facetas.put("autor", mejoresAutores(porAutor, autoresVistos, numeroAutores, maximoAutores));
+                return facetas;
+            } finally {
+                for (int i = 0; i < numeroAutores; i++) {
+                    porAutor[autoresVistos[i]] = 0;
+                }
+            }
+        }
+
+        /**
+         * Selecciona los autores con más libros con un montículo del tamaño pedido
+         */
+        private List<FacetaDTO> mejoresAutores(int[] porAutor, int[] vistos, int numero, int maximo) {
+            Comparator<Integer> orden = Comparator.<Integer>comparingInt(a -> porAutor[a])
+                    .thenComparing(a -> nombresAutor.get(a), Comparator.reverseOrder());
+            PriorityQueue<Integer> mejores = new PriorityQueue<>(orden);
+            for (int i = 0; i < numero; i++) {
+                mejores.add(vistos[i]);
+                if (mejores.size() > maximo) {
+                    mejores.poll();
+                }
+            }
+            List<FacetaDTO> autoresContados = new ArrayList<>(mejores.size());
+            while (!mejores.isEmpty()) {
+                int autor = mejores.poll();
+                autoresContados.add(new FacetaDTO(nombresAutor.get(autor), porAutor[autor]));
+            }
+            Collections.reverse(autoresContados);
+            return autoresContados;
+        }
+    }
+
+    /**
+     * Cambio de estado (y año y autor) de uno o varios libros pendiente de aplicar al índice.
+     * Fija los valores en lugar de moverlos, así que puede aplicarse varias veces.
+     */
+    private static final class Cambio {
+
+        private final List<Long> libroIds;
+        private final EstadoLibro estado;
+        private final Integer anio;
+        private final String autor;
+
+        Cambio(List<Long> libroIds, EstadoLibro estado, Integer anio, String autor) {
+            this.libroIds = libroIds;
+            this.estado = estado;
+            this.anio = anio;
+            this.autor = autor;
+        }
+
+        void aplicarEn(Datos datos) {
+            for (Long libroId : libroIds) {
+                int id = Math.toIntExact(libroId);
+                if (estado == null) {
+                    datos.quitar(id);
+                } else if (anio != null || datos.existe(id)) {
+                    datos.poner(id, estado, anio, autor);
+                }
+            }
+        }
+    }
+}
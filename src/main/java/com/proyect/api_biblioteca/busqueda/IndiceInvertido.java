@@ -0,0 +1,283 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice invertido de un campo de texto: para cada término guarda la lista ordenada
+ * de documentos que lo contienen (posting list) como un int[].
+ *
+ * Las lecturas no se bloquean: cada lista es inmutable y se sustituye entera al modificarla.
+ * Las escrituras se serializan sobre el propio índice.
+ */
+public class IndiceInvertido {
+    
+    private static final int[] VACIO = new int[0];
+    
+    private final ConcurrentSkipListMap<String, int[]> terminos;
+    
+    public IndiceInvertido() {
+        this(new ConcurrentSkipListMap<>());
+    }
+    
+    private IndiceInvertido(ConcurrentSkipListMap<String, int[]> terminos) {
+        this.terminos = terminos;
+    }
+    
+    /**
+     * Añade el documento a la lista de cada término
+     * @param documento identificador del documento
+     * @param tokens términos normalizados del documento
+     */
+    public synchronized void agregar(int documento, Collection<String> tokens) {
+        for (String token : tokens) {
+            int[] lista = terminos.getOrDefault(token, VACIO);
+            int posicion = Arrays.binarySearch(lista, documento);
+            if (posicion < 0) {
+                posicion = -posicion - 1;
+                int[] nueva = new int[lista.length + 1];
+                System.arraycopy(lista, 0, nueva, 0, posicion);
+                nueva[posicion] = documento;
+                System.arraycopy(lista, posicion, nueva, posicion + 1, lista.length - posicion);
+                terminos.put(token, nueva);
+            }
+        }
+    }
+    
+    /**
+     * Quita el documento de la lista de cada término; los términos sin documentos se eliminan
+     * @param documento identificador del documento
+     * @param tokens términos normalizados que tenía el documento
+     */
+    public synchronized void quitar(int documento, Collection<String> tokens) {
+        for (String token : tokens) {
+            int[] lista = terminos.get(token);
+            int posicion = lista == null ? -1 : Arrays.binarySearch(lista, documento);
+            if (posicion < 0) {
+                continue;
+            }
+            if (lista.length == 1) {
+                terminos.remove(token);
+            } else {
+                int[] nueva = new int[lista.length - 1];
+                System.arraycopy(lista, 0, nueva, 0, posicion);
+                System.arraycopy(lista, posicion + 1, nueva, posicion, lista.length - posicion - 1);
+                terminos.put(token, nueva);
+            }
+        }
+    }
+    
+    /**
+     * Documentos que contienen algún término que empiece por el prefijo indicado
+     * @param prefijo prefijo normalizado
+     * @return documentos ordenados y sin repetir
+     */
+    public int[] buscarPrefijo(String prefijo) {
+        NavigableMap<String, int[]> rango = terminos.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+        if (rango.isEmpty()) {
+            return VACIO;
+        }
+        if (rango.size() == 1) {
+            return rango.firstEntry().getValue();
+        }
+        return union(rango.values());
+    }
+    
+    /**
+     * Número de términos distintos del índice
+     * @return número de términos
+     */
+    public int numeroTerminos() {
+        return terminos.size();
+    }
+    
+    /**
+     * Intersección de dos listas ordenadas
+     * @param a lista ordenada
+     * @param b lista ordenada
+     * @return elementos comunes, ordenados
+     */
+    public static int[] interseccion(int[] a, int[] b) {
+        int[] resultado = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                resultado[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == resultado.length ? resultado : Arrays.copyOf(resultado, n);
+    }
+    
+    /**
+     * Unión de varias listas ordenadas de documentos (no negativos).
+     * Si las listas cubren buena parte del rango de documentos se marcan en un mapa de bits,
+     * lineal en el rango; si no, se mezclan con un montículo de k cursores, O(P log k) para
+     * P elementos en k listas en lugar de ordenarlos todos
+     * @param listas listas ordenadas
+     * @return elementos de todas las listas, ordenados y sin repetir (puede ser una de las listas)
+     */
+    public static int[] union(Collection<int[]> listas) {
+        List<int[]> noVacias = new ArrayList<>(listas.size());
+        int total = 0;
+        int maximo = 0;
+        for (int[] lista : listas) {
+            if (lista.length > 0) {
+                noVacias.add(lista);
+                total += lista.length;
+                maximo = Math.max(maximo, lista[lista.length - 1]);
+            }
+        }
+        if (noVacias.isEmpty()) {
+            return VACIO;
+        }
+        if (noVacias.size() == 1) {
+            return noVacias.get(0);
+        }
+        if (maximo / Long.SIZE <= total) {
+            return unionConBits(noVacias, maximo, total);
+        }
+        return unionConMezcla(noVacias, total);
+    }
+    
+    private static int[] unionConBits(List<int[]> listas, int maximo, int total) {
+        long[] bits = new long[maximo / Long.SIZE + 1];
+        for (int[] lista : listas) {
+            for (int documento : lista) {
+                bits[documento >>> 6] |= 1L << documento;
+            }
+        }
+        int[] resultado = new int[total];
+        int n = 0;
+        for (int palabra = 0; palabra < bits.length; palabra++) {
+            long valor = bits[palabra];
+            while (valor != 0) {
+                resultado[n++] = palabra * Long.SIZE + Long.numberOfTrailingZeros(valor);
+                valor &= valor - 1;
+            }
+        }
+        return n == total ? resultado : Arrays.copyOf(resultado, n);
+    }
+    
+    private static int[] unionConMezcla(List<int[]> listas, int total) {
+        int k = listas.size();
+        int[][] fuentes = listas.toArray(new int[0][]);
+        int[] posiciones = new int[k];
+        // Montículo de índices de fuente, ordenado por el elemento actual de cada una
+        int[] monticulo = new int[k];
+        for (int i = 0; i < k; i++) {
+            monticulo[i] = i;
+        }
+        for (int i = k / 2 - 1; i >= 0; i--) {
+            hundir(monticulo, k, i, fuentes, posiciones);
+        }
+        
+        int[] resultado = new int[total];
+        int n = 0;
+        int tamanio = k;
+        while (tamanio > 0) {
+            int fuente = monticulo[0];
+            int valor = fuentes[fuente][posiciones[fuente]++];
+            if (n == 0 || resultado[n - 1] != valor) {
+                resultado[n++] = valor;
+            }
+            if (posiciones[fuente] == fuentes[fuente].length) {
+                monticulo[0] = monticulo[--tamanio];
+            }
+            hundir(monticulo, tamanio, 0, fuentes, posiciones);
+        }
+        return n == total ? resultado : Arrays.copyOf(resultado, n);
+    }
+    
+    private static void hundir(int[] monticulo, int tamanio, int i, int[][] fuentes, int[] posiciones) {
+        while (true) {
+            int menor = i;
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            if (izquierdo < tamanio && actual(monticulo[izquierdo], fuentes, posiciones)
+                    < actual(monticulo[menor], fuentes, posiciones)) {
+                menor = izquierdo;
+            }
+            if (derecho < tamanio && actual(monticulo[derecho], fuentes, posiciones)
+                    < actual(monticulo[menor], fuentes, posiciones)) {
+                menor = derecho;
+            }
+            if (menor == i) {
+                return;
+            }
+            int intercambio = monticulo[i];
+            monticulo[i] = monticulo[menor];
+            monticulo[menor] = intercambio;
+            i = menor;
+        }
+    }
+    
+    private static int actual(int fuente, int[][] fuentes, int[] posiciones) {
+        return fuentes[fuente][posiciones[fuente]];
+    }
+    
+    /**
+     * Construcción masiva del índice a partir de documentos recorridos en orden creciente,
+     * sin copiar las listas en cada inserción
+     */
+    public static class Constructor {
+        
+        private final Map<String, ListaEnteros> listas = new HashMap<>();
+        
+        /**
+         * Añade un documento; debe ser mayor que todos los añadidos antes
+         * @param documento identificador del documento
+         * @param tokens términos normalizados del documento
+         */
+        public void agregar(int documento, Collection<String> tokens) {
+            for (String token : tokens) {
+                listas.computeIfAbsent(token, t -> new ListaEnteros()).agregar(documento);
+            }
+        }
+        
+        /**
+         * Crea el índice con los documentos añadidos
+         * @return el índice construido
+         */
+        public IndiceInvertido construir() {
+            ConcurrentSkipListMap<String, int[]> terminos = new ConcurrentSkipListMap<>();
+            for (Map.Entry<String, ListaEnteros> entrada : listas.entrySet()) {
+                terminos.put(entrada.getKey(), entrada.getValue().aArray());
+            }
+            return new IndiceInvertido(terminos);
+        }
+    }
+    
+    /**
+     * Lista creciente de enteros sin objetos intermedios
+     */
+    private static final class ListaEnteros {
+        
+        private int[] valores = new int[2];
+        private int tamanio;
+        
+        void agregar(int valor) {
+            if (tamanio == valores.length) {
+                valores = Arrays.copyOf(valores, tamanio * 2);
+            }
+            valores[tamanio++] = valor;
+        }
+        
+        int[] aArray() {
+            return Arrays.copyOf(valores, tamanio);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.service.TransaccionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de ISBN a ID de libro. Los ISBN tienen 13 dígitos, así que se guardan
+ * como long en un MapaIsbn sin objetos por entrada.
+ *
+ * Se construye al arrancar la aplicación y se mantiene desde LibroService tras cada commit.
+ * Mientras no está listo, las consultas deben ir a la base de datos.
+ */
+@Component
+public class IndiceIsbn {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceIsbn.class);
+
+    /**
+     * Valor devuelto cuando no hay ningún libro con el ISBN
+     */
+    public static final long AUSENTE = -1L;
+
+    private final LibroRepository libroRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConstruccionIndice<MapaIsbn, Cambio> mapa = new ConstruccionIndice<>(Cambio::aplicarEn);
+
+    public IndiceIsbn(LibroRepository libroRepository, PlatformTransactionManager transactionManager) {
+        this.libroRepository = libroRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Sin readOnly: con réplicas, la construcción lee de la principal (sin retraso de replicación)
+    }
+
+    /**
+     * Indica si el índice está construido y puede responder consultas
+     * @return true si está listo
+     */
+    public boolean isListo() {
+        return mapa.actual() != null;
+    }
+
+    /**
+     * Busca el libro con el ISBN indicado
+     * @param isbn el ISBN
+     * @return el ID del libro, o AUSENTE si no existe
+     * @throws IllegalStateException si el índice no está listo
+     */
+    public long buscar(String isbn) {
+        MapaIsbn actual = mapa.actual();
+        if (actual == null) {
+            throw new IllegalStateException("El índice de ISBN aún no está disponible");
+        }
+        long clave = clave(isbn);
+        if (clave < 0) {
+            return AUSENTE;
+        }
+        int id = actual.obtener(clave);
+        return id == MapaIsbn.AUSENTE ? AUSENTE : id;
+    }
+
+    /**
+     * Registra el cambio de un libro; se aplica al índice cuando la transacción se confirme
+     * @param anterior datos del libro antes del cambio (null si es nuevo)
+     * @param nuevo datos del libro después del cambio (null si se ha eliminado)
+     */
+    public void registrar(IndiceLibros.Entrada anterior, IndiceLibros.Entrada nuevo) {
+        if (anterior == null && nuevo == null
+                || anterior != null && nuevo != null && Objects.equals(anterior.isbn(), nuevo.isbn())) {
+            return;
+        }
+        Cambio cambio = new Cambio(anterior, nuevo);
+        TransaccionUtil.despuesDelCommit(() -> mapa.aplicar(cambio));
+    }
+
+    /**
+     * Construye el índice completo recorriendo los ISBN con un cursor.
+     * Los cambios confirmados durante la construcción se aplican al terminar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        mapa.construir(this::cargar);
+    }
+
+    private MapaIsbn cargar() {
+        long inicio = System.nanoTime();
+
+        MapaIsbn nuevo = transactionTemplate.execute(status -> {
+            MapaIsbn construido = new MapaIsbn(Math.toIntExact(libroRepository.count()));
+            try (Stream<Object[]> filas = libroRepository.streamIdsEIsbns()) {
+                filas.forEach(fila -> {
+                    long clave = clave((String) fila[1]);
+                    if (clave >= 0) {
+                        construido.poner(clave, Math.toIntExact((Long) fila[0]));
+                    }
+                });
+            }
+            return construido;
+        });
+
+        int libros = nuevo.tamanio();
+        log.info("Índice de ISBN construido: {} libros, {} bytes por libro en {} ms", libros,
+                libros == 0 ? 0 : nuevo.bytes() / libros, (System.nanoTime() - inicio) / 1_000_000);
+        return nuevo;
+    }
+
+    /**
+     * Convierte un ISBN de 13 dígitos en número
+     * @param isbn el ISBN
+     * @return el número, o -1 si no tiene el formato de 13 dígitos
+     */
+    static long clave(String isbn) {
+        if (isbn == null || isbn.length() != 13) {
+            return -1;
+        }
+        long clave = 0;
+        for (int i = 0; i < 13; i++) {
+            int digito = isbn.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return -1;
+            }
+            clave = clave * 10 + digito;
+        }
+        return clave;
+    }
+
+    /**
+     * Cambio de ISBN de un libro pendiente de aplicar al índice
+     */
+    private static final class Cambio {
+
+        private final IndiceLibros.Entrada anterior;
+        private final IndiceLibros.Entrada nuevo;
+
+        Cambio(IndiceLibros.Entrada anterior, IndiceLibros.Entrada nuevo) {
+            this.anterior = anterior;
+            this.nuevo = nuevo;
+        }
+
+        /**
+         * Quita el ISBN anterior si aún apunta a este libro y añade el nuevo. Es idempotente,
+         * así que puede aplicarse de nuevo sobre un índice que ya vio el cambio.
+         */
+        void aplicarEn(MapaIsbn mapa) {
+            if (anterior != null) {
+                long clave = clave(anterior.isbn());
+                if (clave >= 0) {
+                    mapa.quitar(clave, anterior.documento());
+                }
+            }
+            if (nuevo != null) {
+                long clave = clave(nuevo.isbn());
+                if (clave >= 0) {
+                    mapa.poner(clave, nuevo.documento());
+                }
+            }
+        }
+    }
+}
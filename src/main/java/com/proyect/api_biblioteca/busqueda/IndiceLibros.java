@@ -0,0 +1,294 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.service.TransaccionUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Índice de texto en memoria sobre el título, el autor y la descripción de los libros.
+ * Sustituye a las búsquedas LIKE '%x%' (que recorren la tabla completa): cada palabra
+ * buscada se resuelve como prefijo en el diccionario de términos y los resultados de
+ * varias palabras se intersectan.
+ *
+ * Se construye al arrancar la aplicación y se mantiene desde LibroService tras cada commit.
+ * Mientras no está listo, las búsquedas deben ir a la base de datos aplicando la misma regla
+ * con {@link #coincide}, para que los resultados no cambien al terminar la construcción.
+ */
+@Component
+public class IndiceLibros {
+    
+    private static final Logger log = LoggerFactory.getLogger(IndiceLibros.class);
+    
+    private static final int[] VACIO = new int[0];
+    
+    /**
+     * Campos de texto indexados
+     */
+    public enum Campo {
+        TITULO, AUTOR, DESCRIPCION
+    }
+    
+    private final LibroRepository libroRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final ConstruccionIndice<Map<Campo, IndiceInvertido>, Cambio> indices =
+            new ConstruccionIndice<>(Cambio::aplicarEn);
+    
+    @Autowired
+    public IndiceLibros(LibroRepository libroRepository, PlatformTransactionManager transactionManager) {
+        this.libroRepository = libroRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Sin readOnly: con réplicas, la construcción lee de la principal (sin retraso de replicación)
+    }
+    
+    /**
+     * Indica si el índice está construido y puede responder búsquedas
+     * @return true si está listo
+     */
+    public boolean isListo() {
+        return indices.actual() != null;
+    }
+    
+    /**
+     * Busca libros cuyo campo contenga palabras que empiecen por cada una de las palabras del texto
+     * @param campo campo en el que buscar
+     * @param texto texto buscado
+     * @return IDs de libros ordenados, o null si el índice no está listo
+     */
+    public int[] buscar(Campo campo, String texto) {
+        Map<Campo, IndiceInvertido> actuales = indices.actual();
+        if (actuales == null) {
+            return null;
+        }
+        IndiceInvertido indice = actuales.get(campo);
+        return intersectarPalabras(texto, indice::buscarPrefijo);
+    }
+    
+    /**
+     * Busca libros en los que cada palabra del texto aparezca en el título, el autor o la descripción
+     * @param texto texto buscado
+     * @return IDs de libros ordenados, o null si el índice no está listo
+     */
+    public int[] buscarEnTodos(String texto) {
+        Map<Campo, IndiceInvertido> actuales = indices.actual();
+        if (actuales == null) {
+            return null;
+        }
+        return intersectarPalabras(texto, palabra -> {
+            List<int[]> listas = new ArrayList<>(actuales.size());
+            for (IndiceInvertido indice : actuales.values()) {
+                listas.add(indice.buscarPrefijo(palabra));
+            }
+            return IndiceInvertido.union(listas);
+        });
+    }
+    
+    /**
+     * Comprueba sin el índice si un documento cumple la regla de las búsquedas: cada palabra buscada
+     * es el comienzo de alguna palabra de sus textos, sin distinguir mayúsculas ni acentos
+     * @param texto texto buscado
+     * @param textos textos del documento (uno por campo; pueden ser null)
+     * @return true si el documento aparecería en la búsqueda con el índice
+     */
+    public static boolean coincide(String texto, String... textos) {
+        List<String> palabras = NormalizadorTexto.tokens(texto);
+        if (palabras.isEmpty()) {
+            return false;
+        }
+        List<String> terminos = new ArrayList<>();
+        for (String campo : textos) {
+            terminos.addAll(NormalizadorTexto.tokens(campo));
+        }
+        for (String palabra : palabras) {
+            if (terminos.stream().noneMatch(termino -> termino.startsWith(palabra))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Registra el cambio de un libro; se aplica al índice cuando la transacción se confirme
+     * @param anterior datos del libro antes del cambio (null si es nuevo)
+     * @param nuevo datos del libro después del cambio (null si se ha eliminado)
+     */
+    public void registrar(Entrada anterior, Entrada nuevo) {
+        if (anterior == null && nuevo == null) {
+            return;
+        }
+        Cambio cambio = new Cambio(anterior, nuevo);
+        TransaccionUtil.despuesDelCommit(() -> indices.aplicar(cambio));
+    }
+    
+    /**
+     * Construye el índice completo recorriendo la tabla de libros con un cursor.
+     * Los cambios confirmados durante la construcción se aplican al terminar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        indices.construir(this::cargar);
+    }
+    
+    private Map<Campo, IndiceInvertido> cargar() {
+        long inicio = System.nanoTime();
+        Map<Campo, IndiceInvertido.Constructor> constructores = new EnumMap<>(Campo.class);
+        for (Campo campo : Campo.values()) {
+            constructores.put(campo, new IndiceInvertido.Constructor());
+        }
+        
+        Long total = transactionTemplate.execute(status -> {
+            long leidos = 0;
+            try (Stream<Libro> libros = libroRepository.streamAll()) {
+                for (Libro libro : (Iterable<Libro>) libros::iterator) {
+                    Entrada entrada = Entrada.de(libro);
+                    int documento = entrada.documento();
+                    for (Campo campo : Campo.values()) {
+                        constructores.get(campo).agregar(documento, entrada.tokens(campo));
+                    }
+                    entityManager.detach(libro);
+                    leidos++;
+                }
+            }
+            return leidos;
+        });
+        
+        Map<Campo, IndiceInvertido> nuevos = new EnumMap<>(Campo.class);
+        constructores.forEach((campo, constructor) -> nuevos.put(campo, constructor.construir()));
+        log.info("Índice de libros construido: {} libros, {} términos de título en {} ms", total,
+                nuevos.get(Campo.TITULO).numeroTerminos(), (System.nanoTime() - inicio) / 1_000_000);
+        return nuevos;
+    }
+    
+    private static int[] intersectarPalabras(String texto, Function<String, int[]> buscarPalabra) {
+        List<String> palabras = NormalizadorTexto.tokens(texto);
+        if (palabras.isEmpty()) {
+            return VACIO;
+        }
+        int[] resultado = null;
+        for (String palabra : palabras) {
+            int[] documentos = buscarPalabra.apply(palabra);
+            resultado = resultado == null ? documentos : IndiceInvertido.interseccion(resultado, documentos);
+            if (resultado.length == 0) {
+                break;
+            }
+        }
+        return resultado;
+    }
+    
+    /**
+     * Copia de los campos indexados de un libro (texto e ISBN), tomada antes de que la entidad cambie
+     */
+    public static final class Entrada {
+        
+        private final Long id;
+        private final String titulo;
+        private final String autor;
+        private final String descripcion;
+        private final String isbn;
+        
+        private Entrada(Long id, String titulo, String autor, String descripcion, String isbn) {
+            this.id = id;
+            this.titulo = titulo;
+            this.autor = autor;
+            this.descripcion = descripcion;
+            this.isbn = isbn;
+        }
+        
+        /**
+         * Toma los campos indexados del libro
+         * @param libro el libro (puede ser null)
+         * @return la entrada, o null si el libro es null
+         */
+        public static Entrada de(Libro libro) {
+            return libro == null ? null
+                    : new Entrada(libro.getId(), libro.getTitulo(), libro.getAutor(), libro.getDescripcion(),
+                            libro.getIsbn());
+        }
+        
+        Long id() {
+            return id;
+        }
+        
+        String titulo() {
+            return titulo;
+        }
+        
+        String autor() {
+            return autor;
+        }
+        
+        String isbn() {
+            return isbn;
+        }
+        
+        int documento() {
+            return Math.toIntExact(id);
+        }
+        
+        List<String> tokens(Campo campo) {
+            switch (campo) {
+                case TITULO:
+                    return NormalizadorTexto.tokens(titulo);
+                case AUTOR:
+                    return NormalizadorTexto.tokens(autor);
+                default:
+                    return NormalizadorTexto.tokens(descripcion);
+            }
+        }
+    }
+    
+    /**
+     * Cambio de un libro pendiente de aplicar al índice
+     */
+    private static final class Cambio {
+        
+        private final Entrada anterior;
+        private final Entrada nuevo;
+        
+        Cambio(Entrada anterior, Entrada nuevo) {
+            this.anterior = anterior;
+            this.nuevo = nuevo;
+        }
+        
+        /**
+         * Quita los términos que el libro ya no tiene y añade los nuevos. Es idempotente,
+         * así que puede aplicarse de nuevo sobre un índice que ya vio el cambio.
+         */
+        void aplicarEn(Map<Campo, IndiceInvertido> indices) {
+            for (Campo campo : Campo.values()) {
+                IndiceInvertido indice = indices.get(campo);
+                List<String> nuevos = nuevo == null ? List.of() : nuevo.tokens(campo);
+                if (anterior != null) {
+                    Set<String> retirados = new HashSet<>(anterior.tokens(campo));
+                    retirados.removeAll(nuevos);
+                    indice.quitar(anterior.documento(), retirados);
+                }
+                if (nuevo != null) {
+                    indice.agregar(nuevo.documento(), nuevos);
+                }
+            }
+        }
+    }
+}
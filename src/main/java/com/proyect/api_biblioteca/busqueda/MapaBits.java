@@ -0,0 +1,502 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Mapa de bits comprimido al estilo Roaring para enteros no negativos.
+ * Los valores se agrupan por sus 16 bits altos; cada grupo se guarda como un array
+ * ordenado de los 16 bits bajos mientras tiene pocos elementos, y como un mapa de bits
+ * de 65536 bits cuando supera los 4096. La cardinalidad se mantiene al día, así que
+ * contarla no recorre nada.
+ *
+ * No es seguro para hilos: quien lo comparta debe sincronizar el acceso.
+ */
+public final class MapaBits {
+
+    private static final int MAXIMO_ARRAY = 4096;
+    private static final int PALABRAS_BITMAP = 1024;
+
+    private char[] claves = new char[4];
+    private Contenedor[] contenedores = new Contenedor[4];
+    private int numero;
+    private int cardinalidad;
+
+    /**
+     * Crea un mapa con los valores de un array ordenado
+     * @param ordenados valores ordenados de menor a mayor, sin repetidos
+     * @return el mapa
+     */
+    public static MapaBits de(int[] ordenados) {
+        MapaBits mapa = new MapaBits();
+        for (int valor : ordenados) {
+            mapa.agregar(valor);
+        }
+        return mapa;
+    }
+
+    /**
+     * Añade un valor
+     * @return true si no estaba
+     */
+    public boolean agregar(int valor) {
+        char alta = (char) (valor >>> 16);
+        int posicion = buscarClave(alta);
+        if (posicion < 0) {
+            posicion = -posicion - 1;
+            insertarContenedor(posicion, alta, new ContenedorArray());
+        }
+        Contenedor contenedor = contenedores[posicion];
+        int antes = contenedor.cardinalidad();
+        contenedores[posicion] = contenedor.agregar((char) valor);
+        boolean agregado = contenedores[posicion].cardinalidad() > antes;
+        if (agregado) {
+            cardinalidad++;
+        }
+        return agregado;
+    }
+
+    /**
+     * Quita un valor
+     * @return true si estaba
+     */
+    public boolean quitar(int valor) {
+        int posicion = buscarClave((char) (valor >>> 16));
+        if (posicion < 0) {
+            return false;
+        }
+        Contenedor contenedor = contenedores[posicion];
+        int antes = contenedor.cardinalidad();
+        Contenedor resultado = contenedor.quitar((char) valor);
+        if (resultado.cardinalidad() == antes) {
+            return false;
+        }
+        cardinalidad--;
+        if (resultado.cardinalidad() == 0) {
+            eliminarContenedor(posicion);
+        } else {
+            contenedores[posicion] = resultado;
+        }
+        return true;
+    }
+
+    public boolean contiene(int valor) {
+        int posicion = buscarClave((char) (valor >>> 16));
+        return posicion >= 0 && contenedores[posicion].contiene((char) valor);
+    }
+
+    public int cardinalidad() {
+        return cardinalidad;
+    }
+
+    /**
+     * Intersección de dos mapas
+     * @return un mapa nuevo con los valores presentes en ambos
+     */
+    public static MapaBits interseccion(MapaBits a, MapaBits b) {
+        MapaBits resultado = new MapaBits();
+        int i = 0;
+        int j = 0;
+        while (i < a.numero && j < b.numero) {
+            if (a.claves[i] < b.claves[j]) {
+                i++;
+            } else if (a.claves[i] > b.claves[j]) {
+                j++;
+            } else {
+                Contenedor contenedor = a.contenedores[i].interseccion(b.contenedores[j]);
+                if (contenedor.cardinalidad() > 0) {
+                    resultado.anadirAlFinal(a.claves[i], contenedor);
+                }
+                i++;
+                j++;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Unión de varios mapas
+     * @return un mapa nuevo con los valores presentes en alguno
+     */
+    public static MapaBits union(Collection<MapaBits> mapas) {
+        MapaBits resultado = new MapaBits();
+        for (MapaBits mapa : mapas) {
+            resultado = union(resultado, mapa);
+        }
+        return resultado;
+    }
+
+    private static MapaBits union(MapaBits a, MapaBits b) {
+        MapaBits resultado = new MapaBits();
+        int i = 0;
+        int j = 0;
+        while (i < a.numero || j < b.numero) {
+            if (j == b.numero || i < a.numero && a.claves[i] < b.claves[j]) {
+                resultado.anadirAlFinal(a.claves[i], a.contenedores[i].copiar());
+                i++;
+            } else if (i == a.numero || a.claves[i] > b.claves[j]) {
+                resultado.anadirAlFinal(b.claves[j], b.contenedores[j].copiar());
+                j++;
+            } else {
+                resultado.anadirAlFinal(a.claves[i], a.contenedores[i].union(b.contenedores[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Copia independiente del mapa
+     */
+    public MapaBits copiar() {
+        MapaBits copia = new MapaBits();
+        for (int i = 0; i < numero; i++) {
+            copia.anadirAlFinal(claves[i], contenedores[i].copiar());
+        }
+        return copia;
+    }
+
+    /**
+     * Devuelve los primeros valores mayores que uno dado
+     * @param despuesDe valor a partir del cual empezar (excluido); -1 para empezar desde el principio
+     * @param limite número máximo de valores
+     * @return valores ordenados
+     */
+    public int[] siguientes(int despuesDe, int limite) {
+        int[] resultado = new int[Math.min(limite, cardinalidad)];
+        int encontrados = 0;
+        int desde = despuesDe + 1;
+        for (int i = 0; i < numero && encontrados < resultado.length; i++) {
+            int base = claves[i] << 16;
+            if (base + 0xFFFF < desde) {
+                continue;
+            }
+            int minimo = Math.max(0, desde - base);
+            encontrados = contenedores[i].copiarDesde(minimo, resultado, encontrados, base);
+        }
+        return encontrados == resultado.length ? resultado : Arrays.copyOf(resultado, encontrados);
+    }
+
+    /**
+     * Todos los valores del mapa, ordenados
+     */
+    public int[] valores() {
+        return siguientes(-1, cardinalidad);
+    }
+
+    /**
+     * Filtra un array ordenado dejando sólo los valores presentes en el mapa
+     * @param ordenados valores ordenados
+     * @return los valores del array que están en el mapa
+     */
+    public int[] filtrar(int[] ordenados) {
+        int[] resultado = new int[ordenados.length];
+        int encontrados = 0;
+        for (int valor : ordenados) {
+            if (contiene(valor)) {
+                resultado[encontrados++] = valor;
+            }
+        }
+        return Arrays.copyOf(resultado, encontrados);
+    }
+
+    private int buscarClave(char alta) {
+        return Arrays.binarySearch(claves, 0, numero, alta);
+    }
+
+    private void insertarContenedor(int posicion, char alta, Contenedor contenedor) {
+        if (numero == claves.length) {
+            claves = Arrays.copyOf(claves, numero * 2);
+            contenedores = Arrays.copyOf(contenedores, numero * 2);
+        }
+        System.arraycopy(claves, posicion, claves, posicion + 1, numero - posicion);
+        System.arraycopy(contenedores, posicion, contenedores, posicion + 1, numero - posicion);
+        claves[posicion] = alta;
+        contenedores[posicion] = contenedor;
+        numero++;
+    }
+
+    private void eliminarContenedor(int posicion) {
+        System.arraycopy(claves, posicion + 1, claves, posicion, numero - posicion - 1);
+        System.arraycopy(contenedores, posicion + 1, contenedores, posicion, numero - posicion - 1);
+        contenedores[--numero] = null;
+    }
+
+    private void anadirAlFinal(char alta, Contenedor contenedor) {
+        insertarContenedor(numero, alta, contenedor);
+        cardinalidad += contenedor.cardinalidad();
+    }
+
+    /**
+     * Valores de un grupo de 65536 (sólo los 16 bits bajos). Las operaciones pueden devolver
+     * un contenedor de otro tipo cuando cambia la representación más compacta.
+     */
+    private abstract static class Contenedor {
+
+        abstract int cardinalidad();
+
+        abstract boolean contiene(char valor);
+
+        abstract Contenedor agregar(char valor);
+
+        abstract Contenedor quitar(char valor);
+
+        abstract Contenedor interseccion(Contenedor otro);
+
+        abstract Contenedor union(Contenedor otro);
+
+        abstract Contenedor copiar();
+
+        /**
+         * Copia en destino los valores mayores o iguales que minimo, sumándoles la base
+         * @return la nueva posición de escritura en destino
+         */
+        abstract int copiarDesde(int minimo, int[] destino, int posicion, int base);
+    }
+
+    private static final class ContenedorArray extends Contenedor {
+
+        private char[] valores;
+        private int numero;
+
+        ContenedorArray() {
+            this(new char[4], 0);
+        }
+
+        ContenedorArray(char[] valores, int numero) {
+            this.valores = valores;
+            this.numero = numero;
+        }
+
+        @Override
+        int cardinalidad() {
+            return numero;
+        }
+
+        @Override
+        boolean contiene(char valor) {
+            return Arrays.binarySearch(valores, 0, numero, valor) >= 0;
+        }
+
+        @Override
+        Contenedor agregar(char valor) {
+            int posicion = Arrays.binarySearch(valores, 0, numero, valor);
+            if (posicion >= 0) {
+                return this;
+            }
+            if (numero == MAXIMO_ARRAY) {
+                return aBitmap().agregar(valor);
+            }
+            posicion = -posicion - 1;
+            if (numero == valores.length) {
+                valores = Arrays.copyOf(valores, Math.min(MAXIMO_ARRAY, numero * 2));
+            }
+            System.arraycopy(valores, posicion, valores, posicion + 1, numero - posicion);
+            valores[posicion] = valor;
+            numero++;
+            return this;
+        }
+
+        @Override
+        Contenedor quitar(char valor) {
+            int posicion = Arrays.binarySearch(valores, 0, numero, valor);
+            if (posicion >= 0) {
+                System.arraycopy(valores, posicion + 1, valores, posicion, numero - posicion - 1);
+                numero--;
+            }
+            return this;
+        }
+
+        @Override
+        Contenedor interseccion(Contenedor otro) {
+            char[] resultado = new char[numero];
+            int encontrados = 0;
+            if (otro instanceof ContenedorArray array) {
+                int i = 0;
+                int j = 0;
+                while (i < numero && j < array.numero) {
+                    if (valores[i] < array.valores[j]) {
+                        i++;
+                    } else if (valores[i] > array.valores[j]) {
+                        j++;
+                    } else {
+                        resultado[encontrados++] = valores[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < numero; i++) {
+                    if (otro.contiene(valores[i])) {
+                        resultado[encontrados++] = valores[i];
+                    }
+                }
+            }
+            return new ContenedorArray(resultado, encontrados);
+        }
+
+        @Override
+        Contenedor union(Contenedor otro) {
+            if (otro instanceof ContenedorBitmap) {
+                return otro.union(this);
+            }
+            ContenedorArray array = (ContenedorArray) otro;
+            char[] resultado = new char[numero + array.numero];
+            int encontrados = 0;
+            int i = 0;
+            int j = 0;
+            while (i < numero || j < array.numero) {
+                if (j == array.numero || i < numero && valores[i] < array.valores[j]) {
+                    resultado[encontrados++] = valores[i++];
+                } else if (i == numero || valores[i] > array.valores[j]) {
+                    resultado[encontrados++] = array.valores[j++];
+                } else {
+                    resultado[encontrados++] = valores[i];
+                    i++;
+                    j++;
+                }
+            }
+            ContenedorArray union = new ContenedorArray(resultado, encontrados);
+            return encontrados > MAXIMO_ARRAY ? union.aBitmap() : union;
+        }
+
+        @Override
+        Contenedor copiar() {
+            return new ContenedorArray(Arrays.copyOf(valores, Math.max(numero, 1)), numero);
+        }
+
+        @Override
+        int copiarDesde(int minimo, int[] destino, int posicion, int base) {
+            int i = Arrays.binarySearch(valores, 0, numero, (char) minimo);
+            for (i = i >= 0 ? i : -i - 1; i < numero && posicion < destino.length; i++) {
+                destino[posicion++] = base | valores[i];
+            }
+            return posicion;
+        }
+
+        private ContenedorBitmap aBitmap() {
+            ContenedorBitmap bitmap = new ContenedorBitmap();
+            for (int i = 0; i < numero; i++) {
+                bitmap.agregar(valores[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class ContenedorBitmap extends Contenedor {
+
+        private final long[] palabras;
+        private int numero;
+
+        ContenedorBitmap() {
+            this(new long[PALABRAS_BITMAP], 0);
+        }
+
+        ContenedorBitmap(long[] palabras, int numero) {
+            this.palabras = palabras;
+            this.numero = numero;
+        }
+
+        @Override
+        int cardinalidad() {
+            return numero;
+        }
+
+        @Override
+        boolean contiene(char valor) {
+            return (palabras[valor >>> 6] & (1L << valor)) != 0;
+        }
+
+        @Override
+        Contenedor agregar(char valor) {
+            long antes = palabras[valor >>> 6];
+            long despues = antes | (1L << valor);
+            if (antes != despues) {
+                palabras[valor >>> 6] = despues;
+                numero++;
+            }
+            return this;
+        }
+
+        @Override
+        Contenedor quitar(char valor) {
+            long antes = palabras[valor >>> 6];
+            long despues = antes & ~(1L << valor);
+            if (antes == despues) {
+                return this;
+            }
+            palabras[valor >>> 6] = despues;
+            numero--;
+            return numero <= MAXIMO_ARRAY ? aArray() : this;
+        }
+
+        @Override
+        Contenedor interseccion(Contenedor otro) {
+            if (otro instanceof ContenedorArray) {
+                return otro.interseccion(this);
+            }
+            ContenedorBitmap bitmap = (ContenedorBitmap) otro;
+            long[] resultado = new long[PALABRAS_BITMAP];
+            int total = 0;
+            for (int i = 0; i < PALABRAS_BITMAP; i++) {
+                resultado[i] = palabras[i] & bitmap.palabras[i];
+                total += Long.bitCount(resultado[i]);
+            }
+            ContenedorBitmap interseccion = new ContenedorBitmap(resultado, total);
+            return total <= MAXIMO_ARRAY ? interseccion.aArray() : interseccion;
+        }
+
+        @Override
+        Contenedor union(Contenedor otro) {
+            ContenedorBitmap resultado = (ContenedorBitmap) copiar();
+            if (otro instanceof ContenedorArray array) {
+                for (int i = 0; i < array.numero; i++) {
+                    resultado.agregar(array.valores[i]);
+                }
+                return resultado;
+            }
+            ContenedorBitmap bitmap = (ContenedorBitmap) otro;
+            int total = 0;
+            for (int i = 0; i < PALABRAS_BITMAP; i++) {
+                resultado.palabras[i] |= bitmap.palabras[i];
+                total += Long.bitCount(resultado.palabras[i]);
+            }
+            resultado.numero = total;
+            return resultado;
+        }
+
+        @Override
+        Contenedor copiar() {
+            return new ContenedorBitmap(palabras.clone(), numero);
+        }
+
+        @Override
+        int copiarDesde(int minimo, int[] destino, int posicion, int base) {
+            for (int i = minimo >>> 6; i < PALABRAS_BITMAP && posicion < destino.length; i++) {
+                long palabra = palabras[i];
+                if (i == minimo >>> 6) {
+                    palabra &= -1L << minimo;
+                }
+                while (palabra != 0 && posicion < destino.length) {
+                    destino[posicion++] = base | (i << 6) | Long.numberOfTrailingZeros(palabra);
+                    palabra &= palabra - 1;
+                }
+            }
+            return posicion;
+        }
+
+        private ContenedorArray aArray() {
+            char[] valores = new char[numero];
+            int encontrados = 0;
+            for (int i = 0; i < PALABRAS_BITMAP; i++) {
+                long palabra = palabras[i];
+                while (palabra != 0) {
+                    valores[encontrados++] = (char) ((i << 6) | Long.numberOfTrailingZeros(palabra));
+                    palabra &= palabra - 1;
+                }
+            }
+            return new ContenedorArray(valores, encontrados);
+        }
+    }
+}
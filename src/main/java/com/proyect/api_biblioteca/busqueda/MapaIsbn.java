@@ -0,0 +1,233 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Mapa primitivo de ISBN (como long) a ID de libro (como int), con direccionamiento
+ * abierto y sondeo lineal. Un filtro de Bloom delante descarta la mayoría de las
+ * claves ausentes sin recorrer la tabla.
+ *
+ * La ocupación se mantiene entre 2/3 y 4/5 (la tabla crece un 20 % cada vez), lo que
+ * deja el coste por libro en menos de 20 bytes: 12 por casilla más el filtro.
+ *
+ * Las lecturas son optimistas y sólo toman el cerrojo si coinciden con una escritura.
+ */
+final class MapaIsbn {
+
+    static final int AUSENTE = -1;
+
+    private static final long VACIA = -1L;
+    private static final double CARGA_MAXIMA = 0.8;
+    private static final double CRECIMIENTO = 1.2;
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private final StampedLock cerrojo = new StampedLock();
+
+    private Tabla tabla;
+    private int tamanio;
+    private int borradosEnFiltro;
+
+    MapaIsbn(int esperados) {
+        this.tabla = new Tabla(capacidadPara(esperados));
+    }
+
+    /**
+     * Busca el ID asociado a una clave
+     * @param clave ISBN como número (no negativo)
+     * @return el ID, o AUSENTE
+     */
+    int obtener(long clave) {
+        long sello = cerrojo.tryOptimisticRead();
+        int valor = tabla.obtener(clave);
+        if (!cerrojo.validate(sello)) {
+            sello = cerrojo.readLock();
+            try {
+                valor = tabla.obtener(clave);
+            } finally {
+                cerrojo.unlockRead(sello);
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Asocia la clave al ID, sustituyendo el valor anterior si lo había
+     */
+    void poner(long clave, int valor) {
+        long sello = cerrojo.writeLock();
+        try {
+            if (tamanio >= tabla.limite) {
+                tabla = tabla.copiar((int) Math.max(tabla.claves.length * CRECIMIENTO, tabla.claves.length + 1.0));
+                borradosEnFiltro = 0;
+            }
+            if (tabla.poner(clave, valor)) {
+                tamanio++;
+            }
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    /**
+     * Quita la clave sólo si sigue asociada al ID indicado
+     */
+    void quitar(long clave, int valor) {
+        long sello = cerrojo.writeLock();
+        try {
+            if (tabla.quitar(clave, valor)) {
+                tamanio--;
+                // Las claves borradas siguen marcadas en el filtro; se rehace cuando son muchas
+                if (++borradosEnFiltro > tabla.limite / 4) {
+                    tabla = tabla.copiar(tabla.claves.length);
+                    borradosEnFiltro = 0;
+                }
+            }
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    int tamanio() {
+        long sello = cerrojo.readLock();
+        try {
+            return tamanio;
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    long bytes() {
+        long sello = cerrojo.readLock();
+        try {
+            return (long) tabla.claves.length * (Long.BYTES + Integer.BYTES) + tabla.filtro.bytes();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    private static int capacidadPara(int elementos) {
+        return Math.max(CAPACIDAD_MINIMA, (int) Math.ceil(elementos / CARGA_MAXIMA) + 1);
+    }
+
+    private static long dispersar(long clave) {
+        long h = clave;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Arrays de la tabla con tamaños fijos: un lector optimista que vea una tabla a medio
+     * modificar puede leer datos incoherentes (que luego descarta) pero nunca salirse de ellos.
+     */
+    private static final class Tabla {
+
+        final long[] claves;
+        final int[] valores;
+        final FiltroBloom filtro;
+        final int limite;
+
+        Tabla(int capacidad) {
+            this.claves = new long[capacidad];
+            this.valores = new int[capacidad];
+            this.limite = (int) (capacidad * CARGA_MAXIMA);
+            this.filtro = new FiltroBloom(limite);
+            Arrays.fill(claves, VACIA);
+        }
+
+        int obtener(long clave) {
+            long hash = dispersar(clave);
+            if (!filtro.puedeContener(hash)) {
+                return AUSENTE;
+            }
+            int capacidad = claves.length;
+            int i = inicio(hash, capacidad);
+            for (int sondeos = 0; sondeos < capacidad; sondeos++) {
+                long actual = claves[i];
+                if (actual == clave) {
+                    return valores[i];
+                }
+                if (actual == VACIA) {
+                    return AUSENTE;
+                }
+                i = ++i == capacidad ? 0 : i;
+            }
+            return AUSENTE;
+        }
+
+        /**
+         * @return true si la clave es nueva
+         */
+        boolean poner(long clave, int valor) {
+            long hash = dispersar(clave);
+            int capacidad = claves.length;
+            int i = inicio(hash, capacidad);
+            while (claves[i] != VACIA) {
+                if (claves[i] == clave) {
+                    valores[i] = valor;
+                    return false;
+                }
+                i = ++i == capacidad ? 0 : i;
+            }
+            claves[i] = clave;
+            valores[i] = valor;
+            filtro.agregar(hash);
+            return true;
+        }
+
+        /**
+         * Borra desplazando hacia atrás las claves siguientes, sin dejar marcas de borrado
+         * @return true si se ha borrado
+         */
+        boolean quitar(long clave, int valor) {
+            int capacidad = claves.length;
+            int i = inicio(dispersar(clave), capacidad);
+            while (claves[i] != clave) {
+                if (claves[i] == VACIA) {
+                    return false;
+                }
+                i = ++i == capacidad ? 0 : i;
+            }
+            if (valores[i] != valor) {
+                return false;
+            }
+
+            int hueco = i;
+            int j = i;
+            while (true) {
+                j = ++j == capacidad ? 0 : j;
+                if (claves[j] == VACIA) {
+                    break;
+                }
+                int deseada = inicio(dispersar(claves[j]), capacidad);
+                // La clave en j puede ocupar el hueco si su posición deseada no está entre el hueco y j
+                boolean entre = hueco <= j ? hueco < deseada && deseada <= j : hueco < deseada || deseada <= j;
+                if (!entre) {
+                    claves[hueco] = claves[j];
+                    valores[hueco] = valores[j];
+                    hueco = j;
+                }
+            }
+            claves[hueco] = VACIA;
+            return true;
+        }
+
+        Tabla copiar(int capacidad) {
+            Tabla nueva = new Tabla(capacidad);
+            for (int i = 0; i < claves.length; i++) {
+                if (claves[i] != VACIA) {
+                    nueva.poner(claves[i], valores[i]);
+                }
+            }
+            return nueva;
+        }
+
+        private static int inicio(long hash, int capacidad) {
+            return (int) (((hash >>> 32) * capacidad) >>> 32);
+        }
+    }
+}
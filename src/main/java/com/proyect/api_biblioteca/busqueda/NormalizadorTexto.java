@@ -0,0 +1,60 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalización de texto para búsquedas: minúsculas, sin acentos ni diacríticos
+ * ("Márquez" y "marquez" producen el mismo término) y separado en palabras.
+ */
+public final class NormalizadorTexto {
+    
+    private NormalizadorTexto() {
+    }
+    
+    /**
+     * Convierte el texto a minúsculas y elimina acentos y diacríticos
+     * @param texto texto original (puede ser null)
+     * @return texto normalizado, o cadena vacía si es null
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        // Descomponer (á -> a + ´) y descartar las marcas combinadas
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder resultado = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                resultado.append(c);
+            }
+        }
+        return resultado.toString().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Separa el texto normalizado en palabras (secuencias de letras y dígitos), sin repetir
+     * @param texto texto original (puede ser null)
+     * @return palabras distintas, en orden de aparición
+     */
+    public static List<String> tokens(String texto) {
+        String normalizado = normalizar(texto);
+        Set<String> tokens = new LinkedHashSet<>();
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean letra = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i;
+            } else if (!letra && inicio >= 0) {
+                tokens.add(normalizado.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+}
@@ -0,0 +1,71 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Ordenación de posiciones 0..n-1 con un comparador sobre enteros, sin pasar por Integer[]
+ * (un objeto por elemento y una llamada a compare con conversión en cada comparación).
+ * Es una ordenación por mezcla estable sobre dos arrays de enteros.
+ */
+final class OrdenIndices {
+
+    // Por debajo de este tamaño los tramos se ordenan por inserción
+    private static final int TRAMO_INSERCION = 16;
+
+    private OrdenIndices() {
+    }
+
+    /**
+     * Ordena las posiciones 0..n-1
+     * @param n número de elementos
+     * @param comparador compara dos posiciones (negativo si la primera va antes)
+     * @return las posiciones en orden
+     */
+    static int[] ordenar(int n, IntBinaryOperator comparador) {
+        int[] orden = new int[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = i;
+        }
+        for (int desde = 0; desde < n; desde += TRAMO_INSERCION) {
+            insercion(orden, desde, Math.min(n, desde + TRAMO_INSERCION), comparador);
+        }
+        int[] origen = orden;
+        int[] destino = new int[n];
+        for (int ancho = TRAMO_INSERCION; ancho < n; ancho *= 2) {
+            for (int desde = 0; desde < n; desde += 2 * ancho) {
+                int medio = Math.min(n, desde + ancho);
+                int hasta = Math.min(n, desde + 2 * ancho);
+                mezclar(origen, destino, desde, medio, hasta, comparador);
+            }
+            int[] intercambio = origen;
+            origen = destino;
+            destino = intercambio;
+        }
+        return origen;
+    }
+
+    private static void insercion(int[] orden, int desde, int hasta, IntBinaryOperator comparador) {
+        for (int i = desde + 1; i < hasta; i++) {
+            int actual = orden[i];
+            int j = i - 1;
+            while (j >= desde && comparador.applyAsInt(orden[j], actual) > 0) {
+                orden[j + 1] = orden[j];
+                j--;
+            }
+            orden[j + 1] = actual;
+        }
+    }
+
+    private static void mezclar(int[] origen, int[] destino, int desde, int medio, int hasta,
+                                IntBinaryOperator comparador) {
+        int i = desde;
+        int j = medio;
+        for (int k = desde; k < hasta; k++) {
+            if (j >= hasta || i < medio && comparador.applyAsInt(origen[i], origen[j]) <= 0) {
+                destino[k] = origen[i++];
+            } else {
+                destino[k] = origen[j++];
+            }
+        }
+    }
+}
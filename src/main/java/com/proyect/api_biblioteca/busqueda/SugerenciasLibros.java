@@ -0,0 +1,632 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.dto.SugerenciaDTO;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import com.proyect.api_biblioteca.service.TransaccionUtil;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Sugerencias de autocompletado sobre títulos y autores, ordenadas por popularidad
+ * (número de préstamos de los libros).
+ *
+ * Las consultas se resuelven con un TrieSugerencias inmutable (la base) más los cambios
+ * confirmados desde que se construyó: las entradas de la base que han cambiado se descartan
+ * y sus versiones actuales, que son pocas, se comparan una a una con el prefijo. Así un libro
+ * nuevo o modificado se sugiere en cuanto se confirma sin reconstruir el trie. La base se
+ * reconstruye en un hilo propio cuando se acumulan muchos cambios, o cada cierto intervalo si
+ * solo ha cambiado la popularidad.
+ *
+ * Los libros se agrupan por título y por autor sin guardar sus textos: cada libro tiene, en
+ * arrays indexados por ID, el código del grupo de su título, el de su autor y sus préstamos,
+ * y los libros de cada grupo se enlazan en una lista para saber su menor ID.
+ *
+ * El trie guarda por prefijo MAXIMO_SUGERENCIAS + UMBRAL_RECONSTRUCCION resultados. Si las
+ * entradas retiradas desde la última base se comen los de un prefijo antes de que llegue la
+ * siguiente, la consulta se completa recorriendo todas las entradas de la base.
+ */
+@Component
+public class SugerenciasLibros {
+
+    private static final Logger log = LoggerFactory.getLogger(SugerenciasLibros.class);
+
+    // Entradas cambiadas a partir de las cuales se reconstruye la base (y resultados de sobra por prefijo en el trie)
+    static final int UMBRAL_RECONSTRUCCION = 64;
+    // Con más cambios que estos (una carga masiva) se dejan de publicar uno a uno hasta la siguiente base
+    private static final int MAXIMO_CAMBIOS_PUBLICADOS = 1024;
+
+    private final LibroRepository libroRepository;
+    private final PrestamoRepository prestamoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long retardoMs;
+    private final long intervaloPopularidadMs;
+    private final ScheduledExecutorService ejecutor;
+
+    // Los cambios se aplican con el monitor de este objeto; la reconstrucción lo toma también para copiar y publicar
+    private final ConstruccionIndice<Fuente, Consumer<Fuente>> fuente = new ConstruccionIndice<>(this::aplicarEn);
+    private final AtomicBoolean reconstruccionPedida = new AtomicBoolean();
+    private volatile long ultimaConstruccion;
+
+    private volatile Instantanea actual;
+
+    public SugerenciasLibros(LibroRepository libroRepository,
+                             PrestamoRepository prestamoRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${biblioteca.sugerencias.retardo-ms:2000}") long retardoMs,
+                             @Value("${biblioteca.sugerencias.intervalo-popularidad-ms:300000}") long intervaloPopularidadMs) {
+        this.libroRepository = libroRepository;
+        this.prestamoRepository = prestamoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Sin readOnly: con réplicas, la carga lee de la principal y ve los últimos cambios
+        this.retardoMs = retardoMs;
+        this.intervaloPopularidadMs = intervaloPopularidadMs;
+        // Un solo hilo propio: las reconstrucciones no se solapan ni ocupan el planificador compartido
+        this.ejecutor = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("sugerencias-"));
+    }
+
+    /**
+     * Devuelve las mejores sugerencias para el texto escrito
+     * @param texto texto escrito por el usuario
+     * @param limite número máximo de sugerencias
+     * @return sugerencias de más a menos popular, o null si aún no están disponibles
+     */
+    public List<SugerenciaDTO> sugerir(String texto, int limite) {
+        Instantanea instantanea = actual;
+        if (instantanea == null) {
+            return null;
+        }
+        String prefijo = String.join(" ", NormalizadorTexto.tokens(texto));
+        List<SugerenciaDTO> sugerencias = new ArrayList<>(limite);
+        for (Sugerencia sugerencia : instantanea.buscar(prefijo, limite)) {
+            sugerencias.add(new SugerenciaDTO(sugerencia.texto, sugerencia.tipo,
+                    sugerencia.tipo == SugerenciaDTO.Tipo.TITULO ? sugerencia.libroId : null, sugerencia.prestamos));
+        }
+        return sugerencias;
+    }
+
+    /**
+     * Registra el cambio de un libro; se aplica cuando la transacción se confirme
+     * @param anterior datos del libro antes del cambio (null si es nuevo)
+     * @param nuevo datos del libro después del cambio (null si se ha eliminado)
+     */
+    public void registrar(IndiceLibros.Entrada anterior, IndiceLibros.Entrada nuevo) {
+        if (nuevo != null) {
+            if (anterior != null && Objects.equals(anterior.titulo(), nuevo.titulo())
+                    && Objects.equals(anterior.autor(), nuevo.autor())) {
+                return;
+            }
+            int id = nuevo.documento();
+            String titulo = nuevo.titulo();
+            String autor = nuevo.autor();
+            TransaccionUtil.despuesDelCommit(() -> fuente.aplicar(datos -> datos.poner(id, titulo, autor)));
+        } else if (anterior != null) {
+            int id = anterior.documento();
+            TransaccionUtil.despuesDelCommit(() -> fuente.aplicar(datos -> datos.quitar(id)));
+        }
+    }
+
+    /**
+     * Suma un préstamo a la popularidad de cada libro indicado cuando la transacción se confirme
+     * @param libroIds IDs de los libros prestados
+     */
+    public void registrarPrestamos(Collection<Long> libroIds) {
+        List<Long> ids = List.copyOf(libroIds);
+        TransaccionUtil.despuesDelCommit(() -> fuente.aplicar(
+                datos -> ids.forEach(id -> datos.sumarPrestamos(Math.toIntExact(id), 1))));
+    }
+
+    /**
+     * Carga títulos, autores y popularidad desde la base de datos, construye el primer trie
+     * y programa la revisión periódica
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        if (fuente.construir(this::leer) != null) {
+            pedirReconstruccion();
+            ejecutor.scheduleWithFixedDelay(this::revisar, retardoMs, retardoMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdown();
+    }
+
+    private Fuente leer() {
+        Fuente datos = new Fuente();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> filas = libroRepository.streamTitulosYAutores()) {
+                filas.forEach(fila -> datos.poner(Math.toIntExact((Long) fila[0]), (String) fila[1], (String) fila[2]));
+            }
+            for (Object[] fila : prestamoRepository.countAgrupadoPorLibro()) {
+                datos.sumarPrestamos(Math.toIntExact((Long) fila[0]), Math.toIntExact((Long) fila[1]));
+            }
+        });
+        return datos;
+    }
+
+    /**
+     * Aplica un cambio y, si ha cambiado algún título o autor, publica las entradas cambiadas
+     */
+    private void aplicarEn(Consumer<Fuente> cambio, Fuente datos) {
+        long cambios = datos.cambios;
+        cambio.accept(datos);
+        if (datos.cambios == cambios || datos.base == null) {
+            return;
+        }
+        if (datos.modificados.size() <= MAXIMO_CAMBIOS_PUBLICADOS) {
+            actual = datos.instantanea();
+        }
+        if (datos.modificados.size() >= UMBRAL_RECONSTRUCCION) {
+            pedirReconstruccion();
+        }
+    }
+
+    private void pedirReconstruccion() {
+        if (reconstruccionPedida.compareAndSet(false, true)) {
+            ejecutor.execute(this::reconstruir);
+        }
+    }
+
+    /**
+     * Reconstruye la base si se han acumulado cambios, o si cambió la popularidad
+     * y ya ha pasado el intervalo configurado
+     */
+    private void revisar() {
+        Fuente datos = fuente.actual();
+        boolean reconstruir;
+        synchronized (fuente) {
+            reconstruir = datos.modificados.size() >= UMBRAL_RECONSTRUCCION || datos.popularidadModificada
+                    && System.currentTimeMillis() - ultimaConstruccion >= intervaloPopularidadMs;
+        }
+        if (reconstruir) {
+            reconstruir();
+        }
+    }
+
+    /**
+     * Copia las entradas actuales, construye con ellas un trie nuevo fuera del monitor y lo publica
+     * junto con los cambios llegados mientras tanto. Solo se ejecuta en el hilo propio.
+     */
+    private void reconstruir() {
+        reconstruccionPedida.set(false);
+        try {
+            long inicio = System.nanoTime();
+            Fuente datos = fuente.actual();
+            List<Sugerencia> entradas;
+            synchronized (fuente) {
+                entradas = datos.copiar();
+            }
+
+            // Rango de relevancia: más préstamos primero; a igualdad, textos más cortos y en orden alfabético
+            int[] orden = OrdenIndices.ordenar(entradas.size(), (a, b) -> comparar(entradas.get(a), entradas.get(b)));
+            int[] rango = new int[orden.length];
+            for (int posicion = 0; posicion < orden.length; posicion++) {
+                rango[orden[posicion]] = posicion;
+            }
+            List<String> normalizados = new ArrayList<>(entradas.size());
+            for (Sugerencia entrada : entradas) {
+                normalizados.add(entrada.normalizado);
+            }
+            // Resultados de sobra para completar una consulta aunque haya entradas descartadas
+            TrieSugerencias trie = new TrieSugerencias(normalizados, rango,
+                    TrieSugerencias.MAXIMO_SUGERENCIAS + UMBRAL_RECONSTRUCCION);
+
+            synchronized (fuente) {
+                datos.publicarBase(new Base(trie, entradas));
+                actual = datos.instantanea();
+            }
+            ultimaConstruccion = System.currentTimeMillis();
+            log.debug("Trie de sugerencias construido: {} entradas, {} claves, {} nodos en {} ms", entradas.size(),
+                    trie.getNumeroClaves(), trie.getNumeroNodos(), (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("No se pudo reconstruir el trie de sugerencias", e);
+        }
+    }
+
+    /**
+     * Orden de relevancia de las sugerencias
+     */
+    private static int comparar(Sugerencia a, Sugerencia b) {
+        int porPrestamos = Long.compare(b.prestamos, a.prestamos);
+        if (porPrestamos != 0) {
+            return porPrestamos;
+        }
+        int porLongitud = Integer.compare(a.normalizado.length(), b.normalizado.length());
+        return porLongitud != 0 ? porLongitud : a.normalizado.compareTo(b.normalizado);
+    }
+
+    /**
+     * Grupos de libros por título y por autor, con los cambios pendientes de pasar a la base
+     */
+    private static final class Fuente {
+
+        private static final int SIN_GRUPO = -1;
+
+        // Los códigos de grupo son posiciones en esta lista; se renumeran al copiar quitando los vacíos
+        private List<Grupo> grupos = new ArrayList<>();
+        private final Map<String, Integer> codigosTitulo = new HashMap<>();
+        private final Map<String, Integer> codigosAutor = new HashMap<>();
+
+        // Por ID de libro: grupo de su título, grupo de su autor y número de préstamos
+        private final Miembros titulos = new Miembros();
+        private final Miembros autores = new Miembros();
+        private int[] prestamosDeLibro = new int[0];
+
+        // Base publicada y grupos que han cambiado desde que se copió
+        private Base base;
+        private final Set<Grupo> modificados = new HashSet<>();
+        private long cambios;
+        private long cambiosAlCopiar;
+        private boolean popularidadModificada;
+
+        /**
+         * Fija el título y el autor de un libro. Es idempotente.
+         */
+        void poner(int id, String titulo, String autor) {
+            asegurar(id);
+            mover(titulos, id, grupo(codigosTitulo, titulo, SugerenciaDTO.Tipo.TITULO));
+            mover(autores, id, grupo(codigosAutor, autor, SugerenciaDTO.Tipo.AUTOR));
+        }
+
+        /**
+         * Quita un libro de sus grupos. Es idempotente.
+         */
+        void quitar(int id) {
+            if (id < prestamosDeLibro.length) {
+                mover(titulos, id, SIN_GRUPO);
+                mover(autores, id, SIN_GRUPO);
+            }
+        }
+
+        /**
+         * Suma préstamos a un libro. A diferencia de los cambios de texto, no es idempotente: un
+         * préstamo confirmado durante la carga puede contarse dos veces, lo que solo afecta al orden
+         */
+        void sumarPrestamos(int id, int prestamos) {
+            asegurar(id);
+            prestamosDeLibro[id] += prestamos;
+            for (int codigo : new int[] {titulos.grupoDeLibro[id], autores.grupoDeLibro[id]}) {
+                if (codigo != SIN_GRUPO) {
+                    grupos.get(codigo).prestamos += prestamos;
+                }
+            }
+            popularidadModificada = true;
+        }
+
+        private int grupo(Map<String, Integer> codigos, String texto, SugerenciaDTO.Tipo tipo) {
+            String normalizado = String.join(" ", NormalizadorTexto.tokens(texto));
+            if (normalizado.isEmpty()) {
+                return SIN_GRUPO;
+            }
+            return codigos.computeIfAbsent(normalizado, n -> {
+                grupos.add(new Grupo(texto, n, tipo));
+                return grupos.size() - 1;
+            });
+        }
+
+        private void mover(Miembros miembros, int id, int codigo) {
+            int anterior = miembros.grupoDeLibro[id];
+            if (anterior == codigo) {
+                return;
+            }
+            miembros.grupoDeLibro[id] = codigo;
+            if (anterior != SIN_GRUPO) {
+                Grupo grupo = grupos.get(anterior);
+                miembros.desenlazar(grupo, id);
+                grupo.libros--;
+                grupo.prestamos -= prestamosDeLibro[id];
+                if (grupo.libros > 0 && grupo.libroId == id) {
+                    grupo.libroId = miembros.menorLibro(grupo);
+                }
+                marcar(grupo);
+            }
+            if (codigo != SIN_GRUPO) {
+                Grupo grupo = grupos.get(codigo);
+                miembros.enlazar(grupo, id);
+                if (grupo.libros++ == 0 || id < grupo.libroId) {
+                    grupo.libroId = id;
+                }
+                grupo.prestamos += prestamosDeLibro[id];
+                marcar(grupo);
+            }
+        }
+
+        private void marcar(Grupo grupo) {
+            grupo.cambio = ++cambios;
+            // Sin base, los cambios se recogen al publicar la primera
+            if (base != null) {
+                modificados.add(grupo);
+            }
+        }
+
+        private void asegurar(int id) {
+            if (id >= prestamosDeLibro.length) {
+                int tamanio = Math.max(id + 1, Math.max(1024, prestamosDeLibro.length * 2));
+                titulos.asegurar(tamanio);
+                autores.asegurar(tamanio);
+                prestamosDeLibro = Arrays.copyOf(prestamosDeLibro, tamanio);
+            }
+        }
+
+        /**
+         * Quita los grupos vacíos, renumera los demás y copia sus entradas para una base nueva
+         * @return una entrada por grupo, en el orden de sus códigos
+         */
+        List<Sugerencia> copiar() {
+            List<Grupo> conLibros = new ArrayList<>(grupos.size());
+            int[] codigos = new int[grupos.size()];
+            codigosTitulo.clear();
+            codigosAutor.clear();
+            for (int codigo = 0; codigo < grupos.size(); codigo++) {
+                Grupo grupo = grupos.get(codigo);
+                if (grupo.libros == 0) {
+                    codigos[codigo] = SIN_GRUPO;
+                    continue;
+                }
+                codigos[codigo] = conLibros.size();
+                (grupo.tipo == SugerenciaDTO.Tipo.TITULO ? codigosTitulo : codigosAutor)
+                        .put(grupo.normalizado, conLibros.size());
+                conLibros.add(grupo);
+            }
+            titulos.renumerar(codigos);
+            autores.renumerar(codigos);
+            grupos = conLibros;
+            cambiosAlCopiar = cambios;
+            popularidadModificada = false;
+
+            List<Sugerencia> entradas = new ArrayList<>(conLibros.size());
+            for (Grupo grupo : conLibros) {
+                entradas.add(grupo.sugerencia());
+            }
+            return entradas;
+        }
+
+        /**
+         * Publica la base construida con la última copia; quedan como modificados los grupos
+         * que han cambiado después de copiar
+         */
+        void publicarBase(Base nueva) {
+            base = nueva;
+            modificados.clear();
+            for (int codigo = 0; codigo < grupos.size(); codigo++) {
+                Grupo grupo = grupos.get(codigo);
+                grupo.posicion = codigo < nueva.entradas.size() ? codigo : SIN_GRUPO;
+                if (grupo.cambio > cambiosAlCopiar) {
+                    modificados.add(grupo);
+                }
+            }
+        }
+
+        /**
+         * Base publicada con las entradas de los grupos modificados
+         */
+        Instantanea instantanea() {
+            int[] retiradas = new int[modificados.size()];
+            int numeroRetiradas = 0;
+            List<Sugerencia> cambiadas = new ArrayList<>(modificados.size());
+            for (Grupo grupo : modificados) {
+                if (grupo.posicion != SIN_GRUPO) {
+                    retiradas[numeroRetiradas++] = grupo.posicion;
+                }
+                if (grupo.libros > 0) {
+                    cambiadas.add(grupo.sugerencia());
+                }
+            }
+            retiradas = Arrays.copyOf(retiradas, numeroRetiradas);
+            Arrays.sort(retiradas);
+            return new Instantanea(base, retiradas, cambiadas);
+        }
+    }
+
+    /**
+     * Grupo de cada libro para un tipo de sugerencia (título o autor). Los libros de cada grupo
+     * forman una lista doblemente enlazada por ID, así que al quitar de un grupo su libro de
+     * menor ID el siguiente se busca entre los del grupo, no entre todos los libros.
+     */
+    private static final class Miembros {
+
+        private static final int SIN_LIBRO = -1;
+
+        private int[] grupoDeLibro = new int[0];
+        private int[] siguiente = new int[0];
+        private int[] anterior = new int[0];
+
+        void asegurar(int tamanio) {
+            int previo = grupoDeLibro.length;
+            grupoDeLibro = Arrays.copyOf(grupoDeLibro, tamanio);
+            siguiente = Arrays.copyOf(siguiente, tamanio);
+            anterior = Arrays.copyOf(anterior, tamanio);
+            Arrays.fill(grupoDeLibro, previo, tamanio, Fuente.SIN_GRUPO);
+            Arrays.fill(siguiente, previo, tamanio, SIN_LIBRO);
+            Arrays.fill(anterior, previo, tamanio, SIN_LIBRO);
+        }
+
+        void enlazar(Grupo grupo, int id) {
+            anterior[id] = SIN_LIBRO;
+            siguiente[id] = grupo.primerLibro;
+            if (grupo.primerLibro != SIN_LIBRO) {
+                anterior[grupo.primerLibro] = id;
+            }
+            grupo.primerLibro = id;
+        }
+
+        void desenlazar(Grupo grupo, int id) {
+            if (anterior[id] != SIN_LIBRO) {
+                siguiente[anterior[id]] = siguiente[id];
+            } else {
+                grupo.primerLibro = siguiente[id];
+            }
+            if (siguiente[id] != SIN_LIBRO) {
+                anterior[siguiente[id]] = anterior[id];
+            }
+            anterior[id] = SIN_LIBRO;
+            siguiente[id] = SIN_LIBRO;
+        }
+
+        /**
+         * Menor ID de los libros del grupo, recorriendo solo su lista
+         */
+        int menorLibro(Grupo grupo) {
+            int menor = Integer.MAX_VALUE;
+            for (int id = grupo.primerLibro; id != SIN_LIBRO; id = siguiente[id]) {
+                menor = Math.min(menor, id);
+            }
+            return menor == Integer.MAX_VALUE ? Fuente.SIN_GRUPO : menor;
+        }
+
+        /**
+         * Aplica la nueva numeración de los grupos tras quitar los vacíos
+         */
+        void renumerar(int[] codigos) {
+            for (int id = 0; id < grupoDeLibro.length; id++) {
+                grupoDeLibro[id] = grupoDeLibro[id] == Fuente.SIN_GRUPO ? Fuente.SIN_GRUPO : codigos[grupoDeLibro[id]];
+            }
+        }
+    }
+
+    /**
+     * Libros con el mismo título o el mismo autor normalizado, con su popularidad sumada
+     */
+    private static final class Grupo {
+
+        private final String texto;
+        private final String normalizado;
+        private final SugerenciaDTO.Tipo tipo;
+        private int libros;
+        private int libroId;
+        private int primerLibro = Miembros.SIN_LIBRO;
+        private long prestamos;
+        // Posición en la base publicada (SIN_GRUPO si no está) y número del último cambio
+        private int posicion = Fuente.SIN_GRUPO;
+        private long cambio;
+
+        Grupo(String texto, String normalizado, SugerenciaDTO.Tipo tipo) {
+            this.texto = texto;
+            this.normalizado = normalizado;
+            this.tipo = tipo;
+        }
+
+        Sugerencia sugerencia() {
+            return new Sugerencia(texto, normalizado, tipo, (long) libroId, prestamos);
+        }
+    }
+
+    /**
+     * Texto sugerible: un título o un autor, con la popularidad sumada de sus libros
+     */
+    private static final class Sugerencia {
+
+        private final String texto;
+        private final String normalizado;
+        private final SugerenciaDTO.Tipo tipo;
+        private final Long libroId;
+        private final long prestamos;
+
+        Sugerencia(String texto, String normalizado, SugerenciaDTO.Tipo tipo, Long libroId, long prestamos) {
+            this.texto = texto;
+            this.normalizado = normalizado;
+            this.tipo = tipo;
+            this.libroId = libroId;
+            this.prestamos = prestamos;
+        }
+    }
+
+    /**
+     * Trie y entradas construidos juntos
+     */
+    private static final class Base {
+
+        private final TrieSugerencias trie;
+        private final List<Sugerencia> entradas;
+
+        Base(TrieSugerencias trie, List<Sugerencia> entradas) {
+            this.trie = trie;
+            this.entradas = entradas;
+        }
+    }
+
+    /**
+     * Base y cambios publicados juntos para que las consultas vean siempre una versión coherente
+     */
+    private static final class Instantanea {
+
+        private final Base base;
+        // Posiciones ordenadas de las entradas de la base que ya no valen y versiones actuales de las cambiadas
+        private final int[] retiradas;
+        private final List<Sugerencia> cambiadas;
+
+        Instantanea(Base base, int[] retiradas, List<Sugerencia> cambiadas) {
+            this.base = base;
+            this.retiradas = retiradas;
+            this.cambiadas = cambiadas;
+        }
+
+        List<Sugerencia> buscar(String prefijo, int limite) {
+            List<Sugerencia> encontradas = new ArrayList<>();
+            int pedidas = limite + retiradas.length;
+            int[] delTrie = base.trie.buscar(prefijo, pedidas);
+            for (int e : delTrie) {
+                if (Arrays.binarySearch(retiradas, e) < 0) {
+                    encontradas.add(base.entradas.get(e));
+                }
+            }
+            // El trie se ha quedado corto: pueden quedar entradas válidas detrás de las retiradas
+            if (encontradas.size() < limite && pedidas > base.trie.getMaximoResultados()
+                    && delTrie.length == base.trie.getMaximoResultados()) {
+                encontradas = recorrerBase(prefijo);
+            }
+            boolean hayCambiadas = false;
+            for (Sugerencia sugerencia : cambiadas) {
+                if (TrieSugerencias.contiene(sugerencia.normalizado, prefijo)) {
+                    encontradas.add(sugerencia);
+                    hayCambiadas = true;
+                }
+            }
+            if (hayCambiadas) {
+                encontradas.sort(SugerenciasLibros::comparar);
+            }
+            return encontradas.size() <= limite ? encontradas : encontradas.subList(0, limite);
+        }
+
+        /**
+         * Entradas vigentes de la base que contienen el prefijo, en orden de relevancia
+         */
+        private List<Sugerencia> recorrerBase(String prefijo) {
+            List<Sugerencia> encontradas = new ArrayList<>();
+            for (int e = 0; e < base.entradas.size(); e++) {
+                Sugerencia entrada = base.entradas.get(e);
+                if (TrieSugerencias.contiene(entrada.normalizado, prefijo) && Arrays.binarySearch(retiradas, e) < 0) {
+                    encontradas.add(entrada);
+                }
+            }
+            encontradas.sort(SugerenciasLibros::comparar);
+            return encontradas;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trie compacto e inmutable para autocompletar.
+ *
+ * Cada entrada (un texto normalizado) aporta una clave por cada comienzo de palabra, de modo que
+ * "gabriel garcia marquez" se encuentra escribiendo "gab", "garc" o "marq". Las claves se ordenan
+ * y el trie se construye sobre ellas con caminos comprimidos (árbol radix): cada nodo es un rango
+ * contiguo de claves ordenadas, sus hijos ocupan posiciones consecutivas y todo se guarda en
+ * arrays de enteros, sin objetos ni mapas por nodo. Las etiquetas de las aristas no se copian:
+ * se leen de la primera clave del rango.
+ *
+ * Los nodos con muchas claves guardan precalculadas sus mejores entradas; en el resto se
+ * recorren sus claves, que están acotadas, en el momento de la consulta.
+ *
+ * Las claves se ordenan con OrdenIndices sobre arrays de enteros, sin objetos por clave.
+ */
+public final class TrieSugerencias {
+    
+    /** Número máximo de sugerencias que se pueden pedir en una consulta */
+    public static final int MAXIMO_SUGERENCIAS = 20;
+    
+    // Rango a partir del cual un nodo guarda sus mejores entradas en lugar de recorrerlas
+    private static final int UMBRAL_ESCANEO = 256;
+    // Palabras de cada entrada que generan clave
+    private static final int MAXIMO_PALABRAS = 8;
+    private static final int[] VACIO = new int[0];
+    
+    private final String[] normalizados;
+    private final int[] rango;
+    private final int maximoResultados;
+    
+    // Claves ordenadas: entrada y posición de inicio dentro de su texto normalizado
+    private final int[] claveEntrada;
+    private final int[] claveInicio;
+    
+    // Nodos: rango de claves [desde, hasta), profundidad al final de la arista e hijos consecutivos
+    private int[] nodoDesde;
+    private int[] nodoHasta;
+    private int[] nodoProfundidad;
+    private int[] nodoPrimerHijo;
+    private int[] nodoNumeroHijos;
+    private int[][] nodoMejores;
+    private int numeroNodos;
+    
+    /**
+     * Construye el trie
+     * @param normalizados texto normalizado de cada entrada (palabras separadas por un espacio)
+     * @param rango posición de cada entrada en el orden de relevancia (menor es mejor, sin repetidos)
+     * @param maximoResultados número máximo de resultados de una consulta (al menos MAXIMO_SUGERENCIAS)
+     */
+    public TrieSugerencias(List<String> normalizados, int[] rango, int maximoResultados) {
+        this.normalizados = normalizados.toArray(new String[0]);
+        this.rango = rango;
+        this.maximoResultados = Math.max(maximoResultados, MAXIMO_SUGERENCIAS);
+        
+        int[][] claves = generarClaves(this.normalizados);
+        this.claveEntrada = claves[0];
+        this.claveInicio = claves[1];
+        construirNodos();
+        precalcularMejores();
+    }
+    
+    /**
+     * Busca las mejores entradas que contienen una palabra que empieza por el prefijo
+     * @param prefijo texto normalizado escrito por el usuario
+     * @param limite número máximo de resultados (se limita al indicado al construir el trie)
+     * @return índices de las entradas, de más a menos relevante
+     */
+    public int[] buscar(String prefijo, int limite) {
+        if (numeroNodos == 0 || prefijo.isEmpty()) {
+            return VACIO;
+        }
+        int nodo = 0;
+        int posicion = 0;
+        while (true) {
+            int profundidad = nodoProfundidad[nodo];
+            int clave = nodoDesde[nodo];
+            int fin = Math.min(profundidad, prefijo.length());
+            for (; posicion < fin; posicion++) {
+                if (caracter(clave, posicion) != prefijo.charAt(posicion)) {
+                    return VACIO;
+                }
+            }
+            if (prefijo.length() <= profundidad) {
+                return mejores(nodo, Math.min(limite, maximoResultados));
+            }
+            nodo = buscarHijo(nodo, posicion, prefijo.charAt(posicion));
+            if (nodo < 0) {
+                return VACIO;
+            }
+        }
+    }
+    
+    /**
+     * Indica si alguna palabra del texto (de las que generan clave) empieza por el prefijo,
+     * igual que lo comprueba buscar
+     * @param normalizado texto normalizado de una entrada
+     * @param prefijo texto normalizado escrito por el usuario
+     * @return true si la entrada se encontraría con el prefijo
+     */
+    public static boolean contiene(String normalizado, String prefijo) {
+        if (prefijo.isEmpty()) {
+            return false;
+        }
+        int[] posiciones = new int[MAXIMO_PALABRAS];
+        int cantidad = inicios(normalizado, posiciones);
+        for (int i = 0; i < cantidad; i++) {
+            if (normalizado.startsWith(prefijo, posiciones[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Número máximo de resultados de una consulta, fijado al construir el trie
+     * @return el máximo de resultados
+     */
+    public int getMaximoResultados() {
+        return maximoResultados;
+    }
+    
+    /**
+     * Número de nodos del trie
+     * @return número de nodos
+     */
+    public int getNumeroNodos() {
+        return numeroNodos;
+    }
+    
+    /**
+     * Número de claves indexadas
+     * @return número de claves
+     */
+    public int getNumeroClaves() {
+        return claveEntrada.length;
+    }
+    
+    private int[] mejores(int nodo, int limite) {
+        int[] precalculadas = nodoMejores[nodo];
+        if (precalculadas != null) {
+            return Arrays.copyOf(precalculadas, Math.min(limite, precalculadas.length));
+        }
+        int[] candidatas = new int[nodoHasta[nodo] - nodoDesde[nodo]];
+        for (int k = nodoDesde[nodo]; k < nodoHasta[nodo]; k++) {
+            candidatas[k - nodoDesde[nodo]] = claveEntrada[k];
+        }
+        return seleccionar(candidatas, candidatas.length, limite);
+    }
+    
+    private int buscarHijo(int nodo, int posicion, char c) {
+        int bajo = nodoPrimerHijo[nodo];
+        int alto = bajo + nodoNumeroHijos[nodo] - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int actual = caracter(nodoDesde[medio], posicion);
+            if (actual < c) {
+                bajo = medio + 1;
+            } else if (actual > c) {
+                alto = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Carácter de la clave en la posición indicada, o -1 si la clave es más corta
+     */
+    private int caracter(int clave, int posicion) {
+        String texto = normalizados[claveEntrada[clave]];
+        int indice = claveInicio[clave] + posicion;
+        return indice < texto.length() ? texto.charAt(indice) : -1;
+    }
+    
+    private static int[][] generarClaves(String[] normalizados) {
+        int total = 0;
+        for (String texto : normalizados) {
+            total += inicios(texto, null);
+        }
+        int[] entradas = new int[total];
+        int[] inicios = new int[total];
+        int n = 0;
+        int[] posiciones = new int[MAXIMO_PALABRAS];
+        for (int e = 0; e < normalizados.length; e++) {
+            int cantidad = inicios(normalizados[e], posiciones);
+            for (int i = 0; i < cantidad; i++) {
+                entradas[n] = e;
+                inicios[n] = posiciones[i];
+                n++;
+            }
+        }
+        
+        int[] orden = OrdenIndices.ordenar(total, (a, b) -> {
+            String ta = normalizados[entradas[a]];
+            String tb = normalizados[entradas[b]];
+            int ia = inicios[a];
+            int ib = inicios[b];
+            int longitud = Math.min(ta.length() - ia, tb.length() - ib);
+            for (int i = 0; i < longitud; i++) {
+                int diferencia = ta.charAt(ia + i) - tb.charAt(ib + i);
+                if (diferencia != 0) {
+                    return diferencia;
+                }
+            }
+            return (ta.length() - ia) - (tb.length() - ib);
+        });
+        
+        int[] entradasOrdenadas = new int[total];
+        int[] iniciosOrdenados = new int[total];
+        for (int i = 0; i < total; i++) {
+            entradasOrdenadas[i] = entradas[orden[i]];
+            iniciosOrdenados[i] = inicios[orden[i]];
+        }
+        return new int[][] {entradasOrdenadas, iniciosOrdenados};
+    }
+    
+    /**
+     * Posiciones donde empieza cada palabra del texto (como máximo MAXIMO_PALABRAS)
+     * @param posiciones destino de las posiciones, o null para solo contarlas
+     * @return número de posiciones
+     */
+    private static int inicios(String texto, int[] posiciones) {
+        if (texto.isEmpty()) {
+            return 0;
+        }
+        int n = 0;
+        for (int i = 0; i < texto.length() && n < MAXIMO_PALABRAS; i++) {
+            if (i == 0 || texto.charAt(i - 1) == ' ') {
+                if (posiciones != null) {
+                    posiciones[n] = i;
+                }
+                n++;
+            }
+        }
+        return n;
+    }
+    
+    /**
+     * Construye los nodos en anchura: los hijos de cada nodo se crean juntos y quedan consecutivos
+     */
+    private void construirNodos() {
+        int capacidad = Math.max(16, claveEntrada.length + claveEntrada.length / 2);
+        nodoDesde = new int[capacidad];
+        nodoHasta = new int[capacidad];
+        nodoProfundidad = new int[capacidad];
+        nodoPrimerHijo = new int[capacidad];
+        nodoNumeroHijos = new int[capacidad];
+        numeroNodos = 0;
+        if (claveEntrada.length == 0) {
+            nodoMejores = new int[0][];
+            return;
+        }
+        
+        crearNodo(0, claveEntrada.length, 0);
+        for (int nodo = 0; nodo < numeroNodos; nodo++) {
+            int profundidad = nodoProfundidad[nodo];
+            int hasta = nodoHasta[nodo];
+            // Las claves que terminan en este nodo van primero en el orden
+            int k = nodoDesde[nodo];
+            while (k < hasta && caracter(k, profundidad) < 0) {
+                k++;
+            }
+            nodoPrimerHijo[nodo] = numeroNodos;
+            while (k < hasta) {
+                int finGrupo = finDeGrupo(k, hasta, profundidad);
+                crearNodo(k, finGrupo, profundidad);
+                k = finGrupo;
+            }
+            nodoNumeroHijos[nodo] = numeroNodos - nodoPrimerHijo[nodo];
+        }
+        nodoMejores = new int[numeroNodos][];
+    }
+    
+    private void crearNodo(int desde, int hasta, int profundidadPadre) {
+        // La arista se extiende mientras todas las claves del rango coinciden (primera y última, por estar ordenadas)
+        int profundidad = profundidadPadre;
+        while (true) {
+            int c = caracter(desde, profundidad);
+            if (c < 0 || c != caracter(hasta - 1, profundidad)) {
+                break;
+            }
+            profundidad++;
+        }
+        if (numeroNodos == nodoDesde.length) {
+            int capacidad = nodoDesde.length * 2;
+            nodoDesde = Arrays.copyOf(nodoDesde, capacidad);
+            nodoHasta = Arrays.copyOf(nodoHasta, capacidad);
+            nodoProfundidad = Arrays.copyOf(nodoProfundidad, capacidad);
+            nodoPrimerHijo = Arrays.copyOf(nodoPrimerHijo, capacidad);
+            nodoNumeroHijos = Arrays.copyOf(nodoNumeroHijos, capacidad);
+        }
+        int nodo = numeroNodos++;
+        nodoDesde[nodo] = desde;
+        nodoHasta[nodo] = hasta;
+        nodoProfundidad[nodo] = profundidad;
+    }
+    
+    /**
+     * Primera clave del rango cuyo carácter en la posición indicada es distinto al de la clave inicial
+     */
+    private int finDeGrupo(int desde, int hasta, int posicion) {
+        int c = caracter(desde, posicion);
+        int bajo = desde + 1;
+        int alto = hasta;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (caracter(medio, posicion) <= c) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+    
+    /**
+     * Calcula de abajo arriba las mejores entradas de los nodos grandes, combinando las de sus hijos
+     */
+    private void precalcularMejores() {
+        int[] candidatas = new int[UMBRAL_ESCANEO * 4];
+        for (int nodo = numeroNodos - 1; nodo >= 0; nodo--) {
+            if (nodoHasta[nodo] - nodoDesde[nodo] <= UMBRAL_ESCANEO) {
+                continue;
+            }
+            int n = 0;
+            int primerHijo = nodoPrimerHijo[nodo];
+            int finTerminales = nodoNumeroHijos[nodo] == 0 ? nodoHasta[nodo] : nodoDesde[primerHijo];
+            for (int k = nodoDesde[nodo]; k < finTerminales; k++) {
+                candidatas = asegurar(candidatas, n + 1);
+                candidatas[n++] = claveEntrada[k];
+            }
+            for (int hijo = primerHijo; hijo < primerHijo + nodoNumeroHijos[nodo]; hijo++) {
+                int[] delHijo = nodoMejores[hijo];
+                if (delHijo != null) {
+                    candidatas = asegurar(candidatas, n + delHijo.length);
+                    System.arraycopy(delHijo, 0, candidatas, n, delHijo.length);
+                    n += delHijo.length;
+                } else {
+                    candidatas = asegurar(candidatas, n + nodoHasta[hijo] - nodoDesde[hijo]);
+                    for (int k = nodoDesde[hijo]; k < nodoHasta[hijo]; k++) {
+                        candidatas[n++] = claveEntrada[k];
+                    }
+                }
+            }
+            nodoMejores[nodo] = seleccionar(candidatas, n, maximoResultados);
+        }
+    }
+    
+    private static int[] asegurar(int[] array, int tamanio) {
+        return tamanio <= array.length ? array : Arrays.copyOf(array, Math.max(tamanio, array.length * 2));
+    }
+    
+    /**
+     * Ordena las entradas candidatas por relevancia, quita repetidas y devuelve las primeras
+     */
+    private int[] seleccionar(int[] candidatas, int n, int limite) {
+        long[] porRango = new long[n];
+        for (int i = 0; i < n; i++) {
+            porRango[i] = ((long) rango[candidatas[i]] << 32) | candidatas[i];
+        }
+        Arrays.sort(porRango);
+        int[] resultado = new int[Math.min(limite, n)];
+        int encontrados = 0;
+        for (int i = 0; i < n && encontrados < resultado.length; i++) {
+            if (i == 0 || porRango[i] != porRango[i - 1]) {
+                resultado[encontrados++] = (int) porRango[i];
+            }
+        }
+        return encontrados == resultado.length ? resultado : Arrays.copyOf(resultado, encontrados);
+    }
+}
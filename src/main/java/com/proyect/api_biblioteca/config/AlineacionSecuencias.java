@@ -0,0 +1,113 @@
+package com.proyect.api_biblioteca.config;
+
+import com.proyect.api_biblioteca.model.entity.GeneradorSecuenciaAgrupada;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Migración de los IDs generados por columnas IDENTITY a secuencias: al arrancar, si una
+ * secuencia va por detrás del mayor ID de su tabla (datos creados antes del cambio o
+ * insertados por otras vías), se reinicia justo después de ese ID. En una base de datos
+ * vacía o ya alineada no cambia nada.
+ *
+ * También comprueba que el incremento de cada secuencia coincide con el tamaño de bloque
+ * que usa Hibernate (biblioteca.ids.tamanio-asignacion); si no, dos bloques podrían solaparse.
+ * Hibernate hace la misma comprobación al validar el esquema; ésta cubre también ddl-auto=none.
+ *
+ * Se ejecuta al crear el bean, antes de que la aplicación inserte nada.
+ */
+@Component
+public class AlineacionSecuencias {
+
+    private static final Logger log = LoggerFactory.getLogger(AlineacionSecuencias.class);
+
+    private static final Map<String, String> SECUENCIAS = Map.of(
+            "libros_seq", "libros",
+            "usuarios_seq", "usuarios",
+            "prestamos_seq", "prestamos");
+
+    private static final String SQL_INCREMENTO =
+            "SELECT CAST(INCREMENT AS BIGINT) FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final int tamanioAsignacion;
+
+    public AlineacionSecuencias(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = sessionFactory.getJdbcServices().getDialect();
+        this.tamanioAsignacion = sessionFactory.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSetting(GeneradorSecuenciaAgrupada.TAMANIO_ASIGNACION, StandardConverters.INTEGER,
+                        GeneradorSecuenciaAgrupada.TAMANIO_POR_DEFECTO);
+    }
+
+    @PostConstruct
+    public void alinear() {
+        SECUENCIAS.keySet().forEach(this::comprobarIncremento);
+        SECUENCIAS.forEach((secuencia, tabla) -> {
+            Long maximo = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tabla, Long.class);
+            if (maximo == null) {
+                return;
+            }
+            // Leer el siguiente valor consume un bloque de IDs, lo que no afecta a la unicidad
+            Long siguiente = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(secuencia), Long.class);
+            if (siguiente != null && siguiente <= maximo) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " RESTART WITH " + (maximo + 1));
+                log.info("Secuencia {} reiniciada en {} (el mayor ID de {} es {})", secuencia, maximo + 1, tabla, maximo);
+            }
+        });
+    }
+
+    /**
+     * Reserva un rango de IDs para filas insertadas sin pasar por Hibernate, mientras Hibernate
+     * puede estar pidiendo bloques a la misma secuencia.
+     *
+     * No se lee el valor y se reinicia la secuencia después (otra llamada intercalada obtendría
+     * un bloque dentro del rango). En su lugar se amplía el incremento a la cantidad pedida,
+     * se obtiene el siguiente valor y se restaura el incremento: el valor siguiente al nuestro,
+     * lo pida quien lo pida, queda al menos a esa distancia, y cualquier valor anterior dejó
+     * por delante al menos un bloque de Hibernate. Así ningún rango se solapa con otro.
+     * Las reservas de esta instancia se serializan para no restaurar el incremento de otra.
+     * @param secuencia la secuencia de la tabla
+     * @param cantidad el número de IDs a reservar
+     * @return el primer ID reservado
+     */
+    public synchronized long reservar(String secuencia, long cantidad) {
+        if (!SECUENCIAS.containsKey(secuencia)) {
+            throw new IllegalArgumentException("Secuencia desconocida: " + secuencia);
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " INCREMENT BY " + Math.max(cantidad, tamanioAsignacion));
+        try {
+            return jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(secuencia), Long.class);
+        } finally {
+            jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " INCREMENT BY " + tamanioAsignacion);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException si el incremento de la secuencia no es el tamaño de bloque de Hibernate
+     */
+    private void comprobarIncremento(String secuencia) {
+        List<Long> incremento = jdbcTemplate.queryForList(SQL_INCREMENTO, Long.class, secuencia.toUpperCase(Locale.ROOT));
+        if (incremento.isEmpty() || incremento.get(0) != tamanioAsignacion) {
+            throw new IllegalStateException("La secuencia " + secuencia + " tiene incremento "
+                    + (incremento.isEmpty() ? "desconocido" : incremento.get(0)) + " pero "
+                    + GeneradorSecuenciaAgrupada.TAMANIO_ASIGNACION + " es " + tamanioAsignacion
+                    + "; cambiar el tamaño de bloque requiere una migración que altere las secuencias");
+        }
+    }
+}
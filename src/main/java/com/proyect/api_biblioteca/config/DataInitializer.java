@@ -9,8 +9,10 @@ import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
 import com.proyect.api_biblioteca.repository.LibroRepository;
 import com.proyect.api_biblioteca.repository.UsuarioRepository;
 import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import com.proyect.api_biblioteca.service.GestorContrasenias;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
@@ -19,6 +21,7 @@ import java.time.LocalDate;
  * Componente que inicializa la base de datos con datos de ejemplo
  */
 @Component
+@Order(1)
 public class DataInitializer implements CommandLineRunner {
     
     @Autowired
@@ -30,6 +33,8 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private PrestamoRepository prestamoRepository;
     
+    @Autowired
+    private GestorContrasenias gestorContrasenias;
     
     @Override
     public void run(String... args) throws Exception {
@@ -94,7 +99,7 @@ public class DataInitializer implements CommandLineRunner {
         bibliotecario1.setNombre("María");
         bibliotecario1.setApellido("González");
         bibliotecario1.setEmail("maria.gonzalez@biblioteca.com");
-        bibliotecario1.setPassword("admin123");
+        bibliotecario1.setPassword(gestorContrasenias.codificar("admin123"));
         bibliotecario1.setTelefono("123456789");
         bibliotecario1.setDireccion("Calle Principal 123");
         bibliotecario1.setFechaNacimiento(LocalDate.of(1985, 5, 15));
@@ -105,23 +110,25 @@ public class DataInitializer implements CommandLineRunner {
         usuario1.setNombre("Juan");
         usuario1.setApellido("Pérez");
         usuario1.setEmail("juan.perez@email.com");
-        usuario1.setPassword("123456");
+        usuario1.setPassword(gestorContrasenias.codificar("123456"));
         usuario1.setTelefono("987654321");
         usuario1.setDireccion("Avenida Central 456");
         usuario1.setFechaNacimiento(LocalDate.of(1990, 8, 22));
         usuario1.setTipoUsuario(TipoUsuario.USUARIO);
         usuario1.setEstado(EstadoUsuario.ACTIVO);
+        usuario1.setPrestamosActivos(1); // prestamo1
         
         Usuario usuario2 = new Usuario();
         usuario2.setNombre("Ana");
         usuario2.setApellido("Martínez");
         usuario2.setEmail("ana.martinez@email.com");
-        usuario2.setPassword("123456");
+        usuario2.setPassword(gestorContrasenias.codificar("123456"));
         usuario2.setTelefono("555666777");
         usuario2.setDireccion("Plaza Mayor 789");
         usuario2.setFechaNacimiento(LocalDate.of(1995, 12, 3));
         usuario2.setTipoUsuario(TipoUsuario.USUARIO);
         usuario2.setEstado(EstadoUsuario.ACTIVO);
+        usuario2.setPrestamosActivos(1); // prestamo2
         
         // Guardar usuarios
         usuarioRepository.save(bibliotecario1);
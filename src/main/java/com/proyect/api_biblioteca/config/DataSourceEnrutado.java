@@ -0,0 +1,82 @@
+package com.proyect.api_biblioteca.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource que envía las transacciones de sólo lectura a las réplicas, por turnos, y el
+ * resto a la base de datos principal. Las lecturas de un cliente que acaba de escribir van
+ * también a la principal mientras dure su ventana de lectura propia (ver {@link LecturasPropias}).
+ * Las lecturas de tareas en segundo plano que no toleran datos atrasados (reconciliación de
+ * estadísticas, barrido de vencimientos, construcción de índices) se hacen en transacciones de
+ * escritura para que vayan a la principal.
+ *
+ * La decisión se toma al pedir la conexión, así que debe envolverse en un
+ * LazyConnectionDataSourceProxy: Spring marca la transacción como de sólo lectura después
+ * de abrirla, y el proxy retrasa la conexión real hasta la primera sentencia.
+ */
+public class DataSourceEnrutado extends AbstractRoutingDataSource {
+
+    static final String PRINCIPAL = "principal";
+
+    private final String[] replicas;
+    private final LecturasPropias lecturasPropias;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final Counter haciaPrincipal;
+    private final Counter haciaReplica;
+    private final Counter lecturasEnPrincipal;
+
+    public DataSourceEnrutado(DataSource principal, List<DataSource> replicas, LecturasPropias lecturasPropias,
+                              MeterRegistry meterRegistry) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("Se necesita al menos una réplica de lectura");
+        }
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(PRINCIPAL, principal);
+        this.replicas = new String[replicas.size()];
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas[i] = "replica-" + (i + 1);
+            destinos.put(this.replicas[i], replicas.get(i));
+        }
+        this.lecturasPropias = lecturasPropias;
+        this.haciaPrincipal = Counter.builder("biblioteca.datasource.conexiones")
+                .description("Conexiones entregadas por destino")
+                .tag("destino", PRINCIPAL)
+                .register(meterRegistry);
+        this.haciaReplica = Counter.builder("biblioteca.datasource.conexiones")
+                .description("Conexiones entregadas por destino")
+                .tag("destino", "replica")
+                .register(meterRegistry);
+        this.lecturasEnPrincipal = Counter.builder("biblioteca.datasource.lecturas.propias")
+                .description("Transacciones de sólo lectura enviadas a la principal tras una escritura del cliente")
+                .register(meterRegistry);
+
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(principal);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (!lecturasPropias.escrituraReciente()) {
+                haciaReplica.increment();
+                return replicas[Math.floorMod(siguiente.getAndIncrement(), replicas.length)];
+            }
+            lecturasEnPrincipal.increment();
+        } else if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            lecturasPropias.anotarEscritura();
+        }
+        haciaPrincipal.increment();
+        return PRINCIPAL;
+    }
+}
@@ -0,0 +1,49 @@
+package com.proyect.api_biblioteca.config;
+
+import com.proyect.api_biblioteca.dto.SesionDTO;
+import com.proyect.api_biblioteca.service.AuthService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Identifica al cliente de cada petición para las ventanas de lectura propia: el usuario
+ * del token de sesión si lo hay y es válido, o si no la IP de origen.
+ */
+public class FiltroLecturasPropias extends OncePerRequestFilter {
+
+    private final LecturasPropias lecturasPropias;
+    private final AuthService authService;
+
+    public FiltroLecturasPropias(LecturasPropias lecturasPropias, AuthService authService) {
+        this.lecturasPropias = lecturasPropias;
+        this.authService = authService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        lecturasPropias.establecerCliente(clave(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            lecturasPropias.limpiarCliente();
+        }
+    }
+
+    private String clave(HttpServletRequest request) {
+        String autorizacion = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (autorizacion != null) {
+            SesionDTO sesion = authService.validateToken(autorizacion);
+            if (sesion != null) {
+                return "usuario:" + sesion.getUsuarioId();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,572 @@
+package com.proyect.api_biblioteca.config;
+
+import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.service.GestorContrasenias;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generador de datos sintéticos para pruebas de carga: libros, usuarios y préstamos en
+ * cantidades configurables, insertados con lotes JDBC desde varios hilos. Sólo se activa
+ * con biblioteca.generador.activo=true y se ejecuta al arrancar, después de los datos de
+ * ejemplo y antes de que se construyan los índices en memoria.
+ *
+ * Cada tabla se divide en bloques de filas; cada bloque usa su propio generador aleatorio
+ * derivado de la semilla y del número de bloque, así que el resultado es el mismo sea cual
+ * sea el número de hilos o el orden en que terminen. Las fechas se calculan a partir de
+ * biblioteca.generador.fecha-referencia (por defecto, hoy).
+ *
+ * La popularidad de los libros (con biblioteca.generador.exponente-zipf) y el número de
+ * libros de cada autor siguen distribuciones de Zipf. Hay préstamos en curso (activos,
+ * renovados y vencidos) para el 10% de los libros, los más populares, uno por libro y como
+ * mucho tres por usuario, con los libros marcados como prestados y los contadores de
+ * préstamos activos de los usuarios ya calculados.
+ */
+@Component
+@Order(2)
+@ConditionalOnProperty(name = "biblioteca.generador.activo", havingValue = "true")
+public class GeneradorDatos implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorDatos.class);
+
+    private static final String DOMINIO_EMAIL = "@sintetico.biblioteca.com";
+    private static final int DIAS_PRESTAMO = 15;
+    private static final int MAX_PRESTAMOS_USUARIO = 3;
+    private static final double MULTA_POR_DIA = 1.0;
+    private static final double FRACCION_LIBROS_PRESTADOS = 0.10;
+    // Autores: uno por cada cuatro libros, con una distribución más suave que la de popularidad
+    private static final int LIBROS_POR_AUTOR = 4;
+    private static final double EXPONENTE_AUTORES = 0.5;
+
+    private static final String SQL_LIBRO =
+            "INSERT INTO libros (id, version, titulo, autor, isbn, anio_publicacion, descripcion, numero_paginas, " +
+            "estado_libro, fecha_ingreso) VALUES (?, 0, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_USUARIO =
+            "INSERT INTO usuarios (id, version, nombre, apellido, email, password, telefono, direccion, " +
+            "fecha_nacimiento, tipo_usuario, estado_usuario, fecha_registro, ultimo_acceso, prestamos_activos) " +
+            "VALUES (?, 0, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_PRESTAMO =
+            "INSERT INTO prestamos (id, version, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, " +
+            "fecha_devolucion_real, estado_prestamo, observaciones, multa, fecha_creacion, fecha_modificacion) " +
+            "VALUES (?, 0, ?, ?, ?, ?, ?, ?, NULL, ?, ?, ?)";
+
+    private static final Pattern CREAR_INDICE = Pattern.compile("^CREATE INDEX (\\S+) ON ");
+    private static final Pattern CREAR_CLAVE_AJENA =
+            Pattern.compile("^ALTER TABLE (\\S+) ADD CONSTRAINT (\\S+) FOREIGN KEY");
+
+    private static final String[] NOMBRES = {
+            "María", "José", "Ana", "Juan", "Carmen", "Antonio", "Laura", "Manuel", "Lucía", "Francisco",
+            "Marta", "David", "Elena", "Javier", "Paula", "Carlos", "Sara", "Miguel", "Isabel", "Pedro",
+            "Cristina", "Alejandro", "Pilar", "Daniel", "Rosa", "Pablo", "Teresa", "Sergio", "Raquel", "Jorge",
+            "Beatriz", "Luis", "Silvia", "Alberto", "Nuria", "Fernando", "Irene", "Diego", "Andrea", "Rafael"};
+
+    private static final String[] APELLIDOS = {
+            "García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez", "Pérez", "Gómez",
+            "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez", "Romero", "Alonso",
+            "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos", "Gil", "Ramírez", "Serrano",
+            "Blanco", "Molina", "Morales", "Suárez", "Ortega", "Delgado", "Castro", "Ortiz", "Rubio", "Marín",
+            "Sanz", "Núñez", "Iglesias", "Medina", "Garrido", "Cortés", "Castillo", "Santos", "Lozano", "Guerrero"};
+
+    private static final String[] SUSTANTIVOS = {
+            "la sombra", "la ciudad", "la memoria", "el silencio", "el jardín", "el invierno", "el río", "la noche",
+            "la casa", "el mar", "el camino", "el tiempo", "el viento", "la isla", "la biblioteca", "la frontera",
+            "la luz", "el verano", "la guerra", "el amor", "el laberinto", "el espejo", "la ceniza", "la puerta",
+            "el sueño", "la montaña", "la tormenta", "la herencia", "el secreto", "la voz"};
+
+    // %1$s y %2$s son sustantivos con artículo y %3$s un nombre propio
+    private static final String[] PLANTILLAS_TITULO = {
+            "%1$s", "%1$s y %2$s", "%1$s de %3$s", "%1$s en %2$s", "Cartas sobre %2$s", "Los años de %3$s",
+            "Historia de %3$s", "Lejos de %3$s"};
+
+    private static final String[] CALLES = {
+            "Mayor", "Real", "de la Paz", "del Sol", "de Alcalá", "Gran Vía", "del Carmen", "de Toledo",
+            "de la Luna", "San Juan"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final GestorContrasenias gestorContrasenias;
+    private final AlineacionSecuencias alineacionSecuencias;
+    private final EntityManagerFactory entityManagerFactory;
+    private final long semilla;
+    private final int libros;
+    private final int usuarios;
+    private final long prestamos;
+    private final int hilos;
+    private final int tamanioBloque;
+    private final int tamanioLote;
+    private final double exponenteZipf;
+    private final double fraccionBibliotecarios;
+    private final String contrasenia;
+    private final LocalDate referencia;
+
+    public GeneradorDatos(JdbcTemplate jdbcTemplate, DataSource dataSource, GestorContrasenias gestorContrasenias,
+                          AlineacionSecuencias alineacionSecuencias, EntityManagerFactory entityManagerFactory,
+                          @Value("${biblioteca.generador.semilla:42}") long semilla,
+                          @Value("${biblioteca.generador.libros:100000}") int libros,
+                          @Value("${biblioteca.generador.usuarios:20000}") int usuarios,
+                          @Value("${biblioteca.generador.prestamos:1000000}") long prestamos,
+                          @Value("${biblioteca.generador.hilos:0}") int hilos,
+                          @Value("${biblioteca.generador.tamanio-bloque:10000}") int tamanioBloque,
+                          @Value("${biblioteca.generador.tamanio-lote:1000}") int tamanioLote,
+                          @Value("${biblioteca.generador.exponente-zipf:1.0}") double exponenteZipf,
+                          @Value("${biblioteca.generador.fraccion-bibliotecarios:0.01}") double fraccionBibliotecarios,
+                          @Value("${biblioteca.generador.contrasenia:123456}") String contrasenia,
+                          @Value("${biblioteca.generador.fecha-referencia:}") String fechaReferencia) {
+        if (libros < 1 || usuarios < 1 || prestamos < 0 || tamanioBloque < 1 || tamanioLote < 1 || exponenteZipf <= 0) {
+            throw new IllegalArgumentException("Configuración del generador de datos no válida");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.gestorContrasenias = gestorContrasenias;
+        this.alineacionSecuencias = alineacionSecuencias;
+        this.entityManagerFactory = entityManagerFactory;
+        this.semilla = semilla;
+        this.libros = libros;
+        this.usuarios = usuarios;
+        this.prestamos = prestamos;
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.tamanioBloque = tamanioBloque;
+        this.tamanioLote = tamanioLote;
+        this.exponenteZipf = exponenteZipf;
+        this.fraccionBibliotecarios = fraccionBibliotecarios;
+        this.contrasenia = contrasenia;
+        this.referencia = fechaReferencia == null || fechaReferencia.isBlank()
+                ? LocalDate.now() : LocalDate.parse(fechaReferencia.trim());
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Integer existentes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM usuarios WHERE email LIKE ?", Integer.class, "%" + DOMINIO_EMAIL);
+        if (existentes != null && existentes > 0) {
+            log.info("Generador de datos: la base de datos ya tiene datos sintéticos, no se genera nada");
+            return;
+        }
+        log.info("Generador de datos: {} libros, {} usuarios y {} préstamos con semilla {} y {} hilos",
+                libros, usuarios, prestamos, semilla, hilos);
+
+        long primerLibro = alineacionSecuencias.reservar("libros_seq", libros);
+        long primerUsuario = alineacionSecuencias.reservar("usuarios_seq", usuarios);
+        long primerPrestamo = alineacionSecuencias.reservar("prestamos_seq", Math.max(1, prestamos));
+        Plan plan = new Plan(primerLibro, primerUsuario);
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "generador-datos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            generar(ejecutor, "libros", SQL_LIBRO, libros, 1, (sentencia, indice, aleatorio) ->
+                    escribirLibro(sentencia, plan, primerLibro + indice, (int) indice, aleatorio));
+            String hash = gestorContrasenias.codificar(contrasenia);
+            generar(ejecutor, "usuarios", SQL_USUARIO, usuarios, 2, (sentencia, indice, aleatorio) ->
+                    escribirUsuario(sentencia, plan, primerUsuario + indice, (int) indice, hash, aleatorio));
+            generar(ejecutor, "prestamos", SQL_PRESTAMO, prestamos, 3, (sentencia, indice, aleatorio) ->
+                    escribirPrestamo(sentencia, plan, primerPrestamo + indice, indice, aleatorio));
+        } finally {
+            ejecutor.shutdownNow();
+        }
+        // Las filas no han pasado por Hibernate: no debe quedar nada de ellas en la caché
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    /**
+     * Inserta las filas de una tabla repartidas en bloques, cada uno en su propia transacción
+     */
+    private void generar(ExecutorService ejecutor, String tabla, String sql, long total, int tipo,
+                         EscritorFila escritor) throws InterruptedException, ExecutionException {
+        long inicio = System.nanoTime();
+        List<String> restaurar = quitarIndices(tabla);
+        try {
+            insertarBloques(ejecutor, sql, total, tipo, escritor);
+        } finally {
+            restaurar.forEach(jdbcTemplate::execute);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        log.info("Generador de datos: {} filas en {} en {} s ({} filas/s)", total, tabla,
+                String.format("%.1f", segundos), Math.round(total / Math.max(segundos, 0.001)));
+    }
+
+    /**
+     * En H2 quita los índices secundarios y las claves ajenas de la tabla y devuelve las
+     * sentencias que los vuelven a crear: mantenerlos fila a fila multiplica por diez el tiempo
+     * de carga, y crearlos al final es una sola pasada ordenada. Las claves ajenas se restauran
+     * sin comprobar las filas (NOCHECK), porque el generador sólo usa IDs que existen.
+     */
+    private List<String> quitarIndices(String tabla) {
+        List<String> restaurar = new ArrayList<>();
+        if (!esH2()) {
+            return restaurar;
+        }
+        List<String> quitar = new ArrayList<>();
+        for (String sentencia : jdbcTemplate.queryForList("SCRIPT NODATA TABLE " + tabla, String.class)) {
+            Matcher indice = CREAR_INDICE.matcher(sentencia);
+            Matcher claveAjena = CREAR_CLAVE_AJENA.matcher(sentencia);
+            if (indice.find()) {
+                quitar.add("DROP INDEX " + indice.group(1));
+                restaurar.add(sentencia);
+            } else if (claveAjena.find()) {
+                quitar.add("ALTER TABLE " + claveAjena.group(1) + " DROP CONSTRAINT " + claveAjena.group(2));
+                restaurar.add(sentencia);
+            }
+        }
+        // Primero las claves ajenas, que pueden estar usando alguno de los índices
+        Collections.reverse(quitar);
+        quitar.forEach(jdbcTemplate::execute);
+        return restaurar;
+    }
+
+    private boolean esH2() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((Connection conexion) ->
+                "H2".equals(conexion.getMetaData().getDatabaseProductName())));
+    }
+
+    private void insertarBloques(ExecutorService ejecutor, String sql, long total, int tipo,
+                                 EscritorFila escritor) throws InterruptedException, ExecutionException {
+        List<Future<?>> bloques = new ArrayList<>();
+        for (long desde = 0; desde < total; desde += tamanioBloque) {
+            long bloque = desde / tamanioBloque;
+            long primera = desde;
+            long hasta = Math.min(total, desde + tamanioBloque);
+            bloques.add(ejecutor.submit(() -> {
+                insertarBloque(sql, primera, hasta, new SplittableRandom(semillaBloque(tipo, bloque)), escritor);
+                return null;
+            }));
+        }
+        for (Future<?> bloque : bloques) {
+            bloque.get();
+        }
+    }
+
+    private void insertarBloque(String sql, long desde, long hasta, SplittableRandom aleatorio,
+                                EscritorFila escritor) throws SQLException {
+        try (Connection conexion = dataSource.getConnection()) {
+            conexion.setAutoCommit(false);
+            try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+                int enLote = 0;
+                for (long indice = desde; indice < hasta; indice++) {
+                    escritor.escribir(sentencia, indice, aleatorio);
+                    sentencia.addBatch();
+                    if (++enLote == tamanioLote) {
+                        sentencia.executeBatch();
+                        enLote = 0;
+                    }
+                }
+                if (enLote > 0) {
+                    sentencia.executeBatch();
+                }
+                conexion.commit();
+            } catch (SQLException | RuntimeException e) {
+                conexion.rollback();
+                throw e;
+            } finally {
+                conexion.setAutoCommit(true);
+            }
+        }
+    }
+
+    private long semillaBloque(int tipo, long bloque) {
+        return semilla * 0x9E3779B97F4A7C15L + ((long) tipo << 48) + bloque;
+    }
+
+    private void escribirLibro(PreparedStatement sentencia, Plan plan, long id, int indice,
+                               SplittableRandom aleatorio) throws SQLException {
+        int autor = plan.autores.muestra(aleatorio);
+        EstadoLibro estado;
+        if (plan.prestado(indice)) {
+            estado = EstadoLibro.PRESTADO;
+        } else {
+            double tirada = aleatorio.nextDouble();
+            estado = tirada < 0.010 ? EstadoLibro.EN_REPARACION
+                    : tirada < 0.015 ? EstadoLibro.RETIRADO
+                    : tirada < 0.017 ? EstadoLibro.PERDIDO
+                    : EstadoLibro.DISPONIBLE;
+        }
+        // La mayoría de los libros son recientes; uno de cada veinte es un clásico
+        int anio = aleatorio.nextInt(20) == 0
+                ? 1500 + aleatorio.nextInt(400)
+                : Math.max(1900, 2024 - (int) (-25 * Math.log(1 - aleatorio.nextDouble())));
+        int paginas = Math.max(48, (int) Math.round(300 + 120 * gaussiana(aleatorio)));
+
+        sentencia.setLong(1, id);
+        sentencia.setString(2, titulo(aleatorio));
+        sentencia.setString(3, nombreAutor(autor));
+        sentencia.setString(4, isbn(indice));
+        sentencia.setInt(5, anio);
+        if (aleatorio.nextInt(4) == 0) {
+            sentencia.setNull(6, Types.VARCHAR);
+        } else {
+            sentencia.setString(6, "Edición de " + anio + " sobre " + elegir(SUSTANTIVOS, aleatorio)
+                    + " y " + elegir(SUSTANTIVOS, aleatorio) + ".");
+        }
+        sentencia.setInt(7, paginas);
+        sentencia.setString(8, estado.name());
+        sentencia.setDate(9, Date.valueOf(referencia.minusDays(aleatorio.nextInt(3650))));
+    }
+
+    private void escribirUsuario(PreparedStatement sentencia, Plan plan, long id, int indice, String hash,
+                                 SplittableRandom aleatorio) throws SQLException {
+        String nombre = elegir(NOMBRES, aleatorio);
+        String apellido = elegir(APELLIDOS, aleatorio) + " " + elegir(APELLIDOS, aleatorio);
+        TipoUsuario tipo = aleatorio.nextDouble() < fraccionBibliotecarios
+                ? TipoUsuario.BIBLIOTECARIO : TipoUsuario.USUARIO;
+        double tirada = aleatorio.nextDouble();
+        EstadoUsuario estado = tirada < 0.94 ? EstadoUsuario.ACTIVO
+                : tirada < 0.97 ? EstadoUsuario.INACTIVO
+                : tirada < 0.99 ? EstadoUsuario.SUSPENDIDO
+                : EstadoUsuario.BLOQUEADO;
+        LocalDate registro = referencia.minusDays(aleatorio.nextInt(5 * 365));
+
+        sentencia.setLong(1, id);
+        sentencia.setString(2, nombre);
+        sentencia.setString(3, apellido);
+        sentencia.setString(4, "usuario" + indice + DOMINIO_EMAIL);
+        sentencia.setString(5, hash);
+        sentencia.setString(6, "6" + String.format("%08d", aleatorio.nextInt(100_000_000)));
+        sentencia.setString(7, "Calle " + elegir(CALLES, aleatorio) + " " + (1 + aleatorio.nextInt(200)));
+        sentencia.setDate(8, Date.valueOf(LocalDate.of(1940 + aleatorio.nextInt(68), 1, 1)
+                .plusDays(aleatorio.nextInt(365))));
+        sentencia.setString(9, tipo.name());
+        sentencia.setString(10, estado.name());
+        sentencia.setTimestamp(11, Timestamp.valueOf(registro.atTime(aleatorio.nextInt(24), aleatorio.nextInt(60))));
+        if (aleatorio.nextInt(5) == 0) {
+            sentencia.setNull(12, Types.TIMESTAMP);
+        } else {
+            sentencia.setTimestamp(12, Timestamp.valueOf(referencia.minusDays(aleatorio.nextInt(90))
+                    .atTime(aleatorio.nextInt(24), aleatorio.nextInt(60))));
+        }
+        sentencia.setInt(13, plan.prestamosActivos(indice));
+    }
+
+    private void escribirPrestamo(PreparedStatement sentencia, Plan plan, long id, long indice,
+                                  SplittableRandom aleatorio) throws SQLException {
+        long usuarioId;
+        long libroId;
+        EstadoPrestamo estado;
+        LocalDate prestamo;
+        LocalDate esperada;
+        LocalDate real = null;
+        Double multa = null;
+
+        if (indice < plan.enCurso) {
+            // En curso: el libro de popularidad "indice" prestado a un usuario por turnos
+            libroId = plan.libroPorPopularidad(indice);
+            usuarioId = plan.primerUsuario + indice % usuarios;
+            double tirada = aleatorio.nextDouble();
+            if (tirada < 0.70) {
+                estado = EstadoPrestamo.ACTIVO;
+                prestamo = referencia.minusDays(aleatorio.nextInt(DIAS_PRESTAMO));
+                esperada = prestamo.plusDays(DIAS_PRESTAMO);
+            } else if (tirada < 0.80) {
+                estado = EstadoPrestamo.RENOVADO;
+                prestamo = referencia.minusDays(DIAS_PRESTAMO + aleatorio.nextInt(DIAS_PRESTAMO));
+                esperada = prestamo.plusDays(2L * DIAS_PRESTAMO);
+            } else {
+                estado = EstadoPrestamo.VENCIDO;
+                prestamo = referencia.minusDays(DIAS_PRESTAMO + 1 + aleatorio.nextInt(60));
+                esperada = prestamo.plusDays(DIAS_PRESTAMO);
+            }
+        } else {
+            // Histórico: libro según su popularidad y usuario al azar
+            libroId = plan.libroPorPopularidad(plan.popularidad.muestra(aleatorio));
+            usuarioId = plan.primerUsuario + aleatorio.nextInt(usuarios);
+            prestamo = referencia.minusDays(DIAS_PRESTAMO + 1 + aleatorio.nextInt(3 * 365));
+            esperada = prestamo.plusDays(DIAS_PRESTAMO);
+            if (aleatorio.nextInt(25) == 0) {
+                estado = EstadoPrestamo.CANCELADO;
+            } else {
+                estado = EstadoPrestamo.DEVUELTO;
+                // Cuatro de cada cinco se devuelven a tiempo
+                int dias = aleatorio.nextInt(5) == 0
+                        ? DIAS_PRESTAMO + 1 + aleatorio.nextInt(20)
+                        : 1 + aleatorio.nextInt(DIAS_PRESTAMO);
+                real = prestamo.plusDays(dias);
+                if (real.isAfter(referencia)) {
+                    real = referencia;
+                }
+                if (real.isAfter(esperada)) {
+                    multa = (real.toEpochDay() - esperada.toEpochDay()) * MULTA_POR_DIA;
+                }
+            }
+        }
+
+        Timestamp creacion = Timestamp.valueOf(prestamo.atTime(9 + aleatorio.nextInt(11), aleatorio.nextInt(60)));
+        sentencia.setLong(1, id);
+        sentencia.setLong(2, usuarioId);
+        sentencia.setLong(3, libroId);
+        sentencia.setDate(4, Date.valueOf(prestamo));
+        sentencia.setDate(5, Date.valueOf(esperada));
+        if (real == null) {
+            sentencia.setNull(6, Types.DATE);
+        } else {
+            sentencia.setDate(6, Date.valueOf(real));
+        }
+        sentencia.setString(7, estado.name());
+        if (multa == null) {
+            sentencia.setNull(8, Types.DOUBLE);
+        } else {
+            sentencia.setDouble(8, multa);
+        }
+        sentencia.setTimestamp(9, creacion);
+        sentencia.setTimestamp(10, real == null ? creacion : Timestamp.valueOf(real.atTime(12, 0)));
+    }
+
+    private static String titulo(SplittableRandom aleatorio) {
+        String titulo = String.format(elegir(PLANTILLAS_TITULO, aleatorio), elegir(SUSTANTIVOS, aleatorio),
+                elegir(SUSTANTIVOS, aleatorio), elegir(NOMBRES, aleatorio));
+        return Character.toUpperCase(titulo.charAt(0)) + titulo.substring(1);
+    }
+
+    /**
+     * Nombre único de un autor a partir de su número
+     */
+    private static String nombreAutor(int autor) {
+        int nombres = NOMBRES.length;
+        int apellidos = APELLIDOS.length;
+        String nombre = NOMBRES[autor % nombres] + " " + APELLIDOS[(autor / nombres) % apellidos];
+        int repeticion = autor / (nombres * apellidos);
+        return repeticion == 0 ? nombre : nombre + " " + APELLIDOS[repeticion % apellidos]
+                + (repeticion >= apellidos ? " " + (repeticion / apellidos + 1) : "");
+    }
+
+    /**
+     * ISBN-13 con prefijo 979 (los datos de ejemplo usan 978) y dígito de control válido
+     */
+    private static String isbn(int indice) {
+        String sinControl = "979" + String.format("%09d", indice);
+        int suma = 0;
+        for (int i = 0; i < 12; i++) {
+            suma += (sinControl.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return sinControl + (10 - suma % 10) % 10;
+    }
+
+    private static String elegir(String[] opciones, SplittableRandom aleatorio) {
+        return opciones[aleatorio.nextInt(opciones.length)];
+    }
+
+    private static double gaussiana(SplittableRandom aleatorio) {
+        // Box-Muller
+        return Math.sqrt(-2 * Math.log(1 - aleatorio.nextDouble())) * Math.cos(2 * Math.PI * aleatorio.nextDouble());
+    }
+
+    /**
+     * Rellena los parámetros de la fila con el índice indicado
+     */
+    @FunctionalInterface
+    private interface EscritorFila {
+        void escribir(PreparedStatement sentencia, long indice, SplittableRandom aleatorio) throws SQLException;
+    }
+
+    /**
+     * Decisiones comunes a las tres tablas: popularidad de los libros, autores y qué libros
+     * y usuarios tienen préstamos en curso
+     */
+    private final class Plan {
+
+        final long primerLibro;
+        final long primerUsuario;
+        final long enCurso;
+        final Zipf popularidad;
+        final Zipf autores;
+        // Permutación de los libros por popularidad: el de rango r es el (r * salto) mod libros
+        final long salto;
+        final long saltoInverso;
+
+        Plan(long primerLibro, long primerUsuario) {
+            this.primerLibro = primerLibro;
+            this.primerUsuario = primerUsuario;
+            this.enCurso = Math.min(prestamos,
+                    Math.min(Math.round(libros * FRACCION_LIBROS_PRESTADOS), (long) usuarios * MAX_PRESTAMOS_USUARIO));
+            this.popularidad = new Zipf(libros, exponenteZipf);
+            this.autores = new Zipf(Math.max(1, libros / LIBROS_POR_AUTOR), EXPONENTE_AUTORES);
+            BigInteger total = BigInteger.valueOf(libros);
+            BigInteger primo = BigInteger.valueOf(Math.max(2, libros * 618L / 1000)).nextProbablePrime();
+            while (libros > 1 && !primo.gcd(total).equals(BigInteger.ONE)) {
+                primo = primo.nextProbablePrime();
+            }
+            this.salto = libros == 1 ? 0 : primo.mod(total).longValue();
+            this.saltoInverso = libros == 1 ? 0 : primo.modInverse(total).longValue();
+        }
+
+        long libroPorPopularidad(long rango) {
+            return primerLibro + (rango * salto) % libros;
+        }
+
+        boolean prestado(int indiceLibro) {
+            return (indiceLibro * saltoInverso) % libros < enCurso;
+        }
+
+        int prestamosActivos(int indiceUsuario) {
+            return (int) (enCurso / usuarios + (indiceUsuario < enCurso % usuarios ? 1 : 0));
+        }
+    }
+
+    /**
+     * Distribución de Zipf sobre 0..n-1 (el 0 es el más frecuente), muestreada con búsqueda
+     * binaria sobre la función de distribución acumulada
+     */
+    private static final class Zipf {
+
+        private final double[] acumulada;
+
+        Zipf(int n, double exponente) {
+            acumulada = new double[n];
+            double suma = 0;
+            for (int i = 0; i < n; i++) {
+                suma += 1 / Math.pow(i + 1, exponente);
+                acumulada[i] = suma;
+            }
+            for (int i = 0; i < n; i++) {
+                acumulada[i] /= suma;
+            }
+        }
+
+        int muestra(SplittableRandom aleatorio) {
+            double u = aleatorio.nextDouble();
+            int bajo = 0;
+            int alto = acumulada.length - 1;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (acumulada[medio] < u) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.proyect.api_biblioteca.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.proyect.api_biblioteca.service.TransaccionUtil;
+
+import java.time.Duration;
+
+/**
+ * Ventanas de lectura propia: tras confirmar una transacción de escritura, las lecturas del
+ * mismo cliente se sirven desde la base de datos principal durante un tiempo, para que vea
+ * sus cambios aunque las réplicas vayan con retraso.
+ *
+ * El cliente de la petición en curso lo fija {@link FiltroLecturasPropias}. Sin cliente
+ * (tareas programadas, hilos propios) no hay ventana y las lecturas van a las réplicas.
+ */
+public class LecturasPropias {
+
+    private final ThreadLocal<String> cliente = new ThreadLocal<>();
+    private final Cache<String, Boolean> escrituras;
+
+    public LecturasPropias(Duration ventana, long maximoClientes) {
+        if (ventana.isNegative()) {
+            throw new IllegalArgumentException("La ventana de lectura propia no puede ser negativa");
+        }
+        this.escrituras = Caffeine.newBuilder()
+                .maximumSize(maximoClientes)
+                .expireAfterWrite(ventana)
+                .build();
+    }
+
+    void establecerCliente(String clave) {
+        cliente.set(clave);
+    }
+
+    void limpiarCliente() {
+        cliente.remove();
+    }
+
+    /**
+     * Indica si el cliente actual ha escrito dentro de su ventana de lectura propia
+     */
+    boolean escrituraReciente() {
+        String clave = cliente.get();
+        return clave != null && escrituras.getIfPresent(clave) != null;
+    }
+
+    /**
+     * Abre (o renueva) la ventana del cliente actual cuando se confirme la transacción
+     */
+    void anotarEscritura() {
+        String clave = cliente.get();
+        if (clave != null) {
+            TransaccionUtil.despuesDelCommit(() -> escrituras.put(clave, Boolean.TRUE));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.proyect.api_biblioteca.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Filtro de Logback que deja pasar uno de cada N mensajes de un logger y descarta el resto
+ * antes de crear el evento. Se usa en el perfil prod para registrar una muestra de las
+ * sentencias SQL de Hibernate (logback-spring.xml).
+ *
+ * Las comprobaciones de nivel (isDebugEnabled) llegan sin mensaje y no se cuentan, para que
+ * el muestreo se aplique sólo a los mensajes que realmente se escriben.
+ */
+public class MuestreoLog extends TurboFilter {
+
+    private final AtomicLong contador = new AtomicLong();
+    private String logger;
+    private int cadaN = 100;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger log, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || !log.getName().equals(logger)) {
+            return FilterReply.NEUTRAL;
+        }
+        return contador.getAndIncrement() % cadaN == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (logger == null || cadaN < 1) {
+            addError("MuestreoLog necesita un logger y un valor de cadaN mayor que cero");
+            return;
+        }
+        super.start();
+    }
+
+    public void setLogger(String logger) {
+        this.logger = logger;
+    }
+
+    public void setCadaN(int cadaN) {
+        this.cadaN = cadaN;
+    }
+}
@@ -0,0 +1,14 @@
+package com.proyect.api_biblioteca.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+/**
+ * Habilita los reintentos declarativos en los servicios.
+ * El interceptor de reintentos envuelve al transaccional, por lo que cada intento
+ * abre su propia transacción.
+ */
+@Configuration
+@EnableRetry
+public class ReintentosConfig {
+}
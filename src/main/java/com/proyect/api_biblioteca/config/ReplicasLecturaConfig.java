@@ -0,0 +1,105 @@
+package com.proyect.api_biblioteca.config;
+
+import com.proyect.api_biblioteca.service.AuthService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura: sólo se activa si se configura biblioteca.datasource.replicas.urls.
+ *
+ * Sustituye al DataSource de Spring Boot por un pool para la principal (spring.datasource.*)
+ * y otro por réplica, con las mismas credenciales y la misma configuración de Hikari
+ * (spring.datasource.hikari.*, incluido el tamaño de la principal), detrás de {@link DataSourceEnrutado}.
+ * Hibernate libera la conexión al terminar cada transacción para que la siguiente se enrute
+ * de nuevo; si la conservara durante toda la sesión (open-in-view), una escritura posterior a
+ * una lectura en la misma petición usaría la conexión de la réplica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "biblioteca.datasource.replicas.urls")
+public class ReplicasLecturaConfig implements DisposableBean {
+
+    private static final String PREFIJO_HIKARI = "spring.datasource.hikari";
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    public LecturasPropias lecturasPropias(
+            @Value("${biblioteca.datasource.lectura-propia.ventana:PT5S}") Duration ventana,
+            @Value("${biblioteca.datasource.lectura-propia.maximo-clientes:100000}") long maximoClientes) {
+        return new LecturasPropias(ventana, maximoClientes);
+    }
+
+    @Bean
+    public FiltroLecturasPropias filtroLecturasPropias(LecturasPropias lecturasPropias, AuthService authService) {
+        return new FiltroLecturasPropias(lecturasPropias, authService);
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties propiedades, LecturasPropias lecturasPropias,
+                                 MeterRegistry meterRegistry, Environment entorno,
+                                 @Value("${biblioteca.datasource.replicas.urls}") String[] urlsReplicas,
+                                 @Value("${biblioteca.datasource.replicas.tamanio-pool:10}") int tamanioReplicas) {
+        MicrometerMetricsTrackerFactory metricas = new MicrometerMetricsTrackerFactory(meterRegistry);
+        Binder binder = Binder.get(entorno);
+        HikariDataSource principal = crearPool(propiedades, binder, propiedades.determineUrl(), DataSourceEnrutado.PRINCIPAL,
+                false, metricas);
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urlsReplicas) {
+            if (!url.isBlank()) {
+                HikariDataSource replica = crearPool(propiedades, binder, url.trim(), "replica-" + (replicas.size() + 1),
+                        true, metricas);
+                replica.setMaximumPoolSize(tamanioReplicas);
+                replicas.add(replica);
+            }
+        }
+        return new LazyConnectionDataSourceProxy(
+                new DataSourceEnrutado(principal, replicas, lecturasPropias, meterRegistry));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer liberarConexionTrasTransaccion() {
+        return propiedades -> propiedades.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private HikariDataSource crearPool(DataSourceProperties propiedades, Binder binder, String url, String nombre,
+                                       boolean soloLectura, MicrometerMetricsTrackerFactory metricas) {
+        HikariDataSource pool = propiedades.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        // El builder sólo aplica URL, usuario, contraseña y driver; el resto (mínimo de conexiones
+        // ociosas, esperas, vida máxima...) se enlaza como hace Spring Boot con su pool.
+        // El nombre y el modo de sólo lectura son propios de cada pool
+        binder.bind(PREFIJO_HIKARI, Bindable.ofInstance(pool));
+        pool.setPoolName(nombre);
+        pool.setReadOnly(soloLectura);
+        pool.setMetricsTrackerFactory(metricas);
+        pools.add(pool);
+        return pool;
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
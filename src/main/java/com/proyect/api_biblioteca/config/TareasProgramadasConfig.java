@@ -0,0 +1,12 @@
+package com.proyect.api_biblioteca.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas en segundo plano (barrido de vencimientos, etc.)
+ */
+@Configuration
+@EnableScheduling
+public class TareasProgramadasConfig {
+}
@@ -0,0 +1,58 @@
+package com.proyect.api_biblioteca.controller;
+
+import com.proyect.api_biblioteca.dto.LoginRequestDTO;
+import com.proyect.api_biblioteca.dto.LoginResponseDTO;
+import com.proyect.api_biblioteca.dto.SesionDTO;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de autenticación - Ejercicio Universitario
+ */
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+    @Autowired
+    private AuthService authService;
+
+    /**
+     * Iniciar sesión y obtener un token
+     */
+    @PostMapping("/login")
+    public ResponseEntity<LoginResponseDTO> login(@Valid @RequestBody LoginRequestDTO loginRequest,
+                                                  HttpServletRequest request) {
+        LoginResponseDTO respuesta = authService.login(loginRequest, request.getRemoteAddr());
+        if (respuesta.getToken() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(respuesta);
+        }
+        return ResponseEntity.ok(respuesta);
+    }
+
+    /**
+     * Registrar un nuevo usuario
+     */
+    @PostMapping("/register")
+    public ResponseEntity<Usuario> register(@RequestBody Usuario usuario) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(authService.register(usuario));
+    }
+
+    /**
+     * Validar el token de la cabecera Authorization
+     */
+    @GetMapping("/validate")
+    public ResponseEntity<SesionDTO> validate(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        SesionDTO sesion = authService.validateToken(authorization);
+        if (sesion == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(sesion);
+    }
+}
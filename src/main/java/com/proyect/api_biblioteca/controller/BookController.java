@@ -1,12 +1,18 @@
 package com.proyect.api_biblioteca.controller;
 
+import com.proyect.api_biblioteca.dto.BusquedaLibrosDTO;
+import com.proyect.api_biblioteca.dto.PaginaDTO;
+import com.proyect.api_biblioteca.dto.SugerenciaDTO;
+import com.proyect.api_biblioteca.model.entity.EstadoLibro;
 import com.proyect.api_biblioteca.model.entity.Libro;
 import com.proyect.api_biblioteca.service.LibroService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,11 +26,14 @@ public class BookController {
     private LibroService libroService;
 
     /**
-     * Obtener todos los libros
+     * Obtener los libros paginados por cursor
      */
     @GetMapping
-    public List<Libro> getAllBooks() {
-        return libroService.findAll();
+    public PaginaDTO<Libro> getAllBooks(@RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) Integer size,
+                                  @RequestParam(required = false) String sort,
+                                  @RequestParam(required = false) String direction) {
+        return libroService.findPagina(cursor, size, sort, direction);
     }
 
     /**
@@ -35,6 +44,64 @@ public class BookController {
         return libroService.save(libro);
     }
 
+    /**
+     * Buscar libros por texto en título, autor y descripción, con facetas por estado, década y autor
+     */
+    @GetMapping("/search")
+    public ResponseEntity<BusquedaLibrosDTO> searchBooks(@RequestParam String q,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer size,
+                                                         @RequestParam(required = false) Integer authorFacetSize) {
+        return ResponseEntity.ok(libroService.buscarTexto(q, cursor, size, authorFacetSize));
+    }
+
+    /**
+     * Filtrar libros por estado, rango de años de publicación y texto
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<PaginaDTO<Libro>> filterBooks(@RequestParam(required = false) EstadoLibro status,
+                                                        @RequestParam(required = false) Integer yearFrom,
+                                                        @RequestParam(required = false) Integer yearTo,
+                                                        @RequestParam(required = false) String q,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(libroService.filtrar(status, yearFrom, yearTo, q, cursor, size));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Sugerencias de autocompletado de títulos y autores, por popularidad
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SugerenciaDTO>> suggestBooks(@RequestParam String q,
+                                                            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(libroService.sugerir(q, limit));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Obtener un libro por ISBN
+     */
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<Libro> getBookByIsbn(@PathVariable String isbn) {
+        return libroService.findByIsbn(isbn).map(ResponseEntity::ok)
+                   .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Resolver en bloque los IDs de una lista de ISBN
+     */
+    @PostMapping("/isbn/resolve")
+    public Map<String, Long> resolveIsbns(@RequestBody List<String> isbns) {
+        return libroService.resolverIsbns(isbns);
+    }
+
     /**
      * Obtener un libro por ID
      */
@@ -53,7 +120,7 @@ public class BookController {
         try {
             Libro updatedLibro = libroService.update(id, libro);
             return ResponseEntity.ok(updatedLibro);
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
     }
@@ -0,0 +1,48 @@
+package com.proyect.api_biblioteca.controller;
+
+import com.proyect.api_biblioteca.service.ExportacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Controlador REST para exportaciones masivas en NDJSON.
+ * La respuesta se escribe en un hilo asíncrono a medida que se leen las filas.
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    /**
+     * Exportar todos los libros
+     */
+    @GetMapping("/books")
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        return ResponseEntity.ok().contentType(NDJSON).body(exportacionService::exportarLibros);
+    }
+
+    /**
+     * Exportar todos los usuarios (sin contraseña)
+     */
+    @GetMapping("/users")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok().contentType(NDJSON).body(exportacionService::exportarUsuarios);
+    }
+
+    /**
+     * Exportar todos los préstamos
+     */
+    @GetMapping("/loans")
+    public ResponseEntity<StreamingResponseBody> exportLoans() {
+        return ResponseEntity.ok().contentType(NDJSON).body(exportacionService::exportarPrestamos);
+    }
+}
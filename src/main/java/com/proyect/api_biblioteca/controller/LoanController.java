@@ -1,5 +1,9 @@
 package com.proyect.api_biblioteca.controller;
 
+import com.proyect.api_biblioteca.dto.PaginaDTO;
+import com.proyect.api_biblioteca.dto.PrestamoDTO;
+import com.proyect.api_biblioteca.dto.ResultadoLoteDTO;
+import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
 import com.proyect.api_biblioteca.model.entity.Prestamo;
 import com.proyect.api_biblioteca.service.PrestamoService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,11 +25,14 @@ public class LoanController {
     private PrestamoService prestamoService;
 
     /**
-     * Obtener todos los préstamos
+     * Obtener los préstamos paginados por cursor
      */
     @GetMapping
-    public List<Prestamo> getAllLoans() {
-        return prestamoService.findAll();
+    public PaginaDTO<PrestamoDTO> getAllLoans(@RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) Integer size,
+                                  @RequestParam(required = false) String sort,
+                                  @RequestParam(required = false) String direction) {
+        return prestamoService.findPagina(cursor, size, sort, direction);
     }
 
     /**
@@ -35,31 +43,100 @@ public class LoanController {
         return prestamoService.crearPrestamo(request.getUsuarioId(), request.getLibroId());
     }
 
+    /**
+     * Crear varios préstamos en una sola operación
+     */
+    @PostMapping("/batch")
+    public List<ResultadoLoteDTO> createLoans(@RequestBody List<PrestamoDTO> requests) {
+        return prestamoService.crearPrestamosEnLote(requests);
+    }
+
+    /**
+     * Obtener estadísticas de préstamos (contadores en memoria, sin consultas)
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        return prestamoService.getEstadisticas();
+    }
+
     /**
      * Obtener un préstamo por ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Prestamo> getLoan(@PathVariable Long id) {
-        Optional<Prestamo> prestamo = prestamoService.findById(id);
+    public ResponseEntity<PrestamoDTO> getLoan(@PathVariable Long id) {
+        Optional<PrestamoDTO> prestamo = prestamoService.findDTOById(id);
         return prestamo.map(ResponseEntity::ok)
                       .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Obtener los préstamos de un usuario
+     */
+    @GetMapping("/user/{usuarioId}")
+    public ResponseEntity<List<PrestamoDTO>> getLoansByUser(@PathVariable Long usuarioId) {
+        try {
+            return ResponseEntity.ok(prestamoService.findDTOByUsuario(usuarioId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Obtener los préstamos de un libro
+     */
+    @GetMapping("/book/{libroId}")
+    public ResponseEntity<List<PrestamoDTO>> getLoansByBook(@PathVariable Long libroId) {
+        try {
+            return ResponseEntity.ok(prestamoService.findDTOByLibro(libroId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Obtener los préstamos activos
+     */
+    @GetMapping("/active")
+    public List<PrestamoDTO> getActiveLoans() {
+        return prestamoService.findDTOByEstado(EstadoPrestamo.ACTIVO);
+    }
+
+    /**
+     * Obtener los préstamos vencidos
+     */
+    @GetMapping("/overdue")
+    public List<PrestamoDTO> getOverdueLoans() {
+        return prestamoService.findDTOByEstado(EstadoPrestamo.VENCIDO);
+    }
+
     /**
      * Devolver un libro
      */
     @PutMapping("/{id}/return")
     public ResponseEntity<Prestamo> returnBook(@PathVariable Long id) {
         try {
-            prestamoService.devolverLibro(id, "Libro devuelto");
-            Optional<Prestamo> prestamo = prestamoService.findById(id);
-            return prestamo.map(ResponseEntity::ok)
-                          .orElse(ResponseEntity.notFound().build());
-        } catch (Exception e) {
+            return ResponseEntity.ok(prestamoService.devolverLibro(id, "Libro devuelto"));
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Devolver varios libros en una sola operación
+     */
+    @PostMapping("/batch/return")
+    public List<ResultadoLoteDTO> returnBooks(@RequestBody List<Long> ids) {
+        return prestamoService.devolverLibrosEnLote(ids, "Libro devuelto");
+    }
+
+    /**
+     * Renovar varios préstamos en una sola operación
+     */
+    @PostMapping("/batch/renew")
+    public List<ResultadoLoteDTO> renewLoans(@RequestBody List<Long> ids) {
+        return prestamoService.renovarPrestamosEnLote(ids);
+    }
+
     /**
      * Clase interna para el request de crear préstamo
      */
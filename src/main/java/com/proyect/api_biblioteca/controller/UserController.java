@@ -1,12 +1,12 @@
 package com.proyect.api_biblioteca.controller;
 
+import com.proyect.api_biblioteca.dto.PaginaDTO;
 import com.proyect.api_biblioteca.model.entity.Usuario;
 import com.proyect.api_biblioteca.service.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,11 +20,14 @@ public class UserController {
     private UsuarioService usuarioService;
 
     /**
-     * Obtener todos los usuarios
+     * Obtener los usuarios paginados por cursor
      */
     @GetMapping
-    public List<Usuario> getAllUsers() {
-        return usuarioService.findAll();
+    public PaginaDTO<Usuario> getAllUsers(@RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) Integer size,
+                                  @RequestParam(required = false) String sort,
+                                  @RequestParam(required = false) String direction) {
+        return usuarioService.findPagina(cursor, size, sort, direction);
     }
 
     /**
@@ -53,7 +56,7 @@ public class UserController {
         try {
             Usuario updatedUsuario = usuarioService.update(id, usuario);
             return ResponseEntity.ok(updatedUsuario);
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
     }
@@ -0,0 +1,34 @@
+package com.proyect.api_biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.proyect.api_biblioteca.model.entity.Libro;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO con una página de resultados de búsqueda de libros y las facetas
+ * (por estado, década y autor) de todos los libros encontrados
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BusquedaLibrosDTO extends PaginaDTO<Libro> {
+    
+    private Map<String, List<FacetaDTO>> facetas;
+    
+    // Constructores
+    public BusquedaLibrosDTO() {}
+    
+    public BusquedaLibrosDTO(List<Libro> elementos, String siguienteCursor, Map<String, List<FacetaDTO>> facetas) {
+        super(elementos, siguienteCursor);
+        this.facetas = facetas;
+    }
+    
+    // Getters y Setters
+    public Map<String, List<FacetaDTO>> getFacetas() {
+        return facetas;
+    }
+    
+    public void setFacetas(Map<String, List<FacetaDTO>> facetas) {
+        this.facetas = facetas;
+    }
+}
@@ -0,0 +1,35 @@
+package com.proyect.api_biblioteca.dto;
+
+/**
+ * DTO con un valor de una faceta de búsqueda y el número de libros que lo tienen
+ */
+public class FacetaDTO {
+    
+    private String valor;
+    private long cantidad;
+    
+    // Constructores
+    public FacetaDTO() {}
+    
+    public FacetaDTO(String valor, long cantidad) {
+        this.valor = valor;
+        this.cantidad = cantidad;
+    }
+    
+    // Getters y Setters
+    public String getValor() {
+        return valor;
+    }
+    
+    public void setValor(String valor) {
+        this.valor = valor;
+    }
+    
+    public long getCantidad() {
+        return cantidad;
+    }
+    
+    public void setCantidad(long cantidad) {
+        this.cantidad = cantidad;
+    }
+}
@@ -0,0 +1,70 @@
+package com.proyect.api_biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * DTO con una página de resultados y el cursor para pedir la siguiente
+ * @param <T> tipo de los elementos
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PaginaDTO<T> {
+    
+    private List<T> elementos;
+    private int tamanio;
+    private boolean hayMas;
+    private String siguienteCursor;
+    private Long total;
+    
+    // Constructores
+    public PaginaDTO() {}
+    
+    public PaginaDTO(List<T> elementos, String siguienteCursor) {
+        this.elementos = elementos;
+        this.tamanio = elementos.size();
+        this.hayMas = siguienteCursor != null;
+        this.siguienteCursor = siguienteCursor;
+    }
+    
+    // Getters y Setters
+    public List<T> getElementos() {
+        return elementos;
+    }
+    
+    public void setElementos(List<T> elementos) {
+        this.elementos = elementos;
+    }
+    
+    public int getTamanio() {
+        return tamanio;
+    }
+    
+    public void setTamanio(int tamanio) {
+        this.tamanio = tamanio;
+    }
+    
+    public boolean isHayMas() {
+        return hayMas;
+    }
+    
+    public void setHayMas(boolean hayMas) {
+        this.hayMas = hayMas;
+    }
+    
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+    
+    public void setSiguienteCursor(String siguienteCursor) {
+        this.siguienteCursor = siguienteCursor;
+    }
+    
+    public Long getTotal() {
+        return total;
+    }
+    
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
@@ -1,6 +1,9 @@
 package com.proyect.api_biblioteca.dto;
 
 import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.model.entity.Prestamo;
+import com.proyect.api_biblioteca.model.entity.Usuario;
 import jakarta.validation.constraints.NotNull;
 import java.time.LocalDate;
 
@@ -45,6 +48,36 @@ public class PrestamoDTO {
         this.fechaDevolucionEsperada = fechaDevolucionEsperada;
     }
     
+    /**
+     * Constructor usado por las consultas de proyección de PrestamoRepository
+     */
+    public PrestamoDTO(Long id, Long usuarioId, Long libroId, LocalDate fechaPrestamo,
+                       LocalDate fechaDevolucionEsperada, LocalDate fechaDevolucionReal,
+                       EstadoPrestamo estado, String observaciones, Double multa,
+                       String nombre, String apellido, String tituloLibro, String autorLibro) {
+        this(usuarioId, libroId, fechaPrestamo, fechaDevolucionEsperada);
+        this.id = id;
+        this.fechaDevolucionReal = fechaDevolucionReal;
+        this.estado = estado;
+        this.observaciones = observaciones;
+        this.multa = multa;
+        this.nombreUsuario = nombre + " " + apellido;
+        this.tituloLibro = tituloLibro;
+        this.autorLibro = autorLibro;
+    }
+    
+    /**
+     * Crea el DTO a partir de un préstamo con usuario y libro ya cargados
+     */
+    public static PrestamoDTO desde(Prestamo prestamo) {
+        Usuario usuario = prestamo.getUsuario();
+        Libro libro = prestamo.getLibro();
+        return new PrestamoDTO(prestamo.getId(), usuario.getId(), libro.getId(), prestamo.getFechaPrestamo(),
+                prestamo.getFechaDevolucionEsperada(), prestamo.getFechaDevolucionReal(), prestamo.getEstado(),
+                prestamo.getObservaciones(), prestamo.getMulta(),
+                usuario.getNombre(), usuario.getApellido(), libro.getTitulo(), libro.getAutor());
+    }
+    
     // Getters y Setters
     public Long getId() {
         return id;
@@ -0,0 +1,92 @@
+package com.proyect.api_biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+/**
+ * DTO con el resultado de un elemento dentro de una operación en lote
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultadoLoteDTO {
+    
+    private Long prestamoId;
+    private Long usuarioId;
+    private Long libroId;
+    private boolean exito;
+    private String mensaje;
+    private Double multa;
+    private LocalDate fechaDevolucionEsperada;
+    
+    // Constructores
+    public ResultadoLoteDTO() {}
+    
+    public ResultadoLoteDTO(Long prestamoId, Long usuarioId, Long libroId, boolean exito, String mensaje) {
+        this.prestamoId = prestamoId;
+        this.usuarioId = usuarioId;
+        this.libroId = libroId;
+        this.exito = exito;
+        this.mensaje = mensaje;
+    }
+    
+    public static ResultadoLoteDTO error(Long prestamoId, Long usuarioId, Long libroId, String mensaje) {
+        return new ResultadoLoteDTO(prestamoId, usuarioId, libroId, false, mensaje);
+    }
+    
+    // Getters y Setters
+    public Long getPrestamoId() {
+        return prestamoId;
+    }
+    
+    public void setPrestamoId(Long prestamoId) {
+        this.prestamoId = prestamoId;
+    }
+    
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+    
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+    
+    public Long getLibroId() {
+        return libroId;
+    }
+    
+    public void setLibroId(Long libroId) {
+        this.libroId = libroId;
+    }
+    
+    public boolean isExito() {
+        return exito;
+    }
+    
+    public void setExito(boolean exito) {
+        this.exito = exito;
+    }
+    
+    public String getMensaje() {
+        return mensaje;
+    }
+    
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+    
+    public Double getMulta() {
+        return multa;
+    }
+    
+    public void setMulta(Double multa) {
+        this.multa = multa;
+    }
+    
+    public LocalDate getFechaDevolucionEsperada() {
+        return fechaDevolucionEsperada;
+    }
+    
+    public void setFechaDevolucionEsperada(LocalDate fechaDevolucionEsperada) {
+        this.fechaDevolucionEsperada = fechaDevolucionEsperada;
+    }
+}
@@ -0,0 +1,68 @@
+package com.proyect.api_biblioteca.dto;
+
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+
+/**
+ * DTO con los datos de sesión contenidos en un token válido
+ */
+public class SesionDTO {
+    
+    private Long usuarioId;
+    private TipoUsuario tipoUsuario;
+    private EstadoUsuario estado;
+    private long emitido;
+    private long expira;
+    
+    // Constructores
+    public SesionDTO() {}
+    
+    public SesionDTO(Long usuarioId, TipoUsuario tipoUsuario, EstadoUsuario estado, long emitido, long expira) {
+        this.usuarioId = usuarioId;
+        this.tipoUsuario = tipoUsuario;
+        this.estado = estado;
+        this.emitido = emitido;
+        this.expira = expira;
+    }
+    
+    // Getters y Setters
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+    
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+    
+    public TipoUsuario getTipoUsuario() {
+        return tipoUsuario;
+    }
+    
+    public void setTipoUsuario(TipoUsuario tipoUsuario) {
+        this.tipoUsuario = tipoUsuario;
+    }
+    
+    public EstadoUsuario getEstado() {
+        return estado;
+    }
+    
+    public void setEstado(EstadoUsuario estado) {
+        this.estado = estado;
+    }
+    
+    public long getEmitido() {
+        return emitido;
+    }
+    
+    public void setEmitido(long emitido) {
+        this.emitido = emitido;
+    }
+    
+    public long getExpira() {
+        return expira;
+    }
+    
+    public void setExpira(long expira) {
+        this.expira = expira;
+    }
+}
@@ -0,0 +1,65 @@
+package com.proyect.api_biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * DTO con una sugerencia de autocompletado (título o autor)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SugerenciaDTO {
+    
+    /**
+     * Tipo de texto sugerido
+     */
+    public enum Tipo {
+        TITULO, AUTOR
+    }
+    
+    private String texto;
+    private Tipo tipo;
+    private Long libroId;
+    private long prestamos;
+    
+    // Constructores
+    public SugerenciaDTO() {}
+    
+    public SugerenciaDTO(String texto, Tipo tipo, Long libroId, long prestamos) {
+        this.texto = texto;
+        this.tipo = tipo;
+        this.libroId = libroId;
+        this.prestamos = prestamos;
+    }
+    
+    // Getters y Setters
+    public String getTexto() {
+        return texto;
+    }
+    
+    public void setTexto(String texto) {
+        this.texto = texto;
+    }
+    
+    public Tipo getTipo() {
+        return tipo;
+    }
+    
+    public void setTipo(Tipo tipo) {
+        this.tipo = tipo;
+    }
+    
+    public Long getLibroId() {
+        return libroId;
+    }
+    
+    public void setLibroId(Long libroId) {
+        this.libroId = libroId;
+    }
+    
+    public long getPrestamos() {
+        return prestamos;
+    }
+    
+    public void setPrestamos(long prestamos) {
+        this.prestamos = prestamos;
+    }
+}
@@ -50,6 +50,18 @@ public class UsuarioDTO {
         this.tipoUsuario = tipoUsuario;
     }
     
+    /**
+     * Constructor usado por las consultas de proyección de UsuarioRepository
+     */
+    public UsuarioDTO(Long id, String nombre, String apellido, String email, String telefono, String direccion,
+                      LocalDate fechaNacimiento, TipoUsuario tipoUsuario, EstadoUsuario estado) {
+        this(nombre, apellido, email, fechaNacimiento, tipoUsuario);
+        this.id = id;
+        this.telefono = telefono;
+        this.direccion = direccion;
+        this.estado = estado;
+    }
+    
     // Getters y Setters
     public Long getId() {
         return id;
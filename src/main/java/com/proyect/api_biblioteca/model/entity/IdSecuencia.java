@@ -0,0 +1,23 @@
+package com.proyect.api_biblioteca.model.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Genera el ID con una secuencia de la base de datos, reservando bloques de IDs en memoria.
+ * El tamaño del bloque se configura con biblioteca.ids.tamanio-asignacion
+ */
+@IdGeneratorType(GeneradorSecuenciaAgrupada.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface IdSecuencia {
+
+    /**
+     * Nombre de la secuencia
+     */
+    String value();
+}
@@ -4,21 +4,33 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.time.LocalDate;
 import java.util.List;
 
 /**
  * Entidad JPA que representa un libro en la biblioteca
+ * Se guarda en la caché de segundo nivel (región "libros", y "libros-isbn" para el ISBN)
  */
 @Entity
 @Table(name = "libros")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "libros")
+@NaturalIdCache(region = "libros-isbn")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Evita problemas de serialización con Hibernate
 public class Libro {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdSecuencia("libros_seq")
     private Long id;
     
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     @NotBlank(message = "El título es obligatorio")
     @Size(max = 255, message = "El título no puede exceder 255 caracteres")
     @Column(nullable = false)
@@ -41,6 +53,7 @@ public class Libro {
     
     @NotNull(message = "El ISBN es obligatorio")
     @Pattern(regexp = "^[0-9]{13}$", message = "El ISBN debe tener 13 dígitos")
+    @NaturalId(mutable = true)
     @Column(unique = true, nullable = false, length = 13)
     private String isbn;
     
@@ -83,6 +96,14 @@ public class Libro {
         this.id = id;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public String getTitulo() {
         return titulo;
     }
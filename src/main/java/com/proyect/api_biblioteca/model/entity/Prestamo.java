@@ -15,9 +15,13 @@ import java.time.LocalDateTime;
 public class Prestamo {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdSecuencia("prestamos_seq")
     private Long id;
     
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     @NotNull(message = "El usuario es obligatorio")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
@@ -80,6 +84,14 @@ public class Prestamo {
         this.id = id;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public Usuario getUsuario() {
         return usuario;
     }
@@ -167,8 +179,8 @@ public class Prestamo {
     }
     
     public boolean isVencido() {
-        return estado == EstadoPrestamo.ACTIVO && 
-               LocalDate.now().isAfter(fechaDevolucionEsperada);
+        return estado == EstadoPrestamo.VENCIDO ||
+               (estado == EstadoPrestamo.ACTIVO && LocalDate.now().isAfter(fechaDevolucionEsperada));
     }
     
     public boolean isDevuelto() {
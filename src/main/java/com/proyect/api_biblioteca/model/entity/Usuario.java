@@ -2,8 +2,13 @@ package com.proyect.api_biblioteca.model.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -11,16 +16,24 @@ import java.util.List;
 /**
  * Entidad JPA que representa un usuario del sistema de biblioteca
  * Puede ser bibliotecario o usuario regular
+ * Se guarda en la caché de segundo nivel (región "usuarios", y "usuarios-email" para el email)
  */
 @Entity
 @Table(name = "usuarios")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuarios")
+@NaturalIdCache(region = "usuarios-email")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Evita problemas de serialización con Hibernate
 public class Usuario {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdSecuencia("usuarios_seq")
     private Long id;
     
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     @NotBlank(message = "El nombre es obligatorio")
     @Size(max = 100, message = "El nombre no puede exceder 100 caracteres")
     @Column(nullable = false)
@@ -34,11 +47,14 @@ public class Usuario {
     @NotBlank(message = "El email es obligatorio")
     @Email(message = "El formato del email no es válido")
     @Size(max = 255, message = "El email no puede exceder 255 caracteres")
+    @NaturalId(mutable = true)
     @Column(unique = true, nullable = false)
     private String email;
     
+    // Se guarda el hash bcrypt; nunca se incluye en las respuestas JSON
     @NotBlank(message = "La contraseña es obligatoria")
     @Size(min = 6, message = "La contraseña debe tener al menos 6 caracteres")
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(nullable = false)
     private String password;
     
@@ -66,9 +82,15 @@ public class Usuario {
     @Column(name = "fecha_registro")
     private LocalDateTime fechaRegistro;
     
-    @Column(name = "ultimo_acceso")
+    // Lo escribe en lote RegistroAccesos; Hibernate no lo actualiza
+    @Column(name = "ultimo_acceso", updatable = false)
     private LocalDateTime ultimoAcceso;
     
+    // Préstamos sin devolver (activos, renovados o vencidos); lo mantiene PrestamoService
+    @Column(name = "prestamos_activos", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int prestamosActivos;
+    
     // Relación con préstamos
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore // Evita referencias circulares en JSON
@@ -100,6 +122,14 @@ public class Usuario {
         this.id = id;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public String getNombre() {
         return nombre;
     }
@@ -188,6 +218,14 @@ public class Usuario {
         this.ultimoAcceso = ultimoAcceso;
     }
     
+    public int getPrestamosActivos() {
+        return prestamosActivos;
+    }
+    
+    public void setPrestamosActivos(int prestamosActivos) {
+        this.prestamosActivos = prestamosActivos;
+    }
+    
     public List<Prestamo> getPrestamos() {
         return prestamos;
     }
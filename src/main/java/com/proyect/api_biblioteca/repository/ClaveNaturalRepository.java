@@ -0,0 +1,47 @@
+package com.proyect.api_biblioteca.repository;
+
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repositorio para buscar libros por ISBN y usuarios por email como claves naturales.
+ * A diferencia de una consulta JPQL, la búsqueda por clave natural resuelve el ID con la
+ * caché de claves naturales y carga la entidad desde la caché de segundo nivel, así que
+ * las lecturas repetidas no llegan a la base de datos.
+ */
+@Repository
+public class ClaveNaturalRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Busca un libro por ISBN
+     * @param isbn el ISBN del libro
+     * @return Optional con el libro si existe
+     */
+    public Optional<Libro> findLibroByIsbn(String isbn) {
+        if (isbn == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Libro.class).loadOptional(isbn);
+    }
+    
+    /**
+     * Busca un usuario por email
+     * @param email el email del usuario
+     * @return Optional con el usuario si existe
+     */
+    public Optional<Usuario> findUsuarioByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Usuario.class).loadOptional(email);
+    }
+}
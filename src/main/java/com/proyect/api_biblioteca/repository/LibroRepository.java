@@ -2,13 +2,22 @@ package com.proyect.api_biblioteca.repository;
 
 import com.proyect.api_biblioteca.model.entity.Libro;
 import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio JPA para la entidad Libro
@@ -102,4 +111,74 @@ public interface LibroRepository extends JpaRepository<Libro, Long> {
     List<Libro> findByCriterios(@Param("titulo") String titulo, 
                                @Param("autor") String autor, 
                                @Param("estado") EstadoLibro estado);
+    
+    /**
+     * Cuenta libros agrupados por estado
+     * @return filas [estado, número de libros]
+     */
+    @Query("SELECT l.estado, COUNT(l) FROM Libro l GROUP BY l.estado")
+    List<Object[]> countAgrupadoPorEstado();
+    
+    /**
+     * Obtiene una ventana de libros a partir de una posición de desplazamiento (keyset)
+     * @param posicion posición tras la que empieza la ventana
+     * @param orden orden de recorrido; debe terminar en el ID para que la posición sea única
+     * @param limite número máximo de elementos
+     * @return la ventana de resultados
+     */
+    Window<Libro> findBy(ScrollPosition posicion, Sort orden, Limit limite);
+    
+    /**
+     * Recorre todos los libros en orden de ID con un cursor de base de datos.
+     * Las entidades se cargan en modo solo lectura; el llamador debe cerrar el stream
+     * y desvincular cada libro tras procesarlo.
+     * @return stream de libros
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l FROM Libro l ORDER BY l.id")
+    Stream<Libro> streamAll();
+    
+    /**
+     * Recorre el ID, los campos de texto y el estado de todos los libros en orden de ID, sin cargar
+     * entidades. Sustituye al índice de texto en memoria mientras se construye
+     * @return stream de filas [id, titulo, autor, descripcion, estado]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l.id, l.titulo, l.autor, l.descripcion, l.estado FROM Libro l ORDER BY l.id")
+    Stream<Object[]> streamTextos();
+    
+    /**
+     * Recorre el ID, el título y el autor de todos los libros con un cursor de base de datos
+     * @return stream de filas [id, titulo, autor]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l.id, l.titulo, l.autor FROM Libro l")
+    Stream<Object[]> streamTitulosYAutores();
+    
+    /**
+     * Recorre el ID y el ISBN de todos los libros con un cursor de base de datos
+     * @return stream de filas [id, isbn]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l.id, l.isbn FROM Libro l")
+    Stream<Object[]> streamIdsEIsbns();
+    
+    /**
+     * Recorre el ID, el estado, el año de publicación y el autor de todos los libros con un cursor de base de datos
+     * @return stream de filas [id, estado, anioPublicacion, autor]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l.id, l.estado, l.anioPublicacion, l.autor FROM Libro l")
+    Stream<Object[]> streamEstadosAniosYAutores();
+    
+    /**
+     * Busca los IDs de los libros con los ISBN indicados
+     * @param isbns ISBN buscados
+     * @return filas [isbn, id] de los que existen
+     */
+    @Query("SELECT l.isbn, l.id FROM Libro l WHERE l.isbn IN :isbns")
+    List<Object[]> findIdsByIsbnIn(@Param("isbns") Collection<String> isbns);
 }
@@ -0,0 +1,260 @@
+package com.proyect.api_biblioteca.repository;
+
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.model.entity.Prestamo;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.service.TransaccionUtil;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repositorio JDBC para operaciones de préstamo en lote.
+ * Agrupa las sentencias en lotes JDBC para reducir los viajes a la base de datos;
+ * participa en la transacción JPA activa. Como estas sentencias no pasan por Hibernate,
+ * los libros y usuarios modificados se sacan de la caché de segundo nivel.
+ *
+ * Los métodos que devuelven un resultado por fila lo normalizan a 1 (actualizada) o 0 (no):
+ * si el driver no informa del número de filas de una sentencia (Statement.SUCCESS_NO_INFO),
+ * se comprueba con una consulta si la fila quedó en el estado esperado, y una sentencia
+ * fallida (Statement.EXECUTE_FAILED) cuenta como no actualizada.
+ */
+@Repository
+public class PrestamoLoteRepository {
+    
+    private static final String SQL_MARCAR_PRESTADO =
+            "UPDATE libros SET estado_libro = 'PRESTADO', version = version + 1 " +
+            "WHERE id = :id AND estado_libro = 'DISPONIBLE'";
+    
+    private static final String SQL_INSERTAR_PRESTAMO =
+            "INSERT INTO prestamos (id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, " +
+            "estado_prestamo, fecha_creacion, fecha_modificacion, version) " +
+            "VALUES (:id, :usuarioId, :libroId, :fechaPrestamo, :fechaDevolucionEsperada, " +
+            ":estado, :fechaCreacion, :fechaModificacion, 0)";
+    
+    private static final String SQL_MARCAR_DISPONIBLES =
+            "UPDATE libros SET estado_libro = 'DISPONIBLE', version = version + 1 " +
+            "WHERE id IN (:ids) AND estado_libro = 'PRESTADO'";
+    
+    private static final String SQL_DEVOLVER_PRESTAMO =
+            "UPDATE prestamos SET estado_prestamo = 'DEVUELTO', fecha_devolucion_real = :fecha, multa = :multa, " +
+            "observaciones = :observaciones, fecha_modificacion = :ahora, version = version + 1 " +
+            "WHERE id = :id AND estado_prestamo IN ('ACTIVO', 'RENOVADO', 'VENCIDO')";
+    
+    private static final String SQL_RENOVAR_PRESTAMO =
+            "UPDATE prestamos SET estado_prestamo = 'RENOVADO', fecha_devolucion_esperada = :fechaDevolucionEsperada, " +
+            "fecha_modificacion = :ahora, version = version + 1 " +
+            "WHERE id = :id AND estado_prestamo = 'ACTIVO'";
+    
+    private static final String SQL_COMPROBAR_PRESTADOS =
+            "SELECT id FROM libros WHERE id IN (:ids) AND estado_libro = 'PRESTADO'";
+    
+    // La fecha de modificación de la sentencia identifica las filas que ha cambiado
+    private static final String SQL_COMPROBAR_PRESTAMOS =
+            "SELECT id FROM prestamos WHERE id IN (:ids) AND estado_prestamo = :estado AND fecha_modificacion = :ahora";
+    
+    private static final String SQL_AJUSTAR_PRESTAMOS_ACTIVOS =
+            "UPDATE usuarios SET prestamos_activos = prestamos_activos + :delta, version = version + 1 WHERE id = :id";
+    
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Marca como prestados los libros indicados, solo si siguen disponibles.
+     * Los libros deben estar bloqueados por el llamador (la comprobación de SUCCESS_NO_INFO
+     * da por actualizado cualquier libro que haya quedado prestado).
+     * @param libroIds IDs de los libros
+     * @return 1 o 0 por cada libro, en el mismo orden, según se haya actualizado
+     */
+    public int[] marcarLibrosPrestados(List<Long> libroIds) {
+        SqlParameterSource[] parametros = libroIds.stream()
+                .map(id -> new MapSqlParameterSource("id", id))
+                .toArray(SqlParameterSource[]::new);
+        int[] actualizados = filasActualizadas(jdbcTemplate.batchUpdate(SQL_MARCAR_PRESTADO, parametros),
+                libroIds, SQL_COMPROBAR_PRESTADOS, new MapSqlParameterSource());
+        desalojarDeCache(Libro.class, libroIds);
+        return actualizados;
+    }
+    
+    /**
+     * Inserta los préstamos indicados en un único lote. Los IDs salen del mismo generador
+     * que usa Hibernate, que los reserva por bloques en la secuencia, así que el lote no
+     * necesita recuperar claves generadas.
+     * @param prestamos préstamos nuevos (sin ID) con usuario y libro asignados
+     * @return IDs asignados, en el mismo orden
+     */
+    public List<Long> insertarPrestamos(List<Prestamo> prestamos) {
+        SharedSessionContractImplementor sesion = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generador = (BeforeExecutionGenerator) sesion.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Prestamo.class).getGenerator();
+        List<Long> ids = new ArrayList<>(prestamos.size());
+        for (int i = 0; i < prestamos.size(); i++) {
+            ids.add((Long) generador.generate(sesion, null, null, EventType.INSERT));
+        }
+        
+        SqlParameterSource[] parametros = new SqlParameterSource[prestamos.size()];
+        for (int i = 0; i < parametros.length; i++) {
+            Prestamo p = prestamos.get(i);
+            parametros[i] = new MapSqlParameterSource()
+                    .addValue("id", ids.get(i))
+                    .addValue("usuarioId", p.getUsuario().getId())
+                    .addValue("libroId", p.getLibro().getId())
+                    .addValue("fechaPrestamo", p.getFechaPrestamo())
+                    .addValue("fechaDevolucionEsperada", p.getFechaDevolucionEsperada())
+                    .addValue("estado", p.getEstado().name())
+                    .addValue("fechaCreacion", p.getFechaCreacion())
+                    .addValue("fechaModificacion", p.getFechaModificacion());
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERTAR_PRESTAMO, parametros);
+        return ids;
+    }
+    
+    /**
+     * Marca como disponibles los libros indicados con una única sentencia, solo si siguen prestados
+     * (un libro pasado a reparación o dado por perdido mantiene su estado)
+     * @param libroIds IDs de los libros
+     * @return número de libros actualizados
+     */
+    public int marcarLibrosDisponibles(Collection<Long> libroIds) {
+        if (libroIds.isEmpty()) {
+            return 0;
+        }
+        int actualizados = jdbcTemplate.update(SQL_MARCAR_DISPONIBLES, new MapSqlParameterSource("ids", libroIds));
+        desalojarDeCache(Libro.class, libroIds);
+        return actualizados;
+    }
+    
+    /**
+     * Marca como devueltos los préstamos indicados, solo si siguen sin devolver
+     * @param prestamoIds IDs de los préstamos
+     * @param multas multa de cada préstamo (puede ser null), en el mismo orden
+     * @param fecha fecha de devolución
+     * @param observaciones observaciones de la devolución
+     * @return 1 o 0 por cada préstamo, en el mismo orden, según se haya actualizado
+     */
+    public int[] marcarPrestamosDevueltos(List<Long> prestamoIds, List<Double> multas, LocalDate fecha, String observaciones) {
+        LocalDateTime ahora = ahora();
+        SqlParameterSource[] parametros = new SqlParameterSource[prestamoIds.size()];
+        for (int i = 0; i < parametros.length; i++) {
+            parametros[i] = new MapSqlParameterSource()
+                    .addValue("id", prestamoIds.get(i))
+                    .addValue("multa", multas.get(i))
+                    .addValue("fecha", fecha)
+                    .addValue("observaciones", observaciones)
+                    .addValue("ahora", ahora);
+        }
+        return filasActualizadas(jdbcTemplate.batchUpdate(SQL_DEVOLVER_PRESTAMO, parametros), prestamoIds,
+                SQL_COMPROBAR_PRESTAMOS, new MapSqlParameterSource().addValue("estado", "DEVUELTO").addValue("ahora", ahora));
+    }
+    
+    /**
+     * Renueva los préstamos indicados, solo si siguen activos
+     * @param prestamoIds IDs de los préstamos
+     * @param nuevasFechas nueva fecha de devolución de cada préstamo, en el mismo orden
+     * @return 1 o 0 por cada préstamo, en el mismo orden, según se haya actualizado
+     */
+    public int[] renovarPrestamos(List<Long> prestamoIds, List<LocalDate> nuevasFechas) {
+        LocalDateTime ahora = ahora();
+        SqlParameterSource[] parametros = new SqlParameterSource[prestamoIds.size()];
+        for (int i = 0; i < parametros.length; i++) {
+            parametros[i] = new MapSqlParameterSource()
+                    .addValue("id", prestamoIds.get(i))
+                    .addValue("fechaDevolucionEsperada", nuevasFechas.get(i))
+                    .addValue("ahora", ahora);
+        }
+        return filasActualizadas(jdbcTemplate.batchUpdate(SQL_RENOVAR_PRESTAMO, parametros), prestamoIds,
+                SQL_COMPROBAR_PRESTAMOS, new MapSqlParameterSource().addValue("estado", "RENOVADO").addValue("ahora", ahora));
+    }
+    
+    /**
+     * Ajusta el contador de préstamos sin devolver de cada usuario en un único lote
+     * @param deltas variación del contador por ID de usuario
+     */
+    public void ajustarPrestamosActivos(Map<Long, Integer> deltas) {
+        SqlParameterSource[] parametros = deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("id", e.getKey())
+                        .addValue("delta", e.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        if (parametros.length > 0) {
+            jdbcTemplate.batchUpdate(SQL_AJUSTAR_PRESTAMOS_ACTIVOS, parametros);
+            desalojarDeCache(Usuario.class, List.copyOf(deltas.keySet()));
+        }
+    }
+    
+    /**
+     * Fecha de modificación con la precisión de la columna (microsegundos), para poder
+     * buscar después las filas que la llevan
+     */
+    private static LocalDateTime ahora() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+    
+    /**
+     * Normaliza el resultado de un lote JDBC a 1 o 0 por sentencia
+     * @param resultados resultado de batchUpdate, una entrada por ID
+     * @param ids ID de la fila de cada sentencia, en el mismo orden
+     * @param sqlComprobacion consulta que devuelve, de entre :ids, los que están en el estado esperado
+     * @param parametros resto de parámetros de la consulta de comprobación
+     */
+    private int[] filasActualizadas(int[] resultados, List<Long> ids, String sqlComprobacion, MapSqlParameterSource parametros) {
+        int[] filas = new int[resultados.length];
+        List<Long> sinInformacion = new ArrayList<>();
+        for (int i = 0; i < resultados.length; i++) {
+            if (resultados[i] == Statement.SUCCESS_NO_INFO) {
+                sinInformacion.add(ids.get(i));
+            } else {
+                // EXECUTE_FAILED (-3) y 0 cuentan como no actualizada
+                filas[i] = resultados[i] > 0 ? 1 : 0;
+            }
+        }
+        if (!sinInformacion.isEmpty()) {
+            Set<Long> confirmados = new HashSet<>(jdbcTemplate.queryForList(
+                    sqlComprobacion, parametros.addValue("ids", sinInformacion), Long.class));
+            for (int i = 0; i < resultados.length; i++) {
+                if (resultados[i] == Statement.SUCCESS_NO_INFO && confirmados.contains(ids.get(i))) {
+                    filas[i] = 1;
+                }
+            }
+        }
+        return filas;
+    }
+    
+    /**
+     * Saca las entidades de la caché de segundo nivel ahora y de nuevo tras el commit,
+     * por si otra transacción las ha vuelto a cargar con los datos anteriores entretanto
+     */
+    private void desalojarDeCache(Class<?> entidad, Collection<Long> ids) {
+        Cache cache = entityManagerFactory.getCache();
+        ids.forEach(id -> cache.evict(entidad, id));
+        TransaccionUtil.despuesDelCommit(() -> ids.forEach(id -> cache.evict(entidad, id)));
+    }
+}
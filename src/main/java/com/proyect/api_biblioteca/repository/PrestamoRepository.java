@@ -1,17 +1,30 @@
 package com.proyect.api_biblioteca.repository;
 
+import com.proyect.api_biblioteca.dto.PrestamoDTO;
 import com.proyect.api_biblioteca.model.entity.Prestamo;
 import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
 import com.proyect.api_biblioteca.model.entity.Usuario;
 import com.proyect.api_biblioteca.model.entity.Libro;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio JPA para la entidad Prestamo
@@ -19,6 +32,54 @@ import java.util.Optional;
 @Repository
 public interface PrestamoRepository extends JpaRepository<Prestamo, Long> {
     
+    /**
+     * Proyección de préstamo con los datos de usuario y libro, resuelta en una sola consulta
+     */
+    String SELECT_PRESTAMO_DTO =
+            "SELECT new com.proyect.api_biblioteca.dto.PrestamoDTO(p.id, u.id, l.id, p.fechaPrestamo, " +
+            "p.fechaDevolucionEsperada, p.fechaDevolucionReal, p.estado, p.observaciones, p.multa, " +
+            "u.nombre, u.apellido, l.titulo, l.autor) " +
+            "FROM Prestamo p JOIN p.usuario u JOIN p.libro l ";
+    
+    /**
+     * Obtiene todos los préstamos como DTO
+     * @return lista de préstamos ordenada por ID
+     */
+    @Query(SELECT_PRESTAMO_DTO + "ORDER BY p.id")
+    List<PrestamoDTO> findAllDTO();
+    
+    /**
+     * Busca un préstamo por su ID como DTO
+     * @param id el ID del préstamo
+     * @return Optional con el préstamo si existe
+     */
+    @Query(SELECT_PRESTAMO_DTO + "WHERE p.id = :id")
+    Optional<PrestamoDTO> findDTOById(@Param("id") Long id);
+    
+    /**
+     * Busca los préstamos de un usuario como DTO
+     * @param usuarioId el ID del usuario
+     * @return lista de préstamos del usuario
+     */
+    @Query(SELECT_PRESTAMO_DTO + "WHERE u.id = :usuarioId ORDER BY p.id")
+    List<PrestamoDTO> findDTOByUsuarioId(@Param("usuarioId") Long usuarioId);
+    
+    /**
+     * Busca los préstamos de un libro como DTO
+     * @param libroId el ID del libro
+     * @return lista de préstamos del libro
+     */
+    @Query(SELECT_PRESTAMO_DTO + "WHERE l.id = :libroId ORDER BY p.id")
+    List<PrestamoDTO> findDTOByLibroId(@Param("libroId") Long libroId);
+    
+    /**
+     * Busca los préstamos en un estado como DTO
+     * @param estado el estado del préstamo
+     * @return lista de préstamos con ese estado
+     */
+    @Query(SELECT_PRESTAMO_DTO + "WHERE p.estado = :estado ORDER BY p.id")
+    List<PrestamoDTO> findDTOByEstado(@Param("estado") EstadoPrestamo estado);
+    
     /**
      * Busca préstamos por usuario
      * @param usuario el usuario
@@ -48,11 +109,38 @@ public interface PrestamoRepository extends JpaRepository<Prestamo, Long> {
     List<Prestamo> findPrestamosActivos();
     
     /**
-     * Busca préstamos vencidos
+     * Busca préstamos vencidos (marcados como VENCIDO por el barrido periódico)
      * @return lista de préstamos vencidos
      */
-    @Query("SELECT p FROM Prestamo p WHERE p.estado = 'ACTIVO' AND p.fechaDevolucionEsperada < :fechaActual")
-    List<Prestamo> findPrestamosVencidos(@Param("fechaActual") LocalDate fechaActual);
+    @Query("SELECT p FROM Prestamo p WHERE p.estado = 'VENCIDO'")
+    List<Prestamo> findPrestamosVencidos();
+    
+    /**
+     * Busca, en orden de ID, los préstamos activos o renovados cuya fecha de devolución ya pasó
+     * @param fechaActual fecha de referencia
+     * @param ultimoId último ID procesado (se devuelven IDs mayores)
+     * @param limite número máximo de IDs a devolver
+     * @return IDs de préstamos a marcar como vencidos
+     */
+    @Query("SELECT p.id FROM Prestamo p WHERE p.estado IN ('ACTIVO', 'RENOVADO') " +
+           "AND p.fechaDevolucionEsperada < :fechaActual " +
+           "AND p.id > :ultimoId ORDER BY p.id")
+    List<Long> findIdsPrestamosPorVencer(@Param("fechaActual") LocalDate fechaActual,
+                                         @Param("ultimoId") Long ultimoId,
+                                         Limit limite);
+    
+    /**
+     * Marca como vencidos los préstamos indicados que sigan en el estado dado
+     * @param ids IDs de los préstamos
+     * @param estado estado del que se parte (ACTIVO o RENOVADO)
+     * @param ahora fecha de modificación
+     * @return número de préstamos actualizados
+     */
+    @Modifying
+    @Query("UPDATE Prestamo p SET p.estado = 'VENCIDO', p.fechaModificacion = :ahora, p.version = p.version + 1 " +
+           "WHERE p.id IN :ids AND p.estado = :estado")
+    int marcarVencidos(@Param("ids") Collection<Long> ids, @Param("estado") EstadoPrestamo estado,
+                       @Param("ahora") LocalDateTime ahora);
     
     /**
      * Busca préstamos por rango de fechas
@@ -107,4 +195,46 @@ public interface PrestamoRepository extends JpaRepository<Prestamo, Long> {
      */
     @Query("SELECT p FROM Prestamo p WHERE p.libro = :libro AND p.usuario = :usuario ORDER BY p.fechaPrestamo DESC")
     Optional<Prestamo> findLastPrestamoByLibroAndUsuario(@Param("libro") Libro libro, @Param("usuario") Usuario usuario);
+    
+    /**
+     * Cuenta préstamos agrupados por estado
+     * @return filas [estado, número de préstamos]
+     */
+    @Query("SELECT p.estado, COUNT(p) FROM Prestamo p GROUP BY p.estado")
+    List<Object[]> countAgrupadoPorEstado();
+    
+    /**
+     * Obtiene una ventana de préstamos, con usuario y libro cargados en la misma consulta, a partir de una posición de desplazamiento (keyset)
+     * @param posicion posición tras la que empieza la ventana
+     * @param orden orden de recorrido; debe terminar en el ID para que la posición sea única
+     * @param limite número máximo de elementos
+     * @return la ventana de resultados
+     */
+    @EntityGraph(attributePaths = {"usuario", "libro"})
+    Window<Prestamo> findBy(ScrollPosition posicion, Sort orden, Limit limite);
+    
+    /**
+     * Busca préstamos por sus IDs con el libro cargado en la misma consulta, para las operaciones
+     * en lote que consultan el estado de cada libro
+     * @param ids IDs de los préstamos
+     * @return préstamos encontrados, sin orden garantizado
+     */
+    @EntityGraph(attributePaths = "libro")
+    List<Prestamo> findConLibroByIdIn(Collection<Long> ids);
+    
+    /**
+     * Recorre todos los préstamos en orden de ID con un cursor de base de datos,
+     * proyectados a DTO con los datos de usuario y libro
+     * @return stream de préstamos como DTO
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_PRESTAMO_DTO + "ORDER BY p.id")
+    Stream<PrestamoDTO> streamAllDTO();
+    
+    /**
+     * Cuenta préstamos agrupados por libro (histórico completo)
+     * @return filas [libroId, número de préstamos]
+     */
+    @Query("SELECT p.libro.id, COUNT(p) FROM Prestamo p GROUP BY p.libro.id")
+    List<Object[]> countAgrupadoPorLibro();
 }
@@ -0,0 +1,52 @@
+package com.proyect.api_biblioteca.repository;
+
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.service.TransaccionUtil;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Repositorio JDBC para escribir en lote la fecha de último acceso de los usuarios.
+ * No incrementa la versión: el último acceso no lo escribe Hibernate, así que no entra
+ * en conflicto con las ediciones del usuario.
+ */
+@Repository
+public class UltimoAccesoRepository {
+    
+    private static final String SQL_ACTUALIZAR_ULTIMO_ACCESO =
+            "UPDATE usuarios SET ultimo_acceso = :fecha " +
+            "WHERE id = :id AND (ultimo_acceso IS NULL OR ultimo_acceso < :fecha)";
+    
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+    
+    /**
+     * Actualiza el último acceso de cada usuario si es posterior al guardado
+     * @param accesos fecha de último acceso por ID de usuario
+     */
+    public void actualizarUltimosAccesos(Map<Long, LocalDateTime> accesos) {
+        SqlParameterSource[] parametros = accesos.entrySet().stream()
+                .map(acceso -> new MapSqlParameterSource()
+                        .addValue("id", acceso.getKey())
+                        .addValue("fecha", acceso.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(SQL_ACTUALIZAR_ULTIMO_ACCESO, parametros);
+        
+        // Como la sentencia no pasa por Hibernate, se sacan los usuarios de la caché de segundo nivel
+        Cache cache = entityManagerFactory.getCache();
+        accesos.keySet().forEach(id -> cache.evict(Usuario.class, id));
+        TransaccionUtil.despuesDelCommit(() -> accesos.keySet().forEach(id -> cache.evict(Usuario.class, id)));
+    }
+}
@@ -1,15 +1,25 @@
 package com.proyect.api_biblioteca.repository;
 
+import com.proyect.api_biblioteca.dto.UsuarioDTO;
 import com.proyect.api_biblioteca.model.entity.Usuario;
 import com.proyect.api_biblioteca.model.entity.TipoUsuario;
 import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio JPA para la entidad Usuario
@@ -104,4 +114,61 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
                                  @Param("apellido") String apellido, 
                                  @Param("tipoUsuario") TipoUsuario tipoUsuario,
                                  @Param("estado") EstadoUsuario estado);
+    
+    /**
+     * Cuenta usuarios agrupados por estado
+     * @return filas [estado, número de usuarios]
+     */
+    @Query("SELECT u.estado, COUNT(u) FROM Usuario u GROUP BY u.estado")
+    List<Object[]> countAgrupadoPorEstado();
+    
+    /**
+     * Cuenta usuarios agrupados por tipo
+     * @return filas [tipo, número de usuarios]
+     */
+    @Query("SELECT u.tipoUsuario, COUNT(u) FROM Usuario u GROUP BY u.tipoUsuario")
+    List<Object[]> countAgrupadoPorTipo();
+    
+    /**
+     * Busca, en orden de ID, los IDs de usuario mayores que el indicado
+     * @param ultimoId último ID procesado
+     * @param limite número máximo de IDs a devolver
+     * @return IDs de usuario
+     */
+    @Query("SELECT u.id FROM Usuario u WHERE u.id > :ultimoId ORDER BY u.id")
+    List<Long> findIdsDesde(@Param("ultimoId") Long ultimoId, Limit limite);
+    
+    /**
+     * Recalcula desde la tabla de préstamos el contador de préstamos sin devolver
+     * de los usuarios del rango indicado. Solo modifica las filas cuyo contador no coincide.
+     * @param desde primer ID del rango (incluido)
+     * @param hasta último ID del rango (incluido)
+     * @return número de usuarios corregidos
+     */
+    @Modifying
+    @Query("UPDATE Usuario u SET u.prestamosActivos = " +
+           "(SELECT COUNT(p) FROM Prestamo p WHERE p.usuario = u AND p.estado IN ('ACTIVO', 'RENOVADO', 'VENCIDO')), " +
+           "u.version = u.version + 1 " +
+           "WHERE u.id BETWEEN :desde AND :hasta AND u.prestamosActivos <> " +
+           "(SELECT COUNT(p) FROM Prestamo p WHERE p.usuario = u AND p.estado IN ('ACTIVO', 'RENOVADO', 'VENCIDO'))")
+    int repararPrestamosActivos(@Param("desde") Long desde, @Param("hasta") Long hasta);
+    
+    /**
+     * Obtiene una ventana de usuarios a partir de una posición de desplazamiento (keyset)
+     * @param posicion posición tras la que empieza la ventana
+     * @param orden orden de recorrido; debe terminar en el ID para que la posición sea única
+     * @param limite número máximo de elementos
+     * @return la ventana de resultados
+     */
+    Window<Usuario> findBy(ScrollPosition posicion, Sort orden, Limit limite);
+    
+    /**
+     * Recorre todos los usuarios en orden de ID con un cursor de base de datos.
+     * Se proyectan directamente a DTO (sin contraseña ni entidades gestionadas).
+     * @return stream de usuarios como DTO
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.proyect.api_biblioteca.dto.UsuarioDTO(u.id, u.nombre, u.apellido, u.email, u.telefono, " +
+           "u.direccion, u.fechaNacimiento, u.tipoUsuario, u.estado) FROM Usuario u ORDER BY u.id")
+    Stream<UsuarioDTO> streamAllDTO();
 }
@@ -2,7 +2,9 @@ package com.proyect.api_biblioteca.service;
 
 import com.proyect.api_biblioteca.dto.LoginRequestDTO;
 import com.proyect.api_biblioteca.dto.LoginResponseDTO;
+import com.proyect.api_biblioteca.dto.SesionDTO;
 import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.repository.ClaveNaturalRepository;
 import com.proyect.api_biblioteca.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,17 +18,43 @@ import java.util.Optional;
 @Service
 public class AuthService {
     
+    private static final String PREFIJO_BEARER = "Bearer ";
+    
     @Autowired
     private UsuarioRepository usuarioRepository;
     
+    @Autowired
+    private ClaveNaturalRepository claveNaturalRepository;
+    
+    @Autowired
+    private EstadisticasService estadisticasService;
+    
+    @Autowired
+    private GestorTokens gestorTokens;
+    
+    @Autowired
+    private RegistroAccesos registroAccesos;
+    
+    @Autowired
+    private GestorContrasenias gestorContrasenias;
+    
+    @Autowired
+    private LimitadorLogin limitadorLogin;
+    
     
     /**
      * Autentica un usuario con email y contraseña
      * @param loginRequest datos de login
-     * @return respuesta de login con token (simulado)
+     * @param ipCliente la IP desde la que se intenta el login (opcional)
+     * @return respuesta de login con token firmado
+     * @throws LimiteExcedidoException si la IP o el email han agotado sus intentos
+     * @throws ServicioSaturadoException si no se puede comprobar la contraseña ahora
      */
-    public LoginResponseDTO login(LoginRequestDTO loginRequest) {
-        Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(loginRequest.getEmail());
+    public LoginResponseDTO login(LoginRequestDTO loginRequest, String ipCliente) {
+        // Antes de consultar la base de datos
+        limitadorLogin.comprobar(loginRequest.getEmail(), ipCliente);
+        
+        Optional<Usuario> usuarioOpt = claveNaturalRepository.findUsuarioByEmail(loginRequest.getEmail());
         
         if (usuarioOpt.isEmpty()) {
             return new LoginResponseDTO("Credenciales inválidas");
@@ -34,8 +62,9 @@ public class AuthService {
         
         Usuario usuario = usuarioOpt.get();
         
-        // Verificar contraseña
-        if (!loginRequest.getPassword().equals(usuario.getPassword())) {
+        // Verificar contraseña (fuera de transacción: bcrypt no debe retener una conexión)
+        String guardada = usuario.getPassword();
+        if (!gestorContrasenias.coincide(loginRequest.getPassword(), guardada)) {
             return new LoginResponseDTO("Credenciales inválidas");
         }
         
@@ -44,12 +73,14 @@ public class AuthService {
             return new LoginResponseDTO("Usuario inactivo");
         }
         
-        // Actualizar último acceso
-        usuario.setUltimoAcceso(LocalDateTime.now());
-        usuarioRepository.save(usuario);
+        if (gestorContrasenias.necesitaActualizacion(guardada)) {
+            gestorContrasenias.actualizarEnSegundoPlano(usuario.getId(), loginRequest.getPassword(), guardada);
+        }
+        
+        // El último acceso se escribe más tarde, en lote
+        registroAccesos.registrar(usuario.getId(), LocalDateTime.now());
         
-        // Generar token simulado (en producción usar JWT)
-        String token = generateSimpleToken(usuario);
+        String token = gestorTokens.emitir(usuario);
         
         return new LoginResponseDTO(
             token,
@@ -67,47 +98,29 @@ public class AuthService {
      */
     public Usuario register(Usuario usuario) {
         // Verificar si el email ya existe
-        if (usuarioRepository.existsByEmail(usuario.getEmail())) {
+        if (claveNaturalRepository.findUsuarioByEmail(usuario.getEmail()).isPresent()) {
             throw new IllegalArgumentException("Ya existe un usuario con el email: " + usuario.getEmail());
         }
         
-        // Encriptar contraseña
-        // Contraseña sin encriptar para ejercicio universitario
+        usuario.setPassword(gestorContrasenias.codificar(usuario.getPassword()));
         
         // Por defecto, los nuevos usuarios son de tipo USUARIO
         usuario.setTipoUsuario(com.proyect.api_biblioteca.model.entity.TipoUsuario.USUARIO);
         
-        return usuarioRepository.save(usuario);
+        Usuario guardado = usuarioRepository.save(usuario);
+        estadisticasService.registrarUsuario(null, null, guardado.getEstado(), guardado.getTipoUsuario());
+        return guardado;
     }
     
     /**
-     * Valida un token (simulado)
-     * @param token el token a validar
-     * @return el usuario si el token es válido
+     * Valida un token comprobando su firma y caducidad, sin consultar la base de datos
+     * @param token el token a validar, con o sin el prefijo "Bearer "
+     * @return los datos de la sesión si el token es válido, o null en caso contrario
      */
-    public Usuario validateToken(String token) {
-        // En una implementación real, aquí se validaría el JWT
-        // Por ahora, simulamos la validación
-        if (token == null || !token.startsWith("Bearer_")) {
-            return null;
+    public SesionDTO validateToken(String token) {
+        if (token != null && token.regionMatches(true, 0, PREFIJO_BEARER, 0, PREFIJO_BEARER.length())) {
+            token = token.substring(PREFIJO_BEARER.length()).trim();
         }
-        
-        try {
-            String userId = token.substring(7); // Remover "Bearer_"
-            Long id = Long.parseLong(userId);
-            return usuarioRepository.findById(id).orElse(null);
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-    
-    /**
-     * Genera un token simple para el usuario
-     * @param usuario el usuario
-     * @return el token generado
-     */
-    private String generateSimpleToken(Usuario usuario) {
-        // En producción, usar JWT con firma digital
-        return "Bearer_" + usuario.getId();
+        return gestorTokens.verificar(token);
     }
 }
@@ -0,0 +1,151 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
+import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tarea periódica que marca como VENCIDO los préstamos activos o renovados cuya fecha de devolución ya pasó.
+ * Recorre los préstamos por ID en bloques acotados; cada bloque se confirma en su propia
+ * transacción corta. Si un barrido se interrumpe, el siguiente continúa desde el último
+ * bloque confirmado. Los IDs se buscan dentro de esa transacción, en la base de datos principal,
+ * para no marcar préstamos renovados que una réplica con retraso aún ve vencidos.
+ */
+@Component
+public class BarridoVencimientos {
+    
+    private static final Logger log = LoggerFactory.getLogger(BarridoVencimientos.class);
+    
+    private final PrestamoRepository prestamoRepository;
+    private final EstadisticasService estadisticasService;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanioBloque;
+    
+    private final AtomicLong cursor = new AtomicLong(0);
+    private volatile boolean detenido;
+    
+    private final Counter prestamosMarcados;
+    private final Counter bloquesProcesados;
+    private final Timer duracionBarrido;
+    
+    public BarridoVencimientos(PrestamoRepository prestamoRepository,
+                               EstadisticasService estadisticasService,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${biblioteca.vencimientos.tamanio-bloque:500}") int tamanioBloque) {
+        this.prestamoRepository = prestamoRepository;
+        this.estadisticasService = estadisticasService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanioBloque = tamanioBloque;
+        
+        this.prestamosMarcados = Counter.builder("biblioteca.vencimientos.marcados")
+                .description("Préstamos marcados como vencidos")
+                .register(meterRegistry);
+        this.bloquesProcesados = Counter.builder("biblioteca.vencimientos.bloques")
+                .description("Bloques procesados por el barrido de vencimientos")
+                .register(meterRegistry);
+        this.duracionBarrido = Timer.builder("biblioteca.vencimientos.barrido")
+                .description("Duración de cada barrido completo de vencimientos")
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.vencimientos.cursor", cursor, AtomicLong::get)
+                .description("Último ID de préstamo confirmado por el barrido en curso")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Ejecuta un barrido completo, reanudando desde el cursor si el anterior quedó a medias
+     */
+    @Scheduled(initialDelayString = "${biblioteca.vencimientos.retardo-inicial-ms:10000}",
+               fixedDelayString = "${biblioteca.vencimientos.intervalo-ms:300000}")
+    public void barrer() {
+        duracionBarrido.record(() -> {
+            LocalDate hoy = LocalDate.now();
+            long total = 0;
+            
+            while (!detenido) {
+                int marcados = procesarBloque(hoy);
+                if (marcados < 0) {
+                    // Barrido completo: el siguiente empieza desde el principio
+                    cursor.set(0);
+                    break;
+                }
+                total += marcados;
+            }
+            
+            if (total > 0) {
+                log.info("Barrido de vencimientos: {} préstamos marcados como vencidos", total);
+            }
+        });
+    }
+    
+    /**
+     * Procesa el siguiente bloque de IDs a partir del cursor
+     * @param hoy fecha de referencia del barrido
+     * @return préstamos marcados, o -1 si ya no quedan préstamos por revisar
+     */
+    private int procesarBloque(LocalDate hoy) {
+        Bloque bloque = transactionTemplate.execute(status -> {
+            List<Long> ids = prestamoRepository.findIdsPrestamosPorVencer(hoy, cursor.get(), Limit.of(tamanioBloque));
+            if (ids.isEmpty()) {
+                return null;
+            }
+            // Una actualización por estado de origen, para registrar cada transición en las estadísticas.
+            // Cada una vuelve a comprobar el estado, así que es segura aunque otro nodo barra a la vez
+            LocalDateTime ahora = LocalDateTime.now();
+            int activos = prestamoRepository.marcarVencidos(ids, EstadoPrestamo.ACTIVO, ahora);
+            int renovados = prestamoRepository.marcarVencidos(ids, EstadoPrestamo.RENOVADO, ahora);
+            // Dentro de la transacción, como en PrestamoService: los cambios quedan pendientes hasta el
+            // commit y una reconciliación que coincida con él no los cuenta dos veces
+            estadisticasService.registrarPrestamos(EstadoPrestamo.ACTIVO, EstadoPrestamo.VENCIDO, activos);
+            estadisticasService.registrarPrestamos(EstadoPrestamo.RENOVADO, EstadoPrestamo.VENCIDO, renovados);
+            return new Bloque(ids.get(ids.size() - 1), activos, renovados);
+        });
+        if (bloque == null) {
+            return -1;
+        }
+        cursor.set(bloque.ultimoId);
+        
+        int marcados = bloque.activos + bloque.renovados;
+        bloquesProcesados.increment();
+        prestamosMarcados.increment(marcados);
+        return marcados;
+    }
+    
+    @PreDestroy
+    public void detener() {
+        detenido = true;
+    }
+    
+    /**
+     * Resultado de un bloque confirmado: último ID revisado y préstamos marcados por estado de origen
+     */
+    private static final class Bloque {
+        
+        final long ultimoId;
+        final int activos;
+        final int renovados;
+        
+        Bloque(long ultimoId, int activos, int renovados) {
+            this.ultimoId = ultimoId;
+            this.activos = activos;
+            this.renovados = renovados;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import com.proyect.api_biblioteca.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Servicio de estadísticas en memoria.
+ * Mantiene contadores por estado de préstamo, libro y usuario, y por tipo de usuario.
+ * Se cargan al arrancar, se actualizan con cada cambio confirmado y se reconcilian
+ * periódicamente con la base de datos para corregir desviaciones (borrados en cascada,
+ * escrituras de otros nodos, etc.). Las consultas de estadísticas no acceden a la base de datos.
+ *
+ * La reconciliación de un grupo de contadores solo se aplica si ninguna transacción que lo
+ * modifica estaba en curso mientras se consultaba la base de datos: un cambio confirmado antes
+ * de la consulta pero aplicado a los contadores después se contaría dos veces. Si no se da esa
+ * condición tras varios intentos, el grupo se reconcilia en la siguiente ejecución.
+ * Los recuentos se leen siempre de la base de datos principal.
+ *
+ * Registrar un cambio no toma ningún bloqueo: la reconciliación comprueba como un seqlock que el
+ * sello de cambios aplicados no se ha movido entre la foto de los contadores y el final de la
+ * consulta, y corrige sumando la diferencia respecto a esa foto, sin pisar lo aplicado después.
+ */
+@Service
+public class EstadisticasService {
+    
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasService.class);
+    
+    @Autowired
+    private PrestamoRepository prestamoRepository;
+    
+    @Autowired
+    private LibroRepository libroRepository;
+    
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // Intentos de reconciliar cada grupo de contadores en una misma ejecución, y espera entre ellos
+    private static final int INTENTOS_RECONCILIACION = 3;
+    private static final long ESPERA_ENTRE_INTENTOS_MS = 200;
+    
+    private final Contadores<EstadoPrestamo> prestamosPorEstado = new Contadores<>(EstadoPrestamo.class);
+    private final Contadores<EstadoLibro> librosPorEstado = new Contadores<>(EstadoLibro.class);
+    private final Contadores<EstadoUsuario> usuariosPorEstado = new Contadores<>(EstadoUsuario.class);
+    private final Contadores<TipoUsuario> usuariosPorTipo = new Contadores<>(TipoUsuario.class);
+    
+    /**
+     * Registra el cambio de estado de un préstamo
+     * @param anterior estado anterior (null si el préstamo es nuevo)
+     * @param nuevo estado nuevo (null si el préstamo se elimina)
+     */
+    public void registrarPrestamo(EstadoPrestamo anterior, EstadoPrestamo nuevo) {
+        registrarPrestamos(anterior, nuevo, 1);
+    }
+    
+    /**
+     * Registra el mismo cambio de estado para varios préstamos
+     * @param anterior estado anterior (null si los préstamos son nuevos)
+     * @param nuevo estado nuevo (null si los préstamos se eliminan)
+     * @param cantidad número de préstamos afectados
+     */
+    public void registrarPrestamos(EstadoPrestamo anterior, EstadoPrestamo nuevo, long cantidad) {
+        registrarCambio(prestamosPorEstado, anterior, nuevo, cantidad);
+    }
+    
+    /**
+     * Registra el cambio de estado de un libro
+     * @param anterior estado anterior (null si el libro es nuevo)
+     * @param nuevo estado nuevo (null si el libro se elimina)
+     */
+    public void registrarLibro(EstadoLibro anterior, EstadoLibro nuevo) {
+        registrarLibros(anterior, nuevo, 1);
+    }
+    
+    /**
+     * Registra el mismo cambio de estado para varios libros
+     * @param anterior estado anterior (null si los libros son nuevos)
+     * @param nuevo estado nuevo (null si los libros se eliminan)
+     * @param cantidad número de libros afectados
+     */
+    public void registrarLibros(EstadoLibro anterior, EstadoLibro nuevo, long cantidad) {
+        registrarCambio(librosPorEstado, anterior, nuevo, cantidad);
+    }
+    
+    /**
+     * Registra el cambio de estado y/o tipo de un usuario
+     * @param estadoAnterior estado anterior (null si el usuario es nuevo)
+     * @param tipoAnterior tipo anterior (null si el usuario es nuevo)
+     * @param estadoNuevo estado nuevo (null si el usuario se elimina)
+     * @param tipoNuevo tipo nuevo (null si el usuario se elimina)
+     */
+    public void registrarUsuario(EstadoUsuario estadoAnterior, TipoUsuario tipoAnterior,
+                                 EstadoUsuario estadoNuevo, TipoUsuario tipoNuevo) {
+        registrarCambio(usuariosPorEstado, estadoAnterior, estadoNuevo, 1);
+        registrarCambio(usuariosPorTipo, tipoAnterior, tipoNuevo, 1);
+    }
+    
+    /**
+     * Cuenta los préstamos con un estado
+     * @param estado el estado del préstamo
+     * @return número de préstamos según los contadores en memoria
+     */
+    public long contarPrestamos(EstadoPrestamo estado) {
+        return contar(prestamosPorEstado, estado);
+    }
+    
+    /**
+     * Cuenta los usuarios con un estado
+     * @param estado el estado del usuario
+     * @return número de usuarios según los contadores en memoria
+     */
+    public long contarUsuarios(EstadoUsuario estado) {
+        return contar(usuariosPorEstado, estado);
+    }
+    
+    /**
+     * Cuenta los usuarios de un tipo
+     * @param tipoUsuario el tipo de usuario
+     * @return número de usuarios según los contadores en memoria
+     */
+    public long contarUsuarios(TipoUsuario tipoUsuario) {
+        return contar(usuariosPorTipo, tipoUsuario);
+    }
+    
+    /**
+     * Obtiene estadísticas de préstamos
+     * @return mapa con estadísticas
+     */
+    public Map<String, Object> getEstadisticasPrestamos() {
+        long totalActivos = contar(prestamosPorEstado, EstadoPrestamo.ACTIVO);
+        long totalDevueltos = contar(prestamosPorEstado, EstadoPrestamo.DEVUELTO);
+        long totalVencidos = contar(prestamosPorEstado, EstadoPrestamo.VENCIDO);
+        long totalRenovados = contar(prestamosPorEstado, EstadoPrestamo.RENOVADO);
+        
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("totalActivos", totalActivos);
+        estadisticas.put("totalDevueltos", totalDevueltos);
+        estadisticas.put("totalVencidos", totalVencidos);
+        estadisticas.put("totalRenovados", totalRenovados);
+        estadisticas.put("total", totalActivos + totalDevueltos + totalVencidos + totalRenovados);
+        return estadisticas;
+    }
+    
+    /**
+     * Obtiene estadísticas de libros
+     * @return mapa con estadísticas
+     */
+    public Map<String, Object> getEstadisticasLibros() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("totalDisponibles", contar(librosPorEstado, EstadoLibro.DISPONIBLE));
+        estadisticas.put("totalPrestados", contar(librosPorEstado, EstadoLibro.PRESTADO));
+        estadisticas.put("totalEnReparacion", contar(librosPorEstado, EstadoLibro.EN_REPARACION));
+        estadisticas.put("totalPerdidos", contar(librosPorEstado, EstadoLibro.PERDIDO));
+        estadisticas.put("totalRetirados", contar(librosPorEstado, EstadoLibro.RETIRADO));
+        estadisticas.put("total", total(librosPorEstado));
+        return estadisticas;
+    }
+    
+    /**
+     * Obtiene estadísticas de usuarios
+     * @return mapa con estadísticas
+     */
+    public Map<String, Object> getEstadisticasUsuarios() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("totalUsuarios", total(usuariosPorTipo));
+        estadisticas.put("totalBibliotecarios", contar(usuariosPorTipo, TipoUsuario.BIBLIOTECARIO));
+        estadisticas.put("usuariosActivos", contar(usuariosPorEstado, EstadoUsuario.ACTIVO));
+        for (EstadoUsuario estado : EstadoUsuario.values()) {
+            estadisticas.put("estado" + estado.name(), contar(usuariosPorEstado, estado));
+        }
+        return estadisticas;
+    }
+    
+    /**
+     * Recalcula los contadores a partir de la base de datos.
+     * Se ejecuta al arrancar y periódicamente; corrige la diferencia sin poner los contadores a cero.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${biblioteca.estadisticas.intervalo-reconciliacion-ms:600000}",
+               fixedDelayString = "${biblioteca.estadisticas.intervalo-reconciliacion-ms:600000}")
+    public void reconciliar() {
+        boolean completa = reconciliar(prestamosPorEstado, prestamoRepository::countAgrupadoPorEstado)
+                & reconciliar(librosPorEstado, libroRepository::countAgrupadoPorEstado)
+                & reconciliar(usuariosPorEstado, usuarioRepository::countAgrupadoPorEstado)
+                & reconciliar(usuariosPorTipo, usuarioRepository::countAgrupadoPorTipo);
+        if (completa) {
+            log.debug("Estadísticas reconciliadas con la base de datos");
+        } else {
+            log.debug("Reconciliación de estadísticas aplazada por transacciones en curso");
+        }
+    }
+    
+    /**
+     * Reconcilia un grupo de contadores si ningún cambio sobre él coincide con la consulta
+     * @return true si se ha reconciliado
+     */
+    private <E extends Enum<E>> boolean reconciliar(Contadores<E> contadores, Supplier<List<Object[]>> consulta) {
+        for (int intento = 0; intento < INTENTOS_RECONCILIACION; intento++) {
+            if (intento > 0 && !esperar()) {
+                return false;
+            }
+            long sello = contadores.aplicados.get();
+            if (contadores.pendientes.get() > 0) {
+                continue;
+            }
+            Map<E, Long> foto = contadores.foto();
+            // Transacción de escritura para que la consulta vaya a la principal: con réplicas, una de
+            // sólo lectura podría leer recuentos atrasados, que se fijarían hasta la siguiente ejecución
+            List<Object[]> filas = transactionTemplate.execute(status -> consulta.get());
+            // Sin transacciones abiertas ni cambios aplicados desde el sello. Se leen en este orden
+            // porque un cambio suma el sello antes de dejar de estar pendiente
+            if (contadores.pendientes.get() == 0 && contadores.aplicados.get() == sello) {
+                contadores.ajustar(foto, filas);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean esperar() {
+        try {
+            Thread.sleep(ESPERA_ENTRE_INTENTOS_MS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private <E extends Enum<E>> void registrarCambio(Contadores<E> contadores, E anterior, E nuevo, long cantidad) {
+        if (anterior == nuevo || cantidad == 0) {
+            return;
+        }
+        contadores.pendientes.incrementAndGet();
+        TransaccionUtil.alTerminar(confirmada -> {
+            if (confirmada) {
+                if (anterior != null) {
+                    contadores.valores.get(anterior).add(-cantidad);
+                }
+                if (nuevo != null) {
+                    contadores.valores.get(nuevo).add(cantidad);
+                }
+                contadores.aplicados.incrementAndGet();
+            }
+            contadores.pendientes.decrementAndGet();
+        });
+    }
+    
+    private static <E extends Enum<E>> long contar(Contadores<E> contadores, E clave) {
+        return contadores.valores.get(clave).sum();
+    }
+    
+    private static <E extends Enum<E>> long total(Contadores<E> contadores) {
+        long total = 0;
+        for (LongAdder contador : contadores.valores.values()) {
+            total += contador.sum();
+        }
+        return total;
+    }
+    
+    /**
+     * Contadores de un mismo grupo (por estado o por tipo), con el registro de los cambios
+     * en curso que necesita la reconciliación. Cada cambio suma sus contadores, después el sello
+     * de aplicados y por último deja de estar pendiente.
+     */
+    private static final class Contadores<E extends Enum<E>> {
+        
+        private final Class<E> tipo;
+        private final Map<E, LongAdder> valores;
+        
+        // Cambios registrados en transacciones que aún no han terminado
+        private final AtomicInteger pendientes = new AtomicInteger();
+        
+        // Cambios aplicados desde el arranque: sello que valida la foto de la reconciliación
+        private final AtomicLong aplicados = new AtomicLong();
+        
+        Contadores(Class<E> tipo) {
+            this.tipo = tipo;
+            this.valores = new EnumMap<>(tipo);
+            for (E valor : tipo.getEnumConstants()) {
+                valores.put(valor, new LongAdder());
+            }
+        }
+        
+        /**
+         * Valor actual de cada contador
+         */
+        Map<E, Long> foto() {
+            Map<E, Long> foto = new EnumMap<>(tipo);
+            valores.forEach((clave, contador) -> foto.put(clave, contador.sum()));
+            return foto;
+        }
+        
+        /**
+         * Corrige cada contador a partir de las filas (valor, número) de la consulta agrupada,
+         * sumando su diferencia con la foto tomada antes de la consulta
+         */
+        void ajustar(Map<E, Long> foto, List<Object[]> filas) {
+            Map<E, Long> reales = new EnumMap<>(tipo);
+            for (Object[] fila : filas) {
+                if (fila[0] != null) {
+                    reales.put(tipo.cast(fila[0]), (Long) fila[1]);
+                }
+            }
+            for (Map.Entry<E, LongAdder> contador : valores.entrySet()) {
+                long diferencia = reales.getOrDefault(contador.getKey(), 0L) - foto.get(contador.getKey());
+                if (diferencia != 0) {
+                    contador.getValue().add(diferencia);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.proyect.api_biblioteca.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.proyect.api_biblioteca.dto.PrestamoDTO;
+import com.proyect.api_biblioteca.dto.UsuarioDTO;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import com.proyect.api_biblioteca.repository.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Servicio de exportación masiva en formato NDJSON (un objeto JSON por línea).
+ * Los datos se leen con un cursor de base de datos y se escriben fila a fila, de modo
+ * que la memoria usada no depende del tamaño de la tabla.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportacionService {
+    
+    // Filas escritas entre cada vaciado explícito de la salida
+    private static final int FILAS_POR_VACIADO = 500;
+    
+    @Autowired
+    private LibroRepository libroRepository;
+    
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    
+    @Autowired
+    private PrestamoRepository prestamoRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Exporta todos los libros. Cada libro se desvincula del contexto de persistencia tras escribirlo.
+     * @param salida flujo de salida de la respuesta
+     * @return número de libros exportados
+     */
+    public long exportarLibros(OutputStream salida) throws IOException {
+        try (Stream<Libro> libros = libroRepository.streamAll()) {
+            return escribir(libros, Libro.class, salida, entityManager::detach);
+        }
+    }
+    
+    /**
+     * Exporta todos los usuarios, sin contraseña
+     * @param salida flujo de salida de la respuesta
+     * @return número de usuarios exportados
+     */
+    public long exportarUsuarios(OutputStream salida) throws IOException {
+        try (Stream<UsuarioDTO> usuarios = usuarioRepository.streamAllDTO()) {
+            return escribir(usuarios, UsuarioDTO.class, salida, usuario -> {});
+        }
+    }
+    
+    /**
+     * Exporta todos los préstamos con los datos de usuario y libro
+     * @param salida flujo de salida de la respuesta
+     * @return número de préstamos exportados
+     */
+    public long exportarPrestamos(OutputStream salida) throws IOException {
+        try (Stream<PrestamoDTO> prestamos = prestamoRepository.streamAllDTO()) {
+            return escribir(prestamos, PrestamoDTO.class, salida, prestamo -> {});
+        }
+    }
+    
+    private <T> long escribir(Stream<T> filas, Class<T> tipo, OutputStream salida, Consumer<T> despues) throws IOException {
+        // Sin vaciado tras cada valor: la salida se vacía solo cada FILAS_POR_VACIADO filas
+        ObjectWriter escritor = objectMapper.writerFor(tipo).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long total = 0;
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generador.setRootValueSeparator(null);
+            Iterator<T> iterador = filas.iterator();
+            while (iterador.hasNext()) {
+                T fila = iterador.next();
+                escritor.writeValue(generador, fila);
+                generador.writeRaw('\n');
+                despues.accept(fila);
+                
+                if (++total % FILAS_POR_VACIADO == 0) {
+                    generador.flush();
+                }
+            }
+        }
+        return total;
+    }
+}
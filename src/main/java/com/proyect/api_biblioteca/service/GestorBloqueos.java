@@ -0,0 +1,112 @@
+package com.proyect.api_biblioteca.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gestor de bloqueos por franjas (lock striping) para las operaciones de préstamo.
+ * Cada libro y cada usuario se asocia a una franja fija, de modo que las operaciones
+ * sobre libros distintos se ejecutan en paralelo y las que comparten libro o usuario
+ * se serializan sin recurrir a bloqueos en la base de datos.
+ *
+ * Los bloqueos se adquieren dentro de la transacción activa y se liberan cuando
+ * ésta termina, para que el siguiente hilo lea siempre datos ya confirmados.
+ */
+@Component
+public class GestorBloqueos {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+
+    public GestorBloqueos(@Value("${biblioteca.prestamos.franjas-bloqueo:1024}") int numeroFranjas) {
+        if (numeroFranjas <= 0) {
+            throw new IllegalArgumentException("El número de franjas de bloqueo debe ser positivo");
+        }
+        // Se redondea a potencia de dos para calcular la franja con una máscara
+        int tamanio = numeroFranjas == 1 ? 1 : Integer.highestOneBit(numeroFranjas - 1) << 1;
+        this.franjas = new ReentrantLock[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            this.franjas[i] = new ReentrantLock();
+        }
+        this.mascara = tamanio - 1;
+    }
+
+    /**
+     * Bloquea el libro y el usuario indicados hasta el final de la transacción actual
+     * @param usuarioId el ID del usuario (opcional)
+     * @param libroId el ID del libro (opcional)
+     */
+    public void bloquear(Long usuarioId, Long libroId) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        if (usuarioId != null) {
+            indices.add(franjaUsuario(usuarioId));
+        }
+        if (libroId != null) {
+            indices.add(franjaLibro(libroId));
+        }
+        adquirir(indices);
+    }
+
+    /**
+     * Bloquea todos los usuarios y libros indicados hasta el final de la transacción actual
+     * @param usuarioIds IDs de usuarios
+     * @param libroIds IDs de libros
+     */
+    public void bloquearTodos(Collection<Long> usuarioIds, Collection<Long> libroIds) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        usuarioIds.forEach(id -> indices.add(franjaUsuario(id)));
+        libroIds.forEach(id -> indices.add(franjaLibro(id)));
+        adquirir(indices);
+    }
+
+    /**
+     * Número de franjas disponibles
+     * @return el número de franjas
+     */
+    public int getNumeroFranjas() {
+        return franjas.length;
+    }
+
+    private void adquirir(TreeSet<Integer> indices) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Los bloqueos de préstamo requieren una transacción activa");
+        }
+
+        // Se adquieren siempre en orden ascendente de franja para evitar interbloqueos
+        for (Integer indice : indices) {
+            franjas[indice].lock();
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (Integer indice : indices.descendingSet()) {
+                    franjas[indice].unlock();
+                }
+            }
+        });
+    }
+
+    private int franjaLibro(long libroId) {
+        return mezclar(libroId * 2) & mascara;
+    }
+
+    private int franjaUsuario(long usuarioId) {
+        return mezclar(usuarioId * 2 + 1) & mascara;
+    }
+
+    /**
+     * Dispersa el identificador para que IDs consecutivos no caigan en franjas contiguas
+     */
+    private static int mezclar(long valor) {
+        long h = valor * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 32);
+        return (int) h;
+    }
+}
@@ -0,0 +1,259 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cálculo y comprobación de contraseñas con bcrypt en un grupo de hilos propio y acotado.
+ * Así el coste de bcrypt no ocupa los hilos de Tomcat: éstos sólo esperan el resultado, y
+ * cuando la cola está llena se rechaza la petición en lugar de acumularla.
+ *
+ * Si el resultado no llega a tiempo, la operación se saca de la cola y no llega a empezar. Una
+ * que ya ha empezado no se puede parar (bcrypt no atiende a las interrupciones): su hilo sigue
+ * ocupado hasta terminarla, así que agotar la espera libera al hilo de Tomcat pero no la CPU.
+ *
+ * El factor de trabajo se calibra al arrancar para que un hash tarde como mucho la latencia
+ * objetivo. Las contraseñas antiguas (en claro o con un coste menor) se vuelven a calcular
+ * en segundo plano tras un login correcto.
+ */
+@Component
+public class GestorContrasenias {
+
+    private static final Logger log = LoggerFactory.getLogger(GestorContrasenias.class);
+
+    private static final Pattern HASH_BCRYPT = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$[./A-Za-z0-9]{53}$");
+    private static final int COSTE_MAXIMO = 16;
+    private static final int LONGITUD_MINIMA = 6;
+    private static final int BYTES_MAXIMOS = 72;
+
+    private final UsuarioRepository usuarioRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor ejecutor;
+    private final long esperaMaximaMs;
+    private final int coste;
+    private final BCryptPasswordEncoder codificador;
+
+    private final Counter rechazadas;
+    private final Counter actualizadas;
+    private final Timer duracionHash;
+
+    public GestorContrasenias(UsuarioRepository usuarioRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${biblioteca.contrasenias.hilos:0}") int hilos,
+                              @Value("${biblioteca.contrasenias.cola:64}") int cola,
+                              @Value("${biblioteca.contrasenias.espera-maxima-ms:5000}") long esperaMaximaMs,
+                              @Value("${biblioteca.contrasenias.latencia-objetivo-ms:100}") long latenciaObjetivoMs,
+                              @Value("${biblioteca.contrasenias.coste-minimo:10}") int costeMinimo) {
+        if (cola <= 0 || esperaMaximaMs <= 0) {
+            throw new IllegalArgumentException("La cola y la espera máxima de contraseñas deben ser positivas");
+        }
+        if (costeMinimo < 4 || costeMinimo > COSTE_MAXIMO) {
+            throw new IllegalArgumentException("El coste mínimo de bcrypt debe estar entre 4 y " + COSTE_MAXIMO);
+        }
+        this.usuarioRepository = usuarioRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.coste = calibrar(costeMinimo, latenciaObjetivoMs);
+        this.codificador = new BCryptPasswordEncoder(coste);
+
+        // Por defecto, la mitad de los núcleos: el resto queda libre para atender peticiones
+        int numeroHilos = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.ejecutor = new ThreadPoolExecutor(numeroHilos, numeroHilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola), new CustomizableThreadFactory("contrasenias-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.rechazadas = Counter.builder("biblioteca.contrasenias.rechazadas")
+                .description("Operaciones de contraseña rechazadas por tener la cola llena o tardar demasiado")
+                .register(meterRegistry);
+        this.actualizadas = Counter.builder("biblioteca.contrasenias.actualizadas")
+                .description("Contraseñas antiguas recalculadas con el coste actual")
+                .register(meterRegistry);
+        this.duracionHash = Timer.builder("biblioteca.contrasenias.hash")
+                .description("Duración de cada cálculo de bcrypt")
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.contrasenias.cola", ejecutor, e -> e.getQueue().size())
+                .description("Operaciones de contraseña en espera")
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.contrasenias.coste", () -> coste)
+                .description("Factor de trabajo de bcrypt calibrado al arrancar")
+                .register(meterRegistry);
+        log.info("Contraseñas: bcrypt con coste {}, {} hilos y cola de {}", coste, numeroHilos, cola);
+    }
+
+    /**
+     * Calcula el hash de una contraseña nueva
+     * @param contrasenia la contraseña en claro
+     * @return el hash bcrypt
+     * @throws IllegalArgumentException si la contraseña es demasiado corta o larga
+     * @throws ServicioSaturadoException si no se puede atender ahora
+     */
+    public String codificar(String contrasenia) {
+        if (contrasenia == null || contrasenia.length() < LONGITUD_MINIMA) {
+            throw new IllegalArgumentException("La contraseña debe tener al menos " + LONGITUD_MINIMA + " caracteres");
+        }
+        if (contrasenia.getBytes(StandardCharsets.UTF_8).length > BYTES_MAXIMOS) {
+            throw new IllegalArgumentException("La contraseña no puede exceder " + BYTES_MAXIMOS + " bytes");
+        }
+        return ejecutar(() -> codificador.encode(contrasenia));
+    }
+
+    /**
+     * Comprueba una contraseña contra la guardada, que puede ser un hash bcrypt o,
+     * en usuarios antiguos, la contraseña en claro
+     * @param contrasenia la contraseña en claro
+     * @param guardada la contraseña guardada
+     * @return true si coinciden
+     * @throws ServicioSaturadoException si no se puede atender ahora
+     */
+    public boolean coincide(String contrasenia, String guardada) {
+        if (contrasenia == null || guardada == null) {
+            return false;
+        }
+        if (!HASH_BCRYPT.matcher(guardada).matches()) {
+            return MessageDigest.isEqual(contrasenia.getBytes(StandardCharsets.UTF_8),
+                    guardada.getBytes(StandardCharsets.UTF_8));
+        }
+        return ejecutar(() -> codificador.matches(contrasenia, guardada));
+    }
+
+    /**
+     * Indica si la contraseña guardada está en claro o con un coste menor que el actual
+     * @param guardada la contraseña guardada
+     * @return true si conviene volver a calcularla
+     */
+    public boolean necesitaActualizacion(String guardada) {
+        Matcher hash = HASH_BCRYPT.matcher(guardada);
+        return !hash.matches() || Integer.parseInt(hash.group(1)) < coste;
+    }
+
+    /**
+     * Vuelve a calcular en segundo plano la contraseña de un usuario tras un login correcto.
+     * Sólo se guarda si la contraseña no ha cambiado entretanto; si la cola está llena se
+     * deja para el siguiente login.
+     * @param usuarioId el ID del usuario
+     * @param contrasenia la contraseña en claro ya comprobada
+     * @param guardada la contraseña guardada que se sustituye
+     */
+    public void actualizarEnSegundoPlano(Long usuarioId, String contrasenia, String guardada) {
+        try {
+            ejecutor.execute(() -> {
+                String nueva = calcular(() -> codificador.encode(contrasenia));
+                boolean actualizada = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        usuarioRepository.findById(usuarioId)
+                                .filter(usuario -> guardada.equals(usuario.getPassword()))
+                                .map(usuario -> {
+                                    usuario.setPassword(nueva);
+                                    return true;
+                                })
+                                .orElse(false)));
+                if (actualizada) {
+                    actualizadas.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Cola de contraseñas llena; la contraseña del usuario {} se actualizará más adelante", usuarioId);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdown();
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        FutureTask<T> resultado = new FutureTask<>(() -> calcular(tarea));
+        try {
+            ejecutor.execute(resultado);
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            throw new ServicioSaturadoException("Hay demasiadas operaciones de contraseña en curso; inténtelo más tarde");
+        }
+        try {
+            return resultado.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandonar(resultado);
+            rechazadas.increment();
+            throw new ServicioSaturadoException("La operación de contraseña ha tardado demasiado; inténtelo más tarde");
+        } catch (InterruptedException e) {
+            abandonar(resultado);
+            Thread.currentThread().interrupt();
+            throw new ServicioSaturadoException("La operación de contraseña se ha interrumpido");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al calcular la contraseña", e.getCause());
+        }
+    }
+
+    /**
+     * Cancela una operación cuyo resultado ya nadie espera. Si aún estaba en la cola no se
+     * ejecutará y se saca para que no ocupe un hueco; si ya había empezado, termina igualmente.
+     */
+    private void abandonar(FutureTask<?> resultado) {
+        resultado.cancel(false);
+        ejecutor.remove(resultado);
+    }
+
+    private <T> T calcular(Callable<T> tarea) {
+        try {
+            return duracionHash.recordCallable(tarea);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sube el coste desde el mínimo mientras el siguiente (que tarda el doble) siga dentro
+     * de la latencia objetivo
+     */
+    private static int calibrar(int costeMinimo, long latenciaObjetivoMs) {
+        // Calentamiento para que la primera medida no incluya la compilación JIT
+        BCryptPasswordEncoder calentamiento = new BCryptPasswordEncoder(4);
+        for (int i = 0; i < 20; i++) {
+            calentamiento.encode("calibracion");
+        }
+        int coste = costeMinimo;
+        long duracionMs = medir(coste);
+        while (coste < COSTE_MAXIMO && duracionMs * 2 <= latenciaObjetivoMs) {
+            coste++;
+            duracionMs = medir(coste);
+        }
+        log.info("Coste de bcrypt calibrado en {} ({} ms por hash, objetivo {} ms)", coste, duracionMs, latenciaObjetivoMs);
+        return coste;
+    }
+
+    private static long medir(int coste) {
+        long inicio = System.nanoTime();
+        new BCryptPasswordEncoder(coste).encode("calibracion");
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
+}
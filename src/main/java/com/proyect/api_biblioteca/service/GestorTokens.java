@@ -0,0 +1,255 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.dto.SesionDTO;
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Emite y verifica tokens de sesión firmados con HMAC-SHA256.
+ *
+ * Un token son 26 bytes de datos (ID del usuario, emisión, caducidad, tipo y estado) y su
+ * firma, ambos en Base64 URL sin relleno y separados por un punto. La verificación sólo usa
+ * CPU: decodifica sobre buffers reutilizados por hilo y compara la firma en tiempo constante,
+ * sin consultar la base de datos.
+ *
+ * Como los tokens no se guardan, para invalidarlos antes de su caducidad se anota el instante
+ * en que se revocaron los de un usuario (al desactivarlo, cambiar su tipo o eliminarlo). Cada
+ * anotación se descarta cuando ya han caducado todos los tokens emitidos antes de ella.
+ */
+@Component
+public class GestorTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(GestorTokens.class);
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final int BYTES_DATOS = 26;
+    private static final int BYTES_FIRMA = 32;
+    private static final int LONGITUD_DATOS = 35;
+    private static final int LONGITUD_FIRMA = 43;
+    private static final int LONGITUD_TOKEN = LONGITUD_DATOS + 1 + LONGITUD_FIRMA;
+    private static final int BYTES_CLAVE_MINIMOS = 32;
+
+    private static final TipoUsuario[] TIPOS = TipoUsuario.values();
+    private static final EstadoUsuario[] ESTADOS = EstadoUsuario.values();
+    private static final byte[] DECODIFICACION = new byte[128];
+
+    static {
+        Arrays.fill(DECODIFICACION, (byte) -1);
+        String alfabeto = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alfabeto.length(); i++) {
+            DECODIFICACION[alfabeto.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec clave;
+    private final long duracionMs;
+    private final LongSupplier reloj;
+    private final ThreadLocal<Verificador> verificadores;
+    private final Map<Long, Long> revocados = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GestorTokens(@Value("${biblioteca.auth.token.clave:}") String claveBase64,
+                        @Value("${biblioteca.auth.token.duracion:PT8H}") Duration duracion) {
+        this(claveBase64, duracion, System::currentTimeMillis);
+    }
+
+    /**
+     * @param reloj instante actual en milisegundos (las pruebas lo controlan)
+     */
+    GestorTokens(String claveBase64, Duration duracion, LongSupplier reloj) {
+        if (duracion.isNegative() || duracion.isZero()) {
+            throw new IllegalArgumentException("La duración de los tokens debe ser positiva");
+        }
+        byte[] bytesClave;
+        if (claveBase64 == null || claveBase64.isBlank()) {
+            // Sin clave configurada los tokens dejan de ser válidos al reiniciar
+            log.warn("No se ha configurado biblioteca.auth.token.clave; se usa una clave aleatoria");
+            bytesClave = new byte[BYTES_CLAVE_MINIMOS];
+            new SecureRandom().nextBytes(bytesClave);
+        } else {
+            bytesClave = Base64.getDecoder().decode(claveBase64.trim());
+            if (bytesClave.length < BYTES_CLAVE_MINIMOS) {
+                throw new IllegalArgumentException("La clave de los tokens debe tener al menos "
+                        + BYTES_CLAVE_MINIMOS + " bytes");
+            }
+        }
+        this.clave = new SecretKeySpec(bytesClave, ALGORITMO);
+        this.duracionMs = duracion.toMillis();
+        this.reloj = reloj;
+        this.verificadores = ThreadLocal.withInitial(() -> new Verificador(crearMac()));
+    }
+
+    /**
+     * Emite un token para el usuario
+     * @param usuario el usuario autenticado
+     * @return el token firmado
+     */
+    public String emitir(Usuario usuario) {
+        long emitido = reloj.getAsLong();
+        byte[] datos = new byte[BYTES_DATOS];
+        escribirLong(datos, 0, usuario.getId());
+        escribirLong(datos, 8, emitido);
+        escribirLong(datos, 16, emitido + duracionMs);
+        datos[24] = (byte) usuario.getTipoUsuario().ordinal();
+        datos[25] = (byte) usuario.getEstado().ordinal();
+
+        Verificador verificador = verificadores.get();
+        verificador.mac.update(datos);
+        byte[] firma = verificador.mac.doFinal();
+        Base64.Encoder codificador = Base64.getUrlEncoder().withoutPadding();
+        return codificador.encodeToString(datos) + "." + codificador.encodeToString(firma);
+    }
+
+    /**
+     * Verifica un token sin consultar la base de datos
+     * @param token el token
+     * @return los datos de la sesión, o null si el token no es válido, ha caducado o está revocado
+     */
+    public SesionDTO verificar(String token) {
+        if (token == null || token.length() != LONGITUD_TOKEN || token.charAt(LONGITUD_DATOS) != '.') {
+            return null;
+        }
+        Verificador verificador = verificadores.get();
+        byte[] datos = verificador.datos;
+        if (!decodificar(token, 0, LONGITUD_DATOS, datos)
+                || !decodificar(token, LONGITUD_DATOS + 1, LONGITUD_FIRMA, verificador.firma)) {
+            return null;
+        }
+
+        try {
+            verificador.mac.update(datos, 0, BYTES_DATOS);
+            verificador.mac.doFinal(verificador.esperada, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se ha podido calcular la firma del token", e);
+        }
+        if (!MessageDigest.isEqual(verificador.firma, verificador.esperada)) {
+            return null;
+        }
+
+        long id = leerLong(datos, 0);
+        long emitido = leerLong(datos, 8);
+        long expira = leerLong(datos, 16);
+        int tipo = datos[24];
+        int estado = datos[25];
+        if (reloj.getAsLong() >= expira || tipo < 0 || tipo >= TIPOS.length
+                || estado < 0 || estado >= ESTADOS.length) {
+            return null;
+        }
+        if (!revocados.isEmpty()) {
+            Long revocado = revocados.get(id);
+            if (revocado != null && emitido <= revocado) {
+                return null;
+            }
+        }
+        return new SesionDTO(id, TIPOS[tipo], ESTADOS[estado], emitido, expira);
+    }
+
+    /**
+     * Invalida todos los tokens emitidos hasta ahora para el usuario
+     * @param usuarioId el ID del usuario
+     */
+    public void revocar(Long usuarioId) {
+        revocados.put(usuarioId, reloj.getAsLong());
+    }
+
+    /**
+     * Número de usuarios con tokens revocados que aún no han caducado
+     */
+    public int getRevocados() {
+        return revocados.size();
+    }
+
+    /**
+     * Descarta las revocaciones anteriores a la duración de un token: todos los tokens
+     * que invalidaban ya han caducado.
+     */
+    @Scheduled(fixedDelayString = "${biblioteca.auth.token.intervalo-limpieza-ms:600000}")
+    public void limpiarRevocados() {
+        long limite = reloj.getAsLong() - duracionMs;
+        revocados.values().removeIf(revocado -> revocado < limite);
+    }
+
+    private Mac crearMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se ha podido inicializar " + ALGORITMO, e);
+        }
+    }
+
+    /**
+     * Decodifica Base64 URL sin relleno. Rechaza los caracteres fuera del alfabeto y los bits
+     * sobrantes distintos de cero, para que cada token tenga una única representación.
+     */
+    private static boolean decodificar(String texto, int desde, int longitud, byte[] destino) {
+        int salida = 0;
+        int acumulado = 0;
+        int bits = 0;
+        for (int i = desde; i < desde + longitud; i++) {
+            char c = texto.charAt(i);
+            int valor = c < 128 ? DECODIFICACION[c] : -1;
+            if (valor < 0) {
+                return false;
+            }
+            acumulado = (acumulado << 6) | valor;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                destino[salida++] = (byte) (acumulado >>> bits);
+                acumulado &= (1 << bits) - 1;
+            }
+        }
+        return acumulado == 0;
+    }
+
+    private static void escribirLong(byte[] destino, int desde, long valor) {
+        for (int i = 7; i >= 0; i--) {
+            destino[desde + i] = (byte) valor;
+            valor >>>= 8;
+        }
+    }
+
+    private static long leerLong(byte[] origen, int desde) {
+        long valor = 0;
+        for (int i = 0; i < 8; i++) {
+            valor = (valor << 8) | (origen[desde + i] & 0xFF);
+        }
+        return valor;
+    }
+
+    /**
+     * Mac y buffers de un hilo, reutilizados en cada verificación
+     */
+    private static final class Verificador {
+
+        final Mac mac;
+        final byte[] datos = new byte[BYTES_DATOS];
+        final byte[] firma = new byte[BYTES_FIRMA];
+        final byte[] esperada = new byte[BYTES_FIRMA];
+
+        Verificador(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
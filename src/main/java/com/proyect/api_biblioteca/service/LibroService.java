@@ -1,14 +1,37 @@
 package com.proyect.api_biblioteca.service;
 
+import com.proyect.api_biblioteca.busqueda.IndiceEstadoLibros;
+import com.proyect.api_biblioteca.busqueda.IndiceInvertido;
+import com.proyect.api_biblioteca.busqueda.IndiceIsbn;
+import com.proyect.api_biblioteca.busqueda.IndiceLibros;
+import com.proyect.api_biblioteca.busqueda.MapaBits;
+import com.proyect.api_biblioteca.busqueda.SugerenciasLibros;
+import com.proyect.api_biblioteca.busqueda.TrieSugerencias;
+import com.proyect.api_biblioteca.dto.BusquedaLibrosDTO;
+import com.proyect.api_biblioteca.dto.FacetaDTO;
+import com.proyect.api_biblioteca.dto.PaginaDTO;
+import com.proyect.api_biblioteca.dto.SugerenciaDTO;
 import com.proyect.api_biblioteca.model.entity.Libro;
 import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.repository.ClaveNaturalRepository;
 import com.proyect.api_biblioteca.repository.LibroRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Servicio que maneja la lógica de negocio para la entidad Libro
@@ -20,6 +43,39 @@ public class LibroService {
     @Autowired
     private LibroRepository libroRepository;
     
+    @Autowired
+    private ClaveNaturalRepository claveNaturalRepository;
+    
+    @Autowired
+    private EstadisticasService estadisticasService;
+    
+    @Autowired
+    private IndiceLibros indiceLibros;
+    
+    @Autowired
+    private SugerenciasLibros sugerenciasLibros;
+    
+    @Autowired
+    private IndiceIsbn indiceIsbn;
+    
+    @Autowired
+    private IndiceEstadoLibros indiceEstadoLibros;
+    
+    // IDs por consulta al cargar los libros encontrados en el índice
+    private static final int BLOQUE_CARGA = 1000;
+    
+    // Autores como máximo en la faceta de autor de la búsqueda
+    private static final int MAXIMO_AUTORES_FACETA = 100;
+    
+    // ISBN por petición de resolución en bloque
+    private static final int MAXIMO_ISBN_POR_RESOLUCION = 1000;
+    
+    // Campos por los que se puede ordenar la paginación
+    private static final Paginacion PAGINACION = new Paginacion(Map.of(
+            "titulo", valor -> valor,
+            "autor", valor -> valor,
+            "anioPublicacion", Integer::valueOf));
+    
     /**
      * Obtiene todos los libros
      * @return lista de todos los libros
@@ -29,6 +85,22 @@ public class LibroService {
         return libroRepository.findAll();
     }
     
+    /**
+     * Obtiene una página de libros paginando por cursor
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param tamanio número de elementos por página
+     * @param orden campo de orden (id, titulo, autor, anioPublicacion)
+     * @param direccion "asc" o "desc"
+     * @return la página solicitada
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<Libro> findPagina(String cursor, Integer tamanio, String orden, String direccion) {
+        Paginacion.Consulta consulta = PAGINACION.consulta(cursor, tamanio, orden, direccion);
+        Window<Libro> ventana = libroRepository.findBy(consulta.getPosicion(), consulta.getOrden(), consulta.getLimite());
+        return PAGINACION.pagina(consulta, ventana, Function.identity());
+    }
+    
     /**
      * Busca un libro por su ID
      * @param id el ID del libro
@@ -47,33 +119,64 @@ public class LibroService {
      */
     public Libro save(Libro libro) {
         // Verificar si el ISBN ya existe
-        if (libro.getId() == null && libroRepository.existsByIsbn(libro.getIsbn())) {
+        if (libro.getId() == null && existsByIsbn(libro.getIsbn())) {
             throw new IllegalArgumentException("Ya existe un libro con el ISBN: " + libro.getIsbn());
         }
         
-        return libroRepository.save(libro);
+        Optional<Libro> anterior = libro.getId() == null ? Optional.empty() : libroRepository.findById(libro.getId());
+        EstadoLibro estadoAnterior = anterior.map(Libro::getEstado).orElse(null);
+        IndiceLibros.Entrada entradaAnterior = IndiceLibros.Entrada.de(anterior.orElse(null));
+        Libro guardado = libroRepository.save(libro);
+        estadisticasService.registrarLibro(estadoAnterior, guardado.getEstado());
+        IndiceLibros.Entrada entradaNueva = IndiceLibros.Entrada.de(guardado);
+        indiceLibros.registrar(entradaAnterior, entradaNueva);
+        sugerenciasLibros.registrar(entradaAnterior, entradaNueva);
+        indiceIsbn.registrar(entradaAnterior, entradaNueva);
+        indiceEstadoLibros.registrar(guardado);
+        return guardado;
     }
     
     /**
-     * Actualiza un libro existente
+     * Actualiza un libro existente.
+     * Si el cliente envía la versión, debe coincidir con la versión actual del libro.
      * @param id el ID del libro a actualizar
      * @param libro los nuevos datos del libro
      * @return el libro actualizado
      * @throws IllegalArgumentException si el libro no existe o el ISBN ya está en uso
+     * @throws VersionObsoletaException si la versión enviada no es la actual
      */
+    @ReintentarSiConflicto
     public Libro update(Long id, Libro libro) {
-        if (!libroRepository.existsById(id)) {
-            throw new IllegalArgumentException("No existe un libro con el ID: " + id);
+        Libro libroActual = libroRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("No existe un libro con el ID: " + id));
+        
+        if (libro.getVersion() != null && !libro.getVersion().equals(libroActual.getVersion())) {
+            throw new VersionObsoletaException(Libro.class, id, libro.getVersion(), libroActual.getVersion());
         }
         
         // Verificar si el ISBN ya existe en otro libro
-        Optional<Libro> libroExistente = libroRepository.findByIsbn(libro.getIsbn());
-        if (libroExistente.isPresent() && !libroExistente.get().getId().equals(id)) {
+        long libroExistente = buscarIdPorIsbn(libro.getIsbn());
+        if (libroExistente != IndiceIsbn.AUSENTE && libroExistente != id) {
             throw new IllegalArgumentException("Ya existe otro libro con el ISBN: " + libro.getIsbn());
         }
         
-        libro.setId(id);
-        return libroRepository.save(libro);
+        // Copiar los datos sobre la entidad gestionada para que se compruebe su versión
+        IndiceLibros.Entrada entradaAnterior = IndiceLibros.Entrada.de(libroActual);
+        estadisticasService.registrarLibro(libroActual.getEstado(), libro.getEstado());
+        libroActual.setTitulo(libro.getTitulo());
+        libroActual.setAutor(libro.getAutor());
+        libroActual.setDescripcion(libro.getDescripcion());
+        libroActual.setAnioPublicacion(libro.getAnioPublicacion());
+        libroActual.setIsbn(libro.getIsbn());
+        libroActual.setNumeroPaginas(libro.getNumeroPaginas());
+        libroActual.setEstado(libro.getEstado());
+        Libro guardado = libroRepository.save(libroActual);
+        IndiceLibros.Entrada entradaNueva = IndiceLibros.Entrada.de(guardado);
+        indiceLibros.registrar(entradaAnterior, entradaNueva);
+        sugerenciasLibros.registrar(entradaAnterior, entradaNueva);
+        indiceIsbn.registrar(entradaAnterior, entradaNueva);
+        indiceEstadoLibros.registrar(guardado);
+        return guardado;
     }
     
     /**
@@ -82,10 +185,15 @@ public class LibroService {
      * @throws IllegalArgumentException si el libro no existe
      */
     public void deleteById(Long id) {
-        if (!libroRepository.existsById(id)) {
-            throw new IllegalArgumentException("No existe un libro con el ID: " + id);
-        }
-        libroRepository.deleteById(id);
+        Libro libro = libroRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("No existe un libro con el ID: " + id));
+        libroRepository.delete(libro);
+        estadisticasService.registrarLibro(libro.getEstado(), null);
+        IndiceLibros.Entrada entradaAnterior = IndiceLibros.Entrada.de(libro);
+        indiceLibros.registrar(entradaAnterior, null);
+        sugerenciasLibros.registrar(entradaAnterior, null);
+        indiceIsbn.registrar(entradaAnterior, null);
+        indiceEstadoLibros.registrarBorrado(id);
     }
     
     /**
@@ -95,7 +203,11 @@ public class LibroService {
      */
     @Transactional(readOnly = true)
     public List<Libro> findByTitulo(String titulo) {
-        return libroRepository.findByTituloContainingIgnoreCase(titulo);
+        int[] ids = indiceLibros.buscar(IndiceLibros.Campo.TITULO, titulo);
+        if (ids == null) {
+            return libroRepository.findByTituloContainingIgnoreCase(titulo);
+        }
+        return cargarPorIds(ids, null);
     }
     
     /**
@@ -105,7 +217,11 @@ public class LibroService {
      */
     @Transactional(readOnly = true)
     public List<Libro> findByAutor(String autor) {
-        return libroRepository.findByAutorContainingIgnoreCase(autor);
+        int[] ids = indiceLibros.buscar(IndiceLibros.Campo.AUTOR, autor);
+        if (ids == null) {
+            return libroRepository.findByAutorContainingIgnoreCase(autor);
+        }
+        return cargarPorIds(ids, null);
     }
     
     /**
@@ -115,7 +231,67 @@ public class LibroService {
      */
     @Transactional(readOnly = true)
     public Optional<Libro> findByIsbn(String isbn) {
-        return libroRepository.findByIsbn(isbn);
+        if (!indiceIsbn.isListo()) {
+            return claveNaturalRepository.findLibroByIsbn(isbn);
+        }
+        long id = indiceIsbn.buscar(isbn);
+        return id == IndiceIsbn.AUSENTE ? Optional.empty() : libroRepository.findById(id);
+    }
+    
+    /**
+     * Verifica si existe un libro con el ISBN indicado
+     * @param isbn el ISBN
+     * @return true si existe, false en caso contrario
+     */
+    @Transactional(readOnly = true)
+    public boolean existsByIsbn(String isbn) {
+        if (!indiceIsbn.isListo()) {
+            return claveNaturalRepository.findLibroByIsbn(isbn).isPresent();
+        }
+        return indiceIsbn.buscar(isbn) != IndiceIsbn.AUSENTE;
+    }
+    
+    /**
+     * Resuelve en bloque los IDs de los libros con los ISBN indicados
+     * @param isbns ISBN buscados (como máximo 1000)
+     * @return ID por ISBN, en el orden recibido y con null para los que no existen (se ignoran los ISBN nulos)
+     * @throws IllegalArgumentException si se envían demasiados ISBN
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> resolverIsbns(List<String> isbns) {
+        if (isbns.size() > MAXIMO_ISBN_POR_RESOLUCION) {
+            throw new IllegalArgumentException("Se pueden resolver como máximo " + MAXIMO_ISBN_POR_RESOLUCION + " ISBN por petición");
+        }
+        Map<String, Long> resueltos = new LinkedHashMap<>();
+        if (indiceIsbn.isListo()) {
+            for (String isbn : isbns) {
+                if (isbn == null) {
+                    continue;
+                }
+                long id = indiceIsbn.buscar(isbn);
+                resueltos.put(isbn, id == IndiceIsbn.AUSENTE ? null : id);
+            }
+            return resueltos;
+        }
+        
+        isbns.stream().filter(Objects::nonNull).forEach(isbn -> resueltos.put(isbn, null));
+        if (resueltos.isEmpty()) {
+            return resueltos;
+        }
+        for (Object[] fila : libroRepository.findIdsByIsbnIn(resueltos.keySet())) {
+            resueltos.put((String) fila[0], (Long) fila[1]);
+        }
+        return resueltos;
+    }
+    
+    /**
+     * ID del libro con el ISBN indicado, o IndiceIsbn.AUSENTE si no existe
+     */
+    private long buscarIdPorIsbn(String isbn) {
+        if (!indiceIsbn.isListo()) {
+            return claveNaturalRepository.findLibroByIsbn(isbn).map(Libro::getId).orElse(IndiceIsbn.AUSENTE);
+        }
+        return indiceIsbn.buscar(isbn);
     }
     
     /**
@@ -125,7 +301,11 @@ public class LibroService {
      */
     @Transactional(readOnly = true)
     public List<Libro> findByEstado(EstadoLibro estado) {
-        return libroRepository.findByEstado(estado);
+        int[] ids = indiceEstadoLibros.buscar(estado);
+        if (ids == null) {
+            return libroRepository.findByEstado(estado);
+        }
+        return cargarPorIds(ids, estado);
     }
     
     /**
@@ -134,7 +314,10 @@ public class LibroService {
      */
     @Transactional(readOnly = true)
     public List<Libro> findLibrosDisponibles() {
-        return libroRepository.findLibrosDisponibles();
+        if (!indiceEstadoLibros.isListo()) {
+            return libroRepository.findLibrosDisponibles();
+        }
+        return findByEstado(EstadoLibro.DISPONIBLE);
     }
     
     /**
@@ -143,19 +326,218 @@ public class LibroService {
      */
     @Transactional(readOnly = true)
     public List<Libro> findLibrosPrestados() {
-        return libroRepository.findLibrosPrestados();
+        if (!indiceEstadoLibros.isListo()) {
+            return libroRepository.findLibrosPrestados();
+        }
+        return findByEstado(EstadoLibro.PRESTADO);
     }
     
     /**
-     * Busca libros por múltiples criterios
+     * Busca libros por múltiples criterios.
+     * El título y el autor se resuelven con el índice de texto en memoria (cada palabra
+     * buscada debe ser el comienzo de una palabra del campo, sin distinguir acentos); mientras
+     * se construye se recorren los libros en la base de datos con la misma regla.
      * @param titulo título del libro (opcional)
      * @param autor autor del libro (opcional)
      * @param estado estado del libro (opcional)
-     * @return lista de libros que coinciden con los criterios
+     * @return lista de libros que coinciden con los criterios, ordenada por ID
      */
     @Transactional(readOnly = true)
     public List<Libro> findByCriterios(String titulo, String autor, EstadoLibro estado) {
-        return libroRepository.findByCriterios(titulo, autor, estado);
+        boolean porTitulo = titulo != null && !titulo.isBlank();
+        boolean porAutor = autor != null && !autor.isBlank();
+        if (!porTitulo && !porAutor) {
+            return libroRepository.findByCriterios(titulo, autor, estado);
+        }
+        if (!indiceLibros.isListo()) {
+            return cargarPorIds(buscarEnBaseDeDatos(fila ->
+                    (estado == null || fila[4] == estado)
+                            && (!porTitulo || IndiceLibros.coincide(titulo, (String) fila[1]))
+                            && (!porAutor || IndiceLibros.coincide(autor, (String) fila[2]))), estado);
+        }
+        
+        int[] ids = null;
+        if (porTitulo) {
+            ids = indiceLibros.buscar(IndiceLibros.Campo.TITULO, titulo);
+        }
+        if (porAutor) {
+            int[] idsAutor = indiceLibros.buscar(IndiceLibros.Campo.AUTOR, autor);
+            ids = ids == null ? idsAutor : IndiceInvertido.interseccion(ids, idsAutor);
+        }
+        if (estado != null) {
+            // Descartar antes de cargar los libros que no están en el estado pedido
+            MapaBits filtrados = indiceEstadoLibros.filtrar(estado, null, null, ids);
+            if (filtrados != null) {
+                ids = filtrados.valores();
+            }
+        }
+        return cargarPorIds(ids, estado);
+    }
+    
+    /**
+     * Busca libros en los que cada palabra del texto aparezca en el título, el autor o la descripción.
+     * Junto a la página de resultados devuelve las facetas por estado, década y autor de todos
+     * los libros encontrados, calculadas en una sola pasada sobre sus IDs.
+     * Como findByCriterios, mientras los índices en memoria se construyen la búsqueda recorre
+     * los libros en la base de datos con la misma regla y las facetas se devuelven vacías.
+     * @param texto texto buscado
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param tamanio número de elementos por página
+     * @param maximoAutores número de autores en la faceta de autor (por defecto 10)
+     * @return la página de libros encontrados, ordenada por ID, con el total y las facetas
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     */
+    @Transactional(readOnly = true)
+    public BusquedaLibrosDTO buscarTexto(String texto, String cursor, Integer tamanio, Integer maximoAutores) {
+        int limite = leerTamanio(tamanio);
+        int despuesDe = leerCursor(cursor);
+        int autores = maximoAutores == null ? 10 : maximoAutores;
+        if (autores < 1 || autores > MAXIMO_AUTORES_FACETA) {
+            throw new IllegalArgumentException("El número de autores debe estar entre 1 y " + MAXIMO_AUTORES_FACETA);
+        }
+        int[] ids = indiceLibros.buscarEnTodos(texto);
+        if (ids == null) {
+            ids = buscarEnBaseDeDatos(fila ->
+                    IndiceLibros.coincide(texto, (String) fila[1], (String) fila[2], (String) fila[3]));
+        }
+        Map<String, List<FacetaDTO>> facetas = indiceEstadoLibros.facetas(ids, autores);
+        if (facetas == null) {
+            facetas = Map.of();
+        }
+        
+        int desde = Arrays.binarySearch(ids, despuesDe + 1);
+        desde = desde >= 0 ? desde : -desde - 1;
+        int[] idsPagina = Arrays.copyOfRange(ids, desde, Math.min(ids.length, desde + limite + 1));
+        boolean hayMas = idsPagina.length > limite;
+        List<Libro> libros = cargarPorIds(hayMas ? Arrays.copyOf(idsPagina, limite) : idsPagina, null);
+        BusquedaLibrosDTO busqueda = new BusquedaLibrosDTO(libros, hayMas ? String.valueOf(idsPagina[limite - 1]) : null, facetas);
+        busqueda.setTotal((long) ids.length);
+        return busqueda;
+    }
+    
+    /**
+     * IDs ordenados de los libros que cumplen el filtro, recorriendo la tabla sin cargar entidades.
+     * Sustituye al índice de texto mientras se construye, con la regla de IndiceLibros.coincide
+     * @param filtro recibe cada fila [id, titulo, autor, descripcion, estado]
+     */
+    private int[] buscarEnBaseDeDatos(Predicate<Object[]> filtro) {
+        try (Stream<Object[]> filas = libroRepository.streamTextos()) {
+            return filas.filter(filtro)
+                    .mapToInt(fila -> Math.toIntExact((Long) fila[0]))
+                    .toArray();
+        }
+    }
+    
+    /**
+     * Filtra libros combinando estado, rango de años de publicación y texto, intersectando
+     * los índices en memoria. Los resultados se devuelven por ID ascendente.
+     * @param estado estado del libro (opcional)
+     * @param anioDesde año de publicación mínimo, incluido (opcional)
+     * @param anioHasta año de publicación máximo, incluido (opcional)
+     * @param texto palabras que deben aparecer en título, autor o descripción (opcional)
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param tamanio número de elementos por página
+     * @return la página solicitada, con el total de libros que cumplen los filtros
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     * @throws IllegalStateException si los índices aún no están disponibles
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<Libro> filtrar(EstadoLibro estado, Integer anioDesde, Integer anioHasta, String texto,
+                                    String cursor, Integer tamanio) {
+        int limite = leerTamanio(tamanio);
+        int despuesDe = leerCursor(cursor);
+        if (anioDesde != null && anioHasta != null && anioDesde > anioHasta) {
+            throw new IllegalArgumentException("El año inicial no puede ser posterior al año final");
+        }
+        
+        int[] candidatos = null;
+        if (texto != null && !texto.isBlank()) {
+            candidatos = indiceLibros.buscarEnTodos(texto);
+            if (candidatos == null) {
+                throw new IllegalStateException("El índice de búsqueda aún no está disponible");
+            }
+        }
+        MapaBits resultado = indiceEstadoLibros.filtrar(estado, anioDesde, anioHasta, candidatos);
+        if (resultado == null) {
+            throw new IllegalStateException("El índice de estados aún no está disponible");
+        }
+        
+        // Se pide uno más para saber si hay otra página
+        int[] ids = resultado.siguientes(despuesDe, limite + 1);
+        boolean hayMas = ids.length > limite;
+        List<Libro> libros = cargarPorIds(hayMas ? Arrays.copyOf(ids, limite) : ids, null);
+        String siguienteCursor = hayMas ? String.valueOf(ids[limite - 1]) : null;
+        PaginaDTO<Libro> pagina = new PaginaDTO<>(libros, siguienteCursor);
+        pagina.setTotal((long) resultado.cardinalidad());
+        return pagina;
+    }
+    
+    /**
+     * Sugerencias de autocompletado de títulos y autores, ordenadas por número de préstamos
+     * @param texto texto escrito por el usuario
+     * @param limite número máximo de sugerencias (por defecto 10)
+     * @return sugerencias de más a menos popular
+     * @throws IllegalArgumentException si el límite no es válido
+     * @throws IllegalStateException si las sugerencias aún no están disponibles
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<SugerenciaDTO> sugerir(String texto, Integer limite) {
+        int maximo = limite == null ? 10 : limite;
+        if (maximo < 1 || maximo > TrieSugerencias.MAXIMO_SUGERENCIAS) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + TrieSugerencias.MAXIMO_SUGERENCIAS);
+        }
+        List<SugerenciaDTO> sugerencias = sugerenciasLibros.sugerir(texto, maximo);
+        if (sugerencias == null) {
+            throw new IllegalStateException("Las sugerencias aún no están disponibles");
+        }
+        return sugerencias;
+    }
+    
+    /**
+     * Tamaño de página de las consultas resueltas con los índices en memoria
+     */
+    private static int leerTamanio(Integer tamanio) {
+        int limite = tamanio == null ? Paginacion.TAMANIO_POR_DEFECTO : tamanio;
+        if (limite < 1 || limite > Paginacion.TAMANIO_MAXIMO) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + Paginacion.TAMANIO_MAXIMO);
+        }
+        return limite;
+    }
+    
+    /**
+     * Último ID de la página anterior en las consultas paginadas por ID (-1 si es la primera)
+     */
+    private static int leerCursor(String cursor) {
+        if (cursor == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+    }
+    
+    /**
+     * Carga los libros encontrados en el índice, en bloques de IDs
+     * @param ids IDs ordenados
+     * @param estado estado requerido (opcional)
+     * @return libros encontrados, ordenados por ID
+     */
+    private List<Libro> cargarPorIds(int[] ids, EstadoLibro estado) {
+        List<Libro> libros = new ArrayList<>(ids.length);
+        for (int desde = 0; desde < ids.length; desde += BLOQUE_CARGA) {
+            List<Long> bloque = Arrays.stream(ids, desde, Math.min(ids.length, desde + BLOQUE_CARGA))
+                    .mapToObj(Long::valueOf)
+                    .toList();
+            for (Libro libro : libroRepository.findAllById(bloque)) {
+                if (estado == null || libro.getEstado() == estado) {
+                    libros.add(libro);
+                }
+            }
+        }
+        libros.sort(Comparator.comparing(Libro::getId));
+        return libros;
     }
     
     /**
@@ -165,12 +547,16 @@ public class LibroService {
      * @return el libro actualizado
      * @throws IllegalArgumentException si el libro no existe
      */
+    @ReintentarSiConflicto
     public Libro cambiarEstado(Long id, EstadoLibro nuevoEstado) {
         Libro libro = libroRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("No existe un libro con el ID: " + id));
         
+        estadisticasService.registrarLibro(libro.getEstado(), nuevoEstado);
         libro.setEstado(nuevoEstado);
-        return libroRepository.save(libro);
+        Libro guardado = libroRepository.save(libro);
+        indiceEstadoLibros.registrar(guardado);
+        return guardado;
     }
     
     /**
@@ -180,7 +566,8 @@ public class LibroService {
      */
     @Transactional(readOnly = true)
     public long countByEstado(EstadoLibro estado) {
-        return libroRepository.countByEstado(estado);
+        long total = indiceEstadoLibros.contar(estado);
+        return total >= 0 ? total : libroRepository.countByEstado(estado);
     }
     
     /**
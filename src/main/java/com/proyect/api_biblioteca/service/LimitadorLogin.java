@@ -0,0 +1,144 @@
+package com.proyect.api_biblioteca.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limitador de intentos de login por email y por IP con cubos de fichas (token bucket).
+ *
+ * El estado de cada cubo es un único long, actualizado con compare-and-set: los 40 bits altos
+ * guardan el instante de la última recarga en milisegundos y los 24 bajos las milésimas de
+ * ficha disponibles. Los cubos viven en cachés Caffeine con tamaño máximo y caducidad por
+ * inactividad, así que una avalancha de claves distintas no hace crecer la memoria: como
+ * mucho expulsa cubos, y los de IP siguen frenando a quien prueba muchos emails.
+ */
+@Component
+public class LimitadorLogin {
+
+    private static final int BITS_FICHAS = 24;
+    private static final long MASCARA_FICHAS = (1L << BITS_FICHAS) - 1;
+    private static final long MILESIMAS = 1000;
+
+    private final Limite porEmail;
+    private final Limite porIp;
+    private final LongSupplier reloj;
+
+    @Autowired
+    public LimitadorLogin(MeterRegistry meterRegistry,
+                          @Value("${biblioteca.login.limite.email.capacidad:5}") int capacidadEmail,
+                          @Value("${biblioteca.login.limite.email.recarga-por-minuto:5}") int recargaEmail,
+                          @Value("${biblioteca.login.limite.ip.capacidad:30}") int capacidadIp,
+                          @Value("${biblioteca.login.limite.ip.recarga-por-minuto:60}") int recargaIp,
+                          @Value("${biblioteca.login.limite.maximo-claves:100000}") long maximoClaves,
+                          @Value("${biblioteca.login.limite.caducidad:PT15M}") Duration caducidad) {
+        this(meterRegistry, capacidadEmail, recargaEmail, capacidadIp, recargaIp, maximoClaves, caducidad,
+                relojMonotono());
+    }
+
+    /**
+     * @param reloj milisegundos desde un origen fijo; deben caber en los 40 bits del estado de un cubo
+     *              (las pruebas lo controlan)
+     */
+    LimitadorLogin(MeterRegistry meterRegistry, int capacidadEmail, int recargaEmail, int capacidadIp,
+                   int recargaIp, long maximoClaves, Duration caducidad, LongSupplier reloj) {
+        this.reloj = reloj;
+        this.porEmail = new Limite("email", capacidadEmail, recargaEmail, maximoClaves, caducidad, meterRegistry);
+        this.porIp = new Limite("ip", capacidadIp, recargaIp, maximoClaves, caducidad, meterRegistry);
+    }
+
+    /**
+     * Consume un intento de login para la IP y el email indicados
+     * @param email el email del intento (se normaliza)
+     * @param ip la IP del cliente (opcional)
+     * @throws LimiteExcedidoException si la IP o el email han agotado sus intentos
+     */
+    public void comprobar(String email, String ip) {
+        long ahora = reloj.getAsLong();
+        if (ip != null) {
+            porIp.consumir(ip, ahora);
+        }
+        if (email != null) {
+            porEmail.consumir(email.trim().toLowerCase(Locale.ROOT), ahora);
+        }
+    }
+
+    /**
+     * Milisegundos desde la creación, con un reloj monótono (no le afectan los cambios de hora)
+     */
+    private static LongSupplier relojMonotono() {
+        long origen = System.nanoTime();
+        return () -> (System.nanoTime() - origen) / 1_000_000;
+    }
+
+    /**
+     * Cubos de un tipo de clave con su capacidad y ritmo de recarga
+     */
+    private static final class Limite {
+
+        private final String tipo;
+        private final long capacidad;
+        private final long recargaPorMinuto;
+        private final Cache<String, AtomicLong> cubos;
+        private final Counter rechazados;
+
+        Limite(String tipo, int capacidad, int recargaPorMinuto, long maximoClaves, Duration caducidad,
+               MeterRegistry meterRegistry) {
+            if (capacidad <= 0 || (long) capacidad * MILESIMAS > MASCARA_FICHAS || recargaPorMinuto <= 0) {
+                throw new IllegalArgumentException("Límite de login por " + tipo + " no válido: capacidad "
+                        + capacidad + ", recarga " + recargaPorMinuto);
+            }
+            this.tipo = tipo;
+            this.capacidad = capacidad * MILESIMAS;
+            this.recargaPorMinuto = recargaPorMinuto;
+            this.cubos = Caffeine.newBuilder()
+                    .maximumSize(maximoClaves)
+                    .expireAfterAccess(caducidad)
+                    .build();
+            this.rechazados = Counter.builder("biblioteca.login.rechazados")
+                    .description("Intentos de login rechazados por superar el límite")
+                    .tag("clave", tipo)
+                    .register(meterRegistry);
+            Gauge.builder("biblioteca.login.limite.claves", cubos, Cache::estimatedSize)
+                    .description("Cubos de intentos de login en memoria")
+                    .tag("clave", tipo)
+                    .register(meterRegistry);
+        }
+
+        void consumir(String clave, long ahora) {
+            // Un cubo nuevo empieza lleno
+            AtomicLong cubo = cubos.get(clave, c -> new AtomicLong(ahora << BITS_FICHAS | capacidad));
+            while (true) {
+                long estado = cubo.get();
+                long instante = estado >>> BITS_FICHAS;
+                long fichas = estado & MASCARA_FICHAS;
+
+                // Milésimas de ficha recargadas desde la última vez: recargaPorMinuto * 1000 / 60000 por ms
+                long recargadas = Math.max(0, ahora - instante) * recargaPorMinuto / 60;
+                if (recargadas > 0) {
+                    fichas = Math.min(capacidad, fichas + recargadas);
+                    instante = ahora;
+                }
+                if (fichas < MILESIMAS) {
+                    long esperaMs = (MILESIMAS - fichas) * 60 / recargaPorMinuto;
+                    rechazados.increment();
+                    throw new LimiteExcedidoException("Demasiados intentos de login por " + tipo
+                            + "; inténtelo más tarde", Math.max(1, (esperaMs + 999) / 1000));
+                }
+                if (cubo.compareAndSet(estado, instante << BITS_FICHAS | (fichas - MILESIMAS))) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.proyect.api_biblioteca.service;
+
+/**
+ * Excepción lanzada cuando un cliente supera el número de intentos permitidos
+ */
+public class LimiteExcedidoException extends RuntimeException {
+
+    private final long segundosEspera;
+
+    public LimiteExcedidoException(String mensaje, long segundosEspera) {
+        // Sin traza: se lanza en cada intento rechazado y no indica un error del programa
+        super(mensaje, null, false, false);
+        this.segundosEspera = segundosEspera;
+    }
+
+    /**
+     * Segundos que el cliente debe esperar antes de reintentar
+     */
+    public long getSegundosEspera() {
+        return segundosEspera;
+    }
+}
@@ -0,0 +1,163 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.dto.PaginaDTO;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Paginación por cursor (keyset) sobre el ID y un campo de orden permitido.
+ * Cada página filtra por los valores del último elemento de la anterior en lugar de usar
+ * OFFSET, de modo que su coste no depende de la profundidad.
+ *
+ * El cursor es opaco para el cliente: codifica el campo, la dirección y los valores
+ * del último elemento devuelto.
+ */
+public final class Paginacion {
+    
+    public static final int TAMANIO_POR_DEFECTO = 20;
+    public static final int TAMANIO_MAXIMO = 200;
+    
+    private static final String CAMPO_ID = "id";
+    private static final Base64.Encoder CODIFICADOR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getUrlDecoder();
+    
+    private final Map<String, Function<String, Object>> camposOrden;
+    
+    /**
+     * @param camposOrden campos por los que se permite ordenar, con la conversión de su valor desde texto.
+     *                    Deben ser columnas no nulas; el ID se añade siempre como desempate.
+     */
+    public Paginacion(Map<String, Function<String, Object>> camposOrden) {
+        this.camposOrden = new LinkedHashMap<>(camposOrden);
+        this.camposOrden.putIfAbsent(CAMPO_ID, Long::valueOf);
+    }
+    
+    /**
+     * Resuelve los parámetros de una petición de página
+     * @param cursor cursor recibido (null para la primera página)
+     * @param tamanio tamaño solicitado (null para el valor por defecto)
+     * @param campo campo de orden (null para ordenar por ID)
+     * @param direccion "asc" o "desc" (null para ascendente)
+     * @return la consulta a ejecutar
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     */
+    public Consulta consulta(String cursor, Integer tamanio, String campo, String direccion) {
+        String campoOrden = campo == null || campo.isBlank() ? CAMPO_ID : campo;
+        if (!camposOrden.containsKey(campoOrden)) {
+            throw new IllegalArgumentException("No se puede ordenar por '" + campoOrden + "'. Campos permitidos: " + camposOrden.keySet());
+        }
+        Sort.Direction sentido = direccion == null || direccion.isBlank()
+                ? Sort.Direction.ASC
+                : Sort.Direction.fromOptionalString(direccion)
+                        .orElseThrow(() -> new IllegalArgumentException("Dirección de orden no válida: " + direccion));
+        
+        int limite = tamanio == null ? TAMANIO_POR_DEFECTO : tamanio;
+        if (limite < 1 || limite > TAMANIO_MAXIMO) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + TAMANIO_MAXIMO);
+        }
+        
+        Sort orden = Sort.by(sentido, campoOrden);
+        if (!CAMPO_ID.equals(campoOrden)) {
+            orden = orden.and(Sort.by(sentido, CAMPO_ID));
+        }
+        
+        ScrollPosition posicion = cursor == null || cursor.isBlank()
+                ? ScrollPosition.keyset()
+                : decodificar(cursor, campoOrden, sentido);
+        return new Consulta(campoOrden, sentido, orden, posicion, Limit.of(limite));
+    }
+    
+    /**
+     * Construye la página de respuesta a partir de la ventana obtenida del repositorio
+     * @param consulta la consulta ejecutada
+     * @param ventana resultado del repositorio
+     * @param conversion conversión de cada entidad al tipo devuelto
+     * @return la página con el cursor siguiente, si hay más elementos
+     */
+    public <E, T> PaginaDTO<T> pagina(Consulta consulta, Window<E> ventana, Function<E, T> conversion) {
+        List<T> elementos = ventana.getContent().stream().map(conversion).toList();
+        String siguiente = null;
+        if (ventana.hasNext() && !ventana.isEmpty()) {
+            KeysetScrollPosition posicion = (KeysetScrollPosition) ventana.positionAt(ventana.size() - 1);
+            siguiente = codificar(consulta, posicion.getKeys());
+        }
+        return new PaginaDTO<>(elementos, siguiente);
+    }
+    
+    private String codificar(Consulta consulta, Map<String, ?> claves) {
+        if (claves.get(consulta.campo) == null) {
+            // Un valor nulo no se puede comparar en la página siguiente
+            throw new IllegalStateException("El campo de orden '" + consulta.campo + "' tiene valores nulos");
+        }
+        // campo|dirección|id|valor: el valor va al final porque puede contener el separador
+        String texto = consulta.campo + "|" + consulta.sentido.name() + "|" + claves.get(CAMPO_ID)
+                + "|" + claves.get(consulta.campo);
+        return CODIFICADOR.encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private ScrollPosition decodificar(String cursor, String campo, Sort.Direction sentido) {
+        String[] partes;
+        try {
+            partes = new String(DECODIFICADOR.decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+        if (!partes[0].equals(campo) || !partes[1].equals(sentido.name())) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+        
+        Map<String, Object> claves = new LinkedHashMap<>();
+        try {
+            claves.put(campo, camposOrden.get(campo).apply(partes[3]));
+            claves.put(CAMPO_ID, Long.valueOf(partes[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+        return ScrollPosition.forward(claves);
+    }
+    
+    /**
+     * Parámetros resueltos de una petición de página
+     */
+    public static final class Consulta {
+        
+        private final String campo;
+        private final Sort.Direction sentido;
+        private final Sort orden;
+        private final ScrollPosition posicion;
+        private final Limit limite;
+        
+        private Consulta(String campo, Sort.Direction sentido, Sort orden, ScrollPosition posicion, Limit limite) {
+            this.campo = campo;
+            this.sentido = sentido;
+            this.orden = orden;
+            this.posicion = posicion;
+            this.limite = limite;
+        }
+        
+        public Sort getOrden() {
+            return orden;
+        }
+        
+        public ScrollPosition getPosicion() {
+            return posicion;
+        }
+        
+        public Limit getLimite() {
+            return limite;
+        }
+    }
+}
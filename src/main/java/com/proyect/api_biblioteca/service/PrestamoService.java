@@ -1,20 +1,38 @@
 package com.proyect.api_biblioteca.service;
 
+import com.proyect.api_biblioteca.busqueda.IndiceEstadoLibros;
+import com.proyect.api_biblioteca.busqueda.SugerenciasLibros;
+import com.proyect.api_biblioteca.dto.PaginaDTO;
+import com.proyect.api_biblioteca.dto.PrestamoDTO;
+import com.proyect.api_biblioteca.dto.ResultadoLoteDTO;
 import com.proyect.api_biblioteca.model.entity.Prestamo;
 import com.proyect.api_biblioteca.model.entity.Usuario;
 import com.proyect.api_biblioteca.model.entity.Libro;
 import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
 import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.repository.PrestamoLoteRepository;
 import com.proyect.api_biblioteca.repository.PrestamoRepository;
 import com.proyect.api_biblioteca.repository.UsuarioRepository;
 import com.proyect.api_biblioteca.repository.LibroRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Servicio que maneja la lógica de negocio para la entidad Prestamo
@@ -32,10 +50,37 @@ public class PrestamoService {
     @Autowired
     private LibroRepository libroRepository;
     
+    @Autowired
+    private PrestamoLoteRepository prestamoLoteRepository;
+    
+    @Autowired
+    private GestorBloqueos gestorBloqueos;
+    
+    @Autowired
+    private EstadisticasService estadisticasService;
+    
+    @Autowired
+    private SugerenciasLibros sugerenciasLibros;
+    
+    @Autowired
+    private IndiceEstadoLibros indiceEstadoLibros;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     // Configuración de préstamos
     private static final int DIAS_PRESTAMO = 15; // Días de duración del préstamo
     private static final int MAX_PRESTAMOS_USUARIO = 3; // Máximo de préstamos por usuario
     private static final double MULTA_POR_DIA = 1.0; // Multa por día de retraso
+    private static final int MAXIMO_POR_LOTE = 500; // Solicitudes por petición en las operaciones en lote
+    // Campos por los que se puede ordenar la paginación (columnas no nulas: la comparación
+    // por cursor descartaría las filas con fechaDevolucionEsperada nula)
+    private static final Paginacion PAGINACION = new Paginacion(Map.of(
+            "fechaPrestamo", LocalDate::parse));
+    
+    // Estados que cuentan en Usuario.prestamosActivos
+    private static final List<EstadoPrestamo> ESTADOS_SIN_DEVOLVER =
+            List.of(EstadoPrestamo.ACTIVO, EstadoPrestamo.RENOVADO, EstadoPrestamo.VENCIDO);
     
     /**
      * Obtiene todos los préstamos
@@ -46,6 +91,22 @@ public class PrestamoService {
         return prestamoRepository.findAll();
     }
     
+    /**
+     * Obtiene una página de préstamos paginando por cursor
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param tamanio número de elementos por página
+     * @param orden campo de orden (id, fechaPrestamo)
+     * @param direccion "asc" o "desc"
+     * @return la página solicitada
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<PrestamoDTO> findPagina(String cursor, Integer tamanio, String orden, String direccion) {
+        Paginacion.Consulta consulta = PAGINACION.consulta(cursor, tamanio, orden, direccion);
+        Window<Prestamo> ventana = prestamoRepository.findBy(consulta.getPosicion(), consulta.getOrden(), consulta.getLimite());
+        return PAGINACION.pagina(consulta, ventana, PrestamoDTO::desde);
+    }
+    
     /**
      * Busca un préstamo por su ID
      * @param id el ID del préstamo
@@ -56,6 +117,63 @@ public class PrestamoService {
         return prestamoRepository.findById(id);
     }
     
+    /**
+     * Obtiene todos los préstamos con los datos de usuario y libro en una sola consulta
+     * @return lista de préstamos como DTO
+     */
+    @Transactional(readOnly = true)
+    public List<PrestamoDTO> findAllDTO() {
+        return prestamoRepository.findAllDTO();
+    }
+    
+    /**
+     * Busca un préstamo por su ID como DTO
+     * @param id el ID del préstamo
+     * @return Optional con el préstamo si existe
+     */
+    @Transactional(readOnly = true)
+    public Optional<PrestamoDTO> findDTOById(Long id) {
+        return prestamoRepository.findDTOById(id);
+    }
+    
+    /**
+     * Busca los préstamos de un usuario como DTO
+     * @param usuarioId el ID del usuario
+     * @return lista de préstamos del usuario
+     * @throws IllegalArgumentException si el usuario no existe
+     */
+    @Transactional(readOnly = true)
+    public List<PrestamoDTO> findDTOByUsuario(Long usuarioId) {
+        if (!usuarioRepository.existsById(usuarioId)) {
+            throw new IllegalArgumentException("No existe un usuario con el ID: " + usuarioId);
+        }
+        return prestamoRepository.findDTOByUsuarioId(usuarioId);
+    }
+    
+    /**
+     * Busca los préstamos de un libro como DTO
+     * @param libroId el ID del libro
+     * @return lista de préstamos del libro
+     * @throws IllegalArgumentException si el libro no existe
+     */
+    @Transactional(readOnly = true)
+    public List<PrestamoDTO> findDTOByLibro(Long libroId) {
+        if (!libroRepository.existsById(libroId)) {
+            throw new IllegalArgumentException("No existe un libro con el ID: " + libroId);
+        }
+        return prestamoRepository.findDTOByLibroId(libroId);
+    }
+    
+    /**
+     * Busca los préstamos en un estado como DTO
+     * @param estado el estado del préstamo
+     * @return lista de préstamos con ese estado
+     */
+    @Transactional(readOnly = true)
+    public List<PrestamoDTO> findDTOByEstado(EstadoPrestamo estado) {
+        return prestamoRepository.findDTOByEstado(estado);
+    }
+    
     /**
      * Crea un nuevo préstamo
      * @param usuarioId el ID del usuario
@@ -63,7 +181,11 @@ public class PrestamoService {
      * @return el préstamo creado
      * @throws IllegalArgumentException si hay problemas con la validación
      */
+    @ReintentarSiConflicto
     public Prestamo crearPrestamo(Long usuarioId, Long libroId) {
+        // Serializar con otras operaciones sobre el mismo libro o usuario
+        gestorBloqueos.bloquear(usuarioId, libroId);
+        
         // Validar usuario
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new IllegalArgumentException("No existe un usuario con el ID: " + usuarioId));
@@ -81,8 +203,7 @@ public class PrestamoService {
         }
         
         // Verificar límite de préstamos del usuario
-        long prestamosActivos = prestamoRepository.countByUsuarioAndEstado(usuario, EstadoPrestamo.ACTIVO);
-        if (prestamosActivos >= MAX_PRESTAMOS_USUARIO) {
+        if (usuario.getPrestamosActivos() >= MAX_PRESTAMOS_USUARIO) {
             throw new IllegalArgumentException("El usuario ha alcanzado el límite máximo de préstamos activos (" + MAX_PRESTAMOS_USUARIO + ")");
         }
         
@@ -97,13 +218,123 @@ public class PrestamoService {
         prestamo.setFechaDevolucionEsperada(fechaDevolucionEsperada);
         prestamo.setEstado(EstadoPrestamo.ACTIVO);
         
-        // Actualizar estado del libro
+        // Actualizar estado del libro y contador del usuario
         libro.setEstado(EstadoLibro.PRESTADO);
         libroRepository.save(libro);
+        usuario.setPrestamosActivos(usuario.getPrestamosActivos() + 1);
+        
+        estadisticasService.registrarPrestamo(null, EstadoPrestamo.ACTIVO);
+        estadisticasService.registrarLibro(EstadoLibro.DISPONIBLE, EstadoLibro.PRESTADO);
+        sugerenciasLibros.registrarPrestamos(List.of(libroId));
+        indiceEstadoLibros.registrarEstado(List.of(libroId), EstadoLibro.PRESTADO);
         
         return prestamoRepository.save(prestamo);
     }
     
+    /**
+     * Crea varios préstamos en una sola transacción.
+     * Usuarios y libros se cargan con una consulta cada uno, los límites se validan en memoria
+     * y las escrituras se envían en lotes JDBC. Cada solicitud se valida de forma independiente.
+     * @param solicitudes pares (usuarioId, libroId)
+     * @return resultado de cada solicitud, en el mismo orden
+     * @throws IllegalArgumentException si hay más de MAXIMO_POR_LOTE solicitudes
+     */
+    public List<ResultadoLoteDTO> crearPrestamosEnLote(List<PrestamoDTO> solicitudes) {
+        validarTamanioLote(solicitudes);
+        Set<Long> usuarioIds = new LinkedHashSet<>();
+        Set<Long> libroIds = new LinkedHashSet<>();
+        for (PrestamoDTO solicitud : solicitudes) {
+            if (solicitud.getUsuarioId() != null) {
+                usuarioIds.add(solicitud.getUsuarioId());
+            }
+            if (solicitud.getLibroId() != null) {
+                libroIds.add(solicitud.getLibroId());
+            }
+        }
+        gestorBloqueos.bloquearTodos(usuarioIds, libroIds);
+        
+        Map<Long, Usuario> usuarios = usuarioRepository.findAllById(usuarioIds).stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+        Map<Long, Libro> libros = libroRepository.findAllById(libroIds).stream()
+                .collect(Collectors.toMap(Libro::getId, Function.identity()));
+        Map<Long, Integer> nuevosPorUsuario = new HashMap<>();
+        
+        LocalDate fechaPrestamo = LocalDate.now();
+        LocalDate fechaDevolucionEsperada = fechaPrestamo.plusDays(DIAS_PRESTAMO);
+        
+        List<ResultadoLoteDTO> resultados = new ArrayList<>(solicitudes.size());
+        List<Integer> aceptadas = new ArrayList<>();
+        List<Prestamo> nuevos = new ArrayList<>();
+        Set<Long> librosAsignados = new HashSet<>();
+        
+        for (PrestamoDTO solicitud : solicitudes) {
+            Long usuarioId = solicitud.getUsuarioId();
+            Long libroId = solicitud.getLibroId();
+            Usuario usuario = usuarioId != null ? usuarios.get(usuarioId) : null;
+            Libro libro = libroId != null ? libros.get(libroId) : null;
+            
+            String error = null;
+            if (usuario == null) {
+                error = "No existe un usuario con el ID: " + usuarioId;
+            } else if (!usuario.isActivo()) {
+                error = "El usuario no está activo";
+            } else if (libro == null) {
+                error = "No existe un libro con el ID: " + libroId;
+            } else if (libro.getEstado() != EstadoLibro.DISPONIBLE || librosAsignados.contains(libroId)) {
+                error = "El libro no está disponible para préstamo";
+            } else if (usuario.getPrestamosActivos() + nuevosPorUsuario.getOrDefault(usuarioId, 0) >= MAX_PRESTAMOS_USUARIO) {
+                error = "El usuario ha alcanzado el límite máximo de préstamos activos (" + MAX_PRESTAMOS_USUARIO + ")";
+            }
+            
+            if (error != null) {
+                resultados.add(ResultadoLoteDTO.error(null, usuarioId, libroId, error));
+                continue;
+            }
+            
+            nuevosPorUsuario.merge(usuarioId, 1, Integer::sum);
+            librosAsignados.add(libroId);
+            aceptadas.add(resultados.size());
+            resultados.add(new ResultadoLoteDTO(null, usuarioId, libroId, true, "Préstamo creado"));
+            nuevos.add(new Prestamo(usuario, libro, fechaPrestamo, fechaDevolucionEsperada));
+        }
+        
+        if (nuevos.isEmpty()) {
+            return resultados;
+        }
+        
+        // Marcar los libros como prestados; si alguno dejó de estar disponible se descarta su préstamo
+        int[] actualizados = prestamoLoteRepository.marcarLibrosPrestados(
+                nuevos.stream().map(p -> p.getLibro().getId()).toList());
+        List<Prestamo> confirmados = new ArrayList<>(nuevos.size());
+        List<Integer> indicesConfirmados = new ArrayList<>(nuevos.size());
+        for (int i = 0; i < nuevos.size(); i++) {
+            if (actualizados[i] == 0) {
+                ResultadoLoteDTO resultado = resultados.get(aceptadas.get(i));
+                resultado.setExito(false);
+                resultado.setMensaje("El libro no está disponible para préstamo");
+                nuevosPorUsuario.merge(resultado.getUsuarioId(), -1, Integer::sum);
+            } else {
+                confirmados.add(nuevos.get(i));
+                indicesConfirmados.add(aceptadas.get(i));
+            }
+        }
+        
+        if (!confirmados.isEmpty()) {
+            List<Long> ids = prestamoLoteRepository.insertarPrestamos(confirmados);
+            for (int i = 0; i < ids.size(); i++) {
+                resultados.get(indicesConfirmados.get(i)).setPrestamoId(ids.get(i));
+            }
+            prestamoLoteRepository.ajustarPrestamosActivos(nuevosPorUsuario);
+            estadisticasService.registrarPrestamos(null, EstadoPrestamo.ACTIVO, confirmados.size());
+            estadisticasService.registrarLibros(EstadoLibro.DISPONIBLE, EstadoLibro.PRESTADO, confirmados.size());
+            List<Long> librosPrestados = confirmados.stream().map(p -> p.getLibro().getId()).toList();
+            sugerenciasLibros.registrarPrestamos(librosPrestados);
+            indiceEstadoLibros.registrarEstado(librosPrestados, EstadoLibro.PRESTADO);
+        }
+        
+        return resultados;
+    }
+    
     /**
      * Devuelve un libro
      * @param prestamoId el ID del préstamo
@@ -111,30 +342,34 @@ public class PrestamoService {
      * @return el préstamo actualizado
      * @throws IllegalArgumentException si el préstamo no existe o ya está devuelto
      */
+    @ReintentarSiConflicto
     public Prestamo devolverLibro(Long prestamoId, String observaciones) {
-        Prestamo prestamo = prestamoRepository.findById(prestamoId)
-                .orElseThrow(() -> new IllegalArgumentException("No existe un préstamo con el ID: " + prestamoId));
+        Prestamo prestamo = obtenerBloqueado(prestamoId);
         
-        if (prestamo.getEstado() != EstadoPrestamo.ACTIVO) {
+        if (!ESTADOS_SIN_DEVOLVER.contains(prestamo.getEstado())) {
             throw new IllegalArgumentException("El préstamo no está activo");
         }
         
+        // Calcular multa si hay retraso (antes de cambiar el estado del préstamo)
+        LocalDate hoy = LocalDate.now();
+        Double multa = calcularMulta(prestamo, hoy);
+        if (multa != null) {
+            prestamo.setMulta(multa);
+        }
+        
         // Actualizar el préstamo
-        prestamo.setFechaDevolucionReal(LocalDate.now());
+        estadisticasService.registrarPrestamo(prestamo.getEstado(), EstadoPrestamo.DEVUELTO);
+        prestamo.setFechaDevolucionReal(hoy);
         prestamo.setEstado(EstadoPrestamo.DEVUELTO);
         prestamo.setObservaciones(observaciones);
         
-        // Calcular multa si hay retraso
-        if (prestamo.isVencido()) {
-            long diasVencido = prestamo.getDiasVencido();
-            double multa = diasVencido * MULTA_POR_DIA;
-            prestamo.setMulta(multa);
-        }
-        
-        // Actualizar estado del libro
+        // Actualizar estado del libro y contador del usuario
         Libro libro = prestamo.getLibro();
+        estadisticasService.registrarLibro(libro.getEstado(), EstadoLibro.DISPONIBLE);
         libro.setEstado(EstadoLibro.DISPONIBLE);
         libroRepository.save(libro);
+        indiceEstadoLibros.registrarEstado(List.of(libro.getId()), EstadoLibro.DISPONIBLE);
+        descontarPrestamoActivo(prestamo.getUsuario());
         
         return prestamoRepository.save(prestamo);
     }
@@ -145,9 +380,9 @@ public class PrestamoService {
      * @return el préstamo renovado
      * @throws IllegalArgumentException si el préstamo no se puede renovar
      */
+    @ReintentarSiConflicto
     public Prestamo renovarPrestamo(Long prestamoId) {
-        Prestamo prestamo = prestamoRepository.findById(prestamoId)
-                .orElseThrow(() -> new IllegalArgumentException("No existe un préstamo con el ID: " + prestamoId));
+        Prestamo prestamo = obtenerBloqueado(prestamoId);
         
         if (prestamo.getEstado() != EstadoPrestamo.ACTIVO) {
             throw new IllegalArgumentException("Solo se pueden renovar préstamos activos");
@@ -161,10 +396,215 @@ public class PrestamoService {
         LocalDate nuevaFechaDevolucion = prestamo.getFechaDevolucionEsperada().plusDays(DIAS_PRESTAMO);
         prestamo.setFechaDevolucionEsperada(nuevaFechaDevolucion);
         prestamo.setEstado(EstadoPrestamo.RENOVADO);
+        estadisticasService.registrarPrestamo(EstadoPrestamo.ACTIVO, EstadoPrestamo.RENOVADO);
         
         return prestamoRepository.save(prestamo);
     }
     
+    /**
+     * Devuelve varios préstamos en una sola transacción.
+     * Las multas se calculan en memoria con una única fecha de referencia y las escrituras
+     * se envían en un lote JDBC para los préstamos y una sentencia para los libros.
+     * @param prestamoIds IDs de los préstamos
+     * @param observaciones observaciones de la devolución
+     * @return resultado de cada ID, en el mismo orden
+     * @throws IllegalArgumentException si hay más de MAXIMO_POR_LOTE IDs
+     */
+    public List<ResultadoLoteDTO> devolverLibrosEnLote(List<Long> prestamoIds, String observaciones) {
+        LocalDate hoy = LocalDate.now();
+        List<ResultadoLoteDTO> resultados = new ArrayList<>(prestamoIds.size());
+        List<Prestamo> validos = cargarParaLote(prestamoIds, resultados, prestamo -> {
+            if (!ESTADOS_SIN_DEVOLVER.contains(prestamo.getEstado())) {
+                return "El préstamo no está activo";
+            }
+            return null;
+        });
+        
+        if (validos.isEmpty()) {
+            return resultados;
+        }
+        
+        List<Long> ids = new ArrayList<>(validos.size());
+        List<Double> multas = new ArrayList<>(validos.size());
+        for (Prestamo prestamo : validos) {
+            ids.add(prestamo.getId());
+            multas.add(calcularMulta(prestamo, hoy));
+        }
+        
+        int[] actualizados = prestamoLoteRepository.marcarPrestamosDevueltos(ids, multas, hoy, observaciones);
+        Map<Long, ResultadoLoteDTO> porId = indexarResultados(resultados);
+        Set<Long> librosDevueltos = new HashSet<>();
+        Map<Long, Integer> devueltosPorUsuario = new HashMap<>();
+        for (int i = 0; i < validos.size(); i++) {
+            ResultadoLoteDTO resultado = porId.get(ids.get(i));
+            if (actualizados[i] == 0) {
+                resultado.setExito(false);
+                resultado.setMensaje("El préstamo no está activo");
+            } else {
+                resultado.setMulta(multas.get(i));
+                if (validos.get(i).getLibro().getEstado() == EstadoLibro.PRESTADO) {
+                    librosDevueltos.add(validos.get(i).getLibro().getId());
+                }
+                devueltosPorUsuario.merge(validos.get(i).getUsuario().getId(), -1, Integer::sum);
+                estadisticasService.registrarPrestamo(validos.get(i).getEstado(), EstadoPrestamo.DEVUELTO);
+            }
+        }
+        int librosActualizados = prestamoLoteRepository.marcarLibrosDisponibles(librosDevueltos);
+        prestamoLoteRepository.ajustarPrestamosActivos(devueltosPorUsuario);
+        estadisticasService.registrarLibros(EstadoLibro.PRESTADO, EstadoLibro.DISPONIBLE, librosActualizados);
+        indiceEstadoLibros.registrarEstado(librosDevueltos, EstadoLibro.DISPONIBLE);
+        
+        return resultados;
+    }
+    
+    /**
+     * Renueva varios préstamos en una sola transacción
+     * @param prestamoIds IDs de los préstamos
+     * @return resultado de cada ID, en el mismo orden
+     * @throws IllegalArgumentException si hay más de MAXIMO_POR_LOTE IDs
+     */
+    public List<ResultadoLoteDTO> renovarPrestamosEnLote(List<Long> prestamoIds) {
+        LocalDate hoy = LocalDate.now();
+        List<ResultadoLoteDTO> resultados = new ArrayList<>(prestamoIds.size());
+        List<Prestamo> validos = cargarParaLote(prestamoIds, resultados, prestamo -> {
+            if (prestamo.getEstado() != EstadoPrestamo.ACTIVO) {
+                return "Solo se pueden renovar préstamos activos";
+            }
+            if (hoy.isAfter(prestamo.getFechaDevolucionEsperada())) {
+                return "No se puede renovar un préstamo vencido";
+            }
+            return null;
+        });
+        
+        if (validos.isEmpty()) {
+            return resultados;
+        }
+        
+        List<Long> ids = new ArrayList<>(validos.size());
+        List<LocalDate> nuevasFechas = new ArrayList<>(validos.size());
+        for (Prestamo prestamo : validos) {
+            ids.add(prestamo.getId());
+            nuevasFechas.add(prestamo.getFechaDevolucionEsperada().plusDays(DIAS_PRESTAMO));
+        }
+        
+        int[] actualizados = prestamoLoteRepository.renovarPrestamos(ids, nuevasFechas);
+        Map<Long, ResultadoLoteDTO> porId = indexarResultados(resultados);
+        for (int i = 0; i < validos.size(); i++) {
+            ResultadoLoteDTO resultado = porId.get(ids.get(i));
+            if (actualizados[i] == 0) {
+                resultado.setExito(false);
+                resultado.setMensaje("Solo se pueden renovar préstamos activos");
+            } else {
+                resultado.setFechaDevolucionEsperada(nuevasFechas.get(i));
+                estadisticasService.registrarPrestamo(EstadoPrestamo.ACTIVO, EstadoPrestamo.RENOVADO);
+            }
+        }
+        
+        return resultados;
+    }
+    
+    /**
+     * Carga los préstamos de una operación en lote y sus libros con una sola consulta, bloquea sus libros
+     * y usuarios, y registra un resultado por cada ID recibido
+     * @param prestamoIds IDs solicitados
+     * @param resultados lista donde se añade el resultado de cada ID, en el mismo orden
+     * @param validacion devuelve el mensaje de error de un préstamo, o null si es válido
+     * @return préstamos que superan la validación
+     */
+    private List<Prestamo> cargarParaLote(List<Long> prestamoIds, List<ResultadoLoteDTO> resultados,
+                                          Function<Prestamo, String> validacion) {
+        validarTamanioLote(prestamoIds);
+        Set<Long> idsUnicos = new LinkedHashSet<>(prestamoIds);
+        idsUnicos.remove(null);
+        Map<Long, Prestamo> prestamos = new HashMap<>();
+        if (!idsUnicos.isEmpty()) {
+            prestamoRepository.findConLibroByIdIn(idsUnicos).forEach(p -> prestamos.put(p.getId(), p));
+        }
+        
+        gestorBloqueos.bloquearTodos(
+                prestamos.values().stream().map(p -> p.getUsuario().getId()).toList(),
+                prestamos.values().stream().map(p -> p.getLibro().getId()).toList());
+        
+        List<Prestamo> validos = new ArrayList<>();
+        Set<Long> vistos = new HashSet<>();
+        for (Long id : prestamoIds) {
+            Prestamo prestamo = id != null ? prestamos.get(id) : null;
+            String error;
+            if (prestamo == null) {
+                error = "No existe un préstamo con el ID: " + id;
+            } else if (!vistos.add(id)) {
+                error = "El préstamo está repetido en la solicitud";
+            } else {
+                error = validacion.apply(prestamo);
+            }
+            
+            if (error != null) {
+                resultados.add(ResultadoLoteDTO.error(id, null, null, error));
+            } else {
+                resultados.add(new ResultadoLoteDTO(id, prestamo.getUsuario().getId(), prestamo.getLibro().getId(), true, "Operación realizada"));
+                validos.add(prestamo);
+            }
+        }
+        return validos;
+    }
+    
+    /**
+     * @throws IllegalArgumentException si la solicitud en lote supera MAXIMO_POR_LOTE elementos
+     */
+    private static void validarTamanioLote(List<?> solicitudes) {
+        if (solicitudes.size() > MAXIMO_POR_LOTE) {
+            throw new IllegalArgumentException("Se pueden procesar como máximo " + MAXIMO_POR_LOTE + " elementos por petición");
+        }
+    }
+    
+    /**
+     * Resta un préstamo del contador del usuario, sin bajar de cero
+     * @param usuario el usuario (gestionado por el contexto de persistencia)
+     */
+    private static void descontarPrestamoActivo(Usuario usuario) {
+        usuario.setPrestamosActivos(Math.max(0, usuario.getPrestamosActivos() - 1));
+    }
+    
+    private static Map<Long, ResultadoLoteDTO> indexarResultados(List<ResultadoLoteDTO> resultados) {
+        Map<Long, ResultadoLoteDTO> porId = new HashMap<>();
+        for (ResultadoLoteDTO resultado : resultados) {
+            if (resultado.isExito()) {
+                porId.put(resultado.getPrestamoId(), resultado);
+            }
+        }
+        return porId;
+    }
+    
+    /**
+     * Calcula la multa de un préstamo devuelto en la fecha indicada
+     * @param prestamo el préstamo
+     * @param fechaDevolucion fecha de devolución
+     * @return la multa, o null si no hay retraso
+     */
+    private Double calcularMulta(Prestamo prestamo, LocalDate fechaDevolucion) {
+        if (!fechaDevolucion.isAfter(prestamo.getFechaDevolucionEsperada())) {
+            return null;
+        }
+        long diasVencido = java.time.temporal.ChronoUnit.DAYS.between(prestamo.getFechaDevolucionEsperada(), fechaDevolucion);
+        return diasVencido * MULTA_POR_DIA;
+    }
+    
+    /**
+     * Carga un préstamo y bloquea su libro y su usuario hasta el final de la transacción.
+     * El préstamo se refresca tras obtener el bloqueo para trabajar con el estado confirmado.
+     * @param prestamoId el ID del préstamo
+     * @return el préstamo actualizado desde la base de datos
+     * @throws IllegalArgumentException si el préstamo no existe
+     */
+    private Prestamo obtenerBloqueado(Long prestamoId) {
+        Prestamo prestamo = prestamoRepository.findById(prestamoId)
+                .orElseThrow(() -> new IllegalArgumentException("No existe un préstamo con el ID: " + prestamoId));
+        
+        gestorBloqueos.bloquear(prestamo.getUsuario().getId(), prestamo.getLibro().getId());
+        entityManager.refresh(prestamo);
+        return prestamo;
+    }
+    
     /**
      * Busca préstamos por usuario
      * @param usuarioId el ID del usuario
@@ -209,12 +649,12 @@ public class PrestamoService {
     }
     
     /**
-     * Obtiene préstamos vencidos
+     * Obtiene préstamos vencidos, según el último barrido de vencimientos
      * @return lista de préstamos vencidos
      */
     @Transactional(readOnly = true)
     public List<Prestamo> findPrestamosVencidos() {
-        return prestamoRepository.findPrestamosVencidos(LocalDate.now());
+        return prestamoRepository.findPrestamosVencidos();
     }
     
     /**
@@ -233,21 +673,24 @@ public class PrestamoService {
      * @param id el ID del préstamo a eliminar
      * @throws IllegalArgumentException si el préstamo no existe
      */
+    @ReintentarSiConflicto
     public void deleteById(Long id) {
-        if (!prestamoRepository.existsById(id)) {
-            throw new IllegalArgumentException("No existe un préstamo con el ID: " + id);
+        Prestamo prestamo = obtenerBloqueado(id);
+        if (ESTADOS_SIN_DEVOLVER.contains(prestamo.getEstado())) {
+            descontarPrestamoActivo(prestamo.getUsuario());
         }
-        prestamoRepository.deleteById(id);
+        prestamoRepository.delete(prestamo);
+        estadisticasService.registrarPrestamo(prestamo.getEstado(), null);
     }
     
     /**
-     * Cuenta préstamos por estado
+     * Cuenta préstamos por estado desde los contadores en memoria, sin consultar la base de datos
      * @param estado el estado del préstamo
      * @return número de préstamos con el estado especificado
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countByEstado(EstadoPrestamo estado) {
-        return prestamoRepository.countByEstado(estado);
+        return estadisticasService.contarPrestamos(estado);
     }
     
     /**
@@ -261,23 +704,11 @@ public class PrestamoService {
     }
     
     /**
-     * Obtiene estadísticas de préstamos
+     * Obtiene estadísticas de préstamos desde los contadores en memoria, sin consultar la base de datos
      * @return mapa con estadísticas
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public java.util.Map<String, Object> getEstadisticas() {
-        long totalActivos = countByEstado(EstadoPrestamo.ACTIVO);
-        long totalDevueltos = countByEstado(EstadoPrestamo.DEVUELTO);
-        long totalVencidos = countByEstado(EstadoPrestamo.VENCIDO);
-        long totalRenovados = countByEstado(EstadoPrestamo.RENOVADO);
-        
-        java.util.Map<String, Object> estadisticas = new java.util.HashMap<>();
-        estadisticas.put("totalActivos", totalActivos);
-        estadisticas.put("totalDevueltos", totalDevueltos);
-        estadisticas.put("totalVencidos", totalVencidos);
-        estadisticas.put("totalRenovados", totalRenovados);
-        estadisticas.put("total", totalActivos + totalDevueltos + totalVencidos + totalRenovados);
-        
-        return estadisticas;
+        return estadisticasService.getEstadisticasPrestamos();
     }
 }
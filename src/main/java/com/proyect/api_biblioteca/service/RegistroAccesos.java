@@ -0,0 +1,113 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.repository.UltimoAccesoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro diferido de la fecha de último acceso de los usuarios.
+ * El login anota el acceso en memoria, quedándose con el más reciente de cada usuario, y una
+ * tarea periódica escribe los pendientes con una única actualización en lote. Así el login
+ * no necesita una transacción de escritura.
+ *
+ * Los pendientes se escriben también al detener la aplicación. Si la escritura falla, se
+ * conservan para el siguiente volcado; una caída del proceso pierde como mucho un intervalo.
+ */
+@Component
+public class RegistroAccesos {
+    
+    private static final Logger log = LoggerFactory.getLogger(RegistroAccesos.class);
+    
+    private final UltimoAccesoRepository ultimoAccesoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanioBloque;
+    
+    private final ConcurrentHashMap<Long, LocalDateTime> pendientes = new ConcurrentHashMap<>();
+    
+    private final Counter accesosEscritos;
+    private final Counter volcadosFallidos;
+    private final Timer duracionVolcado;
+    
+    public RegistroAccesos(UltimoAccesoRepository ultimoAccesoRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${biblioteca.accesos.tamanio-bloque:1000}") int tamanioBloque) {
+        this.ultimoAccesoRepository = ultimoAccesoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanioBloque = tamanioBloque;
+        
+        this.accesosEscritos = Counter.builder("biblioteca.accesos.escritos")
+                .description("Fechas de último acceso escritas en la base de datos")
+                .register(meterRegistry);
+        this.volcadosFallidos = Counter.builder("biblioteca.accesos.volcados.fallidos")
+                .description("Volcados de últimos accesos que han fallado y se reintentarán")
+                .register(meterRegistry);
+        this.duracionVolcado = Timer.builder("biblioteca.accesos.volcado")
+                .description("Duración de cada volcado de últimos accesos")
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.accesos.pendientes", pendientes, Map::size)
+                .description("Usuarios con un último acceso pendiente de escribir")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Anota un acceso del usuario; si ya había uno pendiente, se conserva el más reciente
+     * @param usuarioId el ID del usuario
+     * @param fecha la fecha del acceso
+     */
+    public void registrar(Long usuarioId, LocalDateTime fecha) {
+        pendientes.merge(usuarioId, fecha, (actual, nueva) -> nueva.isAfter(actual) ? nueva : actual);
+    }
+    
+    /**
+     * Escribe los accesos pendientes en bloques, cada uno en su propia transacción.
+     * Una entrada sólo se retira si no ha llegado un acceso más reciente mientras se escribía.
+     */
+    @Scheduled(fixedDelayString = "${biblioteca.accesos.intervalo-ms:5000}")
+    public synchronized void volcar() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        Timer.Sample muestra = Timer.start();
+        Iterator<Map.Entry<Long, LocalDateTime>> entradas = pendientes.entrySet().iterator();
+        while (entradas.hasNext()) {
+            Map<Long, LocalDateTime> bloque = new HashMap<>();
+            while (entradas.hasNext() && bloque.size() < tamanioBloque) {
+                Map.Entry<Long, LocalDateTime> entrada = entradas.next();
+                bloque.put(entrada.getKey(), entrada.getValue());
+            }
+            try {
+                transactionTemplate.executeWithoutResult(
+                        status -> ultimoAccesoRepository.actualizarUltimosAccesos(bloque));
+            } catch (RuntimeException e) {
+                volcadosFallidos.increment();
+                log.warn("No se han podido escribir {} últimos accesos; se reintentará", bloque.size(), e);
+                break;
+            }
+            bloque.forEach(pendientes::remove);
+            accesosEscritos.increment(bloque.size());
+        }
+        muestra.stop(duracionVolcado);
+    }
+    
+    @PreDestroy
+    public void detener() {
+        volcar();
+    }
+}
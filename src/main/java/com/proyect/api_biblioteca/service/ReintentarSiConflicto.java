@@ -0,0 +1,32 @@
+package com.proyect.api_biblioteca.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reintenta una operación de servicio cuando falla por un conflicto de bloqueo optimista.
+ * Cada intento se ejecuta en una transacción nueva, con espera exponencial acotada
+ * entre intentos. Los conflictos causados por una versión obsoleta enviada por el
+ * cliente no se reintentan.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(
+        retryFor = OptimisticLockingFailureException.class,
+        noRetryFor = VersionObsoletaException.class,
+        maxAttemptsExpression = "${biblioteca.reintentos.max-intentos:3}",
+        backoff = @Backoff(
+                delayExpression = "${biblioteca.reintentos.espera-inicial-ms:20}",
+                multiplierExpression = "${biblioteca.reintentos.multiplicador:2}",
+                maxDelayExpression = "${biblioteca.reintentos.espera-maxima-ms:200}",
+                random = true))
+public @interface ReintentarSiConflicto {
+}
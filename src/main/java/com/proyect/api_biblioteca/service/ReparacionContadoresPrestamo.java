@@ -0,0 +1,97 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Tarea que recalcula Usuario.prestamosActivos a partir de la tabla de préstamos.
+ * El contador se mantiene en cada operación de préstamo; esta tarea solo corrige
+ * desviaciones (datos cargados fuera de la aplicación, borrados manuales, etc.).
+ * Recorre los usuarios por ID en bloques, cada uno en su propia transacción y con
+ * los usuarios del bloque bloqueados para no competir con préstamos en curso.
+ */
+@Component
+public class ReparacionContadoresPrestamo {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReparacionContadoresPrestamo.class);
+    
+    private final UsuarioRepository usuarioRepository;
+    private final GestorBloqueos gestorBloqueos;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanioBloque;
+    
+    private volatile boolean detenido;
+    
+    private final Counter usuariosCorregidos;
+    private final Timer duracionReparacion;
+    
+    public ReparacionContadoresPrestamo(UsuarioRepository usuarioRepository,
+                                        GestorBloqueos gestorBloqueos,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${biblioteca.prestamos.reparacion.tamanio-bloque:200}") int tamanioBloque) {
+        this.usuarioRepository = usuarioRepository;
+        this.gestorBloqueos = gestorBloqueos;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanioBloque = tamanioBloque;
+        
+        this.usuariosCorregidos = Counter.builder("biblioteca.prestamos.contadores.corregidos")
+                .description("Usuarios cuyo contador de préstamos activos se ha corregido")
+                .register(meterRegistry);
+        this.duracionReparacion = Timer.builder("biblioteca.prestamos.contadores.reparacion")
+                .description("Duración de cada recálculo completo de contadores de préstamos")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Recalcula los contadores en el planificador, una vez poco después de arrancar (sin retrasar
+     * el arranque) y después según la expresión cron configurada
+     */
+    @Scheduled(initialDelayString = "${biblioteca.prestamos.reparacion.retardo-inicial-ms:10000}")
+    @Scheduled(cron = "${biblioteca.prestamos.reparacion.cron:0 30 3 * * *}")
+    public void reparar() {
+        duracionReparacion.record(() -> {
+            long ultimoId = 0;
+            long total = 0;
+            
+            while (!detenido) {
+                List<Long> ids = usuarioRepository.findIdsDesde(ultimoId, Limit.of(tamanioBloque));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Long desde = ids.get(0);
+                Long hasta = ids.get(ids.size() - 1);
+                
+                Integer corregidos = transactionTemplate.execute(status -> {
+                    gestorBloqueos.bloquearTodos(ids, List.of());
+                    return usuarioRepository.repararPrestamosActivos(desde, hasta);
+                });
+                total += corregidos;
+                ultimoId = hasta;
+            }
+            
+            usuariosCorregidos.increment(total);
+            if (total > 0) {
+                log.warn("Reparación de contadores: {} usuarios con préstamos activos corregidos", total);
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void detener() {
+        detenido = true;
+    }
+}
@@ -0,0 +1,12 @@
+package com.proyect.api_biblioteca.service;
+
+/**
+ * Excepción lanzada cuando un recurso limitado (como el cálculo de contraseñas) no admite
+ * más trabajo en este momento; el cliente puede reintentar más tarde
+ */
+public class ServicioSaturadoException extends RuntimeException {
+
+    public ServicioSaturadoException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,51 @@
+package com.proyect.api_biblioteca.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Utilidades para coordinar estructuras en memoria con la transacción activa
+ */
+public final class TransaccionUtil {
+    
+    private TransaccionUtil() {
+    }
+    
+    /**
+     * Ejecuta la acción cuando la transacción actual se confirme, o de inmediato si no hay transacción.
+     * Si la transacción se revierte, la acción no se ejecuta.
+     * @param accion la acción a ejecutar
+     */
+    public static void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+    
+    /**
+     * Ejecuta la acción cuando la transacción actual termine, tanto si se confirma como si se revierte,
+     * o de inmediato si no hay transacción
+     * @param accion la acción a ejecutar; recibe true si la transacción se confirmó
+     */
+    public static void alTerminar(Consumer<Boolean> accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    accion.accept(estado == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            accion.accept(true);
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package com.proyect.api_biblioteca.service;
 
+import com.proyect.api_biblioteca.dto.PaginaDTO;
 import com.proyect.api_biblioteca.model.entity.Usuario;
 import com.proyect.api_biblioteca.model.entity.TipoUsuario;
 import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.repository.ClaveNaturalRepository;
 import com.proyect.api_biblioteca.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Servicio que maneja la lógica de negocio para la entidad Usuario
@@ -21,6 +28,28 @@ public class UsuarioService {
     @Autowired
     private UsuarioRepository usuarioRepository;
     
+    @Autowired
+    private ClaveNaturalRepository claveNaturalRepository;
+    
+    @Autowired
+    private EstadisticasService estadisticasService;
+    
+    @Autowired
+    private GestorTokens gestorTokens;
+    
+    @Autowired
+    private GestorContrasenias gestorContrasenias;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // Campos por los que se puede ordenar la paginación (columnas no nulas; el orden por
+    // ID sigue el de alta, así que no hace falta ordenar por fechaRegistro, que admite nulos)
+    private static final Paginacion PAGINACION = new Paginacion(Map.of(
+            "nombre", valor -> valor,
+            "apellido", valor -> valor,
+            "email", valor -> valor));
+    
     
     /**
      * Obtiene todos los usuarios
@@ -31,6 +60,22 @@ public class UsuarioService {
         return usuarioRepository.findAll();
     }
     
+    /**
+     * Obtiene una página de usuarios paginando por cursor
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param tamanio número de elementos por página
+     * @param orden campo de orden (id, nombre, apellido, email)
+     * @param direccion "asc" o "desc"
+     * @return la página solicitada
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<Usuario> findPagina(String cursor, Integer tamanio, String orden, String direccion) {
+        Paginacion.Consulta consulta = PAGINACION.consulta(cursor, tamanio, orden, direccion);
+        Window<Usuario> ventana = usuarioRepository.findBy(consulta.getPosicion(), consulta.getOrden(), consulta.getLimite());
+        return PAGINACION.pagina(consulta, ventana, Function.identity());
+    }
+    
     /**
      * Busca un usuario por su ID
      * @param id el ID del usuario
@@ -48,58 +93,103 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public Optional<Usuario> findByEmail(String email) {
-        return usuarioRepository.findByEmail(email);
+        return claveNaturalRepository.findUsuarioByEmail(email);
     }
     
     /**
-     * Guarda un nuevo usuario
+     * Guarda un nuevo usuario. La contraseña se codifica antes de abrir la transacción,
+     * para no retener una conexión mientras se calcula bcrypt.
      * @param usuario el usuario a guardar
      * @return el usuario guardado
-     * @throws IllegalArgumentException si el email ya existe
+     * @throws IllegalArgumentException si el email ya existe o la contraseña no es válida
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Usuario save(Usuario usuario) {
+        String hash = codificarSiSeEnvia(usuario.getPassword());
+        return transactionTemplate.execute(status -> guardar(usuario, hash));
+    }
+    
+    private Usuario guardar(Usuario usuario, String hash) {
         // Verificar si el email ya existe
-        if (usuario.getId() == null && usuarioRepository.existsByEmail(usuario.getEmail())) {
+        if (usuario.getId() == null && claveNaturalRepository.findUsuarioByEmail(usuario.getEmail()).isPresent()) {
             throw new IllegalArgumentException("Ya existe un usuario con el email: " + usuario.getEmail());
         }
         
-        // Encriptar contraseña si es nuevo usuario
-        if (usuario.getId() == null && usuario.getPassword() != null) {
-            // Contraseña sin encriptar para ejercicio universitario
-        }
+        Optional<Usuario> anterior = usuario.getId() == null ? Optional.empty() : usuarioRepository.findById(usuario.getId());
         
-        return usuarioRepository.save(usuario);
+        // La contraseña nunca se devuelve al cliente; si no envía una nueva se conserva la anterior
+        usuario.setPassword(hash != null ? hash : anterior.map(Usuario::getPassword).orElse(null));
+        EstadoUsuario estadoAnterior = anterior.map(Usuario::getEstado).orElse(null);
+        TipoUsuario tipoAnterior = anterior.map(Usuario::getTipoUsuario).orElse(null);
+        // El contador de préstamos no lo asigna el cliente
+        usuario.setPrestamosActivos(anterior.map(Usuario::getPrestamosActivos).orElse(0));
+        Usuario guardado = usuarioRepository.save(usuario);
+        estadisticasService.registrarUsuario(estadoAnterior, tipoAnterior, guardado.getEstado(), guardado.getTipoUsuario());
+        if (anterior.isPresent()) {
+            revocarTokensSiCambia(guardado.getId(), estadoAnterior, tipoAnterior, guardado.getEstado(), guardado.getTipoUsuario());
+        }
+        return guardado;
     }
     
     /**
-     * Actualiza un usuario existente
+     * Actualiza un usuario existente.
+     * Si el cliente envía la versión, debe coincidir con la versión actual del usuario.
+     * La contraseña nueva, si la hay, se codifica antes de abrir la transacción.
      * @param id el ID del usuario a actualizar
      * @param usuario los nuevos datos del usuario
      * @return el usuario actualizado
-     * @throws IllegalArgumentException si el usuario no existe o el email ya está en uso
+     * @throws IllegalArgumentException si el usuario no existe, el email ya está en uso o la contraseña no es válida
+     * @throws VersionObsoletaException si la versión enviada no es la actual
      */
+    @ReintentarSiConflicto
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Usuario update(Long id, Usuario usuario) {
-        if (!usuarioRepository.existsById(id)) {
-            throw new IllegalArgumentException("No existe un usuario con el ID: " + id);
+        String hash = codificarSiSeEnvia(usuario.getPassword());
+        return transactionTemplate.execute(status -> actualizar(id, usuario, hash));
+    }
+    
+    private Usuario actualizar(Long id, Usuario usuario, String hash) {
+        Usuario usuarioActual = usuarioRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("No existe un usuario con el ID: " + id));
+        
+        if (usuario.getVersion() != null && !usuario.getVersion().equals(usuarioActual.getVersion())) {
+            throw new VersionObsoletaException(Usuario.class, id, usuario.getVersion(), usuarioActual.getVersion());
         }
         
         // Verificar si el email ya existe en otro usuario
-        Optional<Usuario> usuarioExistente = usuarioRepository.findByEmail(usuario.getEmail());
+        Optional<Usuario> usuarioExistente = claveNaturalRepository.findUsuarioByEmail(usuario.getEmail());
         if (usuarioExistente.isPresent() && !usuarioExistente.get().getId().equals(id)) {
             throw new IllegalArgumentException("Ya existe otro usuario con el email: " + usuario.getEmail());
         }
         
-        usuario.setId(id);
+        // Copiar los datos sobre la entidad gestionada para que se compruebe su versión
+        estadisticasService.registrarUsuario(usuarioActual.getEstado(), usuarioActual.getTipoUsuario(),
+                usuario.getEstado(), usuario.getTipoUsuario());
+        revocarTokensSiCambia(id, usuarioActual.getEstado(), usuarioActual.getTipoUsuario(),
+                usuario.getEstado(), usuario.getTipoUsuario());
+        usuarioActual.setNombre(usuario.getNombre());
+        usuarioActual.setApellido(usuario.getApellido());
+        usuarioActual.setEmail(usuario.getEmail());
+        usuarioActual.setTelefono(usuario.getTelefono());
+        usuarioActual.setDireccion(usuario.getDireccion());
+        usuarioActual.setFechaNacimiento(usuario.getFechaNacimiento());
+        usuarioActual.setTipoUsuario(usuario.getTipoUsuario());
+        usuarioActual.setEstado(usuario.getEstado());
         
         // No actualizar la contraseña si no se proporciona
-        if (usuario.getPassword() == null || usuario.getPassword().isEmpty()) {
-            Usuario usuarioActual = usuarioRepository.findById(id).orElseThrow();
-            usuario.setPassword(usuarioActual.getPassword());
-        } else {
-            // Contraseña sin encriptar para ejercicio universitario
+        if (hash != null) {
+            usuarioActual.setPassword(hash);
         }
         
-        return usuarioRepository.save(usuario);
+        return usuarioRepository.save(usuarioActual);
+    }
+    
+    /**
+     * Codifica la contraseña enviada por el cliente, fuera de cualquier transacción
+     * @return el hash, o null si no se ha enviado contraseña
+     */
+    private String codificarSiSeEnvia(String contrasenia) {
+        return contrasenia != null && !contrasenia.isEmpty() ? gestorContrasenias.codificar(contrasenia) : null;
     }
     
     /**
@@ -108,10 +198,11 @@ public class UsuarioService {
      * @throws IllegalArgumentException si el usuario no existe
      */
     public void deleteById(Long id) {
-        if (!usuarioRepository.existsById(id)) {
-            throw new IllegalArgumentException("No existe un usuario con el ID: " + id);
-        }
-        usuarioRepository.deleteById(id);
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("No existe un usuario con el ID: " + id));
+        usuarioRepository.delete(usuario);
+        estadisticasService.registrarUsuario(usuario.getEstado(), usuario.getTipoUsuario(), null, null);
+        TransaccionUtil.despuesDelCommit(() -> gestorTokens.revocar(id));
     }
     
     /**
@@ -172,10 +263,13 @@ public class UsuarioService {
      * @return el usuario actualizado
      * @throws IllegalArgumentException si el usuario no existe
      */
+    @ReintentarSiConflicto
     public Usuario cambiarEstado(Long id, EstadoUsuario nuevoEstado) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("No existe un usuario con el ID: " + id));
         
+        estadisticasService.registrarUsuario(usuario.getEstado(), usuario.getTipoUsuario(), nuevoEstado, usuario.getTipoUsuario());
+        revocarTokensSiCambia(id, usuario.getEstado(), usuario.getTipoUsuario(), nuevoEstado, usuario.getTipoUsuario());
         usuario.setEstado(nuevoEstado);
         return usuarioRepository.save(usuario);
     }
@@ -186,32 +280,35 @@ public class UsuarioService {
      * @return el usuario actualizado
      * @throws IllegalArgumentException si el usuario no existe
      */
+    @ReintentarSiConflicto
     public Usuario promoverABibliotecario(Long id) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("No existe un usuario con el ID: " + id));
         
+        estadisticasService.registrarUsuario(usuario.getEstado(), usuario.getTipoUsuario(), usuario.getEstado(), TipoUsuario.BIBLIOTECARIO);
+        revocarTokensSiCambia(id, usuario.getEstado(), usuario.getTipoUsuario(), usuario.getEstado(), TipoUsuario.BIBLIOTECARIO);
         usuario.setTipoUsuario(TipoUsuario.BIBLIOTECARIO);
         return usuarioRepository.save(usuario);
     }
     
     /**
-     * Cuenta usuarios por tipo
+     * Cuenta usuarios por tipo desde los contadores en memoria, sin consultar la base de datos
      * @param tipoUsuario el tipo de usuario
      * @return número de usuarios del tipo especificado
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countByTipoUsuario(TipoUsuario tipoUsuario) {
-        return usuarioRepository.countByTipoUsuario(tipoUsuario);
+        return estadisticasService.contarUsuarios(tipoUsuario);
     }
     
     /**
-     * Cuenta usuarios por estado
+     * Cuenta usuarios por estado desde los contadores en memoria, sin consultar la base de datos
      * @param estado el estado del usuario
      * @return número de usuarios con el estado especificado
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countByEstado(EstadoUsuario estado) {
-        return usuarioRepository.countByEstado(estado);
+        return estadisticasService.contarUsuarios(estado);
     }
     
     /**
@@ -223,4 +320,15 @@ public class UsuarioService {
     public boolean existsById(Long id) {
         return usuarioRepository.existsById(id);
     }
+    
+    /**
+     * Revoca los tokens del usuario cuando cambia su estado o su tipo, ya que
+     * ambos datos van dentro del token. Se aplica cuando la transacción se confirma.
+     */
+    private void revocarTokensSiCambia(Long id, EstadoUsuario estadoAnterior, TipoUsuario tipoAnterior,
+                                       EstadoUsuario estadoNuevo, TipoUsuario tipoNuevo) {
+        if (estadoAnterior != estadoNuevo || tipoAnterior != tipoNuevo) {
+            TransaccionUtil.despuesDelCommit(() -> gestorTokens.revocar(id));
+        }
+    }
 }
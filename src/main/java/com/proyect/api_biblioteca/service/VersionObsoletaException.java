@@ -0,0 +1,14 @@
+package com.proyect.api_biblioteca.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Excepción lanzada cuando el cliente envía una versión de la entidad que ya no es la actual
+ */
+public class VersionObsoletaException extends OptimisticLockingFailureException {
+
+    public VersionObsoletaException(Class<?> entidad, Long id, Long versionEnviada, Long versionActual) {
+        super("La versión " + versionEnviada + " de " + entidad.getSimpleName() + " con ID " + id
+                + " está obsoleta (versión actual: " + versionActual + ")");
+    }
+}
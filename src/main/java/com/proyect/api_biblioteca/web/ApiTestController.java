@@ -1,8 +1,8 @@
 package com.proyect.api_biblioteca.web;
 
+import com.proyect.api_biblioteca.dto.PrestamoDTO;
 import com.proyect.api_biblioteca.model.entity.Libro;
 import com.proyect.api_biblioteca.model.entity.Usuario;
-import com.proyect.api_biblioteca.model.entity.Prestamo;
 import com.proyect.api_biblioteca.service.LibroService;
 import com.proyect.api_biblioteca.service.UsuarioService;
 import com.proyect.api_biblioteca.service.PrestamoService;
@@ -40,7 +40,7 @@ public class ApiTestController {
         // Obtener datos para mostrar
         List<Libro> libros = libroService.findAll();
         List<Usuario> usuarios = usuarioService.findAll();
-        List<Prestamo> prestamos = prestamoService.findAll();
+        List<PrestamoDTO> prestamos = prestamoService.findAllDTO();
         
         model.addAttribute("libros", libros);
         model.addAttribute("usuarios", usuarios);
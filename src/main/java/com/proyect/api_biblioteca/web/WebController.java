@@ -1,14 +1,22 @@
 package com.proyect.api_biblioteca.web;
 
+import com.proyect.api_biblioteca.service.EstadisticasService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import java.util.Map;
+
 /**
  * Controlador web simple para mostrar información de la API
  */
 @Controller
 public class WebController {
 
+    @Autowired
+    private EstadisticasService estadisticasService;
+
     /**
      * Página de inicio simple
      */
@@ -16,4 +24,20 @@ public class WebController {
     public String home() {
         return "home";
     }
-}
\ No newline at end of file
+
+    /**
+     * Página de estadísticas, con los contadores en memoria (sin consultas a la base de datos)
+     */
+    @GetMapping("/estadisticas")
+    public String estadisticas(Model model) {
+        Map<String, Object> estadisticasUsuarios = estadisticasService.getEstadisticasUsuarios();
+        model.addAttribute("paginaActual", "estadisticas");
+        model.addAttribute("estadisticasLibros", estadisticasService.getEstadisticasLibros());
+        model.addAttribute("estadisticasPrestamos", estadisticasService.getEstadisticasPrestamos());
+        model.addAttribute("estadisticasUsuarios", estadisticasUsuarios);
+        model.addAttribute("totalUsuarios", estadisticasUsuarios.get("totalUsuarios"));
+        model.addAttribute("totalBibliotecarios", estadisticasUsuarios.get("totalBibliotecarios"));
+        model.addAttribute("usuariosActivos", estadisticasUsuarios.get("usuariosActivos"));
+        return "estadisticas";
+    }
+}
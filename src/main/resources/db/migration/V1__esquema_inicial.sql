@@ -0,0 +1,59 @@
+-- Esquema inicial: tablas, claves y secuencias de IDs (bloques de 50, como biblioteca.ids.tamanio-asignacion)
+
+CREATE SEQUENCE libros_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE usuarios_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE prestamos_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE libros (
+    id BIGINT NOT NULL,
+    version BIGINT,
+    titulo VARCHAR(255) NOT NULL,
+    autor VARCHAR(255) NOT NULL,
+    isbn VARCHAR(13) NOT NULL,
+    anio_publicacion INTEGER NOT NULL,
+    descripcion VARCHAR(1000),
+    numero_paginas INTEGER,
+    estado_libro VARCHAR(20),
+    fecha_ingreso DATE,
+    CONSTRAINT pk_libros PRIMARY KEY (id),
+    CONSTRAINT uk_libros_isbn UNIQUE (isbn),
+    CONSTRAINT ck_libros_anio CHECK (anio_publicacion >= 1000 AND anio_publicacion <= 2024),
+    CONSTRAINT ck_libros_paginas CHECK (numero_paginas >= 1)
+);
+
+CREATE TABLE usuarios (
+    id BIGINT NOT NULL,
+    version BIGINT,
+    nombre VARCHAR(100) NOT NULL,
+    apellido VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    telefono VARCHAR(15),
+    direccion VARCHAR(500),
+    fecha_nacimiento DATE NOT NULL,
+    tipo_usuario VARCHAR(20) NOT NULL,
+    estado_usuario VARCHAR(20),
+    fecha_registro TIMESTAMP(6),
+    ultimo_acceso TIMESTAMP(6),
+    prestamos_activos INTEGER NOT NULL,
+    CONSTRAINT pk_usuarios PRIMARY KEY (id),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
+
+CREATE TABLE prestamos (
+    id BIGINT NOT NULL,
+    version BIGINT,
+    usuario_id BIGINT NOT NULL,
+    libro_id BIGINT NOT NULL,
+    fecha_prestamo DATE NOT NULL,
+    fecha_devolucion_esperada DATE,
+    fecha_devolucion_real DATE,
+    estado_prestamo VARCHAR(20),
+    observaciones VARCHAR(500),
+    multa FLOAT(53),
+    fecha_creacion TIMESTAMP(6),
+    fecha_modificacion TIMESTAMP(6),
+    CONSTRAINT pk_prestamos PRIMARY KEY (id),
+    CONSTRAINT fk_prestamos_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios (id),
+    CONSTRAINT fk_prestamos_libro FOREIGN KEY (libro_id) REFERENCES libros (id)
+);
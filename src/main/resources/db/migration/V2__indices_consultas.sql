@@ -0,0 +1,28 @@
+-- Índices para los predicados de las consultas de los repositorios.
+-- Las búsquedas por texto (LIKE '%...%') no pueden usar un índice B-tree; las resuelve el índice
+-- invertido en memoria. IndicesRepositoriosTest comprueba con EXPLAIN que el resto usa estos índices.
+
+-- Préstamos de un usuario, por estado (countByUsuarioAndEstado, hasPrestamosActivos,
+-- findDTOByUsuarioId y la reparación de contadores)
+CREATE INDEX idx_prestamos_usuario_estado ON prestamos (usuario_id, estado_prestamo);
+
+-- Préstamos por estado y vencimiento (barrido de vencimientos, findPrestamosVencenPronto,
+-- findByEstado, countByEstado)
+CREATE INDEX idx_prestamos_estado_devolucion ON prestamos (estado_prestamo, fecha_devolucion_esperada);
+
+-- Préstamos de un libro y último préstamo de un libro a un usuario
+-- (findDTOByLibroId, findLastPrestamoByLibroAndUsuario, countAgrupadoPorLibro)
+CREATE INDEX idx_prestamos_libro_usuario_fecha ON prestamos (libro_id, usuario_id, fecha_prestamo);
+
+-- Préstamos por fechas (findByFechaPrestamoBetween, findByFechaDevolucionEsperada)
+CREATE INDEX idx_prestamos_fecha_prestamo ON prestamos (fecha_prestamo);
+CREATE INDEX idx_prestamos_fecha_devolucion ON prestamos (fecha_devolucion_esperada);
+
+-- Libros por estado y por año de publicación
+CREATE INDEX idx_libros_estado ON libros (estado_libro);
+CREATE INDEX idx_libros_anio ON libros (anio_publicacion);
+
+-- Usuarios por estado y tipo (findUsuariosActivos, findBibliotecariosActivos, countByEstado)
+-- y por tipo (findByTipoUsuario, countByTipoUsuario)
+CREATE INDEX idx_usuarios_estado_tipo ON usuarios (estado_usuario, tipo_usuario);
+CREATE INDEX idx_usuarios_tipo ON usuarios (tipo_usuario);
@@ -0,0 +1,14 @@
+package com.proyect.api_biblioteca.benchmark;
+
+/**
+ * Benchmark que se ejecuta contra la aplicación ya arrancada (ver BenchmarkAplicacion)
+ */
+public interface Benchmark {
+
+    /**
+     * Ejecuta el benchmark y deja los resultados en el log
+     * @param urlBase URL de la aplicación, p. ej. http://localhost:8080
+     * @throws Exception si el benchmark no puede completarse
+     */
+    void ejecutar(String urlBase) throws Exception;
+}
@@ -0,0 +1,40 @@
+package com.proyect.api_biblioteca.benchmark;
+
+import com.proyect.api_biblioteca.ApiBibliotecaApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Arranca la aplicación con los benchmarks del classpath de tests, ejecuta en el hilo principal
+ * los que active el perfil elegido y la cierra al terminar. Así los benchmarks no forman parte
+ * del artefacto de producción.
+ *
+ * mvn spring-boot:test-run -Dspring-boot.run.main-class=com.proyect.api_biblioteca.benchmark.BenchmarkAplicacion \
+ *     -Dspring-boot.run.profiles=benchmark
+ */
+public class BenchmarkAplicacion {
+
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkAplicacion.class);
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext contexto = SpringApplication.run(ApiBibliotecaApplication.class, args);
+        int codigo = 0;
+        try {
+            String urlBase = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+            var benchmarks = contexto.getBeansOfType(Benchmark.class).values();
+            if (benchmarks.isEmpty()) {
+                log.warn("Ningún benchmark activo: elige uno con el perfil (benchmark, benchmark-persistencia...)");
+            }
+            for (Benchmark benchmark : benchmarks) {
+                benchmark.ejecutar(urlBase);
+            }
+        } catch (Exception e) {
+            log.error("El benchmark ha fallado", e);
+            codigo = 1;
+        }
+        int salida = codigo;
+        System.exit(SpringApplication.exit(contexto, () -> salida));
+    }
+}
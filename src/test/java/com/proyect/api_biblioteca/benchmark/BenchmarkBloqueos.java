@@ -0,0 +1,199 @@
+package com.proyect.api_biblioteca.benchmark;
+
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.service.LibroService;
+import com.proyect.api_biblioteca.service.PrestamoService;
+import com.proyect.api_biblioteca.service.UsuarioService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark de contención de los bloqueos de préstamo (GestorBloqueos): préstamos + devoluciones
+ * por segundo llamando directamente a PrestamoService con 1, 2, 4... hilos, cada uno con su usuario
+ * y sus libros. Después todos los hilos se disputan un mismo libro y se comprueba que nunca está
+ * prestado a dos usuarios a la vez.
+ *
+ * mvn spring-boot:test-run -Dspring-boot.run.main-class=com.proyect.api_biblioteca.benchmark.BenchmarkAplicacion \
+ *     -Dspring-boot.run.profiles=benchmark-bloqueos
+ */
+@Component
+@Profile("benchmark-bloqueos")
+public class BenchmarkBloqueos implements Benchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkBloqueos.class);
+
+    private final PrestamoService prestamoService;
+    private final LibroService libroService;
+    private final UsuarioService usuarioService;
+    private final int duracionFaseS;
+    private final int hilosMaximo;
+    private final int librosPorHilo;
+
+    public BenchmarkBloqueos(PrestamoService prestamoService, LibroService libroService,
+                             UsuarioService usuarioService,
+                             @Value("${biblioteca.benchmark.duracion-fase-s:15}") int duracionFaseS,
+                             @Value("${biblioteca.benchmark.hilos-maximo:0}") int hilosMaximo,
+                             @Value("${biblioteca.benchmark.libros-por-hilo:20}") int librosPorHilo) {
+        this.prestamoService = prestamoService;
+        this.libroService = libroService;
+        this.usuarioService = usuarioService;
+        this.duracionFaseS = duracionFaseS;
+        // Por defecto el doble de núcleos, con un mínimo de 4
+        this.hilosMaximo = hilosMaximo > 0 ? hilosMaximo : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        this.librosPorHilo = librosPorHilo;
+    }
+
+    @Override
+    public void ejecutar(String urlBase) throws InterruptedException {
+        long base = ThreadLocalRandom.current().nextLong(100_000_000L) * 1000;
+        List<Long> usuarios = new ArrayList<>();
+        List<List<Long>> libros = new ArrayList<>();
+        for (int h = 0; h < hilosMaximo; h++) {
+            usuarios.add(crearUsuario(base + h));
+            List<Long> propios = new ArrayList<>();
+            for (int i = 0; i < librosPorHilo; i++) {
+                propios.add(crearLibro(base + (long) h * librosPorHilo + i));
+            }
+            libros.add(propios);
+        }
+        Long libroDisputado = crearLibro(base + (long) hilosMaximo * librosPorHilo);
+
+        // Calentamiento del JIT y de las cachés antes de medir
+        medirLibrosDistintos(1, usuarios, libros, Math.min(5, duracionFaseS));
+
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        double referencia = 0;
+        for (int hilos = 1; hilos <= hilosMaximo; hilos *= 2) {
+            double porSegundo = medirLibrosDistintos(hilos, usuarios, libros, duracionFaseS);
+            if (hilos == 1) {
+                referencia = porSegundo;
+            }
+            log.info("Benchmark bloqueos [{} núcleos] - {} hilos, libros distintos: {} préstamos/s ({}x)",
+                    nucleos, hilos, String.format("%.1f", porSegundo),
+                    String.format("%.2f", referencia > 0 ? porSegundo / referencia : 0));
+        }
+
+        Disputa disputa = medirMismoLibro(usuarios, libroDisputado);
+        log.info("Benchmark bloqueos [{} núcleos] - {} hilos, mismo libro: {} préstamos/s, {} rechazados "
+                        + "(no disponible), máximo prestado a la vez: {}", nucleos, hilosMaximo,
+                String.format("%.1f", disputa.prestamos.get() / (double) duracionFaseS),
+                disputa.rechazados.get(), disputa.maximoALaVez.get());
+        if (disputa.maximoALaVez.get() > 1) {
+            throw new IllegalStateException("El libro " + libroDisputado + " se ha prestado a dos usuarios a la vez");
+        }
+    }
+
+    private double medirLibrosDistintos(int hilos, List<Long> usuarios, List<List<Long>> libros, int segundos)
+            throws InterruptedException {
+        AtomicLong completados = new AtomicLong();
+        AtomicLong fallidos = new AtomicLong();
+        long fin = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+        List<Thread> lanzados = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Long usuarioId = usuarios.get(h);
+            List<Long> propios = libros.get(h);
+            lanzados.add(arrancar(() -> {
+                int siguiente = 0;
+                while (System.nanoTime() < fin) {
+                    Long libroId = propios.get(siguiente++ % propios.size());
+                    try {
+                        Long prestamoId = prestamoService.crearPrestamo(usuarioId, libroId).getId();
+                        prestamoService.devolverLibro(prestamoId, null);
+                        completados.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        fallidos.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        esperar(lanzados);
+        if (fallidos.get() > 0) {
+            log.warn("Benchmark bloqueos - {} hilos: {} préstamos fallidos", hilos, fallidos.get());
+        }
+        return completados.get() / (double) segundos;
+    }
+
+    private Disputa medirMismoLibro(List<Long> usuarios, Long libroId) throws InterruptedException {
+        Disputa disputa = new Disputa();
+        AtomicInteger prestadoALaVez = new AtomicInteger();
+        long fin = System.nanoTime() + Duration.ofSeconds(duracionFaseS).toNanos();
+        List<Thread> lanzados = new ArrayList<>();
+        for (Long usuarioId : usuarios) {
+            lanzados.add(arrancar(() -> {
+                while (System.nanoTime() < fin) {
+                    Long prestamoId;
+                    try {
+                        prestamoId = prestamoService.crearPrestamo(usuarioId, libroId).getId();
+                    } catch (IllegalArgumentException e) {
+                        disputa.rechazados.incrementAndGet();
+                        continue;
+                    }
+                    // Entre la confirmación del préstamo y la devolución el libro es de este hilo
+                    disputa.maximoALaVez.accumulateAndGet(prestadoALaVez.incrementAndGet(), Math::max);
+                    prestadoALaVez.decrementAndGet();
+                    prestamoService.devolverLibro(prestamoId, null);
+                    disputa.prestamos.incrementAndGet();
+                }
+            }));
+        }
+        esperar(lanzados);
+        return disputa;
+    }
+
+    private Long crearUsuario(long sufijo) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Benchmark");
+        usuario.setApellido("Bloqueos " + sufijo);
+        usuario.setEmail("benchmark.bloqueos." + sufijo + "@biblioteca.com");
+        usuario.setPassword("benchmark");
+        usuario.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        usuario.setTipoUsuario(TipoUsuario.USUARIO);
+        usuario.setEstado(EstadoUsuario.ACTIVO);
+        return usuarioService.save(usuario).getId();
+    }
+
+    private Long crearLibro(long sufijo) {
+        Libro libro = new Libro();
+        libro.setTitulo("Libro de benchmark de bloqueos " + sufijo);
+        libro.setAutor("Autor de benchmark");
+        libro.setAnioPublicacion(2000);
+        libro.setIsbn(String.format("98%011d", sufijo));
+        return libroService.save(libro).getId();
+    }
+
+    private static Thread arrancar(Runnable tarea) {
+        Thread hilo = new Thread(tarea);
+        hilo.start();
+        return hilo;
+    }
+
+    private static void esperar(List<Thread> hilos) throws InterruptedException {
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+    }
+
+    /**
+     * Resultados de la fase con todos los hilos sobre el mismo libro
+     */
+    private static final class Disputa {
+
+        final AtomicLong prestamos = new AtomicLong();
+        final AtomicLong rechazados = new AtomicLong();
+        final AtomicInteger maximoALaVez = new AtomicInteger();
+    }
+}
@@ -0,0 +1,164 @@
+package com.proyect.api_biblioteca.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark de carga mixta: mide la latencia de lectura del catálogo sola y mientras
+ * varios clientes hacen login sin pausa, junto con los logins por segundo y los rechazados
+ * por saturación (503) o por límite de intentos (429). Sólo se activa con el perfil
+ * "benchmark", que sube los límites de login.
+ *
+ * mvn spring-boot:test-run -Dspring-boot.run.main-class=com.proyect.api_biblioteca.benchmark.BenchmarkAplicacion \
+ *     -Dspring-boot.run.profiles=benchmark
+ */
+@Component
+@Profile("benchmark")
+public class BenchmarkLogin implements Benchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkLogin.class);
+
+    private final int duracionFaseS;
+    private final int hilosLogin;
+    private final int hilosLectura;
+    private final String email;
+    private final String contrasenia;
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private String urlBase;
+
+    public BenchmarkLogin(@Value("${biblioteca.benchmark.duracion-fase-s:15}") int duracionFaseS,
+                          @Value("${biblioteca.benchmark.hilos-login:32}") int hilosLogin,
+                          @Value("${biblioteca.benchmark.hilos-lectura:4}") int hilosLectura,
+                          @Value("${biblioteca.benchmark.email:juan.perez@email.com}") String email,
+                          @Value("${biblioteca.benchmark.contrasenia:123456}") String contrasenia) {
+        this.duracionFaseS = duracionFaseS;
+        this.hilosLogin = hilosLogin;
+        this.hilosLectura = hilosLectura;
+        this.email = email;
+        this.contrasenia = contrasenia;
+    }
+
+    @Override
+    public void ejecutar(String urlBase) throws InterruptedException {
+        this.urlBase = urlBase;
+        // Primer login para que la contraseña de ejemplo pase a bcrypt antes de medir
+        login();
+        Thread.sleep(1000);
+
+        Fase soloLectura = medir(0);
+        Fase mixta = medir(hilosLogin);
+
+        log.info("Benchmark - lectura sola: {}", soloLectura.resumenLecturas());
+        log.info("Benchmark - con {} clientes de login: {}", hilosLogin, mixta.resumenLecturas());
+        log.info("Benchmark - logins: {} por segundo, {} rechazados (503/429), {} fallidos",
+                mixta.logins.get() / duracionFaseS, mixta.rechazados.get(), mixta.fallidos.get());
+    }
+
+    private Fase medir(int clientesLogin) throws InterruptedException {
+        Fase fase = new Fase();
+        long fin = System.nanoTime() + Duration.ofSeconds(duracionFaseS).toNanos();
+        List<Thread> hilos = new ArrayList<>();
+
+        for (int i = 0; i < hilosLectura; i++) {
+            hilos.add(arrancar(() -> {
+                List<Long> propias = new ArrayList<>();
+                while (System.nanoTime() < fin) {
+                    long inicio = System.nanoTime();
+                    if (peticion(HttpRequest.newBuilder(URI.create(urlBase + "/api/books?size=20")).GET()) == 200) {
+                        propias.add(System.nanoTime() - inicio);
+                    } else {
+                        fase.fallidos.incrementAndGet();
+                    }
+                }
+                synchronized (fase.latencias) {
+                    fase.latencias.addAll(propias);
+                }
+            }));
+        }
+        for (int i = 0; i < clientesLogin; i++) {
+            hilos.add(arrancar(() -> {
+                while (System.nanoTime() < fin) {
+                    int estado = login();
+                    if (estado == 200) {
+                        fase.logins.incrementAndGet();
+                    } else if (estado == 503 || estado == 429) {
+                        fase.rechazados.incrementAndGet();
+                    } else {
+                        fase.fallidos.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        return fase;
+    }
+
+    private static Thread arrancar(Runnable tarea) {
+        Thread hilo = new Thread(tarea);
+        hilo.start();
+        return hilo;
+    }
+
+    private int login() {
+        String cuerpo = "{\"email\":\"" + email + "\",\"password\":\"" + contrasenia + "\"}";
+        return peticion(HttpRequest.newBuilder(URI.create(urlBase + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo)));
+    }
+
+    private int peticion(HttpRequest.Builder peticion) {
+        try {
+            return cliente.send(peticion.timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Resultados de una fase del benchmark
+     */
+    private static final class Fase {
+
+        final List<Long> latencias = new ArrayList<>();
+        final AtomicLong logins = new AtomicLong();
+        final AtomicLong rechazados = new AtomicLong();
+        final AtomicLong fallidos = new AtomicLong();
+
+        String resumenLecturas() {
+            if (latencias.isEmpty()) {
+                return "sin lecturas";
+            }
+            Collections.sort(latencias);
+            return String.format("%d lecturas, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms",
+                    latencias.size(), percentil(0.50), percentil(0.95), percentil(0.99));
+        }
+
+        private double percentil(double p) {
+            int indice = Math.min(latencias.size() - 1, (int) Math.ceil(p * latencias.size()) - 1);
+            return latencias.get(Math.max(0, indice)) / 1_000_000.0;
+        }
+    }
+}
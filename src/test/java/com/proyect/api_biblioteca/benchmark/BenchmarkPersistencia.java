@@ -0,0 +1,228 @@
+package com.proyect.api_biblioteca.benchmark;
+
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.service.LibroService;
+import com.proyect.api_biblioteca.service.UsuarioService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark de persistencia: peticiones por segundo de lectura del catálogo y de préstamos
+ * (préstamo y devolución), para comparar la configuración por defecto con el perfil prod.
+ * Crea sus propios libros y usuarios (uno por hilo de préstamos) antes de medir.
+ *
+ * mvn spring-boot:test-run -Dspring-boot.run.main-class=com.proyect.api_biblioteca.benchmark.BenchmarkAplicacion \
+ *     -Dspring-boot.run.profiles=prod,benchmark-persistencia
+ */
+@Component
+@Profile("benchmark-persistencia")
+public class BenchmarkPersistencia implements Benchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkPersistencia.class);
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private final Environment entorno;
+    private final LibroService libroService;
+    private final UsuarioService usuarioService;
+    private final int duracionFaseS;
+    private final int hilos;
+    private final int librosPorHilo;
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private String urlBase;
+
+    public BenchmarkPersistencia(Environment entorno, LibroService libroService,
+                                 UsuarioService usuarioService,
+                                 @Value("${biblioteca.benchmark.duracion-fase-s:15}") int duracionFaseS,
+                                 @Value("${biblioteca.benchmark.hilos:8}") int hilos,
+                                 @Value("${biblioteca.benchmark.libros-por-hilo:20}") int librosPorHilo) {
+        this.entorno = entorno;
+        this.libroService = libroService;
+        this.usuarioService = usuarioService;
+        this.duracionFaseS = duracionFaseS;
+        this.hilos = hilos;
+        this.librosPorHilo = librosPorHilo;
+    }
+
+    @Override
+    public void ejecutar(String urlBase) throws InterruptedException {
+        this.urlBase = urlBase;
+        List<Long> usuarios = new ArrayList<>();
+        List<List<Long>> libros = new ArrayList<>();
+        crearDatos(usuarios, libros);
+
+        // Calentamiento del JIT y de las cachés antes de medir
+        medirLecturas(Math.min(5, duracionFaseS));
+
+        Fase lecturas = medirLecturas(duracionFaseS);
+        Fase prestamos = medirPrestamos(usuarios, libros);
+
+        String perfiles = String.join(",", entorno.getActiveProfiles());
+        log.info("Benchmark [{}] - lecturas del catálogo: {}", perfiles, lecturas.resumen(duracionFaseS));
+        log.info("Benchmark [{}] - préstamos (préstamo + devolución): {}", perfiles, prestamos.resumen(duracionFaseS));
+    }
+
+    private void crearDatos(List<Long> usuarios, List<List<Long>> libros) {
+        // Sufijo aleatorio: con una base de datos en fichero cada ejecución crea datos nuevos
+        long base = ThreadLocalRandom.current().nextLong(100_000_000L) * 1000;
+        for (int h = 0; h < hilos; h++) {
+            Usuario usuario = new Usuario();
+            usuario.setNombre("Benchmark");
+            usuario.setApellido("Hilo " + h);
+            usuario.setEmail("benchmark." + (base + h) + "@biblioteca.com");
+            usuario.setPassword("benchmark");
+            usuario.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+            usuario.setTipoUsuario(TipoUsuario.USUARIO);
+            usuario.setEstado(EstadoUsuario.ACTIVO);
+            usuarios.add(usuarioService.save(usuario).getId());
+
+            List<Long> propios = new ArrayList<>();
+            for (int i = 0; i < librosPorHilo; i++) {
+                Libro libro = new Libro();
+                libro.setTitulo("Libro de benchmark " + h + "-" + i);
+                libro.setAutor("Autor de benchmark");
+                libro.setAnioPublicacion(2000);
+                libro.setIsbn(String.format("99%011d", base + (long) h * librosPorHilo + i));
+                propios.add(libroService.save(libro).getId());
+            }
+            libros.add(propios);
+        }
+    }
+
+    private Fase medirLecturas(int segundos) throws InterruptedException {
+        Fase fase = new Fase();
+        long fin = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+        List<Thread> lanzados = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            lanzados.add(arrancar(() -> {
+                List<Long> propias = new ArrayList<>();
+                while (System.nanoTime() < fin) {
+                    long inicio = System.nanoTime();
+                    HttpResponse<String> respuesta = peticion(
+                            HttpRequest.newBuilder(URI.create(urlBase + "/api/books?size=20")).GET());
+                    if (respuesta != null && respuesta.statusCode() == 200) {
+                        propias.add(System.nanoTime() - inicio);
+                    } else {
+                        fase.fallidas.incrementAndGet();
+                    }
+                }
+                fase.anadir(propias);
+            }));
+        }
+        esperar(lanzados);
+        return fase;
+    }
+
+    private Fase medirPrestamos(List<Long> usuarios, List<List<Long>> libros) throws InterruptedException {
+        Fase fase = new Fase();
+        long fin = System.nanoTime() + Duration.ofSeconds(duracionFaseS).toNanos();
+        List<Thread> lanzados = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Long usuarioId = usuarios.get(h);
+            List<Long> propios = libros.get(h);
+            lanzados.add(arrancar(() -> {
+                List<Long> latencias = new ArrayList<>();
+                int siguiente = 0;
+                while (System.nanoTime() < fin) {
+                    Long libroId = propios.get(siguiente++ % propios.size());
+                    long inicio = System.nanoTime();
+                    HttpResponse<String> prestamo = peticion(HttpRequest.newBuilder(URI.create(urlBase + "/api/loans"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"usuarioId\":" + usuarioId + ",\"libroId\":" + libroId + "}")));
+                    Matcher id = prestamo == null || prestamo.statusCode() != 200 ? null : ID.matcher(prestamo.body());
+                    if (id == null || !id.find()) {
+                        fase.fallidas.incrementAndGet();
+                        continue;
+                    }
+                    HttpResponse<String> devolucion = peticion(HttpRequest.newBuilder(
+                            URI.create(urlBase + "/api/loans/" + id.group(1) + "/return"))
+                            .PUT(HttpRequest.BodyPublishers.noBody()));
+                    if (devolucion != null && devolucion.statusCode() == 200) {
+                        latencias.add(System.nanoTime() - inicio);
+                    } else {
+                        fase.fallidas.incrementAndGet();
+                    }
+                }
+                fase.anadir(latencias);
+            }));
+        }
+        esperar(lanzados);
+        return fase;
+    }
+
+    private static Thread arrancar(Runnable tarea) {
+        Thread hilo = new Thread(tarea);
+        hilo.start();
+        return hilo;
+    }
+
+    private static void esperar(List<Thread> hilos) throws InterruptedException {
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+    }
+
+    private HttpResponse<String> peticion(HttpRequest.Builder peticion) {
+        try {
+            return cliente.send(peticion.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resultados de una fase del benchmark
+     */
+    private static final class Fase {
+
+        final List<Long> latencias = new ArrayList<>();
+        final AtomicLong fallidas = new AtomicLong();
+
+        synchronized void anadir(List<Long> propias) {
+            latencias.addAll(propias);
+        }
+
+        synchronized String resumen(int segundos) {
+            if (latencias.isEmpty()) {
+                return "sin operaciones completadas, " + fallidas.get() + " fallidas";
+            }
+            Collections.sort(latencias);
+            return String.format("%.1f por segundo, p50 %.2f ms, p99 %.2f ms, %d fallidas",
+                    latencias.size() / (double) segundos, percentil(0.50), percentil(0.99), fallidas.get());
+        }
+
+        private double percentil(double p) {
+            int indice = Math.min(latencias.size() - 1, (int) Math.ceil(p * latencias.size()) - 1);
+            return latencias.get(Math.max(0, indice)) / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Protocolo de construcción y cambios pendientes de ConstruccionIndice, con listas de
+ * enteros como datos y "añadir un número" como cambio
+ */
+class ConstruccionIndiceTest {
+
+    private final ConstruccionIndice<List<Integer>, Integer> indice = new ConstruccionIndice<>((cambio, datos) -> {
+        if (!datos.contains(cambio)) {
+            datos.add(cambio);
+        }
+    });
+
+    @Test
+    void losCambiosAntesDeConstruirSoloSeVenSiLaCargaLosLee() {
+        indice.aplicar(1);
+        assertNull(indice.actual());
+
+        List<Integer> publicados = indice.construir(() -> new ArrayList<>(List.of(2)));
+        assertSame(publicados, indice.actual());
+        assertEquals(List.of(2), indice.actual());
+    }
+
+    @Test
+    void losCambiosDuranteLaConstruccionSeAplicanALaVersionNueva() {
+        indice.construir(() -> new ArrayList<>(List.of(1)));
+        List<Integer> anterior = indice.actual();
+
+        List<Integer> nueva = indice.construir(() -> {
+            // El recorrido no ve el 5; el cambio llega a la versión publicada y queda pendiente
+            indice.aplicar(5);
+            assertEquals(List.of(1, 5), anterior);
+            return new ArrayList<>(List.of(1, 2));
+        });
+        assertSame(nueva, indice.actual());
+        assertEquals(List.of(1, 2, 5), nueva);
+    }
+
+    @Test
+    void unCambioQueElRecorridoYaVioNoSeDuplica() {
+        List<Integer> nueva = indice.construir(() -> {
+            indice.aplicar(3);
+            return new ArrayList<>(List.of(3));
+        });
+        assertEquals(List.of(3), nueva);
+    }
+
+    @Test
+    void siLaConstruccionFallaSigueLaVersionAnteriorYSeDescartanLosPendientes() {
+        indice.construir(() -> new ArrayList<>(List.of(1)));
+        List<Integer> anterior = indice.actual();
+
+        assertThrows(IllegalStateException.class, () -> indice.construir(() -> {
+            indice.aplicar(7);
+            throw new IllegalStateException("fallo de la base de datos");
+        }));
+        assertSame(anterior, indice.actual());
+        assertEquals(List.of(1, 7), anterior);
+
+        // El 7 ya no está pendiente: una construcción posterior sólo ve lo que cargue
+        assertEquals(List.of(9), indice.construir(() -> new ArrayList<>(List.of(9))));
+    }
+
+    @Test
+    void unaSegundaConstruccionSimultaneaNoHaceNada() throws Exception {
+        CountDownLatch cargando = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+        ExecutorService hilo = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Integer>> primera = hilo.submit(() -> indice.construir(() -> {
+                cargando.countDown();
+                esperar(terminar);
+                return new ArrayList<>(List.of(1));
+            }));
+            assertTrue(cargando.await(5, TimeUnit.SECONDS));
+
+            assertNull(indice.construir(() -> new ArrayList<>(List.of(2))));
+            indice.aplicar(4);
+            terminar.countDown();
+
+            assertEquals(List.of(1, 4), primera.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of(1, 4), indice.actual());
+        } finally {
+            hilo.shutdownNow();
+        }
+    }
+
+    @Test
+    void cambiosConcurrentesConUnaReconstruccionNoSePierden() throws Exception {
+        indice.construir(ArrayList::new);
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < 4; h++) {
+                int base = h * 1000;
+                tareas.add(hilos.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        indice.aplicar(base + i);
+                    }
+                }));
+            }
+            // La carga toma una instantánea de lo ya aplicado, como haría el recorrido de la base de datos
+            indice.construir(() -> {
+                synchronized (indice) {
+                    return new ArrayList<>(indice.actual());
+                }
+            });
+            for (Future<?> tarea : tareas) {
+                tarea.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(4000, indice.actual().size());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private static void esperar(CountDownLatch senal) {
+        try {
+            senal.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
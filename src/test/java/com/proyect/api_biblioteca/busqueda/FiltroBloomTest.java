@@ -0,0 +1,56 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Filtro de Bloom por bloques: sin falsos negativos y con la tasa de falsos positivos esperada
+ */
+class FiltroBloomTest {
+
+    private static final int CLAVES = 100_000;
+
+    @Test
+    void noTieneFalsosNegativos() {
+        Random aleatorio = new Random(5);
+        long[] hashes = new long[CLAVES];
+        FiltroBloom filtro = new FiltroBloom(CLAVES);
+        for (int i = 0; i < CLAVES; i++) {
+            hashes[i] = aleatorio.nextLong();
+            filtro.agregar(hashes[i]);
+        }
+        for (long hash : hashes) {
+            assertTrue(filtro.puedeContener(hash));
+        }
+    }
+
+    @Test
+    void sinLlenarseLosFalsosPositivosSonPocos() {
+        Random aleatorio = new Random(6);
+        FiltroBloom filtro = new FiltroBloom(CLAVES);
+        for (int i = 0; i < CLAVES; i++) {
+            filtro.agregar(aleatorio.nextLong());
+        }
+        int falsosPositivos = 0;
+        for (int i = 0; i < CLAVES; i++) {
+            if (filtro.puedeContener(aleatorio.nextLong())) {
+                falsosPositivos++;
+            }
+        }
+        // Unos 3 % con 8 bits por clave; se deja margen para la variación de los bloques
+        assertTrue(falsosPositivos < CLAVES * 0.06, "Falsos positivos: " + falsosPositivos);
+    }
+
+    @Test
+    void unFiltroVacioNoContieneNada() {
+        FiltroBloom filtro = new FiltroBloom(0);
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(filtro.puedeContener(aleatorio.nextLong()));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.dto.FacetaDTO;
+import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compara IndiceEstadoLibros con BitSet calculados a partir de los libros actuales. Los IDs
+ * ocupan varios grupos de 65536 y los cambios en bloque llevan los mapas de cada estado de un
+ * lado a otro del límite entre contenedores de array y de bitmap.
+ */
+class IndiceEstadoLibrosTest {
+
+    private static final int MAXIMO_ID = 140_000;
+    private static final String[] AUTORES = {"Cervantes", "Cortázar", "Borges", "Lorca", "Machado", "Pardo Bazán"};
+
+    private final LibroRepository libroRepository = mock(LibroRepository.class);
+    private final IndiceEstadoLibros indice = new IndiceEstadoLibros(libroRepository, mock(PlatformTransactionManager.class));
+    private final TreeMap<Long, Libro> libros = new TreeMap<>();
+    private final Random aleatorio = new Random(13);
+
+    @Test
+    void noRespondeHastaConstruirse() {
+        assertFalse(indice.isListo());
+        assertEquals(-1, indice.contar(EstadoLibro.DISPONIBLE));
+        assertNull(indice.buscar(EstadoLibro.DISPONIBLE));
+        assertNull(indice.filtrar(EstadoLibro.DISPONIBLE, null, null, null));
+        assertNull(indice.facetas(new int[0], 5));
+    }
+
+    @Test
+    void losCambiosCoincidenConLaReferencia() {
+        // Densos al principio (bitmaps por estado) y dispersos en los grupos siguientes
+        for (long id = 1; id <= MAXIMO_ID; id += id < 20_000 ? 1 : 1 + aleatorio.nextInt(20)) {
+            libros.put(id, libro(id, aleatorio.nextInt(5) == 0 ? EstadoLibro.PRESTADO : EstadoLibro.DISPONIBLE));
+        }
+        construir();
+        comprobar();
+
+        for (int ronda = 0; ronda < 12; ronda++) {
+            switch (ronda % 4) {
+                case 0 -> cambiarEnBloque(EstadoLibro.PRESTADO, 5000);
+                case 1 -> cambiarEnBloque(EstadoLibro.DISPONIBLE, 7000);
+                case 2 -> {
+                    for (int i = 0; i < 300; i++) {
+                        long id = 1 + aleatorio.nextInt(MAXIMO_ID + 1000);
+                        Libro libro = libro(id, estadoAleatorio());
+                        libros.put(id, libro);
+                        indice.registrar(libro);
+                    }
+                }
+                default -> {
+                    for (int i = 0; i < 300; i++) {
+                        Long id = libros.ceilingKey((long) aleatorio.nextInt(MAXIMO_ID));
+                        if (id != null) {
+                            libros.remove(id);
+                            indice.registrarBorrado(id);
+                        }
+                    }
+                }
+            }
+            comprobar();
+        }
+    }
+
+    @Test
+    void unCambioDeEstadoNoResucitaUnLibroBorrado() {
+        libros.put(7L, libro(7L, EstadoLibro.DISPONIBLE));
+        construir();
+        libros.remove(7L);
+        indice.registrarBorrado(7L);
+        indice.registrarEstado(List.of(7L), EstadoLibro.PRESTADO);
+        comprobar();
+    }
+
+    /**
+     * Pasa al estado indicado muchos libros a la vez, como una operación de préstamo en lote
+     */
+    private void cambiarEnBloque(EstadoLibro estado, int numero) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < numero; i++) {
+            Long id = libros.ceilingKey((long) aleatorio.nextInt(30_000));
+            if (id != null) {
+                libros.get(id).setEstado(estado);
+                ids.add(id);
+            }
+        }
+        indice.registrarEstado(ids, estado);
+    }
+
+    private void construir() {
+        when(libroRepository.streamEstadosAniosYAutores()).thenAnswer(invocacion -> libros.values().stream()
+                .map(l -> new Object[] {l.getId(), l.getEstado(), l.getAnioPublicacion(), l.getAutor()})
+                .toList().stream());
+        indice.construir();
+    }
+
+    private void comprobar() {
+        Map<EstadoLibro, BitSet> porEstado = new HashMap<>();
+        for (EstadoLibro estado : EstadoLibro.values()) {
+            porEstado.put(estado, new BitSet());
+        }
+        libros.forEach((id, libro) -> porEstado.get(libro.getEstado()).set(Math.toIntExact(id)));
+
+        for (EstadoLibro estado : EstadoLibro.values()) {
+            assertEquals(porEstado.get(estado).cardinality(), indice.contar(estado), estado.name());
+            assertArrayEquals(porEstado.get(estado).stream().toArray(), indice.buscar(estado), estado.name());
+        }
+
+        for (int consulta = 0; consulta < 15; consulta++) {
+            EstadoLibro estado = aleatorio.nextBoolean() ? estadoAleatorio() : null;
+            // LibroService rechaza los rangos invertidos antes de llegar al índice
+            int anioA = 1900 + aleatorio.nextInt(120);
+            int anioB = 1900 + aleatorio.nextInt(120);
+            Integer desde = aleatorio.nextBoolean() ? Math.min(anioA, anioB) : null;
+            Integer hasta = aleatorio.nextBoolean() ? Math.max(anioA, anioB) : null;
+            int[] candidatos = aleatorio.nextBoolean() ? null
+                    : aleatorio.ints(3000, 0, MAXIMO_ID + 1000).sorted().distinct().toArray();
+            assertArrayEquals(filtrar(estado, desde, hasta, candidatos),
+                    indice.filtrar(estado, desde, hasta, candidatos).valores(),
+                    estado + " " + desde + "-" + hasta + (candidatos == null ? "" : " con candidatos"));
+        }
+
+        int[] ids = aleatorio.ints(20_000, 0, MAXIMO_ID + 1000).sorted().distinct().toArray();
+        int maximoAutores = 1 + aleatorio.nextInt(AUTORES.length);
+        assertEquals(facetas(ids, maximoAutores), resumir(indice.facetas(ids, maximoAutores)));
+    }
+
+    private int[] filtrar(EstadoLibro estado, Integer desde, Integer hasta, int[] candidatos) {
+        BitSet resultado = new BitSet();
+        libros.forEach((id, libro) -> {
+            if ((estado == null || libro.getEstado() == estado)
+                    && (desde == null || libro.getAnioPublicacion() >= desde)
+                    && (hasta == null || libro.getAnioPublicacion() <= hasta)) {
+                resultado.set(Math.toIntExact(id));
+            }
+        });
+        if (candidatos != null) {
+            BitSet enCandidatos = new BitSet();
+            for (int candidato : candidatos) {
+                enCandidatos.set(candidato);
+            }
+            resultado.and(enCandidatos);
+        }
+        return resultado.stream().toArray();
+    }
+
+    private Map<String, List<String>> facetas(int[] ids, int maximoAutores) {
+        Map<String, Long> estados = new TreeMap<>(Comparator.comparing(EstadoLibro::valueOf));
+        Map<String, Long> decadas = new TreeMap<>(Comparator.comparing(Integer::valueOf));
+        Map<String, Long> autores = new HashMap<>();
+        for (int id : ids) {
+            Libro libro = libros.get((long) id);
+            if (libro != null) {
+                estados.merge(libro.getEstado().name(), 1L, Long::sum);
+                decadas.merge(String.valueOf(libro.getAnioPublicacion() / 10 * 10), 1L, Long::sum);
+                autores.merge(libro.getAutor(), 1L, Long::sum);
+            }
+        }
+        Map<String, List<String>> facetas = new LinkedHashMap<>();
+        facetas.put("estado", listar(new ArrayList<>(estados.entrySet())));
+        facetas.put("decada", listar(new ArrayList<>(decadas.entrySet())));
+        List<Map.Entry<String, Long>> mejores = new ArrayList<>(autores.entrySet());
+        mejores.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        facetas.put("autor", listar(mejores.subList(0, Math.min(maximoAutores, mejores.size()))));
+        return facetas;
+    }
+
+    private static List<String> listar(List<Map.Entry<String, Long>> cuentas) {
+        return cuentas.stream().map(e -> e.getKey() + "=" + e.getValue()).toList();
+    }
+
+    private static Map<String, List<String>> resumir(Map<String, List<FacetaDTO>> facetas) {
+        Map<String, List<String>> resumen = new LinkedHashMap<>();
+        facetas.forEach((nombre, valores) ->
+                resumen.put(nombre, valores.stream().map(f -> f.getValor() + "=" + f.getCantidad()).toList()));
+        return resumen;
+    }
+
+    private EstadoLibro estadoAleatorio() {
+        return EstadoLibro.values()[aleatorio.nextInt(EstadoLibro.values().length)];
+    }
+
+    private Libro libro(Long id, EstadoLibro estado) {
+        Libro libro = new Libro();
+        libro.setId(id);
+        libro.setEstado(estado);
+        libro.setAnioPublicacion(1900 + aleatorio.nextInt(125));
+        libro.setAutor(AUTORES[aleatorio.nextInt(AUTORES.length)]);
+        return libro;
+    }
+}
@@ -0,0 +1,140 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Compara IndiceInvertido con una referencia ingenua (término -> conjunto ordenado de documentos)
+ */
+class IndiceInvertidoTest {
+
+    private static final String[] VOCABULARIO = {
+            "a", "ab", "abc", "abd", "abra", "b", "ba", "bab", "cien", "ciencia", "cielo", "z", "zz"
+    };
+
+    private static final String[] PREFIJOS = {"", "a", "ab", "abc", "abr", "b", "ba", "c", "cie", "cien", "x", "z"};
+
+    @Test
+    void buscarPrefijoCoincideConLaReferenciaTrasAltasYBajas() {
+        Random aleatorio = new Random(42);
+        IndiceInvertido.Constructor constructor = new IndiceInvertido.Constructor();
+        Map<Integer, List<String>> documentos = new TreeMap<>();
+        for (int documento = 1; documento <= 500; documento++) {
+            List<String> tokens = tokensAleatorios(aleatorio);
+            documentos.put(documento, tokens);
+            constructor.agregar(documento, tokens);
+        }
+        IndiceInvertido indice = constructor.construir();
+        comprobar(indice, documentos);
+
+        for (int i = 0; i < 2000; i++) {
+            int documento = 1 + aleatorio.nextInt(700);
+            List<String> anteriores = documentos.remove(documento);
+            if (anteriores != null) {
+                indice.quitar(documento, anteriores);
+            }
+            if (aleatorio.nextInt(3) > 0) {
+                List<String> tokens = tokensAleatorios(aleatorio);
+                documentos.put(documento, tokens);
+                indice.agregar(documento, tokens);
+            }
+        }
+        comprobar(indice, documentos);
+    }
+
+    @Test
+    void agregarYQuitarSonIdempotentes() {
+        IndiceInvertido indice = new IndiceInvertido();
+        indice.agregar(3, List.of("abc"));
+        indice.agregar(3, List.of("abc"));
+        indice.agregar(1, List.of("abd"));
+        assertArrayEquals(new int[] {1, 3}, indice.buscarPrefijo("ab"));
+
+        indice.quitar(3, List.of("abc"));
+        indice.quitar(3, List.of("abc"));
+        indice.quitar(7, List.of("abd", "inexistente"));
+        assertArrayEquals(new int[] {1}, indice.buscarPrefijo("ab"));
+        assertArrayEquals(new int[0], indice.buscarPrefijo("abc"));
+    }
+
+    @Test
+    void unionCoincideConLaReferencia() {
+        Random aleatorio = new Random(7);
+        for (int caso = 0; caso < 500; caso++) {
+            // Alternar listas dispersas (mezcla con montículo) y densas (mapa de bits)
+            int rango = caso % 2 == 0 ? 1_000_000 : 2_000;
+            List<int[]> listas = new ArrayList<>();
+            Set<Integer> esperado = new TreeSet<>();
+            int numeroListas = aleatorio.nextInt(12);
+            for (int l = 0; l < numeroListas; l++) {
+                int[] lista = listaAleatoria(aleatorio, aleatorio.nextInt(300), rango);
+                listas.add(lista);
+                for (int valor : lista) {
+                    esperado.add(valor);
+                }
+            }
+            assertArrayEquals(aArray(esperado), IndiceInvertido.union(listas), "caso " + caso);
+        }
+    }
+
+    @Test
+    void interseccionCoincideConLaReferencia() {
+        Random aleatorio = new Random(11);
+        for (int caso = 0; caso < 500; caso++) {
+            int[] a = listaAleatoria(aleatorio, aleatorio.nextInt(200), 1_000);
+            int[] b = listaAleatoria(aleatorio, aleatorio.nextInt(200), 1_000);
+            Set<Integer> esperado = new TreeSet<>();
+            for (int valor : a) {
+                esperado.add(valor);
+            }
+            Set<Integer> enB = new TreeSet<>();
+            for (int valor : b) {
+                enB.add(valor);
+            }
+            esperado.retainAll(enB);
+            assertArrayEquals(aArray(esperado), IndiceInvertido.interseccion(a, b), "caso " + caso);
+        }
+    }
+
+    private static void comprobar(IndiceInvertido indice, Map<Integer, List<String>> documentos) {
+        for (String prefijo : PREFIJOS) {
+            Set<Integer> esperado = new TreeSet<>();
+            documentos.forEach((documento, tokens) -> {
+                if (tokens.stream().anyMatch(token -> token.startsWith(prefijo))) {
+                    esperado.add(documento);
+                }
+            });
+            assertArrayEquals(aArray(esperado), indice.buscarPrefijo(prefijo), "prefijo '" + prefijo + "'");
+        }
+    }
+
+    private static List<String> tokensAleatorios(Random aleatorio) {
+        Set<String> tokens = new TreeSet<>();
+        int cantidad = aleatorio.nextInt(4);
+        for (int i = 0; i < cantidad; i++) {
+            tokens.add(VOCABULARIO[aleatorio.nextInt(VOCABULARIO.length)]);
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private static int[] listaAleatoria(Random aleatorio, int tamanio, int rango) {
+        Set<Integer> valores = new TreeSet<>();
+        for (int i = 0; i < tamanio; i++) {
+            valores.add(aleatorio.nextInt(rango));
+        }
+        return aArray(valores);
+    }
+
+    private static int[] aArray(Set<Integer> valores) {
+        return valores.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
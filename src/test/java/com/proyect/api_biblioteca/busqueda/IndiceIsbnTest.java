@@ -0,0 +1,140 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compara IndiceIsbn con un mapa de ISBN a ID calculado a partir de los libros actuales
+ */
+class IndiceIsbnTest {
+
+    private final LibroRepository libroRepository = mock(LibroRepository.class);
+    private final IndiceIsbn indice = new IndiceIsbn(libroRepository, mock(PlatformTransactionManager.class));
+    private final TreeMap<Long, Libro> libros = new TreeMap<>();
+    private final Random aleatorio = new Random(8);
+
+    @Test
+    void laClaveSoloAceptaTreceDigitos() {
+        assertEquals(9_788_437_604_947L, IndiceIsbn.clave("9788437604947"));
+        assertEquals(0L, IndiceIsbn.clave("0000000000000"));
+        assertEquals(-1, IndiceIsbn.clave(null));
+        assertEquals(-1, IndiceIsbn.clave("978843760494"));
+        assertEquals(-1, IndiceIsbn.clave("97884376049470"));
+        assertEquals(-1, IndiceIsbn.clave("978-843760494"));
+        assertEquals(-1, IndiceIsbn.clave("978843760494X"));
+    }
+
+    @Test
+    void noRespondeHastaConstruirse() {
+        assertFalse(indice.isListo());
+        assertThrows(IllegalStateException.class, () -> indice.buscar("9788437604947"));
+    }
+
+    @Test
+    void losCambiosCoincidenConLaReferencia() {
+        for (long id = 1; id <= 2000; id++) {
+            libros.put(id, libro(id, isbnAleatorio()));
+        }
+        construir();
+        comprobar();
+
+        for (int paso = 0; paso < 5000; paso++) {
+            long id = 1 + aleatorio.nextInt(2500);
+            Libro anterior = libros.get(id);
+            if (anterior != null && aleatorio.nextInt(4) == 0) {
+                libros.remove(id);
+                indice.registrar(IndiceLibros.Entrada.de(anterior), null);
+            } else {
+                Libro nuevo = libro(id, aleatorio.nextInt(10) == 0 ? "sin formato " + id : isbnAleatorio());
+                libros.put(id, nuevo);
+                indice.registrar(IndiceLibros.Entrada.de(anterior), IndiceLibros.Entrada.de(nuevo));
+            }
+            if (paso % 500 == 0) {
+                comprobar();
+            }
+        }
+        comprobar();
+    }
+
+    @Test
+    void losCambiosDuranteLaConstruccionSeAplicanAlTerminar() {
+        for (long id = 1; id <= 500; id++) {
+            libros.put(id, libro(id, isbnAleatorio()));
+        }
+        when(libroRepository.count()).thenAnswer(invocacion -> (long) libros.size());
+        when(libroRepository.streamIdsEIsbns()).thenAnswer(invocacion -> {
+            // La consulta ya leyó los libros; después se confirman cambios que el índice aún no tiene
+            var filas = libros.values().stream().map(l -> new Object[] {l.getId(), l.getIsbn()}).toList();
+            for (long id = 1; id <= 100; id++) {
+                Libro anterior = libros.get(id);
+                Libro nuevo = libro(id, isbnAleatorio());
+                libros.put(id, nuevo);
+                indice.registrar(IndiceLibros.Entrada.de(anterior), IndiceLibros.Entrada.de(nuevo));
+            }
+            return filas.stream();
+        });
+        indice.construir();
+        assertTrue(indice.isListo());
+        comprobar();
+    }
+
+    private void construir() {
+        when(libroRepository.count()).thenAnswer(invocacion -> (long) libros.size());
+        when(libroRepository.streamIdsEIsbns()).thenAnswer(invocacion -> libros.values().stream()
+                .map(libro -> new Object[] {libro.getId(), libro.getIsbn()})
+                .toList().stream());
+        indice.construir();
+        assertTrue(indice.isListo());
+    }
+
+    private void comprobar() {
+        Map<String, Long> referencia = new HashMap<>();
+        libros.forEach((id, libro) -> {
+            if (IndiceIsbn.clave(libro.getIsbn()) >= 0) {
+                referencia.put(libro.getIsbn(), id);
+            }
+        });
+        for (Libro libro : libros.values()) {
+            assertEquals(referencia.getOrDefault(libro.getIsbn(), IndiceIsbn.AUSENTE), indice.buscar(libro.getIsbn()),
+                    "ISBN " + libro.getIsbn());
+        }
+        for (int i = 0; i < 200; i++) {
+            String isbn = String.format("978%010d", aleatorio.nextInt(3000));
+            assertEquals(referencia.getOrDefault(isbn, IndiceIsbn.AUSENTE), indice.buscar(isbn));
+        }
+    }
+
+    /**
+     * ISBN que ningún libro actual tiene (la columna es única). Hay pocos distintos, así que
+     * los de libros borrados o cambiados se reutilizan.
+     */
+    private String isbnAleatorio() {
+        while (true) {
+            String isbn = String.format("978%010d", aleatorio.nextInt(3000));
+            if (libros.values().stream().noneMatch(libro -> isbn.equals(libro.getIsbn()))) {
+                return isbn;
+            }
+        }
+    }
+
+    private static Libro libro(Long id, String isbn) {
+        Libro libro = new Libro();
+        libro.setId(id);
+        libro.setIsbn(isbn);
+        return libro;
+    }
+}
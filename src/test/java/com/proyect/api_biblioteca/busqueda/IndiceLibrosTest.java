@@ -0,0 +1,170 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compara las búsquedas de IndiceLibros con la regla de IndiceLibros.coincide, que es la que
+ * aplica LibroService en la base de datos mientras el índice se construye
+ */
+class IndiceLibrosTest {
+
+    private static final String[] PALABRAS = {
+            "Quijote", "Mancha", "cien", "años", "soledad", "Márquez", "marqués", "García", "garza",
+            "Cervantes", "ciencia", "El", "la", "de", "niño", "Ñandú", "1984", "Orwell"
+    };
+
+    private static final String[] BUSQUEDAS = {
+            "quijote", "ote", "qui man", "márquez", "MARQUEZ", "marq", "gar", "garcia marquez", "cien años",
+            "ciencia", "nino", "ñandu", "19", "de la", "!!", "", "el quij", "x"
+    };
+
+    private final LibroRepository libroRepository = mock(LibroRepository.class);
+    private final IndiceLibros indice = new IndiceLibros(libroRepository, mock(PlatformTransactionManager.class));
+    private final TreeMap<Long, Libro> libros = new TreeMap<>();
+    private final Random aleatorio = new Random(3);
+
+    @BeforeEach
+    void preparar() {
+        ReflectionTestUtils.setField(indice, "entityManager", mock(EntityManager.class));
+        for (long id = 1; id <= 300; id++) {
+            libros.put(id, libroAleatorio(id));
+        }
+    }
+
+    @Test
+    void noRespondeHastaConstruirse() {
+        assertFalse(indice.isListo());
+        assertNull(indice.buscar(IndiceLibros.Campo.TITULO, "quijote"));
+        assertNull(indice.buscarEnTodos("quijote"));
+    }
+
+    @Test
+    void lasBusquedasCoincidenConLaReglaDeLaBaseDeDatos() {
+        construir();
+        assertTrue(indice.isListo());
+        comprobar();
+    }
+
+    @Test
+    void losCambiosRegistradosSeReflejanComoEnLaReferencia() {
+        construir();
+        for (int i = 0; i < 500; i++) {
+            long id = 1 + aleatorio.nextInt(400);
+            Libro anterior = libros.get(id);
+            if (aleatorio.nextInt(4) == 0) {
+                libros.remove(id);
+                indice.registrar(IndiceLibros.Entrada.de(anterior), null);
+            } else {
+                Libro nuevo = libroAleatorio(id);
+                libros.put(id, nuevo);
+                indice.registrar(IndiceLibros.Entrada.de(anterior), IndiceLibros.Entrada.de(nuevo));
+            }
+        }
+        comprobar();
+    }
+
+    @Test
+    void losCambiosDuranteLaConstruccionNoSePierden() {
+        List<Libro> recorridos = new ArrayList<>(libros.values());
+        Libro nuevo = libro(1000L, "Rayuela", "Cortázar", null);
+        Libro cambiado = libro(1L, "Pedro Páramo", "Rulfo", null);
+        Libro anterior = libros.get(1L);
+        when(libroRepository.streamAll()).thenAnswer(invocacion -> recorridos.stream().peek(libro -> {
+            // Cambios confirmados mientras el recorrido ya ha pasado por el libro 1
+            if (libro.getId() == 2L) {
+                libros.put(1000L, nuevo);
+                libros.put(1L, cambiado);
+                indice.registrar(null, IndiceLibros.Entrada.de(nuevo));
+                indice.registrar(IndiceLibros.Entrada.de(anterior), IndiceLibros.Entrada.de(cambiado));
+            }
+        }));
+        indice.construir();
+
+        assertArrayEquals(new int[] {1000}, indice.buscar(IndiceLibros.Campo.AUTOR, "cortazar"));
+        assertArrayEquals(new int[] {1}, indice.buscar(IndiceLibros.Campo.TITULO, "pedro par"));
+        comprobar();
+    }
+
+    @Test
+    void coincideExigeQueCadaPalabraEmpieceUnaPalabraDelTexto() {
+        assertTrue(IndiceLibros.coincide("quij", "Don Quijote de la Mancha"));
+        assertTrue(IndiceLibros.coincide("MANCHA don", "Don Quijote de la Mancha"));
+        assertTrue(IndiceLibros.coincide("marquez gabo", "Gabriel García Márquez", "Gabo"));
+        assertFalse(IndiceLibros.coincide("ote", "Don Quijote de la Mancha"));
+        assertFalse(IndiceLibros.coincide("quijote cervantes", "Don Quijote de la Mancha"));
+        assertFalse(IndiceLibros.coincide("!!", "Don Quijote de la Mancha"));
+        assertFalse(IndiceLibros.coincide("quijote", (String) null));
+    }
+
+    private void construir() {
+        when(libroRepository.streamAll()).thenAnswer(invocacion -> new ArrayList<>(libros.values()).stream());
+        indice.construir();
+    }
+
+    private void comprobar() {
+        for (String busqueda : BUSQUEDAS) {
+            List<Long> porTitulo = new ArrayList<>();
+            List<Long> porAutor = new ArrayList<>();
+            List<Long> enTodos = new ArrayList<>();
+            libros.forEach((id, libro) -> {
+                if (IndiceLibros.coincide(busqueda, libro.getTitulo())) {
+                    porTitulo.add(id);
+                }
+                if (IndiceLibros.coincide(busqueda, libro.getAutor())) {
+                    porAutor.add(id);
+                }
+                if (IndiceLibros.coincide(busqueda, libro.getTitulo(), libro.getAutor(), libro.getDescripcion())) {
+                    enTodos.add(id);
+                }
+            });
+            assertArrayEquals(aArray(porTitulo), indice.buscar(IndiceLibros.Campo.TITULO, busqueda), "título: " + busqueda);
+            assertArrayEquals(aArray(porAutor), indice.buscar(IndiceLibros.Campo.AUTOR, busqueda), "autor: " + busqueda);
+            assertArrayEquals(aArray(enTodos), indice.buscarEnTodos(busqueda), "todos: " + busqueda);
+        }
+    }
+
+    private Libro libroAleatorio(long id) {
+        return libro(id, frase(1 + aleatorio.nextInt(4)), frase(1 + aleatorio.nextInt(2)),
+                aleatorio.nextBoolean() ? null : frase(aleatorio.nextInt(5)));
+    }
+
+    private String frase(int palabras) {
+        StringBuilder frase = new StringBuilder();
+        for (int i = 0; i < palabras; i++) {
+            frase.append(i == 0 ? "" : aleatorio.nextBoolean() ? " " : ", ")
+                    .append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+        }
+        return frase.toString();
+    }
+
+    private static Libro libro(Long id, String titulo, String autor, String descripcion) {
+        Libro libro = new Libro();
+        libro.setId(id);
+        libro.setTitulo(titulo);
+        libro.setAutor(autor);
+        libro.setDescripcion(descripcion);
+        return libro;
+    }
+
+    private static int[] aArray(List<Long> ids) {
+        return ids.stream().mapToInt(Long::intValue).toArray();
+    }
+}
@@ -0,0 +1,190 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara MapaBits con java.util.BitSet. Los grupos de 65536 valores se generan con densidades
+ * a ambos lados del límite de 4096 elementos para combinar contenedores de array y de bitmap
+ * y forzar las conversiones entre ellos.
+ */
+class MapaBitsTest {
+
+    private static final int GRUPO = 1 << 16;
+    private static final int MAXIMO_ARRAY = 4096;
+
+    private final Random aleatorio = new Random(11);
+
+    @Test
+    void altasYBajasAlrededorDelLimiteCoincidenConBitSet() {
+        MapaBits mapa = new MapaBits();
+        BitSet referencia = new BitSet();
+        // Un grupo sube y baja varias veces por encima y por debajo del límite; otro queda siempre disperso
+        int enPrimerGrupo = 0;
+        for (int ronda = 0; ronda < 6; ronda++) {
+            while (enPrimerGrupo < MAXIMO_ARRAY + 200) {
+                int valor = aleatorio.nextInt(GRUPO);
+                if (agregar(mapa, referencia, valor)) {
+                    enPrimerGrupo++;
+                }
+                agregar(mapa, referencia, 3 * GRUPO + aleatorio.nextInt(GRUPO));
+            }
+            comprobar(mapa, referencia);
+            while (enPrimerGrupo > MAXIMO_ARRAY - 200) {
+                int valor = referencia.nextSetBit(aleatorio.nextInt(GRUPO));
+                valor = valor < 0 || valor >= GRUPO ? referencia.nextSetBit(0) : valor;
+                assertTrue(mapa.quitar(valor));
+                referencia.clear(valor);
+                assertFalse(mapa.quitar(valor));
+                enPrimerGrupo--;
+            }
+            comprobar(mapa, referencia);
+        }
+        // Vaciar un grupo elimina su contenedor
+        for (int valor = referencia.nextSetBit(3 * GRUPO); valor >= 0; valor = referencia.nextSetBit(valor + 1)) {
+            mapa.quitar(valor);
+        }
+        referencia.clear(3 * GRUPO, 4 * GRUPO);
+        comprobar(mapa, referencia);
+    }
+
+    @Test
+    void interseccionYUnionEntreTiposDeContenedor() {
+        for (int ronda = 0; ronda < 40; ronda++) {
+            BitSet a = aleatorio();
+            BitSet b = aleatorio();
+            MapaBits mapaA = mapa(a);
+            MapaBits mapaB = mapa(b);
+
+            BitSet y = (BitSet) a.clone();
+            y.and(b);
+            BitSet o = (BitSet) a.clone();
+            o.or(b);
+            comprobar(MapaBits.interseccion(mapaA, mapaB), y);
+            comprobar(MapaBits.interseccion(mapaB, mapaA), y);
+            comprobar(MapaBits.union(List.of(mapaA, mapaB)), o);
+            comprobar(MapaBits.union(List.of(mapaB, mapaA)), o);
+
+            // Las operaciones no modifican sus operandos
+            comprobar(mapaA, a);
+            comprobar(mapaB, b);
+        }
+    }
+
+    @Test
+    void unionDeVariosMapas() {
+        List<MapaBits> mapas = new ArrayList<>();
+        BitSet referencia = new BitSet();
+        for (int i = 0; i < 8; i++) {
+            BitSet parte = aleatorio();
+            mapas.add(mapa(parte));
+            referencia.or(parte);
+        }
+        comprobar(MapaBits.union(mapas), referencia);
+        comprobar(MapaBits.union(List.of()), new BitSet());
+    }
+
+    @Test
+    void losResultadosSonIndependientesDeLosOperandos() {
+        BitSet a = aleatorio();
+        BitSet b = aleatorio();
+        MapaBits mapaA = mapa(a);
+        MapaBits mapaB = mapa(b);
+        MapaBits union = MapaBits.union(List.of(mapaA, mapaB));
+        MapaBits interseccion = MapaBits.interseccion(mapaA, mapaB);
+        MapaBits copia = mapaA.copiar();
+        BitSet o = (BitSet) a.clone();
+        o.or(b);
+        BitSet y = (BitSet) a.clone();
+        y.and(b);
+
+        for (int i = 0; i < 20_000; i++) {
+            int valor = aleatorio.nextInt(4 * GRUPO);
+            if (aleatorio.nextBoolean()) {
+                mapaA.agregar(valor);
+                mapaB.quitar(valor);
+            } else {
+                mapaA.quitar(valor);
+                mapaB.agregar(valor);
+            }
+        }
+        comprobar(union, o);
+        comprobar(interseccion, y);
+        comprobar(copia, a);
+    }
+
+    @Test
+    void siguientesYFiltrarCoincidenConBitSet() {
+        for (int ronda = 0; ronda < 20; ronda++) {
+            BitSet referencia = aleatorio();
+            MapaBits mapa = mapa(referencia);
+            for (int consulta = 0; consulta < 50; consulta++) {
+                int despuesDe = aleatorio.nextInt(4 * GRUPO + 10) - 1;
+                int limite = aleatorio.nextInt(3) == 0 ? Integer.MAX_VALUE : aleatorio.nextInt(10_000);
+                assertArrayEquals(siguientes(referencia, despuesDe, limite), mapa.siguientes(despuesDe, limite),
+                        "después de " + despuesDe + ", límite " + limite);
+            }
+
+            int[] candidatos = aleatorio.ints(5000, 0, 4 * GRUPO).sorted().distinct().toArray();
+            int[] esperados = Arrays.stream(candidatos).filter(referencia::get).toArray();
+            assertArrayEquals(esperados, mapa.filtrar(candidatos));
+        }
+    }
+
+    /**
+     * Cuatro grupos, cada uno vacío, disperso, cerca del límite o denso
+     */
+    private BitSet aleatorio() {
+        BitSet bits = new BitSet();
+        for (int grupo = 0; grupo < 4; grupo++) {
+            int elementos = switch (aleatorio.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> 1 + aleatorio.nextInt(500);
+                case 2 -> MAXIMO_ARRAY - 100 + aleatorio.nextInt(200);
+                default -> 10_000 + aleatorio.nextInt(40_000);
+            };
+            for (int puestos = 0; puestos < elementos; ) {
+                int valor = grupo * GRUPO + aleatorio.nextInt(GRUPO);
+                if (!bits.get(valor)) {
+                    bits.set(valor);
+                    puestos++;
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static MapaBits mapa(BitSet bits) {
+        return MapaBits.de(bits.stream().toArray());
+    }
+
+    private static boolean agregar(MapaBits mapa, BitSet referencia, int valor) {
+        boolean nuevo = !referencia.get(valor);
+        assertEquals(nuevo, mapa.agregar(valor));
+        referencia.set(valor);
+        return nuevo;
+    }
+
+    private static int[] siguientes(BitSet bits, int despuesDe, int limite) {
+        return bits.stream().filter(valor -> valor > despuesDe).limit(limite).toArray();
+    }
+
+    private void comprobar(MapaBits mapa, BitSet referencia) {
+        assertEquals(referencia.cardinality(), mapa.cardinalidad());
+        assertArrayEquals(referencia.stream().toArray(), mapa.valores());
+        for (int i = 0; i < 200; i++) {
+            int valor = aleatorio.nextInt(4 * GRUPO);
+            assertEquals(referencia.get(valor), mapa.contiene(valor), "valor " + valor);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Compara MapaIsbn con un HashMap tras secuencias aleatorias de altas, cambios y bajas
+ */
+class MapaIsbnTest {
+
+    private static final long PRIMER_ISBN = 9_780_000_000_000L;
+
+    @Test
+    void creceDesdeLaCapacidadMinimaSinPerderClaves() {
+        MapaIsbn mapa = new MapaIsbn(0);
+        Map<Long, Integer> referencia = new HashMap<>();
+        Random aleatorio = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            long clave = PRIMER_ISBN + aleatorio.nextInt(1_000_000_000);
+            mapa.poner(clave, i);
+            referencia.put(clave, i);
+        }
+        comprobar(mapa, referencia);
+    }
+
+    @Test
+    void altasYBajasAleatoriasCoincidenConLaReferencia() {
+        Random aleatorio = new Random(2);
+        for (int ronda = 0; ronda < 20; ronda++) {
+            MapaIsbn mapa = new MapaIsbn(aleatorio.nextInt(64));
+            Map<Long, Integer> referencia = new HashMap<>();
+            // Pocas claves distintas: se repiten altas, bajas y reinserciones sobre los mismos grupos
+            int distintas = 16 + aleatorio.nextInt(2000);
+            for (int paso = 0; paso < 20_000; paso++) {
+                long clave = PRIMER_ISBN + aleatorio.nextInt(distintas);
+                int valor = aleatorio.nextInt(8);
+                if (aleatorio.nextInt(3) == 0) {
+                    mapa.quitar(clave, valor);
+                    referencia.remove(clave, valor);
+                } else {
+                    mapa.poner(clave, valor);
+                    referencia.put(clave, valor);
+                }
+                if (paso % 997 == 0) {
+                    comprobar(mapa, referencia);
+                }
+            }
+            comprobar(mapa, referencia);
+            for (long clave = PRIMER_ISBN; clave < PRIMER_ISBN + distintas; clave++) {
+                assertEquals(referencia.getOrDefault(clave, MapaIsbn.AUSENTE), mapa.obtener(clave), "clave " + clave);
+            }
+        }
+    }
+
+    @Test
+    void lasBajasEnUnaTablaLlenaNoRompenLasCadenasDeSondeo() {
+        // Tabla mínima sin crecer: todas las claves comparten casillas y las cadenas dan la vuelta
+        MapaIsbn mapa = new MapaIsbn(12);
+        Map<Long, Integer> referencia = new HashMap<>();
+        Random aleatorio = new Random(3);
+        for (int paso = 0; paso < 50_000; paso++) {
+            long clave = PRIMER_ISBN + aleatorio.nextInt(24);
+            if (referencia.size() < 12 && aleatorio.nextBoolean()) {
+                mapa.poner(clave, (int) clave & 0xFF);
+                referencia.put(clave, (int) clave & 0xFF);
+            } else {
+                mapa.quitar(clave, (int) clave & 0xFF);
+                referencia.remove(clave);
+            }
+            comprobar(mapa, referencia);
+        }
+    }
+
+    @Test
+    void quitarConOtroValorNoBorra() {
+        MapaIsbn mapa = new MapaIsbn(4);
+        mapa.poner(PRIMER_ISBN, 1);
+        mapa.poner(PRIMER_ISBN, 2);
+        mapa.quitar(PRIMER_ISBN, 1);
+        assertEquals(2, mapa.obtener(PRIMER_ISBN));
+        assertEquals(1, mapa.tamanio());
+        mapa.quitar(PRIMER_ISBN, 2);
+        assertEquals(MapaIsbn.AUSENTE, mapa.obtener(PRIMER_ISBN));
+        assertEquals(0, mapa.tamanio());
+    }
+
+    @Test
+    void lasLecturasConcurrentesVenSiempreLasClavesEstables() throws InterruptedException {
+        MapaIsbn mapa = new MapaIsbn(0);
+        int estables = 5_000;
+        for (int i = 0; i < estables; i++) {
+            mapa.poner(PRIMER_ISBN + 2L * i, i);
+        }
+        AtomicBoolean parar = new AtomicBoolean();
+        AtomicReference<String> error = new AtomicReference<>();
+        List<Thread> lectores = new ArrayList<>();
+        for (int h = 0; h < 3; h++) {
+            Thread lector = new Thread(() -> {
+                Random aleatorio = new Random();
+                while (!parar.get() && error.get() == null) {
+                    int i = aleatorio.nextInt(estables);
+                    int valor = mapa.obtener(PRIMER_ISBN + 2L * i);
+                    if (valor != i) {
+                        error.set("La clave estable " + i + " devolvió " + valor);
+                    }
+                    // Las claves impares nunca se insertan
+                    int ausente = mapa.obtener(PRIMER_ISBN + 2L * i + 1);
+                    if (ausente != MapaIsbn.AUSENTE) {
+                        error.set("Una clave nunca insertada devolvió " + ausente);
+                    }
+                }
+            });
+            lectores.add(lector);
+            lector.start();
+        }
+
+        // El escritor fuerza crecimientos, bajas con desplazamiento y reconstrucciones del filtro
+        for (int ronda = 0; ronda < 10; ronda++) {
+            for (int i = 0; i < 20_000; i++) {
+                mapa.poner(PRIMER_ISBN + 1_000_000_000L + i, i);
+            }
+            for (int i = 0; i < 20_000; i++) {
+                mapa.quitar(PRIMER_ISBN + 1_000_000_000L + i, i);
+            }
+        }
+        parar.set(true);
+        for (Thread lector : lectores) {
+            lector.join();
+        }
+        assertNull(error.get());
+        assertEquals(estables, mapa.tamanio());
+    }
+
+    private static void comprobar(MapaIsbn mapa, Map<Long, Integer> referencia) {
+        assertEquals(referencia.size(), mapa.tamanio());
+        for (Map.Entry<Long, Integer> entrada : referencia.entrySet()) {
+            assertEquals(entrada.getValue(), mapa.obtener(entrada.getKey()), "clave " + entrada.getKey());
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import com.proyect.api_biblioteca.dto.SugerenciaDTO;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compara las sugerencias (trie base más cambios publicados) con una referencia que agrupa los
+ * libros actuales por título y autor y los ordena por préstamos en cada consulta
+ */
+class SugerenciasLibrosTest {
+
+    private static final long SIN_REVISION_MS = 3_600_000L;
+
+    private static final String[] PREFIJOS = {"a", "alfa", "alfa 1", "be", "beta", "c", "cer", "g", "gar", "o", "x"};
+
+    private final LibroRepository libroRepository = mock(LibroRepository.class);
+    private final PrestamoRepository prestamoRepository = mock(PrestamoRepository.class);
+    private final TreeMap<Long, Libro> libros = new TreeMap<>();
+    private final Map<Long, Integer> prestamos = new HashMap<>();
+    private final Random aleatorio = new Random(9);
+    private SugerenciasLibros sugerencias;
+
+    @AfterEach
+    void detener() {
+        if (sugerencias != null) {
+            sugerencias.detener();
+        }
+    }
+
+    @Test
+    void noHaySugerenciasHastaCargar() {
+        sugerencias = crear(SIN_REVISION_MS, SIN_REVISION_MS);
+        assertNull(sugerencias.sugerir("alfa", 10));
+    }
+
+    @Test
+    void laPrimeraBaseCoincideConLaReferencia() throws Exception {
+        poblar(300);
+        cargar(SIN_REVISION_MS, SIN_REVISION_MS);
+        comprobar();
+    }
+
+    @Test
+    void losCambiosSeSugierenAlConfirmarse() throws Exception {
+        poblar(300);
+        cargar(SIN_REVISION_MS, SIN_REVISION_MS);
+
+        // Menos cambios que el umbral: se publican sin reconstruir la base
+        for (int i = 0; i < 20; i++) {
+            long id = 1 + aleatorio.nextInt(350);
+            switch (aleatorio.nextInt(3)) {
+                case 0 -> borrar(id);
+                case 1 -> guardar(id, "Omega " + id, "Garcilaso");
+                default -> guardar(id, libroAleatorio(id).getTitulo(), libroAleatorio(id).getAutor());
+            }
+            comprobar();
+        }
+    }
+
+    @Test
+    void alQuitarElLibroDeMenorIdElGrupoPasaAlSiguiente() throws Exception {
+        cargar(SIN_REVISION_MS, SIN_REVISION_MS);
+        guardar(7L, "Rayuela", "Cortázar");
+        guardar(3L, "Rayuela", "Cortázar");
+        guardar(12L, "Rayuela", "Cortázar");
+        assertEquals(3L, titulo("rayuela").getLibroId());
+
+        borrar(3L);
+        assertEquals(7L, titulo("rayuela").getLibroId());
+        guardar(7L, "Otra", "Cortázar");
+        assertEquals(12L, titulo("rayuela").getLibroId());
+        comprobar();
+    }
+
+    @Test
+    void muchasRetiradasEnUnPrefijoAntesDeReconstruirNoVacianLasSugerencias() throws Exception {
+        poblar(400);
+        cargar(SIN_REVISION_MS, SIN_REVISION_MS);
+
+        // Se bloquea el hilo de reconstrucción para consultar con todos los cambios aún sin base nueva
+        ScheduledExecutorService ejecutor = (ScheduledExecutorService) ReflectionTestUtils.getField(sugerencias, "ejecutor");
+        CountDownLatch liberar = new CountDownLatch(1);
+        ejecutor.execute(() -> esperar(liberar));
+        try {
+            List<Long> masPrestados = new ArrayList<>(libros.keySet());
+            masPrestados.removeIf(id -> !libros.get(id).getTitulo().startsWith("Alfa"));
+            masPrestados.sort(Comparator.comparing((Long id) -> prestamos.getOrDefault(id, 0)).reversed());
+            for (Long id : masPrestados.subList(0, 120)) {
+                guardar(id, "Omega " + id, libros.get(id).getAutor());
+            }
+            comprobar();
+        } finally {
+            liberar.countDown();
+        }
+        vaciar(ejecutor);
+        comprobar();
+    }
+
+    @Test
+    void laPopularidadCambiaElOrdenAlReconstruir() throws Exception {
+        poblar(200);
+        cargar(50, 0);
+        Long menosPrestado = libros.keySet().stream()
+                .filter(id -> libros.get(id).getTitulo().startsWith("Alfa"))
+                .min(Comparator.comparing((Long id) -> prestamos.getOrDefault(id, 0)))
+                .orElseThrow();
+        prestamos.merge(menosPrestado, 100_000, Integer::sum);
+        sugerencias.registrarPrestamos(Collections.nCopies(100_000, menosPrestado));
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!menosPrestado.equals(sugerencias.sugerir("alfa", 1).get(0).getLibroId())) {
+            assertTrue(System.nanoTime() < limite, "La popularidad no se ha aplicado al reconstruir");
+            Thread.sleep(20);
+        }
+        vaciar((ScheduledExecutorService) ReflectionTestUtils.getField(sugerencias, "ejecutor"));
+        comprobar();
+    }
+
+    private SugerenciasLibros crear(long retardoMs, long intervaloPopularidadMs) {
+        return new SugerenciasLibros(libroRepository, prestamoRepository, mock(PlatformTransactionManager.class),
+                retardoMs, intervaloPopularidadMs);
+    }
+
+    private void cargar(long retardoMs, long intervaloPopularidadMs) throws InterruptedException {
+        when(libroRepository.streamTitulosYAutores()).thenAnswer(invocacion -> libros.values().stream()
+                .map(libro -> new Object[] {libro.getId(), libro.getTitulo(), libro.getAutor()})
+                .toList().stream());
+        when(prestamoRepository.countAgrupadoPorLibro()).thenAnswer(invocacion -> prestamos.entrySet().stream()
+                .map(e -> new Object[] {e.getKey(), (long) e.getValue()})
+                .toList());
+        sugerencias = crear(retardoMs, intervaloPopularidadMs);
+        sugerencias.cargar();
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sugerencias.sugerir("a", 1) == null) {
+            assertTrue(System.nanoTime() < limite, "No se ha publicado la primera base");
+            Thread.sleep(10);
+        }
+    }
+
+    private void poblar(int numero) {
+        for (long id = 1; id <= numero; id++) {
+            Libro libro = libroAleatorio(id);
+            libros.put(id, libro);
+            if (aleatorio.nextInt(4) > 0) {
+                prestamos.put(id, aleatorio.nextInt(500));
+            }
+        }
+    }
+
+    private Libro libroAleatorio(long id) {
+        String[] titulos = {"Alfa " + id, "Beta " + (id % 40), "Ciencia y alfa " + (id % 7)};
+        String[] autores = {"Cervantes", "García Márquez", "Gárgola " + (id % 13), "Cernuda"};
+        return libro(id, titulos[aleatorio.nextInt(titulos.length)], autores[aleatorio.nextInt(autores.length)]);
+    }
+
+    private void guardar(Long id, String titulo, String autor) {
+        Libro nuevo = libro(id, titulo, autor);
+        Libro anterior = libros.put(id, nuevo);
+        sugerencias.registrar(IndiceLibros.Entrada.de(anterior), IndiceLibros.Entrada.de(nuevo));
+    }
+
+    private void borrar(Long id) {
+        Libro anterior = libros.remove(id);
+        if (anterior != null) {
+            sugerencias.registrar(IndiceLibros.Entrada.de(anterior), null);
+        }
+    }
+
+    private SugerenciaDTO titulo(String prefijo) {
+        return sugerencias.sugerir(prefijo, 20).stream()
+                .filter(s -> s.getTipo() == SugerenciaDTO.Tipo.TITULO)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void comprobar() {
+        for (String prefijo : PREFIJOS) {
+            for (int limite : new int[] {1, 5, 20}) {
+                List<SugerenciaDTO> obtenidas = sugerencias.sugerir(prefijo, limite);
+                assertNotNull(obtenidas);
+                assertEquals(referencia(prefijo, limite), resumir(obtenidas), "prefijo '" + prefijo + "', límite " + limite);
+            }
+        }
+    }
+
+    /**
+     * Grupos actuales que contienen el prefijo, por préstamos, longitud y texto normalizado
+     */
+    private List<String> referencia(String texto, int limite) {
+        String prefijo = String.join(" ", NormalizadorTexto.tokens(texto));
+        Map<String, long[]> grupos = new HashMap<>();
+        libros.forEach((id, libro) -> {
+            agrupar(grupos, SugerenciaDTO.Tipo.TITULO, libro.getTitulo(), id);
+            agrupar(grupos, SugerenciaDTO.Tipo.AUTOR, libro.getAutor(), id);
+        });
+        List<Map.Entry<String, long[]>> encontrados = new ArrayList<>();
+        for (Map.Entry<String, long[]> grupo : grupos.entrySet()) {
+            if (TrieSugerencias.contiene(grupo.getKey().substring(grupo.getKey().indexOf(':') + 1), prefijo)) {
+                encontrados.add(grupo);
+            }
+        }
+        encontrados.sort(Comparator.comparing((Map.Entry<String, long[]> g) -> -g.getValue()[0])
+                .thenComparing(g -> normalizado(g.getKey()).length())
+                .thenComparing(g -> normalizado(g.getKey())));
+        List<String> resultado = new ArrayList<>();
+        for (Map.Entry<String, long[]> grupo : encontrados.subList(0, Math.min(limite, encontrados.size()))) {
+            boolean esTitulo = grupo.getKey().startsWith(SugerenciaDTO.Tipo.TITULO.name());
+            resultado.add(grupo.getKey() + " " + grupo.getValue()[0] + (esTitulo ? " #" + grupo.getValue()[1] : ""));
+        }
+        return resultado;
+    }
+
+    private void agrupar(Map<String, long[]> grupos, SugerenciaDTO.Tipo tipo, String texto, Long id) {
+        String normalizado = String.join(" ", NormalizadorTexto.tokens(texto));
+        if (!normalizado.isEmpty()) {
+            long[] grupo = grupos.computeIfAbsent(tipo.name() + ":" + normalizado, k -> new long[] {0, Long.MAX_VALUE});
+            grupo[0] += prestamos.getOrDefault(id, 0);
+            grupo[1] = Math.min(grupo[1], id);
+        }
+    }
+
+    private static String normalizado(String clave) {
+        return clave.substring(clave.indexOf(':') + 1);
+    }
+
+    private static List<String> resumir(List<SugerenciaDTO> sugerencias) {
+        List<String> resultado = new ArrayList<>();
+        for (SugerenciaDTO s : sugerencias) {
+            String normalizado = String.join(" ", NormalizadorTexto.tokens(s.getTexto()));
+            resultado.add(s.getTipo().name() + ":" + normalizado + " " + s.getPrestamos()
+                    + (s.getTipo() == SugerenciaDTO.Tipo.TITULO ? " #" + s.getLibroId() : ""));
+        }
+        return resultado;
+    }
+
+    private static Libro libro(Long id, String titulo, String autor) {
+        Libro libro = new Libro();
+        libro.setId(id);
+        libro.setTitulo(titulo);
+        libro.setAutor(autor);
+        return libro;
+    }
+
+    /**
+     * Espera a que el hilo de sugerencias termine lo que tenga en cola
+     */
+    private static void vaciar(ScheduledExecutorService ejecutor) throws Exception {
+        ejecutor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static void esperar(CountDownLatch senal) {
+        try {
+            senal.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.proyect.api_biblioteca.busqueda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara TrieSugerencias con una búsqueda ingenua: todas las entradas con una palabra que
+ * empiece por el prefijo, ordenadas por rango
+ */
+class TrieSugerenciasTest {
+
+    private static final String[] PALABRAS = {
+            "a", "al", "alfa", "alfabeto", "b", "beta", "bet", "cien", "ciencia", "cielo", "de", "del", "z"
+    };
+
+    @Test
+    void buscarDevuelveLasMejoresEntradasDelPrefijo() {
+        Random aleatorio = new Random(5);
+        // Suficientes entradas para que los nodos altos guarden sus mejores precalculadas
+        List<String> normalizados = new ArrayList<>();
+        for (int e = 0; e < 3000; e++) {
+            normalizados.add(frase(aleatorio, 1 + aleatorio.nextInt(10)));
+        }
+        int[] rango = rangoAleatorio(aleatorio, normalizados.size());
+        TrieSugerencias trie = new TrieSugerencias(normalizados, rango, 50);
+        assertEquals(50, trie.getMaximoResultados());
+
+        List<String> prefijos = new ArrayList<>(List.of("a", "al", "alf", "alfab", "b", "be", "bet", "c", "cie",
+                "cien", "d", "del", "z", "x", "alfa b", "de cie", "ciencia z"));
+        for (String prefijo : prefijos) {
+            for (int limite : new int[] {1, 5, 20, 50, 100}) {
+                assertArrayEquals(referencia(normalizados, rango, prefijo, Math.min(limite, 50)),
+                        trie.buscar(prefijo, limite), "prefijo '" + prefijo + "', límite " + limite);
+            }
+        }
+    }
+
+    @Test
+    void sinEntradasOPrefijoVacioNoHayResultados() {
+        TrieSugerencias vacio = new TrieSugerencias(List.of(), new int[0], 20);
+        assertArrayEquals(new int[0], vacio.buscar("a", 10));
+
+        TrieSugerencias trie = new TrieSugerencias(List.of("alfa"), new int[] {0}, 20);
+        assertArrayEquals(new int[0], trie.buscar("", 10));
+        assertArrayEquals(new int[] {0}, trie.buscar("alfa", 10));
+        assertArrayEquals(new int[0], trie.buscar("alfab", 10));
+    }
+
+    @Test
+    void contieneSigueLaMismaReglaQueBuscar() {
+        assertTrue(TrieSugerencias.contiene("gabriel garcia marquez", "garc"));
+        assertTrue(TrieSugerencias.contiene("gabriel garcia marquez", "garcia m"));
+        assertFalse(TrieSugerencias.contiene("gabriel garcia marquez", "arcia"));
+        assertFalse(TrieSugerencias.contiene("gabriel garcia marquez", ""));
+        // Sólo generan clave las primeras palabras
+        assertFalse(TrieSugerencias.contiene("a b c d e f g h novena", "novena"));
+    }
+
+    private static int[] referencia(List<String> normalizados, int[] rango, String prefijo, int limite) {
+        List<Integer> encontradas = new ArrayList<>();
+        for (int e = 0; e < normalizados.size(); e++) {
+            if (TrieSugerencias.contiene(normalizados.get(e), prefijo)) {
+                encontradas.add(e);
+            }
+        }
+        encontradas.sort((a, b) -> Integer.compare(rango[a], rango[b]));
+        return encontradas.stream().limit(limite).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String frase(Random aleatorio, int palabras) {
+        StringBuilder frase = new StringBuilder();
+        for (int i = 0; i < palabras; i++) {
+            frase.append(i == 0 ? "" : " ").append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+        }
+        return frase.toString();
+    }
+
+    private static int[] rangoAleatorio(Random aleatorio, int n) {
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            posiciones.add(i);
+        }
+        Collections.shuffle(posiciones, aleatorio);
+        return posiciones.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
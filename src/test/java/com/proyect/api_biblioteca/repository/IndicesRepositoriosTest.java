@@ -0,0 +1,153 @@
+package com.proyect.api_biblioteca.repository;
+
+import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba con EXPLAIN de H2 que las consultas de los repositorios que filtran por columnas
+ * indexadas usan un índice y no recorren la tabla entera. El SQL no se copia a mano: es el que
+ * genera Hibernate al llamar a cada método, capturado con un StatementInspector.
+ *
+ * Quedan fuera las búsquedas por texto con LIKE '%...%' (las resuelve el índice invertido en
+ * memoria) y los recorridos completos intencionados (streams para índices y exportaciones).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.proyect.api_biblioteca.repository.IndicesRepositoriosTest$ConsultasCapturadas",
+        // Sin Tomcat no hay manejador para las URL classpath:, así que la configuración de la caché se busca por nombre
+        "spring.jpa.properties.hibernate.javax.cache.uri=caffeine.conf"
+})
+class IndicesRepositoriosTest {
+
+    private static final String RECORRIDO_COMPLETO = ".tableScan";
+
+    @Autowired
+    private PrestamoRepository prestamoRepository;
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void consultasIndexadasUsanIndice() {
+        LocalDate fecha = LocalDate.of(2025, 1, 1);
+        Usuario usuario = entityManager.getReference(Usuario.class, 1L);
+        Libro libro = entityManager.getReference(Libro.class, 1L);
+
+        Map<String, Runnable> consultas = new LinkedHashMap<>();
+        consultas.put("PrestamoRepository.findDTOByUsuarioId", () -> prestamoRepository.findDTOByUsuarioId(1L));
+        consultas.put("PrestamoRepository.findDTOByLibroId", () -> prestamoRepository.findDTOByLibroId(1L));
+        consultas.put("PrestamoRepository.findDTOByEstado", () -> prestamoRepository.findDTOByEstado(EstadoPrestamo.ACTIVO));
+        consultas.put("PrestamoRepository.findByEstado", () -> prestamoRepository.findByEstado(EstadoPrestamo.RENOVADO));
+        consultas.put("PrestamoRepository.findConLibroByIdIn", () -> prestamoRepository.findConLibroByIdIn(List.of(1L, 2L)));
+        consultas.put("PrestamoRepository.findByUsuario", () -> prestamoRepository.findByUsuario(usuario));
+        consultas.put("PrestamoRepository.findByLibro", () -> prestamoRepository.findByLibro(libro));
+        consultas.put("PrestamoRepository.findPrestamosActivos", () -> prestamoRepository.findPrestamosActivos());
+        consultas.put("PrestamoRepository.findIdsPrestamosPorVencer",
+                () -> prestamoRepository.findIdsPrestamosPorVencer(fecha, 0L, Limit.of(500)));
+        consultas.put("PrestamoRepository.marcarVencidos",
+                () -> prestamoRepository.marcarVencidos(List.of(1L, 2L, 3L), EstadoPrestamo.ACTIVO, LocalDateTime.now()));
+        consultas.put("PrestamoRepository.findByFechaPrestamoBetween",
+                () -> prestamoRepository.findByFechaPrestamoBetween(fecha, fecha.plusMonths(1)));
+        consultas.put("PrestamoRepository.hasPrestamosActivos", () -> prestamoRepository.hasPrestamosActivos(usuario));
+        consultas.put("PrestamoRepository.countByUsuarioAndEstado",
+                () -> prestamoRepository.countByUsuarioAndEstado(usuario, EstadoPrestamo.VENCIDO));
+        consultas.put("PrestamoRepository.findByFechaDevolucionEsperada",
+                () -> prestamoRepository.findByFechaDevolucionEsperada(fecha));
+        consultas.put("PrestamoRepository.findPrestamosVencenPronto",
+                () -> prestamoRepository.findPrestamosVencenPronto(fecha, fecha.plusDays(7)));
+        consultas.put("PrestamoRepository.countByEstado", () -> prestamoRepository.countByEstado(EstadoPrestamo.DEVUELTO));
+        consultas.put("PrestamoRepository.findLastPrestamoByLibroAndUsuario",
+                () -> prestamoRepository.findLastPrestamoByLibroAndUsuario(libro, usuario));
+
+        consultas.put("LibroRepository.findByIsbn", () -> libroRepository.findByIsbn("9788467034100"));
+        consultas.put("LibroRepository.findByEstado", () -> libroRepository.findByEstado(EstadoLibro.DISPONIBLE));
+        consultas.put("LibroRepository.findByAnioPublicacion", () -> libroRepository.findByAnioPublicacion(1605));
+        consultas.put("LibroRepository.findByAnioPublicacionBetween",
+                () -> libroRepository.findByAnioPublicacionBetween(1900, 1950));
+        consultas.put("LibroRepository.findLibrosDisponibles", () -> libroRepository.findLibrosDisponibles());
+        consultas.put("LibroRepository.findLibrosPrestados", () -> libroRepository.findLibrosPrestados());
+        consultas.put("LibroRepository.countByEstado", () -> libroRepository.countByEstado(EstadoLibro.PRESTADO));
+        consultas.put("LibroRepository.existsByIsbn", () -> libroRepository.existsByIsbn("9788467034100"));
+        consultas.put("LibroRepository.findIdsByIsbnIn",
+                () -> libroRepository.findIdsByIsbnIn(List.of("9788467034100", "9780452284234")));
+
+        consultas.put("UsuarioRepository.findByEmail", () -> usuarioRepository.findByEmail("juan.perez@email.com"));
+        consultas.put("UsuarioRepository.existsByEmail", () -> usuarioRepository.existsByEmail("juan.perez@email.com"));
+        consultas.put("UsuarioRepository.findByTipoUsuario",
+                () -> usuarioRepository.findByTipoUsuario(TipoUsuario.BIBLIOTECARIO));
+        consultas.put("UsuarioRepository.findByEstado", () -> usuarioRepository.findByEstado(EstadoUsuario.SUSPENDIDO));
+        consultas.put("UsuarioRepository.findUsuariosActivos", () -> usuarioRepository.findUsuariosActivos());
+        consultas.put("UsuarioRepository.countByEstado", () -> usuarioRepository.countByEstado(EstadoUsuario.ACTIVO));
+        consultas.put("UsuarioRepository.findBibliotecariosActivos", () -> usuarioRepository.findBibliotecariosActivos());
+        consultas.put("UsuarioRepository.countByTipoUsuario", () -> usuarioRepository.countByTipoUsuario(TipoUsuario.USUARIO));
+        consultas.put("UsuarioRepository.findIdsDesde", () -> usuarioRepository.findIdsDesde(0L, Limit.of(200)));
+        consultas.put("UsuarioRepository.repararPrestamosActivos", () -> usuarioRepository.repararPrestamosActivos(1L, 200L));
+
+        List<String> sinIndice = new ArrayList<>();
+        consultas.forEach((nombre, consulta) -> {
+            ConsultasCapturadas.SQL.clear();
+            consulta.run();
+            assertFalse(ConsultasCapturadas.SQL.isEmpty(), nombre + " no ha ejecutado ninguna consulta");
+            for (String sql : ConsultasCapturadas.SQL) {
+                String plan = explicar(sql);
+                if (plan.contains(RECORRIDO_COMPLETO)) {
+                    sinIndice.add(nombre + ":\n" + plan);
+                }
+            }
+        });
+        assertTrue(sinIndice.isEmpty(), "Consultas que recorren la tabla completa en lugar de usar un índice:\n"
+                + String.join("\n", sinIndice));
+    }
+
+    /**
+     * Plan de H2 para el SQL capturado; los parámetros se dejan sin valor, EXPLAIN no los necesita
+     */
+    private String explicar(String sql) {
+        return jdbcTemplate.query(conexion -> conexion.prepareStatement("EXPLAIN " + sql),
+                resultado -> resultado.next() ? resultado.getString(1) : "");
+    }
+
+    /**
+     * Guarda el SQL que Hibernate va a ejecutar
+     */
+    public static class ConsultasCapturadas implements StatementInspector {
+
+        static final List<String> SQL = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.proyect.api_biblioteca.repository;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Normalización a 1 o 0 por fila de los resultados de los lotes JDBC, incluidos los drivers
+ * que no informan del número de filas (Statement.SUCCESS_NO_INFO)
+ */
+class PrestamoLoteRepositoryTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final PrestamoLoteRepository repositorio = new PrestamoLoteRepository();
+
+    @BeforeEach
+    void preparar() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(mock(Cache.class));
+        ReflectionTestUtils.setField(repositorio, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repositorio, "entityManagerFactory", entityManagerFactory);
+    }
+
+    @Test
+    void conRecuentosLosNormalizaSinConsultar() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+                .thenReturn(new int[] {1, 0, Statement.EXECUTE_FAILED, 2});
+
+        int[] filas = repositorio.renovarPrestamos(List.of(1L, 2L, 3L, 4L), fechas(4));
+
+        assertArrayEquals(new int[] {1, 0, 0, 1}, filas);
+        verify(jdbcTemplate, never()).queryForList(anyString(), any(SqlParameterSource.class), eq(Long.class));
+    }
+
+    @Test
+    void sinInformacionConsultaSoloEsasFilas() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class))).thenReturn(new int[] {
+                Statement.SUCCESS_NO_INFO, 1, Statement.SUCCESS_NO_INFO, 0, Statement.SUCCESS_NO_INFO});
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(10L, 50L));
+
+        int[] filas = repositorio.marcarPrestamosDevueltos(List.of(10L, 20L, 30L, 40L, 50L),
+                Arrays.asList(null, null, 2.0, null, null), LocalDate.now(), null);
+
+        assertArrayEquals(new int[] {1, 1, 0, 0, 1}, filas);
+        ArgumentCaptor<MapSqlParameterSource> parametros = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate).queryForList(anyString(), parametros.capture(), eq(Long.class));
+        assertEquals(List.of(10L, 30L, 50L), parametros.getValue().getValue("ids"));
+        assertEquals("DEVUELTO", parametros.getValue().getValue("estado"));
+    }
+
+    @Test
+    void losLibrosSinInformacionSeDanPorPrestadosSiLoEstan() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+                .thenReturn(new int[] {Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(8L));
+
+        assertArrayEquals(new int[] {0, 1}, repositorio.marcarLibrosPrestados(List.of(7L, 8L)));
+    }
+
+    private static List<LocalDate> fechas(int numero) {
+        return Collections.nCopies(numero, LocalDate.now());
+    }
+}
@@ -0,0 +1,128 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import com.proyect.api_biblioteca.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Contadores en memoria y su reconciliación con los recuentos de la base de datos.
+ * Sin transacción activa los cambios se aplican al registrarse.
+ */
+class EstadisticasServiceTest {
+
+    private final PrestamoRepository prestamoRepository = mock(PrestamoRepository.class);
+    private final LibroRepository libroRepository = mock(LibroRepository.class);
+    private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final EstadisticasService estadisticas = new EstadisticasService();
+
+    @BeforeEach
+    void preparar() {
+        ReflectionTestUtils.setField(estadisticas, "prestamoRepository", prestamoRepository);
+        ReflectionTestUtils.setField(estadisticas, "libroRepository", libroRepository);
+        ReflectionTestUtils.setField(estadisticas, "usuarioRepository", usuarioRepository);
+        ReflectionTestUtils.setField(estadisticas, "transactionTemplate", transactionTemplate);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocacion -> invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(libroRepository.countAgrupadoPorEstado()).thenReturn(List.of());
+        when(usuarioRepository.countAgrupadoPorEstado()).thenReturn(List.of());
+        when(usuarioRepository.countAgrupadoPorTipo()).thenReturn(List.of());
+    }
+
+    @Test
+    void laReconciliacionFijaLosRecuentosDeLaBaseDeDatos() {
+        estadisticas.registrarPrestamos(null, EstadoPrestamo.ACTIVO, 5);
+        when(prestamoRepository.countAgrupadoPorEstado()).thenReturn(filas(
+                new Object[] {EstadoPrestamo.ACTIVO, 3L}, new Object[] {EstadoPrestamo.DEVUELTO, 7L}));
+
+        estadisticas.reconciliar();
+
+        assertEquals(3, estadisticas.contarPrestamos(EstadoPrestamo.ACTIVO));
+        assertEquals(7, estadisticas.contarPrestamos(EstadoPrestamo.DEVUELTO));
+        assertEquals(0, estadisticas.contarPrestamos(EstadoPrestamo.VENCIDO));
+    }
+
+    @Test
+    void unCambioAplicadoDuranteLaConsultaAplazaLaReconciliacion() {
+        estadisticas.registrarPrestamos(null, EstadoPrestamo.ACTIVO, 2);
+        // Cada consulta ya ve un préstamo nuevo cuyo cambio se aplica a los contadores mientras tanto
+        when(prestamoRepository.countAgrupadoPorEstado()).thenAnswer(invocacion -> {
+            estadisticas.registrarPrestamo(null, EstadoPrestamo.ACTIVO);
+            return filas(new Object[] {EstadoPrestamo.ACTIVO, estadisticas.contarPrestamos(EstadoPrestamo.ACTIVO)});
+        });
+
+        estadisticas.reconciliar();
+
+        // Aplicar la consulta junto con el cambio lo contaría dos veces; sin reconciliar queda exacto
+        assertEquals(5, estadisticas.contarPrestamos(EstadoPrestamo.ACTIVO));
+    }
+
+    @Test
+    void reconciliarMientrasSeConfirmanCambiosNoLosPierdeNiLosDuplica() throws InterruptedException {
+        AtomicLong enBaseDeDatos = new AtomicLong();
+        when(prestamoRepository.countAgrupadoPorEstado()).thenAnswer(
+                invocacion -> filas(new Object[] {EstadoPrestamo.ACTIVO, enBaseDeDatos.get()}));
+        AtomicBoolean parar = new AtomicBoolean();
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 3; h++) {
+            Thread hilo = new Thread(() -> {
+                long vuelta = 0;
+                while (!parar.get()) {
+                    // Como en una transacción: el cambio se registra antes del commit y se aplica al terminar
+                    boolean confirmar = ++vuelta % 4 != 0;
+                    TransactionSynchronizationManager.initSynchronization();
+                    try {
+                        estadisticas.registrarPrestamo(null, EstadoPrestamo.ACTIVO);
+                        if (confirmar) {
+                            enBaseDeDatos.incrementAndGet();
+                        }
+                        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+                            sincronizacion.afterCompletion(confirmar ? TransactionSynchronization.STATUS_COMMITTED
+                                    : TransactionSynchronization.STATUS_ROLLED_BACK);
+                        }
+                    } finally {
+                        TransactionSynchronizationManager.clearSynchronization();
+                    }
+                    if (vuelta % 64 == 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        long fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() < fin) {
+            estadisticas.reconciliar();
+        }
+        parar.set(true);
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        assertEquals(enBaseDeDatos.get(), estadisticas.contarPrestamos(EstadoPrestamo.ACTIVO));
+    }
+
+    private static List<Object[]> filas(Object[]... filas) {
+        return List.of(filas);
+    }
+}
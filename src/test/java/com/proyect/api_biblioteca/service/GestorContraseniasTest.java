@@ -0,0 +1,78 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Operaciones de contraseña que agotan la espera con el único hilo ocupado
+ */
+class GestorContraseniasTest {
+
+    private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch ocupado = new CountDownLatch(1);
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    // Un hilo, un hueco en la cola y 50 ms de espera; coste 4 para que las pruebas vayan rápido
+    private final GestorContrasenias gestor = new GestorContrasenias(usuarioRepository,
+            mock(PlatformTransactionManager.class), meterRegistry, 1, 1, 50, 1, 4);
+
+    @AfterEach
+    void detener() {
+        liberar.countDown();
+        gestor.detener();
+    }
+
+    @Test
+    void unaOperacionQueAgotaLaEsperaSaleDeLaColaYNoSeEjecuta() throws InterruptedException {
+        ocuparHilo();
+
+        assertThrows(ServicioSaturadoException.class, () -> gestor.codificar("secreta1"));
+        assertEquals(0, meterRegistry.get("biblioteca.contrasenias.cola").gauge().value());
+        // El hueco de la cola queda libre para la siguiente
+        assertThrows(ServicioSaturadoException.class, () -> gestor.codificar("secreta2"));
+        assertEquals(2, meterRegistry.get("biblioteca.contrasenias.rechazadas").counter().count());
+
+        liberar.countDown();
+        assertTrue(gestor.coincide("secreta3", gestor.codificar("secreta3")));
+        // El hash de la tarea en segundo plano y los dos de la última operación: las abandonadas no llegaron a empezar
+        assertEquals(3, meterRegistry.get("biblioteca.contrasenias.hash").timer().count());
+    }
+
+    @Test
+    void conLaColaLlenaSeRechazaSinEsperar() throws InterruptedException {
+        ocuparHilo();
+        gestor.actualizarEnSegundoPlano(2L, "secreta1", "secreta1");
+
+        assertThrows(ServicioSaturadoException.class, () -> gestor.codificar("secreta2"));
+        assertEquals(1, meterRegistry.get("biblioteca.contrasenias.cola").gauge().value());
+    }
+
+    /**
+     * Deja el único hilo bloqueado en la búsqueda del usuario de una actualización en segundo plano
+     */
+    private void ocuparHilo() throws InterruptedException {
+        when(usuarioRepository.findById(any())).thenAnswer(invocacion -> {
+            ocupado.countDown();
+            liberar.await();
+            return Optional.<Usuario>empty();
+        });
+        gestor.actualizarEnSegundoPlano(1L, "secreta0", "secreta0");
+        assertTrue(ocupado.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,184 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.dto.SesionDTO;
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Emisión y verificación de tokens con un reloj controlado
+ */
+class GestorTokensTest {
+
+    private static final byte[] CLAVE = "clave-de-prueba-de-32-bytes-o-mas!".getBytes();
+    private static final Duration DURACION = Duration.ofHours(1);
+    private static final String ALFABETO = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private final AtomicLong ahora = new AtomicLong(1_700_000_000_000L);
+    private final GestorTokens gestor = new GestorTokens(Base64.getEncoder().encodeToString(CLAVE), DURACION, ahora::get);
+
+    @Test
+    void unTokenEmitidoSeVerificaConSusDatos() {
+        String token = gestor.emitir(usuario(42L, TipoUsuario.BIBLIOTECARIO, EstadoUsuario.ACTIVO));
+
+        SesionDTO sesion = gestor.verificar(token);
+
+        assertNotNull(sesion);
+        assertEquals(42L, sesion.getUsuarioId());
+        assertEquals(TipoUsuario.BIBLIOTECARIO, sesion.getTipoUsuario());
+        assertEquals(EstadoUsuario.ACTIVO, sesion.getEstado());
+        assertEquals(ahora.get(), sesion.getEmitido());
+        assertEquals(ahora.get() + DURACION.toMillis(), sesion.getExpira());
+    }
+
+    @Test
+    void otroGestorConLaMismaClaveLoAcepta() {
+        String token = gestor.emitir(usuario(1L, TipoUsuario.USUARIO, EstadoUsuario.ACTIVO));
+        GestorTokens otro = new GestorTokens(Base64.getEncoder().encodeToString(CLAVE), DURACION, ahora::get);
+        GestorTokens otraClave = new GestorTokens(Base64.getEncoder().encodeToString(new byte[32]), DURACION, ahora::get);
+
+        assertNotNull(otro.verificar(token));
+        assertNull(otraClave.verificar(token));
+    }
+
+    @Test
+    void cualquierCambioEnLosDatosOLaFirmaLoInvalida() {
+        String token = gestor.emitir(usuario(7L, TipoUsuario.USUARIO, EstadoUsuario.ACTIVO));
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == '.') {
+                continue;
+            }
+            char[] alterado = token.toCharArray();
+            alterado[i] = ALFABETO.charAt((ALFABETO.indexOf(alterado[i]) + 1) % ALFABETO.length());
+            assertNull(gestor.verificar(new String(alterado)), "carácter " + i);
+        }
+    }
+
+    @Test
+    void rechazaLosBitsSobrantesDistintosDeCero() {
+        String token = gestor.emitir(usuario(7L, TipoUsuario.USUARIO, EstadoUsuario.ACTIVO));
+        int punto = token.indexOf('.');
+        // 35 caracteres codifican 26 bytes y 43 caracteres 32 bytes: los dos últimos bits de cada parte
+        // sobran, así que activarlos da otra cadena con los mismos bytes (y la misma firma válida)
+        for (int posicion : new int[] {punto - 1, token.length() - 1}) {
+            for (int bits = 1; bits <= 3; bits++) {
+                char[] alterado = token.toCharArray();
+                alterado[posicion] = ALFABETO.charAt(ALFABETO.indexOf(alterado[posicion]) | bits);
+                String otro = new String(alterado);
+                assertEquals(decodificar(token), decodificar(otro));
+                assertNull(gestor.verificar(otro), "bits " + bits + " en " + posicion);
+            }
+        }
+    }
+
+    @Test
+    void rechazaFormatosInvalidos() {
+        String token = gestor.emitir(usuario(7L, TipoUsuario.USUARIO, EstadoUsuario.ACTIVO));
+        int punto = token.indexOf('.');
+        assertNull(gestor.verificar(null));
+        assertNull(gestor.verificar(""));
+        assertNull(gestor.verificar(token + "A"));
+        assertNull(gestor.verificar(token.substring(1)));
+        assertNull(gestor.verificar(token.replace('.', 'A')));
+        for (char invalido : new char[] {'+', '/', '=', '.', 'ñ', ' '}) {
+            assertNull(gestor.verificar(invalido + token.substring(1)), "carácter " + invalido);
+            assertNull(gestor.verificar(token.substring(0, punto + 1) + invalido + token.substring(punto + 2)),
+                    "carácter " + invalido);
+        }
+    }
+
+    @Test
+    void rechazaTipoOEstadoFueraDeRangoAunqueEsteFirmado() throws Exception {
+        assertNotNull(gestor.verificar(firmar(1L, TipoUsuario.USUARIO.ordinal(), EstadoUsuario.ACTIVO.ordinal())));
+        assertNull(gestor.verificar(firmar(1L, TipoUsuario.values().length, 0)));
+        assertNull(gestor.verificar(firmar(1L, 0, EstadoUsuario.values().length)));
+        assertNull(gestor.verificar(firmar(1L, -1, 0)));
+    }
+
+    @Test
+    void caducaAlCumplirseLaDuracion() {
+        String token = gestor.emitir(usuario(7L, TipoUsuario.USUARIO, EstadoUsuario.ACTIVO));
+        ahora.addAndGet(DURACION.toMillis() - 1);
+        assertNotNull(gestor.verificar(token));
+        ahora.incrementAndGet();
+        assertNull(gestor.verificar(token));
+    }
+
+    @Test
+    void laRevocacionInvalidaLosEmitidosHastaEseMismoMilisegundo() {
+        Usuario usuario = usuario(7L, TipoUsuario.USUARIO, EstadoUsuario.ACTIVO);
+        String anterior = gestor.emitir(usuario);
+        ahora.incrementAndGet();
+        String mismoMilisegundo = gestor.emitir(usuario);
+        gestor.revocar(7L);
+        ahora.incrementAndGet();
+        String posterior = gestor.emitir(usuario);
+
+        // En el mismo milisegundo no se sabe qué fue antes: se da por revocado
+        assertNull(gestor.verificar(anterior));
+        assertNull(gestor.verificar(mismoMilisegundo));
+        assertNotNull(gestor.verificar(posterior));
+        assertNotNull(gestor.verificar(gestor.emitir(usuario(8L, TipoUsuario.USUARIO, EstadoUsuario.ACTIVO))));
+    }
+
+    @Test
+    void lasRevocacionesSeDescartanCuandoCaducanSusTokens() {
+        gestor.revocar(7L);
+        ahora.addAndGet(DURACION.toMillis());
+        gestor.limpiarRevocados();
+        assertEquals(1, gestor.getRevocados());
+        ahora.incrementAndGet();
+        gestor.limpiarRevocados();
+        assertEquals(0, gestor.getRevocados());
+    }
+
+    @Test
+    void rechazaClavesCortasYDuracionesNoPositivas() {
+        String corta = Base64.getEncoder().encodeToString(new byte[31]);
+        String valida = Base64.getEncoder().encodeToString(CLAVE);
+        assertThrows(IllegalArgumentException.class, () -> new GestorTokens(corta, DURACION, ahora::get));
+        assertThrows(IllegalArgumentException.class, () -> new GestorTokens(valida, Duration.ZERO, ahora::get));
+        assertThrows(IllegalArgumentException.class, () -> new GestorTokens(valida, Duration.ofSeconds(-1), ahora::get));
+    }
+
+    /**
+     * Token con el formato de GestorTokens y firmado con la misma clave, con tipo y estado arbitrarios
+     */
+    private String firmar(long usuarioId, int tipo, int estado) throws Exception {
+        ByteBuffer datos = ByteBuffer.allocate(26);
+        datos.putLong(usuarioId).putLong(ahora.get()).putLong(ahora.get() + DURACION.toMillis());
+        datos.put((byte) tipo).put((byte) estado);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(CLAVE, "HmacSHA256"));
+        Base64.Encoder codificador = Base64.getUrlEncoder().withoutPadding();
+        return codificador.encodeToString(datos.array()) + "." + codificador.encodeToString(mac.doFinal(datos.array()));
+    }
+
+    private static String decodificar(String token) {
+        Base64.Decoder decodificador = Base64.getUrlDecoder();
+        int punto = token.indexOf('.');
+        return Base64.getEncoder().encodeToString(decodificador.decode(token.substring(0, punto)))
+                + Base64.getEncoder().encodeToString(decodificador.decode(token.substring(punto + 1)));
+    }
+
+    private static Usuario usuario(Long id, TipoUsuario tipo, EstadoUsuario estado) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setTipoUsuario(tipo);
+        usuario.setEstado(estado);
+        return usuario;
+    }
+}
@@ -0,0 +1,108 @@
+package com.proyect.api_biblioteca.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Cubos de fichas del límite de login con un reloj controlado
+ */
+class LimitadorLoginTest {
+
+    private final AtomicLong ahora = new AtomicLong();
+
+    @Test
+    void unCuboNuevoEmpiezaLlenoYRechazaConElTiempoDeEspera() {
+        // 5 fichas y 5 por minuto: una ficha cada 12 segundos
+        LimitadorLogin limitador = limitador(5, 5, 1000, 1000);
+        for (int i = 0; i < 5; i++) {
+            limitador.comprobar("ana@biblioteca.com", null);
+        }
+        assertEquals(12, rechazo(limitador, "ana@biblioteca.com").getSegundosEspera());
+
+        ahora.set(6_000);
+        assertEquals(6, rechazo(limitador, "ana@biblioteca.com").getSegundosEspera());
+        // Lo que falta se redondea hacia arriba, y nunca se pide esperar cero segundos
+        ahora.set(10_999);
+        assertEquals(2, rechazo(limitador, "ana@biblioteca.com").getSegundosEspera());
+        ahora.set(11_999);
+        assertEquals(1, rechazo(limitador, "ana@biblioteca.com").getSegundosEspera());
+        ahora.set(12_000);
+        limitador.comprobar("ana@biblioteca.com", null);
+    }
+
+    @Test
+    void laRecargaFraccionariaNoSePierdeEntreIntentos() {
+        // 1/12 de milésima de ficha por milisegundo: cada intento rechazado llega antes de recargar una milésima
+        LimitadorLogin limitador = limitador(1, 5, 1000, 1000);
+        limitador.comprobar("ana@biblioteca.com", null);
+        for (long t = 1; t < 12_000; t++) {
+            ahora.set(t);
+            rechazo(limitador, "ana@biblioteca.com");
+        }
+        ahora.set(12_000);
+        limitador.comprobar("ana@biblioteca.com", null);
+    }
+
+    @Test
+    void laRecargaNoSuperaLaCapacidad() {
+        LimitadorLogin limitador = limitador(3, 60, 1000, 1000);
+        limitador.comprobar("ana@biblioteca.com", null);
+        ahora.set(Duration.ofDays(1).toMillis());
+        for (int i = 0; i < 3; i++) {
+            limitador.comprobar("ana@biblioteca.com", null);
+        }
+        assertEquals(1, rechazo(limitador, "ana@biblioteca.com").getSegundosEspera());
+    }
+
+    @Test
+    void elEstadoEmpaquetadoAdmiteLosMaximosDeSusCampos() {
+        // 24 bits de milésimas de ficha: hasta 16777 fichas
+        assertDoesNotThrow(() -> limitador(16_777, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> limitador(16_778, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> limitador(5, 5, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> limitador(5, 0, 1, 1));
+
+        // 40 bits de instante: el cubo lleno y el instante no se pisan cerca del máximo (unos 34 años)
+        LimitadorLogin limitador = limitador(16_777, 1, 1000, 1000);
+        ahora.set((1L << 40) - 120_001);
+        for (int i = 0; i < 16_777; i++) {
+            limitador.comprobar("ana@biblioteca.com", null);
+        }
+        rechazo(limitador, "ana@biblioteca.com");
+        ahora.addAndGet(60_000);
+        limitador.comprobar("ana@biblioteca.com", null);
+        rechazo(limitador, "ana@biblioteca.com");
+    }
+
+    @Test
+    void laIpLimitaAunqueCambieElEmailYElEmailSeNormaliza() {
+        LimitadorLogin limitador = limitador(2, 1, 3, 1);
+        limitador.comprobar("ana@biblioteca.com", "10.0.0.1");
+        limitador.comprobar(" ANA@Biblioteca.com ", "10.0.0.1");
+        assertEquals(60, rechazo(limitador, "ana@biblioteca.com", "10.0.0.2").getSegundosEspera());
+
+        limitador.comprobar("luis@biblioteca.com", "10.0.0.1");
+        assertEquals(60, rechazo(limitador, "marta@biblioteca.com", "10.0.0.1").getSegundosEspera());
+        limitador.comprobar("marta@biblioteca.com", "10.0.0.3");
+    }
+
+    private LimitadorLogin limitador(int capacidadEmail, int recargaEmail, int capacidadIp, int recargaIp) {
+        return new LimitadorLogin(new SimpleMeterRegistry(), capacidadEmail, recargaEmail, capacidadIp, recargaIp,
+                1000, Duration.ofMinutes(15), ahora::get);
+    }
+
+    private static LimiteExcedidoException rechazo(LimitadorLogin limitador, String email) {
+        return rechazo(limitador, email, null);
+    }
+
+    private static LimiteExcedidoException rechazo(LimitadorLogin limitador, String email, String ip) {
+        return assertThrows(LimiteExcedidoException.class, () -> limitador.comprobar(email, ip));
+    }
+}
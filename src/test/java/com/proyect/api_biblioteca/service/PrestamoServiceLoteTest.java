@@ -0,0 +1,275 @@
+package com.proyect.api_biblioteca.service;
+
+import com.proyect.api_biblioteca.dto.PrestamoDTO;
+import com.proyect.api_biblioteca.dto.ResultadoLoteDTO;
+import com.proyect.api_biblioteca.model.entity.EstadoLibro;
+import com.proyect.api_biblioteca.model.entity.EstadoPrestamo;
+import com.proyect.api_biblioteca.model.entity.EstadoUsuario;
+import com.proyect.api_biblioteca.model.entity.Libro;
+import com.proyect.api_biblioteca.model.entity.Prestamo;
+import com.proyect.api_biblioteca.model.entity.TipoUsuario;
+import com.proyect.api_biblioteca.model.entity.Usuario;
+import com.proyect.api_biblioteca.repository.LibroRepository;
+import com.proyect.api_biblioteca.repository.PrestamoRepository;
+import com.proyect.api_biblioteca.repository.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Operaciones de préstamo en lote contra la base de datos en memoria: un resultado por solicitud
+ * en el mismo orden, fallos parciales que no afectan al resto, IDs repetidos y efectos sobre
+ * libros y usuarios
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Sin Tomcat no hay manejador para las URL classpath:, así que la configuración de la caché se busca por nombre
+        "spring.jpa.properties.hibernate.javax.cache.uri=caffeine.conf",
+        "spring.jpa.show-sql=false"
+})
+class PrestamoServiceLoteTest {
+
+    private static final AtomicLong SECUENCIA = new AtomicLong(System.nanoTime() % 1_000_000_000L);
+
+    @Autowired
+    private PrestamoService prestamoService;
+
+    @Autowired
+    private LibroService libroService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private PrestamoRepository prestamoRepository;
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void prestarEnLoteAceptaLasValidasYRechazaElResto() {
+        Long usuario = crearUsuario();
+        Long otroUsuario = crearUsuario();
+        Long libro = crearLibro();
+        Long otroLibro = crearLibro();
+        Long enReparacion = crearLibro();
+        libroService.cambiarEstado(enReparacion, EstadoLibro.EN_REPARACION);
+
+        List<ResultadoLoteDTO> resultados = prestamoService.crearPrestamosEnLote(List.of(
+                solicitud(usuario, libro),
+                solicitud(otroUsuario, libro),
+                solicitud(usuario, enReparacion),
+                solicitud(-1L, otroLibro),
+                solicitud(usuario, -1L),
+                solicitud(null, null),
+                solicitud(otroUsuario, otroLibro)));
+
+        assertEquals(7, resultados.size());
+        assertExito(resultados.get(0));
+        assertEquals("El libro no está disponible para préstamo", resultados.get(1).getMensaje());
+        assertEquals("El libro no está disponible para préstamo", resultados.get(2).getMensaje());
+        assertEquals("No existe un usuario con el ID: -1", resultados.get(3).getMensaje());
+        assertEquals("No existe un libro con el ID: -1", resultados.get(4).getMensaje());
+        assertFalse(resultados.get(5).isExito());
+        assertExito(resultados.get(6));
+
+        Prestamo creado = prestamoRepository.findById(resultados.get(0).getPrestamoId()).orElseThrow();
+        assertEquals(EstadoPrestamo.ACTIVO, creado.getEstado());
+        assertEquals(EstadoLibro.PRESTADO, estadoLibro(libro));
+        assertEquals(EstadoLibro.PRESTADO, estadoLibro(otroLibro));
+        assertEquals(EstadoLibro.EN_REPARACION, estadoLibro(enReparacion));
+        assertEquals(1, prestamosActivos(usuario));
+        assertEquals(1, prestamosActivos(otroUsuario));
+    }
+
+    @Test
+    void prestarEnLoteRespetaElLimiteContandoLasSolicitudesAnteriores() {
+        Long usuario = crearUsuario();
+        List<PrestamoDTO> solicitudes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            solicitudes.add(solicitud(usuario, crearLibro()));
+        }
+
+        List<ResultadoLoteDTO> resultados = prestamoService.crearPrestamosEnLote(solicitudes);
+
+        assertEquals(List.of(true, true, true, false), resultados.stream().map(ResultadoLoteDTO::isExito).toList());
+        assertTrue(resultados.get(3).getMensaje().startsWith("El usuario ha alcanzado el límite"));
+        assertEquals(EstadoLibro.DISPONIBLE, estadoLibro(solicitudes.get(3).getLibroId()));
+        assertEquals(3, prestamosActivos(usuario));
+    }
+
+    @Test
+    void devolverEnLoteProcesaCadaIdUnaVez() {
+        Long usuario = crearUsuario();
+        Long prestamo = prestar(usuario, crearLibro());
+        Long vencido = prestar(usuario, crearLibro());
+        Long yaDevuelto = prestar(usuario, crearLibro());
+        prestamoService.devolverLibro(yaDevuelto, null);
+        jdbcTemplate.update("UPDATE prestamos SET fecha_devolucion_esperada = ? WHERE id = ?",
+                LocalDate.now().minusDays(3), vencido);
+
+        List<ResultadoLoteDTO> resultados = prestamoService.devolverLibrosEnLote(
+                Arrays.asList(prestamo, prestamo, yaDevuelto, -1L, null, vencido), "en lote");
+
+        assertEquals(6, resultados.size());
+        assertExito(resultados.get(0));
+        assertNull(resultados.get(0).getMulta());
+        assertEquals("El préstamo está repetido en la solicitud", resultados.get(1).getMensaje());
+        assertEquals("El préstamo no está activo", resultados.get(2).getMensaje());
+        assertEquals("No existe un préstamo con el ID: -1", resultados.get(3).getMensaje());
+        assertFalse(resultados.get(4).isExito());
+        assertExito(resultados.get(5));
+        assertEquals(3.0, resultados.get(5).getMulta());
+
+        Prestamo devuelto = prestamoRepository.findById(prestamo).orElseThrow();
+        assertEquals(EstadoPrestamo.DEVUELTO, devuelto.getEstado());
+        assertEquals("en lote", devuelto.getObservaciones());
+        assertEquals(3.0, prestamoRepository.findById(vencido).orElseThrow().getMulta());
+        assertEquals(EstadoLibro.DISPONIBLE, estadoLibro(devuelto.getLibro().getId()));
+        assertEquals(0, prestamosActivos(usuario));
+    }
+
+    @Test
+    void devolverEnLoteNoDejaDisponibleUnLibroQueYaNoEstaPrestado() {
+        Long usuario = crearUsuario();
+        Long libro = crearLibro();
+        Long prestamo = prestar(usuario, libro);
+        libroService.cambiarEstado(libro, EstadoLibro.EN_REPARACION);
+
+        List<ResultadoLoteDTO> resultados = prestamoService.devolverLibrosEnLote(List.of(prestamo), null);
+
+        assertExito(resultados.get(0));
+        assertEquals(EstadoLibro.EN_REPARACION, estadoLibro(libro));
+        assertEquals(0, prestamosActivos(usuario));
+    }
+
+    @Test
+    void devolverEnLoteNoCargaLosLibrosUnoAUno() {
+        Long usuario = crearUsuario();
+        List<Long> prestamos = List.of(prestar(usuario, crearLibro()), prestar(usuario, crearLibro()),
+                prestar(usuario, crearLibro()));
+        entityManagerFactory.getCache().evictAll();
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long cargasAntes = estadisticas.getEntityFetchCount();
+
+        List<ResultadoLoteDTO> resultados = prestamoService.devolverLibrosEnLote(prestamos, null);
+
+        assertTrue(resultados.stream().allMatch(ResultadoLoteDTO::isExito));
+        assertEquals(cargasAntes, estadisticas.getEntityFetchCount(), "Se han inicializado libros perezosos");
+    }
+
+    @Test
+    void renovarEnLoteSoloRenuevaLosActivosNoVencidos() {
+        Long usuario = crearUsuario();
+        Long prestamo = prestar(usuario, crearLibro());
+        Long vencido = prestar(usuario, crearLibro());
+        Long devuelto = prestar(usuario, crearLibro());
+        prestamoService.devolverLibro(devuelto, null);
+        jdbcTemplate.update("UPDATE prestamos SET fecha_devolucion_esperada = ? WHERE id = ?",
+                LocalDate.now().minusDays(1), vencido);
+        LocalDate fechaAnterior = prestamoRepository.findById(prestamo).orElseThrow().getFechaDevolucionEsperada();
+
+        List<ResultadoLoteDTO> resultados = prestamoService.renovarPrestamosEnLote(
+                List.of(prestamo, vencido, devuelto, prestamo));
+
+        assertExito(resultados.get(0));
+        assertEquals(fechaAnterior.plusDays(15), resultados.get(0).getFechaDevolucionEsperada());
+        assertEquals("No se puede renovar un préstamo vencido", resultados.get(1).getMensaje());
+        assertEquals("Solo se pueden renovar préstamos activos", resultados.get(2).getMensaje());
+        assertEquals("El préstamo está repetido en la solicitud", resultados.get(3).getMensaje());
+
+        Prestamo renovado = prestamoRepository.findById(prestamo).orElseThrow();
+        assertEquals(EstadoPrestamo.RENOVADO, renovado.getEstado());
+        assertEquals(fechaAnterior.plusDays(15), renovado.getFechaDevolucionEsperada());
+        assertEquals(EstadoPrestamo.ACTIVO, prestamoRepository.findById(vencido).orElseThrow().getEstado());
+
+        // Un préstamo renovado no se renueva dos veces
+        assertEquals("Solo se pueden renovar préstamos activos",
+                prestamoService.renovarPrestamosEnLote(List.of(prestamo)).get(0).getMensaje());
+    }
+
+    @Test
+    void unLoteVacioNoHaceNadaYUnoDemasiadoGrandeSeRechaza() {
+        assertTrue(prestamoService.devolverLibrosEnLote(List.of(), null).isEmpty());
+        assertTrue(prestamoService.renovarPrestamosEnLote(List.of()).isEmpty());
+        List<Long> demasiados = new ArrayList<>();
+        for (long id = 0; id <= 500; id++) {
+            demasiados.add(id);
+        }
+        assertThrows(IllegalArgumentException.class, () -> prestamoService.devolverLibrosEnLote(demasiados, null));
+    }
+
+    private Long prestar(Long usuarioId, Long libroId) {
+        ResultadoLoteDTO resultado = prestamoService.crearPrestamosEnLote(List.of(solicitud(usuarioId, libroId))).get(0);
+        assertExito(resultado);
+        assertNotNull(resultado.getPrestamoId());
+        return resultado.getPrestamoId();
+    }
+
+    private EstadoLibro estadoLibro(Long libroId) {
+        return libroRepository.findById(libroId).orElseThrow().getEstado();
+    }
+
+    private int prestamosActivos(Long usuarioId) {
+        return usuarioRepository.findById(usuarioId).orElseThrow().getPrestamosActivos();
+    }
+
+    private Long crearUsuario() {
+        long sufijo = SECUENCIA.incrementAndGet();
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Prueba");
+        usuario.setApellido("Lote " + sufijo);
+        usuario.setEmail("prueba.lote." + sufijo + "@biblioteca.com");
+        usuario.setPassword("prueba");
+        usuario.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        usuario.setTipoUsuario(TipoUsuario.USUARIO);
+        usuario.setEstado(EstadoUsuario.ACTIVO);
+        return usuarioService.save(usuario).getId();
+    }
+
+    private Long crearLibro() {
+        long sufijo = SECUENCIA.incrementAndGet();
+        Libro libro = new Libro();
+        libro.setTitulo("Libro de prueba en lote " + sufijo);
+        libro.setAutor("Autor de prueba");
+        libro.setAnioPublicacion(2000);
+        libro.setIsbn(String.format("97%011d", sufijo));
+        return libroService.save(libro).getId();
+    }
+
+    private static PrestamoDTO solicitud(Long usuarioId, Long libroId) {
+        PrestamoDTO solicitud = new PrestamoDTO();
+        solicitud.setUsuarioId(usuarioId);
+        solicitud.setLibroId(libroId);
+        return solicitud;
+    }
+
+    private static void assertExito(ResultadoLoteDTO resultado) {
+        assertTrue(resultado.isExito(), resultado.getMensaje());
+    }
+}